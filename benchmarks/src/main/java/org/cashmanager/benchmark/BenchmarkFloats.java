@@ -0,0 +1,63 @@
+package org.cashmanager.benchmark;
+
+import org.cashmanager.contract.Currency;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the float contents used across the benchmarks so each scenario means the same thing in every benchmark
+ */
+public final class BenchmarkFloats {
+    static final int DEEP_TUBE = 500;
+    static final int SPARSE_TUBE = 3;
+
+    private BenchmarkFloats() {
+    }
+
+    /**
+     * How the float is stocked
+     * SPARSE - just enough £2 coins to cover the change and a handful of every other coin
+     * DEEP - hundreds of every coin
+     */
+    public enum Tubes {
+        SPARSE, DEEP
+    }
+
+    /**
+     * Which path of the change calculation the float drives
+     * GREEDY_HIT - every denomination is stocked so the top down pass always finds the change
+     * FALLBACK_FORCED - a single 50p with no 10p, 5p, 2p or 1p coins strands the top down pass on values ending in 60p
+     */
+    public enum Scenario {
+        GREEDY_HIT, FALLBACK_FORCED
+    }
+
+    static Map<Integer, Integer> floatFor(final Scenario scenario, final Tubes tubes, final int changeValue) {
+        int depth = tubes == Tubes.DEEP ? DEEP_TUBE : SPARSE_TUBE;
+        int twoPoundDepth = Math.max(depth, changeValue / 200 + 1);
+
+        Map<Integer, Integer> denominationCounts = new HashMap<>();
+        if (scenario == Scenario.GREEDY_HIT) {
+            Currency.GBP.getDenominations().forEach(denomination -> denominationCounts.put(denomination, depth));
+        } else {
+            denominationCounts.put(100, depth);
+            denominationCounts.put(50, 1);
+            denominationCounts.put(20, Math.max(depth, 4));
+        }
+        denominationCounts.put(200, twoPoundDepth);
+        return denominationCounts;
+    }
+
+    /**
+     * Value of change to request for the scenario.
+     * For FALLBACK_FORCED the change value is moved to the next value ending in 60p so that the single 50p is always taken first
+     * and leaves a remainder only the 20p coins can make.
+     */
+    static int changeValueFor(final Scenario scenario, final int changeValue) {
+        if (scenario == Scenario.GREEDY_HIT) {
+            return changeValue;
+        }
+        return changeValue - changeValue % 100 + 60;
+    }
+}
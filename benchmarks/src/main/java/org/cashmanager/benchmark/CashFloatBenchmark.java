@@ -0,0 +1,61 @@
+package org.cashmanager.benchmark;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashFloat;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of mutating the float through the Map API used at the @{CashManager} boundary and through the slot API.
+ * Each operation adds coins and removes the same coins again so the float stays the same size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CashFloatBenchmark {
+
+    @Param({"SPARSE", "DEEP"})
+    private BenchmarkFloats.Tubes tubes;
+
+    private CashFloat cashFloat;
+    private Map<Integer, Integer> coins;
+    private int[] slotCounts;
+
+    @Setup
+    public void setup() {
+        cashFloat = new CashFloat(Currency.GBP, BenchmarkFloats.floatFor(BenchmarkFloats.Scenario.GREEDY_HIT, tubes, 0));
+
+        coins = new HashMap<>(Map.of(200, 1, 50, 2, 5, 1));
+        slotCounts = new int[Currency.GBP.getSlotCount()];
+        coins.forEach((denomination, count) -> slotCounts[Currency.GBP.getSlot(denomination)] = count);
+    }
+
+    @Benchmark
+    public CashFloat addAndRemoveCoins() {
+        cashFloat.addCoins(coins);
+        cashFloat.removeCoins(coins);
+        return cashFloat;
+    }
+
+    @Benchmark
+    public CashFloat addAndRemoveSlotCounts() {
+        cashFloat.addSlotCounts(slotCounts);
+        cashFloat.removeSlotCounts(slotCounts);
+        return cashFloat;
+    }
+
+    @Benchmark
+    public int readDenominationCounts() {
+        int total = 0;
+        for (Map.Entry<Integer, Integer> entry : cashFloat.getDenominationCounts().entrySet()) {
+            total += entry.getKey() * entry.getValue();
+        }
+        return total;
+    }
+}
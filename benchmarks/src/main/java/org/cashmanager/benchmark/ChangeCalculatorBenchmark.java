@@ -0,0 +1,44 @@
+package org.cashmanager.benchmark;
+
+import org.cashmanager.core.calculator.ChangeCalculator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of calculating change as the float depth and change value grow, for both the top down pass and the fallback solve
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChangeCalculatorBenchmark {
+
+    @Param({"GREEDY_HIT", "FALLBACK_FORCED"})
+    private BenchmarkFloats.Scenario scenario;
+
+    @Param({"SPARSE", "DEEP"})
+    private BenchmarkFloats.Tubes tubes;
+
+    @Param({"1", "75", "1000", "10000"})
+    private int changeValue;
+
+    private ChangeCalculator changeCalculator;
+    private Map<Integer, Integer> floatDenominationCounts;
+    private int valueTotal;
+
+    @Setup
+    public void setup() {
+        changeCalculator = new ChangeCalculator();
+        valueTotal = BenchmarkFloats.changeValueFor(scenario, changeValue);
+        floatDenominationCounts = BenchmarkFloats.floatFor(scenario, tubes, valueTotal);
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> calculateChange() {
+        return changeCalculator.calculateChange(floatDenominationCounts, valueTotal);
+    }
+}
@@ -0,0 +1,49 @@
+package org.cashmanager.benchmark;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashManagerImpl;
+import org.cashmanager.core.ChangeCoverage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost @{ChangeCoverage} adds to each change of the float, for coins which cannot be used within the largest change
+ * (£2, only compared) and coins which can (1p, coverage rebuilt), against a float without a price catalogue.
+ * Each operation adds a coin and removes it again so the float stays the same size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChangeCoverageBenchmark {
+
+    @Param({"NONE", "CATALOGUE"})
+    private String coverage;
+
+    @Param({"200", "1"})
+    private int denomination;
+
+    private CashManagerImpl cashManager;
+    private Map<Integer, Integer> coin;
+
+    @Setup
+    public void setup() {
+        Currency currency = Currency.GBP;
+        cashManager = new CashManagerImpl(currency, BenchmarkFloats.floatFor(BenchmarkFloats.Scenario.GREEDY_HIT, BenchmarkFloats.Tubes.SPARSE, 0));
+        if (coverage.equals("CATALOGUE")) {
+            int largestChange = ChangeCoverage.defaultLargestChange(currency);
+            cashManager.setPriceCatalogue(Map.of(65, largestChange, 80, largestChange, 120, 40, 175, largestChange));
+        }
+        coin = Map.of(denomination, 1);
+    }
+
+    @Benchmark
+    public void addAndRemoveCoin() {
+        cashManager.addCoins(coin);
+        cashManager.removeCoins(coin);
+    }
+}
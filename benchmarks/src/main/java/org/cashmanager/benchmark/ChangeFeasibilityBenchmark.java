@@ -0,0 +1,47 @@
+package org.cashmanager.benchmark;
+
+import org.cashmanager.core.calculator.BoundedChangeSolver;
+import org.cashmanager.core.calculator.ChangeFeasibility;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of proving change cannot be made at a coin starved float: the feasibility checks against the full solve they replace.
+ * The float holds £2 and £1 coins with a single 50p and 20p, so any value ending in 10p or 30p is impossible yet passes
+ * the total and gcd stages, leaving it to the reachability bitset.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChangeFeasibilityBenchmark {
+
+    @Param({"SPARSE", "DEEP"})
+    private BenchmarkFloats.Tubes tubes;
+
+    @Param({"1010", "10030"})
+    private int changeValue;
+
+    private final int[] denominations = {200, 100, 50, 20};
+    private final BoundedChangeSolver solver = new BoundedChangeSolver();
+    private int[] counts;
+
+    @Setup
+    public void setup() {
+        int depth = tubes == BenchmarkFloats.Tubes.DEEP ? BenchmarkFloats.DEEP_TUBE : BenchmarkFloats.SPARSE_TUBE;
+        counts = new int[]{Math.max(depth, changeValue / 200 + 1), depth, 1, 1};
+    }
+
+    @Benchmark
+    public boolean isFeasible() {
+        return ChangeFeasibility.isFeasible(denominations, counts, changeValue);
+    }
+
+    @Benchmark
+    public int[] solve() {
+        return solver.solve(denominations, counts, changeValue);
+    }
+}
@@ -0,0 +1,76 @@
+package org.cashmanager.benchmark;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.calculator.ChangeCalculator;
+import org.cashmanager.core.calculator.ChangeTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of change up to £5 looked up in a @{ChangeTable}, against calculating it, and of bringing the table up to date
+ * after the count of a single denomination changes
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChangeTableBenchmark {
+
+    @Param({"GREEDY_HIT", "FALLBACK_FORCED"})
+    private BenchmarkFloats.Scenario scenario;
+
+    @Param({"75", "460"})
+    private int changeValue;
+
+    /**
+     * Slot whose count changes before each update, 0 = £2 refolds every layer, 7 = 1p refolds only the last
+     */
+    @Param({"0", "7"})
+    private int changedSlot;
+
+    private final Currency currency = Currency.GBP;
+    private ChangeCalculator changeCalculator;
+    private Map<Integer, Integer> floatDenominationCounts;
+    private ChangeTable changeTable;
+    private int[][] alternatingCounts;
+    private int valueTotal;
+    private int round;
+
+    @Setup
+    public void setup() {
+        changeCalculator = new ChangeCalculator(currency);
+        valueTotal = BenchmarkFloats.changeValueFor(scenario, changeValue);
+        floatDenominationCounts = BenchmarkFloats.floatFor(scenario, BenchmarkFloats.Tubes.SPARSE, valueTotal);
+
+        int[] denominations = new int[currency.getSlotCount()];
+        int[] counts = new int[currency.getSlotCount()];
+        for (int slot = 0; slot < denominations.length; slot++) {
+            denominations[slot] = currency.getDenomination(slot);
+            counts[slot] = floatDenominationCounts.getOrDefault(denominations[slot], 0);
+        }
+        changeTable = ChangeTable.build(denominations, counts);
+        int[] changedCounts = counts.clone();
+        changedCounts[changedSlot] = counts[changedSlot] == 0 ? 1 : counts[changedSlot] - 1;
+        alternatingCounts = new int[][]{counts, changedCounts};
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> calculateChange() {
+        return changeCalculator.calculateChange(floatDenominationCounts, valueTotal);
+    }
+
+    @Benchmark
+    public int[] lookup() {
+        return changeTable.lookup(valueTotal);
+    }
+
+    @Benchmark
+    public ChangeTable update() {
+        changeTable = changeTable.update(alternatingCounts[round++ & 1]);
+        return changeTable;
+    }
+}
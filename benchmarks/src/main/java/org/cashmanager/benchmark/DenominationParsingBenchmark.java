@@ -0,0 +1,83 @@
+package org.cashmanager.benchmark;
+
+import org.cashmanager.cli.CLIUtil;
+import org.cashmanager.cli.DenominationCountsParser;
+import org.cashmanager.contract.Currency;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of parsing CLI denominationCounts strings e.g. 200:5,100:10,50:10 as the number of pairs grows.
+ * Compares the split based parser CLIUtil used to have against @{DenominationCountsParser}, both on its own and behind
+ * the Map returned by @{CLIUtil#processRawDenominations}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DenominationParsingBenchmark {
+
+    @Param({"1", "8", "64", "512"})
+    private int pairs;
+
+    private String rawDenominations;
+    private int[] slotCounts;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < pairs; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(Currency.GBP.getDenomination(i % Currency.GBP.getSlotCount())).append(':').append(10 + i);
+        }
+        rawDenominations = builder.toString();
+        slotCounts = new int[Currency.GBP.getSlotCount()];
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> processRawDenominations() {
+        return CLIUtil.processRawDenominations(rawDenominations, Currency.GBP);
+    }
+
+    @Benchmark
+    public int parseIntoSlots() {
+        return DenominationCountsParser.parse(rawDenominations, Currency.GBP, slotCounts);
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> splitBasedParser() {
+        return splitBasedParse(rawDenominations, Currency.GBP);
+    }
+
+    /**
+     * The parser CLIUtil.processRawDenominations used before @{DenominationCountsParser}, kept for comparison
+     */
+    private static Map<Integer, Integer> splitBasedParse(final String rawDenominations, final Currency currency) {
+        Map<Integer, Integer> denominationCount = new HashMap<>();
+        if (rawDenominations.isEmpty()) {
+            return denominationCount;
+        }
+        String[] denominationPairs = rawDenominations.split(",");
+        Arrays.stream(denominationPairs).forEach(denominationPair -> {
+            String[] splitPair = denominationPair.split(":");
+            if (splitPair.length != 2) {
+                throw new IllegalArgumentException(String.format("Unexpected number of values for denomination count: %s", denominationPair));
+            }
+            Integer denomination = Integer.valueOf(splitPair[0]);
+            Integer count = Integer.valueOf(splitPair[1]);
+            if (!currency.getDenominations().contains(denomination)) {
+                throw new IllegalArgumentException(String.format("An unrecognized denomination was provided. Currency:%s, Denomination:%s", currency.name(), denomination));
+            }
+            denominationCount.put(denomination, count);
+        });
+        return denominationCount;
+    }
+}
@@ -0,0 +1,67 @@
+package org.cashmanager.benchmark;
+
+import org.cashmanager.CashManager;
+import org.cashmanager.contract.CashTransaction;
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashManagerImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention on a single shared float, modelled on a vending machine where one thread accepts coins, one dispenses change
+ * and one polls status for telemetry. Run with -tg to change the number of threads in each role e.g. -tg 2,2,1
+ * <p>
+ * The float is restocked every iteration so dispensing cannot drain it during measurement.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class FloatContentionBenchmark {
+    private static final int RESTOCKED_TUBE = 10_000_000;
+
+    private CashManager cashManager;
+    private Map<Integer, Integer> acceptedCoins;
+    private CashTransaction cashTransaction;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        Map<Integer, Integer> denominationCounts = new HashMap<>();
+        Currency.GBP.getDenominations().forEach(denomination -> denominationCounts.put(denomination, RESTOCKED_TUBE));
+        cashManager = new CashManagerImpl(Currency.GBP, denominationCounts);
+
+        acceptedCoins = Map.of(100, 1);
+        cashTransaction = new CashTransaction(125, Map.of(200, 1));
+    }
+
+    @Benchmark
+    @Group("vending")
+    @GroupThreads(1)
+    public CashManager accept() {
+        cashManager.addCoins(acceptedCoins);
+        return cashManager;
+    }
+
+    @Benchmark
+    @Group("vending")
+    @GroupThreads(1)
+    public Map<Integer, Integer> dispense() {
+        return cashManager.processTransaction(cashTransaction);
+    }
+
+    @Benchmark
+    @Group("vending")
+    @GroupThreads(1)
+    public int poll() {
+        int total = 0;
+        for (Map.Entry<Integer, Integer> entry : cashManager.getDenominationCounts().entrySet()) {
+            total += entry.getKey() * entry.getValue();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,80 @@
+package org.cashmanager.benchmark;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashFloat;
+import org.cashmanager.events.FloatEvent;
+import org.cashmanager.events.FloatEventPublisher;
+import org.cashmanager.events.WaitStrategy;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost to the thread changing the float of a reporting consumer which formats every change, called synchronously as a
+ * @{FloatListener} against published to a @{FloatEventPublisher} and handled on the consumer's own thread.
+ * PUBLISH_ONLY hands events to a consumer which does nothing, the cost of the slot claim and publish alone.
+ * Back to back changes keep the ring full, so with fewer cores than threads PUBLISHED still waits for the consumer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FloatEventBenchmark {
+
+    public enum Delivery {NONE, SYNCHRONOUS, PUBLISHED, PUBLISH_ONLY}
+
+    @Param({"NONE", "SYNCHRONOUS", "PUBLISHED", "PUBLISH_ONLY"})
+    private Delivery delivery;
+
+    @Param({"SLEEPING", "BLOCKING"})
+    private WaitStrategy waitStrategy;
+
+    private CashFloat cashFloat;
+    private FloatEventPublisher publisher;
+    private int[] slotCounts;
+
+    @Setup
+    public void setup(final Blackhole blackhole) {
+        cashFloat = new CashFloat(Currency.GBP, BenchmarkFloats.floatFor(BenchmarkFloats.Scenario.GREEDY_HIT, BenchmarkFloats.Tubes.SPARSE, 0));
+        slotCounts = new int[Currency.GBP.getSlotCount()];
+        slotCounts[Currency.GBP.getSlot(50)] = 1;
+        switch (delivery) {
+            case NONE -> {
+            }
+            case SYNCHRONOUS -> cashFloat.addListener((mutation, previous, next) ->
+                    blackhole.consume(String.format("%s %s %s", mutation, next.getVersion(), Arrays.toString(next.copyCounts()))));
+            case PUBLISHED, PUBLISH_ONLY -> {
+                publisher = new FloatEventPublisher(Currency.GBP);
+                publisher.subscribe("report", (event, sequence, endOfBatch) -> {
+                    if (delivery == Delivery.PUBLISHED) {
+                        blackhole.consume(format(event));
+                    }
+                }, waitStrategy);
+                cashFloat.addListener(publisher);
+                publisher.start();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (publisher != null) {
+            publisher.close();
+        }
+    }
+
+    @Benchmark
+    public CashFloat addAndRemoveSlotCounts() {
+        cashFloat.addSlotCounts(slotCounts);
+        cashFloat.removeSlotCounts(slotCounts);
+        return cashFloat;
+    }
+
+    private static String format(final FloatEvent event) {
+        return String.format("%s %s %s", event.getMutation(), event.getVersion(), Arrays.toString(event.copyCounts()));
+    }
+}
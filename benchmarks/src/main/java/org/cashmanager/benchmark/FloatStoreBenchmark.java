@@ -0,0 +1,80 @@
+package org.cashmanager.benchmark;
+
+import org.cashmanager.contract.CashTransaction;
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashFloat;
+import org.cashmanager.store.FloatStore;
+import org.cashmanager.store.StoredCashManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans across a fleet of floats held in a @{FloatStore} against a @{CashFloat} per machine on the heap,
+ * and the cost of a transaction through a @{StoredCashManager} handle
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class FloatStoreBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int machines;
+
+    private final Currency currency = Currency.GBP;
+    private FloatStore store;
+    private CashFloat[] cashFloats;
+    private CashTransaction cashTransaction;
+    private int machine;
+
+    @Setup
+    public void setup() {
+        Map<Integer, Integer> floatCounts = BenchmarkFloats.floatFor(BenchmarkFloats.Scenario.GREEDY_HIT, BenchmarkFloats.Tubes.SPARSE, 0);
+        int[] counts = new int[currency.getSlotCount()];
+        floatCounts.forEach((denomination, count) -> counts[currency.getSlot(denomination)] = count);
+
+        store = FloatStore.allocate(currency, machines);
+        cashFloats = new CashFloat[machines];
+        for (int i = 0; i < machines; i++) {
+            counts[3] = i % 40;
+            store.reset(i, counts, 0xFF);
+            cashFloats[i] = new CashFloat(currency, floatCounts);
+        }
+        cashTransaction = new CashTransaction(80, Map.of(100, 1));
+    }
+
+    @Benchmark
+    public long[] storeTotals() {
+        return store.totals();
+    }
+
+    @Benchmark
+    public long[] heapTotals() {
+        long[] totals = new long[currency.getSlotCount()];
+        for (CashFloat cashFloat : cashFloats) {
+            for (int slot = 0; slot < totals.length; slot++) {
+                totals[slot] += cashFloat.getCount(slot);
+            }
+        }
+        return totals;
+    }
+
+    @Benchmark
+    public int[] storeFindLowTubes() {
+        return store.findLowTubes(20, 2);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Map<Integer, Integer> storedTransaction() {
+        StoredCashManager cashManager = store.cashManager(machine++ % machines);
+        Map<Integer, Integer> change = cashManager.processTransaction(cashTransaction);
+        cashManager.removeCoins(Map.of(100, 1));
+        cashManager.addCoins(change);
+        return change;
+    }
+}
@@ -0,0 +1,66 @@
+package org.cashmanager.benchmark;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashFloat;
+import org.cashmanager.journal.DurabilityMode;
+import org.cashmanager.journal.FloatJournal;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of float changes with the journal registered in each durability mode, against no journal at all.
+ * Several threads change the float at once so @{DurabilityMode#SYNC} can group their records into shared forces.
+ * Each operation adds a coin and removes it again, writing two records.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+
+    @Param({"NONE", "SYNC", "BATCHED", "ASYNC"})
+    private String durability;
+
+    private Path directory;
+    private FloatJournal journal;
+    private CashFloat cashFloat;
+    private int[] slotCounts;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException {
+        cashFloat = new CashFloat(Currency.GBP, BenchmarkFloats.floatFor(BenchmarkFloats.Scenario.GREEDY_HIT, BenchmarkFloats.Tubes.DEEP, 0));
+        if (!"NONE".equals(durability)) {
+            directory = Files.createTempDirectory("journal-benchmark");
+            journal = FloatJournal.open(directory.resolve("float.journal"), Currency.GBP, DurabilityMode.fromName(durability));
+            journal.writeBaseline(cashFloat.getState());
+            cashFloat.addListener(journal);
+        }
+        slotCounts = new int[Currency.GBP.getSlotCount()];
+        slotCounts[Currency.GBP.getSlot(50)] = 1;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        if (journal != null) {
+            journal.close();
+            Path file = directory.resolve("float.journal");
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+            journal = null;
+        }
+    }
+
+    @Benchmark
+    public CashFloat addAndRemoveCoin() {
+        cashFloat.addSlotCounts(slotCounts);
+        cashFloat.removeSlotCounts(slotCounts);
+        return cashFloat;
+    }
+}
@@ -0,0 +1,60 @@
+package org.cashmanager.benchmark;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashManagerImpl;
+import org.cashmanager.registry.CashManagerRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of operations submitted to a @{CashManagerRegistry} from several threads, spread across one machine
+ * (every operation on the same lane) or many machines (lanes running in parallel).
+ * Each operation adds a coin and removes it again so the floats stay the same size.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class RegistryBenchmark {
+
+    @Param({"1", "1024"})
+    private int machines;
+
+    private CashManagerRegistry registry;
+    private String[] machineIds;
+    private Map<Integer, Integer> coins;
+
+    @Setup
+    public void setup() {
+        Map<Integer, Integer> denominationCounts = BenchmarkFloats.floatFor(BenchmarkFloats.Scenario.GREEDY_HIT, BenchmarkFloats.Tubes.DEEP, 0);
+        registry = new CashManagerRegistry(machineId -> new CashManagerImpl(Currency.GBP, denominationCounts), Duration.ofHours(1), null);
+        machineIds = new String[machines];
+        for (int i = 0; i < machines; i++) {
+            machineIds[i] = "machine-" + i;
+            registry.getOrCreate(machineIds[i]);
+        }
+        coins = Map.of(50, 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        registry.close();
+    }
+
+    @Benchmark
+    public Object submitAddAndRemoveCoin() {
+        String machineId = machineIds[ThreadLocalRandom.current().nextInt(machines)];
+        return registry.submit(machineId, cashManager -> {
+            cashManager.addCoins(coins);
+            cashManager.removeCoins(coins);
+            return cashManager;
+        }).join();
+    }
+}
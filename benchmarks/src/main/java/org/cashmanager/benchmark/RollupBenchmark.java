@@ -0,0 +1,91 @@
+package org.cashmanager.benchmark;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashManagerImpl;
+import org.cashmanager.rollup.FloatRollup;
+import org.cashmanager.rollup.RollupTotals;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a region's totals from a @{FloatRollup} against summing every float in the region, and the cost the rollup
+ * adds to each change made to an attached float from several threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RollupBenchmark {
+    private static final int REGIONS = 4;
+    private static final int SITES = 64;
+
+    @Param({"2000"})
+    private int machines;
+
+    private final Currency currency = Currency.GBP;
+    private FloatRollup rollup;
+    private CashManagerImpl[] attached;
+    private CashManagerImpl[] detached;
+    private Map<Integer, Integer> coins;
+
+    @Setup
+    public void setup() {
+        Map<Integer, Integer> denominationCounts = BenchmarkFloats.floatFor(BenchmarkFloats.Scenario.GREEDY_HIT, BenchmarkFloats.Tubes.DEEP, 0);
+        rollup = new FloatRollup(currency);
+        attached = new CashManagerImpl[machines];
+        detached = new CashManagerImpl[machines];
+        for (int i = 0; i < machines; i++) {
+            int site = i % SITES;
+            attached[i] = new CashManagerImpl(currency, denominationCounts);
+            rollup.attach("region-" + site % REGIONS, "site-" + site, "machine-" + i, attached[i]);
+            detached[i] = new CashManagerImpl(currency, denominationCounts);
+        }
+        coins = Map.of(50, 1);
+    }
+
+    @Benchmark
+    public RollupTotals rollupRegionTotals() {
+        return rollup.getRegionTotals("region-0").orElseThrow();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long scanRegionTotals() {
+        long value = 0;
+        for (int i = 0; i < machines; i++) {
+            if (i % SITES % REGIONS == 0) {
+                for (Map.Entry<Integer, Integer> entry : attached[i].getDenominationCounts().entrySet()) {
+                    value += (long) entry.getKey() * entry.getValue();
+                }
+            }
+        }
+        return value;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void changeAttachedFloat() {
+        CashManagerImpl cashManager = attached[ThreadLocalRandom.current().nextInt(machines)];
+        cashManager.addCoins(coins);
+        cashManager.removeCoins(coins);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void changeDetachedFloat() {
+        CashManagerImpl cashManager = detached[ThreadLocalRandom.current().nextInt(machines)];
+        cashManager.addCoins(coins);
+        cashManager.removeCoins(coins);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Map<String, RollupTotals> recompute() {
+        return rollup.recompute();
+    }
+}
@@ -0,0 +1,73 @@
+package org.cashmanager.benchmark;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashManagerImpl;
+import org.cashmanager.server.CashManagerServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip cost of the line protocol over loopback TCP, sending a batch of commands in one write and reading every
+ * response. A pipeline depth of 1 is a plain request and response per command.
+ * Each pair of commands adds a coin and removes it again so the float stays the same size.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ServerBenchmark {
+
+    @Param({"1", "16"})
+    private int pipelineDepth;
+
+    private CashManagerServer server;
+    private Socket socket;
+    private BufferedReader reader;
+    private OutputStream output;
+    private byte[] commands;
+
+    @Setup
+    public void setup() throws IOException {
+        CashManagerImpl cashManager = new CashManagerImpl(Currency.GBP,
+                BenchmarkFloats.floatFor(BenchmarkFloats.Scenario.GREEDY_HIT, BenchmarkFloats.Tubes.DEEP, 0));
+        server = CashManagerServer.startTcp(cashManager, 0);
+        InetSocketAddress address = (InetSocketAddress) server.getAddress();
+        socket = new Socket(address.getAddress(), address.getPort());
+        socket.setTcpNoDelay(true);
+        reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        output = new BufferedOutputStream(socket.getOutputStream());
+
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < pipelineDepth; i++) {
+            batch.append(i % 2 == 0 ? "add 50\n" : "remove 50:1\n");
+        }
+        commands = batch.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        socket.close();
+        server.close();
+    }
+
+    /**
+     * Operations per second are batches, multiply by the pipeline depth for commands per second
+     */
+    @Benchmark
+    public int sendBatch() throws IOException {
+        output.write(commands);
+        output.flush();
+        int answered = 0;
+        for (int i = 0; i < pipelineDepth; i++) {
+            answered += reader.readLine().length();
+        }
+        return answered;
+    }
+}
@@ -0,0 +1,52 @@
+package org.cashmanager.benchmark;
+
+import org.cashmanager.CashManager;
+import org.cashmanager.contract.CashTransaction;
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashManagerImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end cost of a sale through @{CashManagerImpl#processTransaction}.
+ * The customer always pays in £2 coins so the provided coins never change which change calculation path the float drives.
+ * The float is restocked every iteration so it cannot drain during measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionBenchmark {
+    private static final int RESTOCKED_TUBE = 10_000_000;
+
+    @Param({"GREEDY_HIT", "FALLBACK_FORCED"})
+    private BenchmarkFloats.Scenario scenario;
+
+    @Param({"1", "75", "1000", "10000"})
+    private int changeValue;
+
+    private CashManager cashManager;
+    private CashTransaction cashTransaction;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        int valueTotal = BenchmarkFloats.changeValueFor(scenario, changeValue);
+        Map<Integer, Integer> denominationCounts = new HashMap<>();
+        BenchmarkFloats.floatFor(scenario, BenchmarkFloats.Tubes.DEEP, valueTotal)
+                .forEach((denomination, count) -> denominationCounts.put(denomination, count == 1 ? 1 : RESTOCKED_TUBE));
+        cashManager = new CashManagerImpl(Currency.GBP, denominationCounts);
+
+        int twoPoundCoins = valueTotal / 200 + 1;
+        cashTransaction = new CashTransaction(twoPoundCoins * 200 - valueTotal, Map.of(200, twoPoundCoins));
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> processTransaction() {
+        return cashManager.processTransaction(cashTransaction);
+    }
+}
@@ -0,0 +1,73 @@
+package org.cashmanager.benchmark;
+
+import org.cashmanager.contract.CashTransaction;
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashManagerImpl;
+import org.cashmanager.core.TransactionSession;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from the last coin to change being dispensed, for a @{TransactionSession} which calculated the change while the
+ * earlier coins were inserted against a @{CashManagerImpl#processTransaction} given every coin at once.
+ * The customer pays with three £2 coins, so the change is always below £2, and the float is reset before every sale so
+ * each sale drives the same calculation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionSessionBenchmark {
+    private static final int RESTOCKED_TUBE = 1_000_000;
+    private static final int TWO_POUND_COINS = 3;
+
+    @Param({"GREEDY_HIT", "FALLBACK_FORCED"})
+    private BenchmarkFloats.Scenario scenario;
+
+    @Param({"30", "190"})
+    private int changeValue;
+
+    private CashManagerImpl cashManager;
+    private Map<Integer, Integer> denominationCounts;
+    private CashTransaction cashTransaction;
+    private int cost;
+    private TransactionSession session;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int valueTotal = BenchmarkFloats.changeValueFor(scenario, changeValue);
+        denominationCounts = new HashMap<>();
+        BenchmarkFloats.floatFor(scenario, BenchmarkFloats.Tubes.DEEP, valueTotal)
+                .forEach((denomination, count) -> denominationCounts.put(denomination, count == 1 ? 1 : RESTOCKED_TUBE));
+        cashManager = new CashManagerImpl(Currency.GBP, denominationCounts);
+
+        cost = TWO_POUND_COINS * 200 - valueTotal;
+        cashTransaction = new CashTransaction(cost, Map.of(200, TWO_POUND_COINS));
+    }
+
+    @Setup(Level.Invocation)
+    public void startSale() {
+        cashManager.resetCoins(denominationCounts);
+        // speculate on the calling thread so the change is ready before the last coin, as it would be between real coins
+        session = cashManager.startTransaction(cost, Runnable::run);
+        for (int coin = 1; coin < TWO_POUND_COINS; coin++) {
+            session.insertCoin(200);
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> speculatedSession() {
+        session.insertCoin(200);
+        return session.complete();
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> processTransaction() {
+        return cashManager.processTransaction(cashTransaction);
+    }
+}
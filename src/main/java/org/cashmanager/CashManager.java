@@ -2,7 +2,11 @@ package org.cashmanager;
 
 import org.cashmanager.contract.CashTransaction;
 import org.cashmanager.contract.Currency;
+import org.cashmanager.contract.TransactionResult;
+import org.cashmanager.metrics.DepletionForecast;
+import org.cashmanager.metrics.MetricsSnapshot;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -24,6 +28,27 @@ public interface CashManager {
      */
     Currency getCurrency();
 
+    /**
+     * Returns the operation latencies, failure counts, change calculation counts and depletion counts recorded so far
+     *
+     * @return @{MetricsSnapshot} taken at the time of the call
+     */
+    MetricsSnapshot getMetrics();
+
+    /**
+     * Forecasts when each denomination will run out of, or overfill, its tube at the rate recent transactions are moving coins
+     *
+     * @return @{DepletionForecast} for each denomination of the currency, largest first
+     */
+    List<DepletionForecast> getDepletionForecast();
+
+    /**
+     * Prices from the machine's price catalogue which the float can no longer make every amount of change for
+     *
+     * @return prices needing exact change, lowest first, empty if no catalogue has been set
+     */
+    List<Integer> getExactChangeOnlyPrices();
+
     /**
      * Overrides current recorded contents of the float with new denomination counts
      *
@@ -46,6 +71,27 @@ public interface CashManager {
      */
     Map<Integer, Integer> processTransaction(CashTransaction cashTransaction);
 
+    /**
+     * Processes a transaction as @{processTransaction} does, also reporting whether the change uses the fewest coins,
+     * which it may not when a solver budget runs out first
+     *
+     * @param cashTransaction - @{CoinTransaction} instance which has a cost and the provided set of coins
+     * @return successful result holding the change dispensed, see @{TransactionResult#isOptimal}
+     */
+    default TransactionResult processTransactionResult(final CashTransaction cashTransaction) {
+        return TransactionResult.success(processTransaction(cashTransaction));
+    }
+
+    /**
+     * Processes a batch of transactions in order and updates the float once with the net change of the whole batch.
+     * A transaction which fails (e.g. insufficient coins provided or change cannot be made) is rejected on its own: its coins are
+     * not accepted into the float, and later transactions in the batch are still processed against the float without it.
+     *
+     * @param cashTransactions - transactions in the order they happened
+     * @return result for each transaction at the same position, holding either the change dispensed or the failure reason
+     */
+    List<TransactionResult> processTransactions(List<CashTransaction> cashTransactions);
+
     /**
      * Calculates a total coin value which would exactly match the value total provided and then removes it from the float
      * Returns a map of denomination counts which are the change it has calculated to remove
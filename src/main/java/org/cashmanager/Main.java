@@ -1,20 +1,45 @@
 package org.cashmanager;
 
+import org.cashmanager.cli.BatchRunner;
 import org.cashmanager.cli.CLIRunner;
 import org.cashmanager.cli.CLIUtil;
 import org.cashmanager.contract.Currency;
 import org.cashmanager.core.CashManagerImpl;
+import org.cashmanager.core.FloatState;
+import org.cashmanager.journal.DurabilityMode;
+import org.cashmanager.journal.FloatCheckpointer;
+import org.cashmanager.journal.FloatJournal;
+import org.cashmanager.journal.FloatSnapshot;
+import org.cashmanager.server.CashManagerServer;
+import org.cashmanager.simulator.FleetSimulator;
+import org.cashmanager.simulator.SimulationConfig;
 
-import java.util.Collections;
-import java.util.Map;
-import java.util.Scanner;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.cashmanager.cli.CLIUtil.getCashFromInput;
 
 public class Main {
     private static final Scanner scanner = new Scanner(System.in);
+    private static final int BATCH_BUFFER_SIZE = 64 * 1024;
+
+    public static void main(String[] arguments) {
+        Map<String, String> options = new HashMap<>();
+        String[] args;
+        try {
+            args = extractOptions(arguments, options);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
 
-    public static void main(String[] args) {
         Currency currency;
         try {
             currency = Currency.getCurrency(args[0]);
@@ -35,20 +60,68 @@ public class Main {
             return;
         }
 
-        CashManager cashManager;
+        if (options.containsKey("--simulate")) {
+            runSimulation(currency, denominationCount, options);
+            return;
+        }
+
+        CashManagerImpl cashManager;
         try {
-            cashManager = new CashManagerImpl(currency, denominationCount);
+            cashManager = options.containsKey("--journal") || options.containsKey("--snapshot")
+                    ? openPersistent(currency, denominationCount, options)
+                    : new CashManagerImpl(currency, denominationCount);
         } catch (Exception e) {
             System.out.println("An error was encountered initializing the Float");
             System.exit(1);
             return;
         }
+        if (options.containsKey("--solver-budget")) {
+            try {
+                cashManager.setSolverBudget(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(Long.parseLong(options.get("--solver-budget")))));
+            } catch (IllegalArgumentException e) {
+                System.out.printf("Invalid --solver-budget, expected microseconds above 0: %s%n", options.get("--solver-budget"));
+                System.exit(1);
+                return;
+            }
+        }
+        if (options.containsKey("--tube-capacities")) {
+            try {
+                cashManager.setTubeCapacities(CLIUtil.processRawDenominations(options.get("--tube-capacities"), currency));
+            } catch (Throwable e) {
+                System.out.printf("Invalid --tube-capacities, expected denomination counts e.g. 200:60,100:80: %s%n", e.getMessage());
+                System.exit(1);
+                return;
+            }
+        }
+        if (options.containsKey("--prices")) {
+            try {
+                cashManager.setPriceCatalogue(CLIUtil.parsePriceCatalogue(options.get("--prices"), currency));
+            } catch (Throwable e) {
+                System.out.printf("Invalid --prices, expected prices each with an optional largest change e.g. 80,120,150:40: %s%n", e.getMessage());
+                System.exit(1);
+                return;
+            }
+        }
+        if (options.containsKey("--replay")) {
+            runReplay(cashManager, options);
+            return;
+        }
+        if (options.containsKey("--batch")) {
+            runBatch(cashManager, options.get("--batch"));
+            return;
+        }
+
         CLIUtil.printStatus(cashManager);
 
+        if (options.containsKey("--serve")) {
+            serve(cashManager, options.get("--serve"));
+            return;
+        }
+
         // Run manually if only currency provided or argument passed
         boolean allowManualRunning = args.length == 1 || args.length == 3 && Boolean.TRUE.toString().equalsIgnoreCase(args[2]);
         if (allowManualRunning) {
-            CLIRunner cliRunner = new CLIRunner(scanner, cashManager, currency);
+            CLIRunner cliRunner = new CLIRunner(scanner, cashManager, currency, cashManager::startTransaction);
             if (args.length == 3 && denominationCount.isEmpty()) {
                 cashManager.addCoins(getCashFromInput(scanner, currency));
             }
@@ -56,6 +129,158 @@ public class Main {
         }
     }
 
+    /**
+     * Removes "--name value" options from the arguments, leaving the positional arguments in order
+     */
+    private static String[] extractOptions(final String[] arguments, final Map<String, String> options) {
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < arguments.length; i++) {
+            if (arguments[i].startsWith("--")) {
+                if (i + 1 >= arguments.length) {
+                    throw new IllegalArgumentException(String.format("No value provided for option %s", arguments[i]));
+                }
+                options.put(arguments[i], arguments[++i]);
+            } else {
+                positional.add(arguments[i]);
+            }
+        }
+        return positional.toArray(new String[0]);
+    }
+
+    /**
+     * Restores the float from the snapshot and journal when they hold one, otherwise starts them from the provided float.
+     * Snapshots are taken in the background, and both are flushed and closed when the application exits.
+     */
+    private static CashManagerImpl openPersistent(final Currency currency, final Map<Integer, Integer> denominationCount,
+                                              final Map<String, String> options) throws IOException {
+        Path snapshotPath = options.containsKey("--snapshot") ? Path.of(options.get("--snapshot")) : null;
+        FloatState checkpoint = snapshotPath != null ? FloatSnapshot.read(snapshotPath, currency).orElse(null) : null;
+
+        FloatJournal journal = null;
+        Optional<FloatState> recoveredState = Optional.ofNullable(checkpoint);
+        if (options.containsKey("--journal")) {
+            DurabilityMode durabilityMode = DurabilityMode.fromName(options.getOrDefault("--durability", DurabilityMode.SYNC.name()));
+            journal = FloatJournal.open(Path.of(options.get("--journal")), currency, durabilityMode,
+                    FloatJournal.DEFAULT_FLUSH_INTERVAL, checkpoint);
+            recoveredState = journal.getRecoveredState();
+        }
+
+        CashManagerImpl cashManager;
+        if (recoveredState.isPresent()) {
+            cashManager = CashManagerImpl.restore(currency, recoveredState.get());
+            System.out.printf("Restored float at version %s%n", cashManager.getState().getVersion());
+        } else {
+            cashManager = new CashManagerImpl(currency, denominationCount);
+            if (journal != null) {
+                journal.writeBaseline(cashManager.getState());
+            }
+        }
+
+        FloatCheckpointer checkpointer = null;
+        if (snapshotPath != null) {
+            Duration interval = Duration.ofSeconds(Long.parseLong(options.getOrDefault("--snapshot-interval", "60")));
+            checkpointer = FloatCheckpointer.start(snapshotPath, currency, cashManager::getState, interval, journal);
+        }
+        if (journal != null) {
+            cashManager.addListener(journal);
+        }
+
+        FloatCheckpointer openCheckpointer = checkpointer;
+        FloatJournal openJournal = journal;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                if (openCheckpointer != null) {
+                    openCheckpointer.close();
+                }
+                if (openJournal != null) {
+                    openJournal.close();
+                }
+            } catch (IOException e) {
+                System.out.println("An error was encountered saving the Float");
+            }
+        }));
+        return cashManager;
+    }
+
+    /**
+     * Runs the commands from the file, or standard input for "-", writing compact responses and a summary to standard output
+     */
+    private static void runBatch(final CashManager cashManager, final String source) {
+        try (BufferedReader reader = "-".equals(source)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), BATCH_BUFFER_SIZE)
+                : Files.newBufferedReader(Path.of(source), StandardCharsets.UTF_8)) {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), BATCH_BUFFER_SIZE);
+            new BatchRunner(cashManager).run(reader, writer);
+        } catch (IOException e) {
+            System.out.println("An error was encountered running the batch: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Simulates a fleet of machines configured by the properties file, see @{SimulationConfig#fromProperties}, and prints the report.
+     * --rate overrides the target rate in the file.
+     */
+    private static void runSimulation(final Currency currency, final Map<Integer, Integer> denominationCount, final Map<String, String> options) {
+        SimulationConfig config;
+        try (Reader reader = Files.newBufferedReader(Path.of(options.get("--simulate")), StandardCharsets.UTF_8)) {
+            Properties properties = new Properties();
+            properties.load(reader);
+            if (options.containsKey("--rate")) {
+                properties.setProperty("rate", options.get("--rate"));
+            }
+            config = SimulationConfig.fromProperties(properties, currency, denominationCount);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("An error was encountered reading the simulation: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        System.out.println(FleetSimulator.run(config));
+    }
+
+    /**
+     * Replays a recorded log of commands, timing every transaction, at --rate transactions per second or flat out
+     */
+    private static void runReplay(final CashManagerImpl cashManager, final Map<String, String> options) {
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(options.get("--replay")), StandardCharsets.UTF_8)) {
+            double rate = options.containsKey("--rate") ? Double.parseDouble(options.get("--rate")) : 0;
+            System.out.println(FleetSimulator.replay(cashManager, reader, rate));
+        } catch (IOException | RuntimeException e) {
+            System.out.println("An error was encountered replaying the log: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Serves the line protocol until the application is stopped. A numeric address is a TCP port on the loopback interface,
+     * anything else is the path of a Unix domain socket.
+     */
+    private static void serve(final CashManager cashManager, final String address) {
+        CashManagerServer server;
+        try {
+            server = address.chars().allMatch(Character::isDigit)
+                    ? CashManagerServer.startTcp(cashManager, Integer.parseInt(address))
+                    : CashManagerServer.startUnix(cashManager, Path.of(address));
+            System.out.printf("Serving on %s%n", server.getAddress());
+        } catch (IOException e) {
+            System.out.println("An error was encountered starting the server: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                System.out.println("An error was encountered stopping the server");
+            }
+        }));
+        try {
+            new CountDownLatch(1).await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private static void initiateManualRunner(final CashManager cashManager, final CLIRunner cliRunner) {
         System.out.println("\nRunning...\nEnter \"help\" for list of commands");
         while (true) {
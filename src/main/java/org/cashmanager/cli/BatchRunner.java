@@ -0,0 +1,81 @@
+package org.cashmanager.cli;
+
+import org.cashmanager.CashManager;
+import org.cashmanager.server.CommandProcessor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Runs a stream of commands without user interaction, e.g. replaying a day of transactions from a file.
+ * <p>
+ * Commands use the CLI grammar with every argument supplied, one per line, and each gets a single compact response line
+ * from the @{CommandProcessor}. Blank lines and lines starting with # are skipped, and "exit" stops the batch early.
+ * The float is only written out when a status command asks for it.
+ */
+public class BatchRunner {
+    private final CommandProcessor commandProcessor;
+
+    public BatchRunner(final CashManager cashManager) {
+        this.commandProcessor = new CommandProcessor(cashManager);
+    }
+
+    /**
+     * Runs every command from the reader, writing the responses and then a summary line to the writer.
+     * The writer is flushed once at the end, so it should be buffered.
+     *
+     * @param reader - source of commands
+     * @param writer - destination for responses
+     * @return counts and timing of the commands run
+     */
+    public BatchSummary run(final BufferedReader reader, final Writer writer) throws IOException {
+        long started = System.nanoTime();
+        long commands = 0;
+        long failures = 0;
+
+        String command;
+        while ((command = reader.readLine()) != null) {
+            String trimmed = command.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            if (trimmed.equalsIgnoreCase("exit")) {
+                break;
+            }
+            String response = commandProcessor.process(trimmed);
+            commands++;
+            if (response.startsWith(CommandProcessor.ERR)) {
+                failures++;
+            }
+            writer.write(response);
+            writer.write('\n');
+        }
+
+        BatchSummary summary = new BatchSummary(commands, failures, System.nanoTime() - started);
+        writer.write(summary.toString());
+        writer.write('\n');
+        writer.flush();
+        return summary;
+    }
+
+    /**
+     * Outcome of a batch
+     *
+     * @param commands     - number of commands run
+     * @param failures     - number of commands which responded with an error
+     * @param elapsedNanos - time taken to run the batch
+     */
+    public record BatchSummary(long commands, long failures, long elapsedNanos) {
+
+        public double commandsPerSecond() {
+            return elapsedNanos == 0 ? 0 : commands * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("# %d commands, %d failed, %.1f ms, %.0f commands/s",
+                    commands, failures, elapsedNanos / 1_000_000.0, commandsPerSecond());
+        }
+    }
+}
@@ -3,9 +3,11 @@ package org.cashmanager.cli;
 import org.cashmanager.CashManager;
 import org.cashmanager.contract.CashTransaction;
 import org.cashmanager.contract.Currency;
+import org.cashmanager.core.TransactionSession;
 
 import java.util.Map;
 import java.util.Scanner;
+import java.util.function.IntFunction;
 
 import static org.cashmanager.cli.CLIUtil.*;
 
@@ -16,11 +18,21 @@ public class CLIRunner {
     private final Scanner scanner;
     private final CashManager cashManager;
     private final Currency currency;
+    private final IntFunction<TransactionSession> sessionFactory;
 
     public CLIRunner(Scanner scanner, CashManager cashManager, Currency currency) {
+        this(scanner, cashManager, currency, null);
+    }
+
+    /**
+     * @param sessionFactory - starts a @{TransactionSession} for a cost, so transactions entered a coin at a time have their
+     *                       change calculated while the coins are being entered. Null to take the whole transaction first
+     */
+    public CLIRunner(Scanner scanner, CashManager cashManager, Currency currency, IntFunction<TransactionSession> sessionFactory) {
         this.scanner = scanner;
         this.cashManager = cashManager;
         this.currency = currency;
+        this.sessionFactory = sessionFactory;
     }
 
     public void processReset(final String[] splitCommand) {
@@ -69,16 +81,18 @@ public class CLIRunner {
 
     public void processTransaction(final String[] splitCommand) {
         try {
-            CashTransaction cashTransaction;
+            Map<Integer, Integer> change;
             if (splitCommand.length == 3) {
                 Integer cost = Integer.parseInt(splitCommand[1]);
                 String rawDenominationCounts = splitCommand[2];
-                cashTransaction = new CashTransaction(cost, processRawDenominations(rawDenominationCounts, currency));
+                change = cashManager.processTransaction(new CashTransaction(cost, processRawDenominations(rawDenominationCounts, currency)));
+            } else if (sessionFactory != null) {
+                //change is calculated while the coins are being entered
+                change = getTransactionSessionFromUser(scanner, currency, sessionFactory).complete();
             } else {
-                cashTransaction = getTransactionInfoFromUser(scanner, currency);
+                change = cashManager.processTransaction(getTransactionInfoFromUser(scanner, currency));
             }
 
-            Map<Integer, Integer> change = cashManager.processTransaction(cashTransaction);
             System.out.println("Calculated Change: ");
             CLIUtil.printDenominationCount(cashManager.getCurrency(), change);
             CLIUtil.printStatus(cashManager);
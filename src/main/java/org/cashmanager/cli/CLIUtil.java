@@ -3,8 +3,17 @@ package org.cashmanager.cli;
 import org.cashmanager.CashManager;
 import org.cashmanager.contract.CashTransaction;
 import org.cashmanager.contract.Currency;
+import org.cashmanager.contract.DenominationIndex;
+import org.cashmanager.core.ChangeCoverage;
+import org.cashmanager.core.TransactionSession;
+import org.cashmanager.metrics.DepletionForecast;
+import org.cashmanager.metrics.LatencyHistogram;
+import org.cashmanager.metrics.MetricsSnapshot;
+import org.cashmanager.metrics.Operation;
 
 import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
 
 import static org.cashmanager.util.Validators.lessThanZero;
 import static org.cashmanager.util.Validators.zeroOrLess;
@@ -15,9 +24,12 @@ import static org.cashmanager.util.Validators.zeroOrLess;
 public class CLIUtil {
 
     public static Map<Integer, Integer> getCashFromInput(final Scanner scanner, final Currency currency) {
+        DenominationIndex denominationIndex = currency.getDenominationIndex();
         Map<Integer, Integer> denominationCounts = new HashMap<>();
-        currency.getDenominations().forEach(denomination ->
-                denominationCounts.put(denomination, getDenominationCountFromInput(scanner, currency, denomination)));
+        for (int slot = 0; slot < denominationIndex.getSlotCount(); slot++) {
+            int denomination = denominationIndex.getDenomination(slot);
+            denominationCounts.put(denomination, getDenominationCountFromInput(scanner, currency, denomination));
+        }
         return denominationCounts;
     }
 
@@ -42,6 +54,26 @@ public class CLIUtil {
     }
 
     public static CashTransaction getTransactionInfoFromUser(final Scanner scanner, final Currency currency) {
+        CashTransaction cashTransaction = new CashTransaction(getCostFromUser(scanner));
+        getCoinsFromUser(scanner, currency, cashTransaction.getCost(), cashTransaction::addCoin);
+        return cashTransaction;
+    }
+
+    /**
+     * Takes a transaction from the user a coin at a time into a @{TransactionSession}, so change is calculated while
+     * the coins are still being entered
+     *
+     * @param sessionFactory - starts a session for the cost entered e.g. cashManager::startTransaction
+     * @return the session, with the cost covered and ready to complete
+     */
+    public static TransactionSession getTransactionSessionFromUser(final Scanner scanner, final Currency currency,
+                                                                   final IntFunction<TransactionSession> sessionFactory) {
+        TransactionSession transactionSession = sessionFactory.apply(getCostFromUser(scanner));
+        getCoinsFromUser(scanner, currency, transactionSession.getCost(), transactionSession::insertCoin);
+        return transactionSession;
+    }
+
+    private static int getCostFromUser(final Scanner scanner) {
         System.out.println("Enter Product Cost:");
         Integer cost = null;
         while (cost == null) {
@@ -56,8 +88,10 @@ public class CLIUtil {
             }
 
         }
-        CashTransaction cashTransaction = new CashTransaction(cost);
+        return cost;
+    }
 
+    private static void getCoinsFromUser(final Scanner scanner, final Currency currency, final int cost, final IntConsumer coinInserted) {
         int coinValue = 0;
         while (coinValue < cost) {
             System.out.println("Add coin denomination:");
@@ -66,9 +100,9 @@ public class CLIUtil {
                 if (zeroOrLess(cost)) {
                     throw new InputMismatchException();
                 }
-                if (currency.getDenominations().contains(coinDenomination)) {
+                if (currency.getDenominationIndex().contains(coinDenomination)) {
                     coinValue += coinDenomination;
-                    cashTransaction.addCoin(coinDenomination);
+                    coinInserted.accept(coinDenomination);
                 } else {
                     System.out.println("This coin denomination was not recognized for the given Currency");
                 }
@@ -77,43 +111,142 @@ public class CLIUtil {
                 System.out.println("Please enter a number greater than 0");
             }
         }
-        return cashTransaction;
     }
 
     public static Map<Integer, Integer> processRawDenominations(final String rawDenominations, final Currency currency) {
-        Map<Integer, Integer> denominationCount = new HashMap<>();
-        if (rawDenominations.isEmpty()) {
-            return denominationCount;
-        }
-
         try {
-            String[] denominationPairs = rawDenominations.split(",");
-            Arrays.stream(denominationPairs).forEach(denominationPair -> {
-                String[] splitPair = denominationPair.split(":");
-                if(splitPair.length != 2){
-                    throw new IllegalArgumentException(String.format("Unexpected number of values for denomination count: %s", denominationPair));
-                }
-                Integer denomination = Integer.valueOf(splitPair[0]);
-                Integer count = Integer.valueOf(splitPair[1]);
-                if (!currency.getDenominations().contains(denomination)) {
-                    throw new IllegalArgumentException(String.format("An unrecognized denomination was provided. Currency:%s, Denomination:%s", currency.name(), denomination));
-                }
-                denominationCount.put(denomination, count);
-            });
+            return parseDenominationCounts(rawDenominations, currency);
         } catch (Throwable e) {
             System.out.println("An issue was encountered parsing denomination counts: " + e.getMessage());
             throw e;
         }
+    }
+
+    /**
+     * Parses denominationCounts without reporting failures to the console, see @{DenominationCountsParser}
+     *
+     * @param rawDenominations - e.g. "200:5,100:10"
+     * @param currency         - currency the denominations must belong to
+     * @return Map<Denomination, Count> holding every denomination provided
+     */
+    public static Map<Integer, Integer> parseDenominationCounts(final String rawDenominations, final Currency currency) {
+        Map<Integer, Integer> denominationCount = new HashMap<>();
+        int[] slotCounts = new int[currency.getSlotCount()];
+        int providedSlots = DenominationCountsParser.parse(rawDenominations, currency, slotCounts);
+        for (int slot = 0; slot < slotCounts.length; slot++) {
+            if ((providedSlots & (1 << slot)) != 0) {
+                denominationCount.put(currency.getDenomination(slot), slotCounts[slot]);
+            }
+        }
         return denominationCount;
     }
 
+    /**
+     * Parses the prices a machine sells, each optionally with the largest change to keep covered for it
+     *
+     * @param rawCatalogue - e.g. "80,120,150:40"
+     * @param currency     - currency of the prices, whose largest coin sets the default largest change
+     * @return Map<Price, LargestChange> e.g. <80, 199>
+     */
+    public static Map<Integer, Integer> parsePriceCatalogue(final String rawCatalogue, final Currency currency) {
+        Map<Integer, Integer> largestChangeByPrice = new TreeMap<>();
+        for (String rawPrice : rawCatalogue.split(",")) {
+            String[] priceAndChange = rawPrice.strip().split(":");
+            if (priceAndChange.length > 2) {
+                throw new IllegalArgumentException(String.format("Expected price or price:largestChange but was: %s", rawPrice));
+            }
+            int price = Integer.parseInt(priceAndChange[0]);
+            int largestChange = priceAndChange.length == 2
+                    ? Integer.parseInt(priceAndChange[1])
+                    : ChangeCoverage.defaultLargestChange(currency);
+            if (zeroOrLess(price) || lessThanZero(largestChange)) {
+                throw new IllegalArgumentException(String.format("Expected a price above 0 and largest change of 0 or more but was: %s", rawPrice));
+            }
+            largestChangeByPrice.put(price, largestChange);
+        }
+        return largestChangeByPrice;
+    }
+
+    /**
+     * Formats denomination counts in the same form accepted by @{processRawDenominations}, largest denomination first
+     *
+     * @param denominationCount - Map<Denomination, Count>
+     * @return e.g. "200:5,50:10,20:5", empty when there are no denominations
+     */
+    public static String formatDenominationCounts(final Map<Integer, Integer> denominationCount) {
+        StringBuilder formatted = new StringBuilder();
+        denominationCount.entrySet().stream().sorted(Map.Entry.<Integer, Integer>comparingByKey().reversed()).forEach(entry -> {
+            if (!formatted.isEmpty()) {
+                formatted.append(',');
+            }
+            formatted.append(entry.getKey()).append(':').append(entry.getValue());
+        });
+        return formatted.toString();
+    }
 
     public static void printStatus(final CashManager cashManager) {
         Map<Integer, Integer> floatStatus = cashManager.getDenominationCounts();
         System.out.println("\n\n--- Current Balance ---");
         printDenominationCount(cashManager.getCurrency(), floatStatus);
         System.out.println("\n----------------------");
+        printMetrics(cashManager.getMetrics());
+        printForecast(cashManager.getCurrency(), cashManager.getDepletionForecast());
+        printExactChangeOnly(cashManager.getCurrency(), cashManager.getExactChangeOnlyPrices());
+    }
 
+    public static void printExactChangeOnly(final Currency currency, final List<Integer> prices) {
+        if (prices == null || prices.isEmpty()) {
+            return;
+        }
+        StringJoiner joiner = new StringJoiner(", ");
+        prices.forEach(price -> joiner.add(String.format("%s%.2f", currency.getSymbol(), price / 100.0)));
+        System.out.printf("%nExact change only: %s%n", joiner);
+    }
+
+    public static void printForecast(final Currency currency, final List<DepletionForecast> forecasts) {
+        if (forecasts == null || forecasts.stream().allMatch(forecast -> forecast.getCoinsPerHour() == 0)) {
+            return;
+        }
+        System.out.println("\n--- Forecast ---");
+        for (DepletionForecast forecast : forecasts) {
+            if (forecast.getCoinsPerHour() == 0) {
+                continue;
+            }
+            System.out.printf("%s%.2f: %d coins, %+.1f per hour", currency.getSymbol(), forecast.getDenomination() / 100.0,
+                    forecast.getCount(), forecast.getCoinsPerHour());
+            forecast.getTimeUntilEmpty().ifPresent(duration -> System.out.printf(", empty in %s", DepletionForecast.format(duration)));
+            forecast.getTimeUntilFull().ifPresent(duration -> System.out.printf(", full in %s", DepletionForecast.format(duration)));
+            System.out.println();
+        }
+        System.out.println("----------------");
+    }
+
+    public static void printMetrics(final MetricsSnapshot metrics) {
+        if (metrics == null) {
+            return;
+        }
+        System.out.println("\n--- Metrics ---");
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram.Snapshot latency = metrics.getLatency(operation);
+            if (latency.getCount() > 0) {
+                System.out.printf("%s: %d calls, p50 %.1fus, p99 %.1fus, max %.1fus%n", operation.name().toLowerCase(), latency.getCount(),
+                        latency.getPercentile(50) / 1000.0, latency.getPercentile(99) / 1000.0, latency.getMax() / 1000.0);
+            }
+        }
+        System.out.printf("change: %d table lookups, %d greedy, %d fallback (%.1f%% greedy), %d solver nodes, %d rejected as infeasible, %d out of time%n",
+                metrics.getTableLookups(), metrics.getGreedyCalculations(), metrics.getFallbackCalculations(), metrics.getGreedyHitRate() * 100,
+                metrics.getSolverNodes(), metrics.getInfeasibleRejections(), metrics.getDeadlineExpiries());
+        metrics.getFailures().forEach((reason, count) -> {
+            if (count > 0) {
+                System.out.printf("failed (%s): %d%n", reason.name().toLowerCase(), count);
+            }
+        });
+        metrics.getDepletions().forEach((denomination, count) -> {
+            if (count > 0) {
+                System.out.printf("%d ran out: %d times%n", denomination, count);
+            }
+        });
+        System.out.println("---------------");
     }
 
     public static void printDenominationCount(final Currency currency, final Map<Integer, Integer> denominationCount) {
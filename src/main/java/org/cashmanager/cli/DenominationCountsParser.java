@@ -0,0 +1,116 @@
+package org.cashmanager.cli;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.contract.DenominationIndex;
+
+/**
+ * Single pass parser for denominationCounts strings e.g. 200:5,100:10,50:10 which reads the characters directly into a
+ * count for each denomination slot of the currency, without creating any intermediate strings, arrays or boxed numbers.
+ * <p>
+ * Counts can be signed so negative counts reach the cash manager's validation. When a denomination appears more than once
+ * the last count wins, and trailing commas are ignored.
+ */
+public final class DenominationCountsParser {
+
+    private DenominationCountsParser() {
+    }
+
+    /**
+     * Parses the whole string
+     *
+     * @param rawDenominations - e.g. "200:5,100:10"
+     * @param currency         - currency the denominations must belong to
+     * @param slotCounts       - written with the count for each slot provided, slots not provided are left untouched
+     * @return bit mask where bit n is set if slot n was provided, even with a count of 0
+     */
+    public static int parse(final CharSequence rawDenominations, final Currency currency, final int[] slotCounts) {
+        return parse(rawDenominations, 0, rawDenominations.length(), currency, slotCounts);
+    }
+
+    /**
+     * Parses the characters between start and end, so a denominationCounts argument can be read in place from a whole command
+     *
+     * @param rawDenominations - characters holding the denominationCounts
+     * @param start            - offset of the first character, inclusive
+     * @param end              - offset after the last character, exclusive
+     * @param currency         - currency the denominations must belong to
+     * @param slotCounts       - written with the count for each slot provided, slots not provided are left untouched
+     * @return bit mask where bit n is set if slot n was provided, even with a count of 0
+     */
+    public static int parse(final CharSequence rawDenominations, final int start, final int end, final Currency currency,
+                            final int[] slotCounts) {
+        if (slotCounts.length < currency.getSlotCount()) {
+            throw new IllegalArgumentException(String.format("Expected space for the %s denominations of %s", currency.getSlotCount(), currency.name()));
+        }
+        DenominationIndex denominationIndex = currency.getDenominationIndex();
+        int providedSlots = 0;
+        int position = start;
+        while (position < end && !isTrailing(rawDenominations, position, end)) {
+            int pairStart = position;
+
+            long denomination = 0;
+            while (position < end && isDigit(rawDenominations.charAt(position))) {
+                denomination = denomination * 10 + (rawDenominations.charAt(position) - '0');
+                if (denomination > Integer.MAX_VALUE) {
+                    throw new DenominationParseException("Denomination is too large", pairStart);
+                }
+                position++;
+            }
+            if (position == pairStart) {
+                throw new DenominationParseException("Expected a denomination", position);
+            }
+            if (position == end || rawDenominations.charAt(position) != ':') {
+                throw new DenominationParseException("Expected ':' after denomination", position);
+            }
+            int slot = denominationIndex.getSlot((int) denomination);
+            if (slot < 0) {
+                throw new DenominationParseException(String.format("An unrecognized denomination was provided. Currency:%s, Denomination:%s",
+                        currency.name(), denomination), pairStart);
+            }
+            position++;
+
+            int countStart = position;
+            boolean negative = false;
+            if (position < end && (rawDenominations.charAt(position) == '-' || rawDenominations.charAt(position) == '+')) {
+                negative = rawDenominations.charAt(position) == '-';
+                position++;
+            }
+            int digitsStart = position;
+            long count = 0;
+            while (position < end && isDigit(rawDenominations.charAt(position))) {
+                count = count * 10 + (rawDenominations.charAt(position) - '0');
+                if (count > (negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE)) {
+                    throw new DenominationParseException("Count is too large", countStart);
+                }
+                position++;
+            }
+            if (position == digitsStart) {
+                throw new DenominationParseException("Expected a count", position);
+            }
+            if (position < end && rawDenominations.charAt(position) != ',') {
+                throw new DenominationParseException("Expected ',' after count", position);
+            }
+
+            slotCounts[slot] = (int) (negative ? -count : count);
+            providedSlots |= 1 << slot;
+            position++;
+        }
+        return providedSlots;
+    }
+
+    /**
+     * True when only commas remain, checked before each pair so it only scans past a comma
+     */
+    private static boolean isTrailing(final CharSequence rawDenominations, final int position, final int end) {
+        for (int i = position; i < end; i++) {
+            if (rawDenominations.charAt(i) != ',') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,23 @@
+package org.cashmanager.cli;
+
+/**
+ * Thrown when a denominationCounts string cannot be parsed, recording where in the string parsing stopped
+ */
+public class DenominationParseException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+    private final int offset;
+
+    public DenominationParseException(final String message, final int offset) {
+        super(String.format("%s at offset %s", message, offset));
+        this.offset = offset;
+    }
+
+    /**
+     * Position of the character which could not be parsed, or the length of the input when it ended too early
+     *
+     * @return offset from the start of the string
+     */
+    public int getOffset() {
+        return offset;
+    }
+}
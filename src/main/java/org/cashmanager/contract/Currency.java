@@ -1,5 +1,7 @@
 package org.cashmanager.contract;
 
+import org.cashmanager.util.CoinSystems;
+
 import java.util.Arrays;
 import java.util.List;
 
@@ -12,12 +14,23 @@ public enum Currency {
     private final String name;
     private final String symbol;
     private final List<Integer> denominations;
+    private final DenominationIndex denominationIndex;
+    private final int[] denominationValues;
+    /**
+     * Smallest value where the top down approach is not optimal with unlimited coins, -1 when the coin system is canonical
+     */
+    private final int smallestCounterexample;
+    private final int counterexampleBound;
 
 
     Currency(String name, String symbol, List<Integer> denominations){
         this.name = name;
         this.symbol = symbol;
         this.denominations = denominations;
+        this.denominationIndex = DenominationIndex.compile(denominations);
+        this.denominationValues = denominationIndex.copyDenominations();
+        this.smallestCounterexample = CoinSystems.findSmallestCounterexample(denominationValues);
+        this.counterexampleBound = CoinSystems.counterexampleBound(denominationValues);
     }
 
     public String getSymbol() {
@@ -28,6 +41,76 @@ public enum Currency {
         return denominations;
     }
 
+    /**
+     * Dense index over the denominations, shared by validation, parsing, storage and change calculation
+     *
+     * @return @{DenominationIndex} compiled when the currency was loaded
+     */
+    public DenominationIndex getDenominationIndex() {
+        return denominationIndex;
+    }
+
+    /**
+     * Number of denomination slots, a slot is the position of a denomination in @{getDenominations}
+     *
+     * @return number of denominations in this currency
+     */
+    public int getSlotCount() {
+        return denominationIndex.getSlotCount();
+    }
+
+    /**
+     * Denomination value stored in the slot
+     *
+     * @param slot - position of the denomination e.g. 0 = 200 for GBP
+     * @return denomination value e.g. 200
+     */
+    public int getDenomination(final int slot) {
+        return denominationIndex.getDenomination(slot);
+    }
+
+    /**
+     * Finds the slot for the denomination value
+     *
+     * @param denomination - denomination value e.g. 200
+     * @return position of the denomination e.g. 0 for 200 in GBP, or -1 if the denomination is not in this currency
+     */
+    public int getSlot(final int denomination) {
+        return denominationIndex.getSlot(denomination);
+    }
+
+    /**
+     * A canonical coin system is one where taking the largest coin first always gives the fewest coins when supply is unlimited
+     *
+     * @return true if the denominations of this currency form a canonical coin system
+     */
+    public boolean isCanonical() {
+        return smallestCounterexample == -1;
+    }
+
+    /**
+     * Exclusive upper bound (Kozen and Zaks) below which any counterexample to the top down approach must lie
+     *
+     * @return bound checked when the currency was loaded
+     */
+    public int getCounterexampleBound() {
+        return counterexampleBound;
+    }
+
+    /**
+     * Fewest coins that could ever make the value if every coin were available.
+     * Any change made with this many coins from a limited float is therefore optimal.
+     *
+     * @param value - value to make e.g. 75
+     * @return minimum coin count, or -1 if it is not known cheaply for this value
+     */
+    public int getUnlimitedMinimumCoinCount(final int value) {
+        if (!isCanonical() && value >= smallestCounterexample) {
+            return -1;
+        }
+        return CoinSystems.greedyCoinCount(denominationValues, value);
+    }
+
     /**
      * Retrieves the Currency reference for the requested currency by name
      *
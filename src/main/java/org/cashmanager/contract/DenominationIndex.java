@@ -0,0 +1,143 @@
+package org.cashmanager.contract;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dense index over the denominations of a @{Currency}, compiled once when the currency is loaded.
+ * <p>
+ * A slot is the position of a denomination in descending value order e.g. 0 = 200, 7 = 1 for GBP. Finding the slot of a
+ * denomination is a single read from a table indexed by the denomination value, so membership checks, validation and
+ * conversions between denomination counts and slot counts never search a list.
+ * <p>
+ * Memory - one byte per unit of the largest denomination e.g. 201 bytes for GBP
+ */
+public final class DenominationIndex {
+    private static final int MAX_SLOTS = Integer.SIZE - 1;
+    private static final int MAX_DENOMINATION = 1 << 16;
+
+    private final int[] denominations;
+    private final byte[] slotByDenomination;
+
+    private DenominationIndex(final int[] denominations, final byte[] slotByDenomination) {
+        this.denominations = denominations;
+        this.slotByDenomination = slotByDenomination;
+    }
+
+    /**
+     * Compiles the index for the denominations
+     *
+     * @param denominations - distinct denomination values in descending order e.g. {200, 100, 50}
+     * @return the index, slot n holding the nth denomination
+     */
+    public static DenominationIndex compile(final List<Integer> denominations) {
+        if (denominations.isEmpty() || denominations.size() > MAX_SLOTS) {
+            throw new IllegalArgumentException(String.format("Expected between 1 and %s denominations", MAX_SLOTS));
+        }
+        int[] values = new int[denominations.size()];
+        for (int slot = 0; slot < values.length; slot++) {
+            values[slot] = denominations.get(slot);
+            if (values[slot] <= 0 || values[slot] > MAX_DENOMINATION) {
+                throw new IllegalArgumentException(String.format("Denomination must be between 1 and %s: %s", MAX_DENOMINATION, values[slot]));
+            }
+            if (slot > 0 && values[slot] >= values[slot - 1]) {
+                throw new IllegalArgumentException("Denominations must be distinct and in descending order");
+            }
+        }
+        byte[] slotByDenomination = new byte[values[0] + 1];
+        Arrays.fill(slotByDenomination, (byte) -1);
+        for (int slot = 0; slot < values.length; slot++) {
+            slotByDenomination[values[slot]] = (byte) slot;
+        }
+        return new DenominationIndex(values, slotByDenomination);
+    }
+
+    /**
+     * @return number of denomination slots
+     */
+    public int getSlotCount() {
+        return denominations.length;
+    }
+
+    /**
+     * Denomination value stored in the slot
+     *
+     * @param slot - position of the denomination e.g. 0 = 200 for GBP
+     * @return denomination value e.g. 200
+     */
+    public int getDenomination(final int slot) {
+        return denominations[slot];
+    }
+
+    /**
+     * Copies the denomination values in slot order
+     *
+     * @return e.g. {200, 100, 50, 20, 10, 5, 2, 1}
+     */
+    public int[] copyDenominations() {
+        return denominations.clone();
+    }
+
+    /**
+     * Finds the slot for the denomination value
+     *
+     * @param denomination - denomination value e.g. 200
+     * @return position of the denomination e.g. 0 for 200 in GBP, or -1 if the denomination is not in the index
+     */
+    public int getSlot(final int denomination) {
+        return denomination >= 0 && denomination < slotByDenomination.length ? slotByDenomination[denomination] : -1;
+    }
+
+    /**
+     * @param denomination - denomination value e.g. 200, may be null
+     * @return true if the denomination is in the index
+     */
+    public boolean contains(final Integer denomination) {
+        return denomination != null && getSlot(denomination) >= 0;
+    }
+
+    /**
+     * Total value of the coins
+     *
+     * @param slotCounts - count for each denomination slot e.g. {1, 0, 0, 0, 0, 0, 0, 3}
+     * @return total value e.g. 203
+     */
+    public long totalValue(final int[] slotCounts) {
+        long totalValue = 0;
+        for (int slot = 0; slot < denominations.length; slot++) {
+            totalValue += (long) denominations[slot] * slotCounts[slot];
+        }
+        return totalValue;
+    }
+
+    /**
+     * Total value of the coins, ignoring denominations which are not in the index
+     *
+     * @param denominationCounts - map of coin denomination counts e.g. {200: 1, 1: 3}
+     * @return total value e.g. 203
+     */
+    public long totalValue(final Map<Integer, Integer> denominationCounts) {
+        long totalValue = 0;
+        for (Map.Entry<Integer, Integer> entry : denominationCounts.entrySet()) {
+            if (contains(entry.getKey())) {
+                totalValue += (long) entry.getKey() * entry.getValue();
+            }
+        }
+        return totalValue;
+    }
+
+    /**
+     * Total number of coins
+     *
+     * @param slotCounts - count for each denomination slot e.g. {1, 0, 0, 0, 0, 0, 0, 3}
+     * @return coin count e.g. 4
+     */
+    public long coinCount(final int[] slotCounts) {
+        long coinCount = 0;
+        for (int slot = 0; slot < denominations.length; slot++) {
+            coinCount += slotCounts[slot];
+        }
+        return coinCount;
+    }
+}
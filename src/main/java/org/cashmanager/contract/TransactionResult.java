@@ -0,0 +1,66 @@
+package org.cashmanager.contract;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * POJO storing the outcome of one transaction processed as part of a batch
+ */
+public class TransactionResult {
+
+    /**
+     * Coins dispensed as change as a set of denominations and each of their counts, empty if the transaction failed
+     */
+    private final Map<Integer, Integer> change;
+
+    /**
+     * Reason the transaction was rejected, null if it succeeded
+     */
+    private final String failureReason;
+
+    /**
+     * False when a solver budget ran out before the change was proven to use the fewest coins
+     */
+    private final boolean optimal;
+
+    private TransactionResult(Map<Integer, Integer> change, String failureReason, boolean optimal) {
+        this.change = change;
+        this.failureReason = failureReason;
+        this.optimal = optimal;
+    }
+
+    public static TransactionResult success(final Map<Integer, Integer> change) {
+        return success(change, true);
+    }
+
+    /**
+     * @param optimal - false if the change is the best found before a solver budget ran out, and may use more coins than needed
+     */
+    public static TransactionResult success(final Map<Integer, Integer> change, final boolean optimal) {
+        return new TransactionResult(change, null, optimal);
+    }
+
+    public static TransactionResult failure(final String failureReason) {
+        return new TransactionResult(Collections.emptyMap(), failureReason, false);
+    }
+
+    public boolean isSuccessful() {
+        return failureReason == null;
+    }
+
+    public Map<Integer, Integer> getChange() {
+        return change;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    /**
+     * @return true if the change uses the fewest coins, false if the transaction failed or the solver budget ran out
+     * first and the best change found by then was dispensed
+     */
+    public boolean isOptimal() {
+        return optimal;
+    }
+}
@@ -1,24 +1,41 @@
 package org.cashmanager.core;
 
 import org.cashmanager.contract.Currency;
+import org.cashmanager.contract.DenominationIndex;
+import org.cashmanager.core.calculator.ChangeTable;
+import org.cashmanager.util.ProcessDenominationCounts;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.function.BiConsumer;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 import static org.cashmanager.util.Validators.*;
 
 /**
  * Representation of the cash float storage
  * <p>
- * N.B This needs better transactional protection but given this would be better stored in a DB where ACID transactions exist,
- * I didn't see a point in going that far as the change is generated and checked internally within this project.
+ * Counts are stored in a primitive array indexed by the currency denomination slot (see @{Currency#getSlot}) so that
+ * mutations do not box or hash. The Map API is kept for the @{CashManager} boundary as read only copies of one state.
+ * <p>
+ * The float is safe to use from multiple threads without locking. Every change builds a new immutable @{FloatState} and
+ * publishes it with a compare and set, retrying if another thread changed the float first. Readers never block writers and
+ * always see the whole denomination vector from a single point in time.
+ * <p>
+ * The float also keeps a @{ChangeTable} of the minimum coin change for every value up to £5. It is built on the first
+ * lookup within that range, so floats which never make small change do not pay for it, and brought up to date when it is
+ * next used, refolding only the denominations whose counts changed since.
  */
 public class CashFloat {
 
     private final Currency currency;
-    private final Map<Integer, Integer> denominationCounts;
+    private final DenominationIndex denominationIndex;
+    private final AtomicReference<FloatState> state;
+    private final List<FloatListener> listeners = new CopyOnWriteArrayList<>();
+    private final LongAdder listenerFailures = new LongAdder();
+    private final AtomicReference<RuntimeException> lastListenerFailure = new AtomicReference<>();
+    private volatile ChangeTable changeTable;
 
     /**
      * Initializes the float with the contents of the cash float and the currency in use
@@ -40,14 +57,66 @@ public class CashFloat {
             throw new IllegalArgumentException("Provided a null value for currency");
         }
         this.currency = currency;
+        this.denominationIndex = currency.getDenominationIndex();
+        this.state = new AtomicReference<>(toState(denominationCounts, 0));
+    }
 
-        if (denominationCounts == null) {
-            throw new IllegalArgumentException("Provided a null value for denomination counts");
+    private CashFloat(final FloatState floatState, final Currency currency) {
+        this.currency = currency;
+        this.denominationIndex = currency.getDenominationIndex();
+        this.state = new AtomicReference<>(floatState);
+    }
+
+    /**
+     * Restores a float from a previously captured snapshot
+     *
+     * @param currency   - currency of the snapshot
+     * @param floatState - snapshot holding a count for each denomination slot of the currency
+     * @return float holding the snapshot, which continues counting versions from it
+     */
+    public static CashFloat restore(final Currency currency, final FloatState floatState) {
+        if (currency == null) {
+            throw new IllegalArgumentException("Provided a null value for currency");
         }
-        validateDenominationCounts(denominationCounts);
-        validateDenominationCurrency(currency, denominationCounts);
+        if (floatState == null) {
+            throw new IllegalArgumentException("Provided a null value for float state");
+        }
+        if (floatState.copyCounts().length != currency.getSlotCount()) {
+            throw new IllegalArgumentException(String.format("Expected a count for each of the %s denominations of %s", currency.getSlotCount(), currency.name()));
+        }
+        return new CashFloat(floatState, currency);
+    }
+
+    /**
+     * Registers a listener to be told about every change to the float, after the listeners already registered
+     *
+     * @param listener - called on the thread making each change, see @{FloatListener#onChange}
+     */
+    public void addListener(final FloatListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops telling a listener about changes. A change being published on another thread may still reach it.
+     *
+     * @param listener - previously registered listener
+     */
+    public void removeListener(final FloatListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return number of times a listener threw while being told about a change, see @{FloatListener#onChange}
+     */
+    public long getListenerFailureCount() {
+        return listenerFailures.sum();
+    }
 
-        this.denominationCounts = new HashMap<>(denominationCounts);
+    /**
+     * @return the most recent exception thrown by a listener, if any
+     */
+    public Optional<RuntimeException> getLastListenerFailure() {
+        return Optional.ofNullable(lastListenerFailure.get());
     }
 
     /**
@@ -60,14 +129,80 @@ public class CashFloat {
     }
 
     /**
-     * Outputs the Denomination Counts currently in the float.
+     * Outputs the Denomination Counts currently in the float as a read only copy of a single state, so later changes to
+     * the float are not reflected in it
      *
-     * @return Map<Denomination, Count> e.g <200, 10> - 10 £2 coins
+     * @return Map<Denomination, Count> largest first e.g <200, 10> - 10 £2 coins
      */
     public Map<Integer, Integer> getDenominationCounts() {
+        FloatState snapshot = state.get();
+        Map<Integer, Integer> denominationCounts = new LinkedHashMap<>();
+        for (int remainingSlots = snapshot.getRecordedSlots(); remainingSlots != 0; remainingSlots &= remainingSlots - 1) {
+            int slot = Integer.numberOfTrailingZeros(remainingSlots);
+            denominationCounts.put(denominationIndex.getDenomination(slot), snapshot.getCount(slot));
+        }
         return Collections.unmodifiableMap(denominationCounts);
     }
 
+    /**
+     * Snapshot of the whole float at a single point in time
+     *
+     * @return current state of the float
+     */
+    public FloatState getState() {
+        return state.get();
+    }
+
+    /**
+     * Count of coins held for the denomination slot
+     *
+     * @param slot - position of the denomination in the currency e.g. 0 = 200 for GBP
+     * @return number of coins in the float for that denomination
+     */
+    public int getCount(final int slot) {
+        return state.get().getCount(slot);
+    }
+
+    /**
+     * Copies the counts held in the float
+     *
+     * @return count for each denomination slot of the currency e.g. {13, 13, 0, 50, 50, 30, 0, 0}
+     */
+    public int[] copyCounts() {
+        return state.get().copyCounts();
+    }
+
+    /**
+     * Change table for the counts, updated from the table last used by the float so only changed denominations are refolded,
+     * or built the first time it is asked for. Usually called from a change calculation with the private copy of the counts
+     * it was given.
+     *
+     * @param counts - count for each denomination slot of the currency
+     * @return table whose lookups return change as slot counts
+     */
+    public ChangeTable getChangeTable(final int[] counts) {
+        ChangeTable current = changeTable;
+        ChangeTable updated = current == null ? ChangeTable.build(denominationIndex.copyDenominations(), counts) : current.update(counts);
+        // Racing updates may leave an older table cached, which is only a cost on the next update as tables are immutable
+        changeTable = updated;
+        return updated;
+    }
+
+    /**
+     * Overrides the contents of the float with new denomination counts
+     *
+     * @param denominationCounts - map of coin denomination counts e.g. {200: 13, 100: 13}
+     */
+    public void resetCoins(final Map<Integer, Integer> denominationCounts) {
+        FloatState current;
+        FloatState next;
+        do {
+            current = state.get();
+            next = toState(denominationCounts, current.getVersion() + 1);
+        } while (!state.compareAndSet(current, next));
+        publish(FloatMutation.RESET, current, next);
+    }
+
 
     /**
      * Adds count number of coins for each denomination to the float
@@ -85,10 +220,24 @@ public class CashFloat {
      *                           }
      */
     public void addCoins(final Map<Integer, Integer> denominationCounts) {
-        alterFloat(denominationCounts, (denomination, count) -> {
-            Integer existingCount = this.denominationCounts.getOrDefault(denomination, 0);
-            this.denominationCounts.put(denomination, existingCount + count);
-        });
+        addSlotCounts(toSlotCounts(denominationCounts));
+    }
+
+    /**
+     * Adds count number of coins for each denomination slot to the float
+     *
+     * @param slotCounts - count for each denomination slot of the currency e.g. {0, 0, 1, 0, 0, 0, 0, 3}
+     */
+    public void addSlotCounts(final int[] slotCounts) {
+        validateSlotCounts(slotCounts);
+
+        FloatState current;
+        FloatState next;
+        do {
+            current = state.get();
+            next = add(current, slotCounts);
+        } while (!state.compareAndSet(current, next));
+        publish(FloatMutation.ADD, current, next);
     }
 
     /**
@@ -107,28 +256,186 @@ public class CashFloat {
      *                           }
      */
     public void removeCoins(final Map<Integer, Integer> denominationCounts) {
-        alterFloat(denominationCounts, (denomination, count) -> {
-            Integer existingCount = this.denominationCounts.getOrDefault(denomination, 0);
-            Integer newCount = existingCount - count;
-            if (lessThanZero(newCount)) {
-                throw new IllegalArgumentException(String.format("Float does not have enough coins to remove for Denomination: %s, Count: %s, ", denomination, count));
+        removeSlotCounts(toSlotCounts(denominationCounts));
+    }
+
+    /**
+     * Removes count number of coins for each denomination slot from the float.
+     * Nothing is removed if any denomination does not have enough coins.
+     *
+     * @param slotCounts - count for each denomination slot of the currency e.g. {0, 0, 1, 0, 0, 0, 0, 3}
+     */
+    public void removeSlotCounts(final int[] slotCounts) {
+        validateSlotCounts(slotCounts);
+
+        FloatState current;
+        FloatState next;
+        do {
+            current = state.get();
+            next = remove(current, slotCounts);
+        } while (!state.compareAndSet(current, next));
+        publish(FloatMutation.REMOVE, current, next);
+    }
+
+    /**
+     * Atomically adds the provided coins and removes the change calculated from the resulting float.
+     * If another thread changes the float while the change is being calculated, the calculation is repeated against the new contents.
+     * Nothing is changed if the change calculation throws.
+     *
+     * @param mutation           - kind of change reported to listeners
+     * @param providedSlotCounts - coins provided for each denomination slot e.g. {1, 0, 0, 0, 0, 0, 0, 0}
+     * @param changeCalculation  - calculates the change slot counts from a private copy of the counts after the provided coins are added
+     * @return change removed from the float for each denomination slot
+     */
+    public int[] processTransaction(final FloatMutation mutation, final int[] providedSlotCounts, final Function<int[], int[]> changeCalculation) {
+        validateSlotCounts(providedSlotCounts);
+
+        while (true) {
+            FloatState current = state.get();
+            FloatState withProvided = add(current, providedSlotCounts);
+
+            int[] changeSlotCounts = changeCalculation.apply(withProvided.copyCounts());
+            validateSlotCounts(changeSlotCounts);
+
+            FloatState next = remove(withProvided, changeSlotCounts).withVersion(current.getVersion() + 1);
+            if (state.compareAndSet(current, next)) {
+                publish(mutation, current, next);
+                return changeSlotCounts;
             }
-            this.denominationCounts.put(denomination, newCount);
-        });
+        }
     }
 
-    private void alterFloat(final Map<Integer, Integer> denominationCounts, BiConsumer<Integer, Integer> floatAlteration) {
+    /**
+     * Atomically applies a calculation to a private copy of the counts and publishes the copy as the new contents of the float.
+     * If another thread changes the float during the calculation, it is repeated against the new contents.
+     * Nothing is changed if the calculation throws. Slots whose count changed are recorded in the denomination counts.
+     *
+     * @param mutation    - kind of change reported to listeners
+     * @param calculation - updates the copy of counts in place, returning a result for the caller
+     * @return the result of the calculation which was published
+     */
+    public <T> T update(final FloatMutation mutation, final Function<int[], T> calculation) {
+        while (true) {
+            FloatState current = state.get();
+            int[] counts = current.copyCounts();
+
+            T result = calculation.apply(counts);
+
+            int recordedSlots = current.getRecordedSlots();
+            for (int slot = 0; slot < counts.length; slot++) {
+                if (lessThanZero(counts[slot])) {
+                    throw new InsufficientCoinsException(String.format("Float does not have enough coins to remove for Denomination: %s",
+                            denominationIndex.getDenomination(slot)));
+                }
+                if (counts[slot] != current.getCount(slot)) {
+                    recordedSlots |= 1 << slot;
+                }
+            }
+            FloatState next = new FloatState(counts, recordedSlots, current.getVersion() + 1);
+            if (state.compareAndSet(current, next)) {
+                publish(mutation, current, next);
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Tells each listener in the order they were registered. The change has already been made, so a listener which throws
+     * is counted and skipped rather than hiding the change from the listeners after it. The first failure of a listener
+     * which @{FloatListener#propagatesFailure} is rethrown once every listener has been told.
+     */
+    private void publish(final FloatMutation mutation, final FloatState previous, final FloatState next) {
+        RuntimeException propagated = null;
+        for (FloatListener listener : listeners) {
+            try {
+                listener.onChange(mutation, previous, next);
+            } catch (RuntimeException e) {
+                listenerFailures.increment();
+                lastListenerFailure.set(e);
+                if (propagated == null && listener.propagatesFailure()) {
+                    propagated = e;
+                }
+            }
+        }
+        if (propagated != null) {
+            throw propagated;
+        }
+    }
+
+    private FloatState add(final FloatState current, final int[] slotCounts) {
+        int[] counts = current.copyCounts();
+        int recordedSlots = current.getRecordedSlots();
+        for (int slot = 0; slot < slotCounts.length; slot++) {
+            if (slotCounts[slot] == 0) {
+                continue; //nothing to do
+            }
+            counts[slot] += slotCounts[slot];
+            recordedSlots |= 1 << slot;
+        }
+        return new FloatState(counts, recordedSlots, current.getVersion() + 1);
+    }
+
+    private FloatState remove(final FloatState current, final int[] slotCounts) {
+        int[] counts = current.copyCounts();
+        for (int slot = 0; slot < slotCounts.length; slot++) {
+            counts[slot] -= slotCounts[slot];
+            if (lessThanZero(counts[slot])) {
+                throw new InsufficientCoinsException(String.format("Float does not have enough coins to remove for Denomination: %s, Count: %s, ",
+                        denominationIndex.getDenomination(slot), slotCounts[slot]));
+            }
+        }
+        return new FloatState(counts, current.getRecordedSlots(), current.getVersion() + 1);
+    }
+
+    /**
+     * Converts slot counts to denomination counts, leaving out denominations with no coins
+     *
+     * @param slotCounts - count for each denomination slot of the currency e.g. {1, 0, 0, 0, 0, 0, 0, 3}
+     * @return map of coin denomination counts e.g. {200: 1, 1: 3}
+     */
+    public Map<Integer, Integer> toDenominationCounts(final int[] slotCounts) {
+        return ProcessDenominationCounts.toDenominationCounts(currency, slotCounts);
+    }
+
+    private FloatState toState(final Map<Integer, Integer> denominationCounts, final long version) {
         if (denominationCounts == null) {
-            throw new IllegalArgumentException("Provided a null value for denominationCounts");
+            throw new IllegalArgumentException("Provided a null value for denomination counts");
         }
         validateDenominationCounts(denominationCounts);
         validateDenominationCurrency(currency, denominationCounts);
 
-        denominationCounts.forEach((Integer denomination, Integer count) -> {
-            if (count == 0) {
-                return; //nothing to do
+        int[] counts = new int[denominationIndex.getSlotCount()];
+        int recordedSlots = 0;
+        for (Map.Entry<Integer, Integer> entry : denominationCounts.entrySet()) {
+            int slot = denominationIndex.getSlot(entry.getKey());
+            counts[slot] = entry.getValue();
+            recordedSlots |= 1 << slot;
+        }
+        return new FloatState(counts, recordedSlots, version);
+    }
+
+    /**
+     * Validates denomination counts against the currency of the float and converts them to slot counts
+     *
+     * @param denominationCounts - map of coin denomination counts e.g. {200: 1, 1: 3}
+     * @return count for each denomination slot of the currency e.g. {1, 0, 0, 0, 0, 0, 0, 3}
+     */
+    public int[] toSlotCounts(final Map<Integer, Integer> denominationCounts) {
+        return ProcessDenominationCounts.toSlotCounts(currency, denominationCounts);
+    }
+
+    private void validateSlotCounts(final int[] slotCounts) {
+        if (slotCounts == null) {
+            throw new IllegalArgumentException("Provided a null value for slotCounts");
+        }
+        if (slotCounts.length != denominationIndex.getSlotCount()) {
+            throw new IllegalArgumentException(String.format("Expected a count for each of the %s denominations of %s", denominationIndex.getSlotCount(), currency.name()));
+        }
+        for (int slot = 0; slot < slotCounts.length; slot++) {
+            if (lessThanZero(slotCounts[slot])) {
+                throw new IllegalArgumentException(String.format("Provided a denomination count that was below the minimum expected value. denomination: %s, count: %s",
+                        denominationIndex.getDenomination(slot), slotCounts[slot]));
             }
-            floatAlteration.accept(denomination, count);
-        });
+        }
     }
 }
@@ -3,19 +3,124 @@ package org.cashmanager.core;
 import org.cashmanager.CashManager;
 import org.cashmanager.contract.CashTransaction;
 import org.cashmanager.contract.Currency;
+import org.cashmanager.contract.TransactionResult;
 import org.cashmanager.core.calculator.ChangeCalculator;
+import org.cashmanager.core.strategy.AdaptiveChangeStrategy;
+import org.cashmanager.core.strategy.CalculatorChangeStrategy;
+import org.cashmanager.core.strategy.ChangeStrategy;
+import org.cashmanager.core.strategy.TableLookupChangeStrategy;
+import org.cashmanager.metrics.CalculationRecorder;
+import org.cashmanager.metrics.CalculationTally;
+import org.cashmanager.metrics.CashManagerMetrics;
+import org.cashmanager.metrics.DepletionForecast;
+import org.cashmanager.metrics.DepletionForecaster;
+import org.cashmanager.metrics.FailureReason;
+import org.cashmanager.metrics.MetricsSnapshot;
+import org.cashmanager.metrics.Operation;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 import static org.cashmanager.util.Validators.lessThanZero;
 import static org.cashmanager.util.Validators.validateDenominationCurrency;
 
+/**
+ * Cash manager backed by a single @{CashFloat}.
+ * Safe to share between threads, e.g. one accepting coins, one dispensing and one polling status, as every operation is applied
+ * to the float atomically.
+ * Every operation records its latency, and any failure, in the cash manager's @{CashManagerMetrics}, and every transaction
+ * updates the @{DepletionForecaster} of each tube.
+ * Change is calculated by a @{ChangeStrategy}, by default an @{AdaptiveChangeStrategy} which learns the fastest strategy for the float.
+ * When given a price catalogue, the @{ChangeCoverage} of the change its prices can need is kept up to date with every change to the float.
+ * Change found when a solver budget ran out may not be the fewest coins, which @{processTransactionResult} and
+ * @{processTransactions} report with @{TransactionResult#isOptimal}.
+ */
 public class CashManagerImpl implements CashManager {
-    private CashFloat cashFloat;
+    private static final String INSUFFICIENT_PAYMENT = "Insufficient coins provided to cover cost";
+    private static final Executor SPECULATION_EXECUTOR = runnable -> Thread.ofVirtual().name("change-speculation").start(runnable);
+
+    private final CashFloat cashFloat;
+    private final CashManagerMetrics metrics;
+    private final ExpiryTrackingRecorder calculationRecorder;
+    private final DepletionForecaster forecaster;
+    private volatile ChangeStrategy changeStrategy;
+    private volatile boolean customStrategy;
+    private volatile Duration solverBudget;
+    private volatile ChangeCoverage changeCoverage;
 
     public CashManagerImpl(final Currency currency, final Map<Integer, Integer> denominationCounts) {
-        this.cashFloat = new CashFloat(currency, denominationCounts);
+        this(new CashFloat(currency, denominationCounts));
+    }
+
+    private CashManagerImpl(final CashFloat cashFloat) {
+        this.cashFloat = cashFloat;
+        this.metrics = new CashManagerMetrics(cashFloat.getCurrency());
+        this.calculationRecorder = new ExpiryTrackingRecorder(metrics);
+        this.changeStrategy = AdaptiveChangeStrategy.forFloat(cashFloat, calculationRecorder, null);
+        this.forecaster = new DepletionForecaster(cashFloat.getCurrency());
+        cashFloat.addListener(metrics);
+        cashFloat.addListener(forecaster);
+        cashFloat.addListener((mutation, previous, next) -> {
+            ChangeCoverage coverage = changeCoverage;
+            if (coverage != null) {
+                coverage.onChange(mutation, previous, next);
+            }
+        });
+    }
+
+    /**
+     * Restores a cash manager from a previously captured float snapshot e.g. one recovered from a journal
+     *
+     * @param currency   - currency of the snapshot
+     * @param floatState - snapshot of the float to continue from
+     * @return cash manager holding the snapshot
+     */
+    public static CashManagerImpl restore(final Currency currency, final FloatState floatState) {
+        return new CashManagerImpl(CashFloat.restore(currency, floatState));
+    }
+
+    /**
+     * Snapshot of the whole float at a single point in time
+     *
+     * @return current state of the float
+     */
+    public FloatState getState() {
+        return cashFloat.getState();
+    }
+
+    /**
+     * Registers a listener to be told about every change to the float, see @{FloatListener#onChange}
+     */
+    public void addListener(final FloatListener listener) {
+        cashFloat.addListener(listener);
+    }
+
+    /**
+     * Stops telling a listener about changes to the float, see @{CashFloat#removeListener}
+     */
+    public void removeListener(final FloatListener listener) {
+        cashFloat.removeListener(listener);
+    }
+
+    /**
+     * @return number of times a listener threw while being told about a change, see @{CashFloat#getListenerFailureCount}
+     */
+    public long getListenerFailureCount() {
+        return cashFloat.getListenerFailureCount();
+    }
+
+    /**
+     * @return the most recent exception thrown by a listener, e.g. a journal which could not write, if any
+     */
+    public Optional<RuntimeException> getLastListenerFailure() {
+        return cashFloat.getLastListenerFailure();
     }
 
     @Override
@@ -28,55 +133,434 @@ public class CashManagerImpl implements CashManager {
         return cashFloat.getCurrency();
     }
 
+    /**
+     * Limits the time spent searching for change above the change table range. When the budget runs out the best change
+     * found so far is dispensed even if it is not the fewest coins, or the operation fails fast if none was found.
+     * Such change is reported as not optimal by @{processTransactionResult} and @{processTransactions}.
+     * <p>
+     * The budget is a setting of the built in @{AdaptiveChangeStrategy}, which is rebuilt with the candidates for the new
+     * budget, see @{AdaptiveChangeStrategy#forFloat}, so what it has learnt so far starts again. Setting the budget it
+     * already has keeps it as it is.
+     *
+     * @param solverBudget - time allowed for each search, null to always search for the fewest coins without a limit
+     * @throws IllegalStateException if a strategy has been set with @{setChangeStrategy}, which the budget cannot apply to
+     */
+    public synchronized void setSolverBudget(final Duration solverBudget) {
+        if (customStrategy) {
+            throw new IllegalStateException("Solver budget only applies to the built in change strategy, not " + changeStrategy.getName());
+        }
+        if (Objects.equals(this.solverBudget, solverBudget)) {
+            return;
+        }
+        this.changeStrategy = AdaptiveChangeStrategy.forFloat(cashFloat, calculationRecorder, solverBudget);
+        this.solverBudget = solverBudget;
+    }
+
+    /**
+     * Replaces the way change is calculated, by default an @{AdaptiveChangeStrategy} over the built in strategies
+     *
+     * @param changeStrategy - strategy which never declines, so it must not return null
+     * @throws IllegalStateException if a solver budget has been set with @{setSolverBudget}, as the strategy would ignore it
+     */
+    public synchronized void setChangeStrategy(final ChangeStrategy changeStrategy) {
+        if (changeStrategy == null) {
+            throw new IllegalArgumentException("Provided a null value for change strategy");
+        }
+        if (solverBudget != null) {
+            throw new IllegalStateException("Cannot replace the change strategy while a solver budget is set");
+        }
+        this.changeStrategy = changeStrategy;
+        this.customStrategy = true;
+    }
+
+    /**
+     * @return strategy currently used to calculate change
+     */
+    public ChangeStrategy getChangeStrategy() {
+        return changeStrategy;
+    }
+
+    @Override
+    public MetricsSnapshot getMetrics() {
+        return metrics.snapshot();
+    }
+
+    @Override
+    public List<DepletionForecast> getDepletionForecast() {
+        return forecaster.forecast(cashFloat.getState());
+    }
+
+    /**
+     * Sets how many coins each tube holds, so the depletion forecast can warn of tubes about to overflow
+     *
+     * @param tubeCapacities - Map<Denomination, Capacity> e.g. <200, 60>
+     */
+    public void setTubeCapacities(final Map<Integer, Integer> tubeCapacities) {
+        validateDenominationCurrency(cashFloat.getCurrency(), tubeCapacities);
+        forecaster.setTubeCapacities(tubeCapacities);
+    }
+
+    /**
+     * Sets the prices the machine sells, so the float's coverage of the change they can need is kept up to date as it
+     * changes, see @{ChangeCoverage}
+     *
+     * @param largestChangeByPrice - largest change to keep covered for each price e.g. <80, 199>
+     * @return the coverage, to register @{ExactChangeListener}s with
+     */
+    public ChangeCoverage setPriceCatalogue(final Map<Integer, Integer> largestChangeByPrice) {
+        ChangeCoverage coverage = new ChangeCoverage(cashFloat.getCurrency(), largestChangeByPrice);
+        coverage.update(cashFloat.getState());
+        changeCoverage = coverage;
+        // catch up with any change made before the coverage was receiving them
+        coverage.update(cashFloat.getState());
+        return coverage;
+    }
+
+    /**
+     * @return coverage of the price catalogue, empty if no catalogue has been set
+     */
+    public Optional<ChangeCoverage> getChangeCoverage() {
+        return Optional.ofNullable(changeCoverage);
+    }
+
+    @Override
+    public List<Integer> getExactChangeOnlyPrices() {
+        ChangeCoverage coverage = changeCoverage;
+        return coverage == null ? List.of() : coverage.getExactChangeOnlyPrices();
+    }
+
     @Override
     public void resetCoins(final Map<Integer, Integer> denominationCounts) {
-        Currency existingCurrency = cashFloat.getCurrency();
-        validateDenominationCurrency(existingCurrency, denominationCounts);
-        this.cashFloat = new CashFloat(existingCurrency, denominationCounts);
+        long started = System.nanoTime();
+        try {
+            validateDenominationCurrency(cashFloat.getCurrency(), denominationCounts);
+            cashFloat.resetCoins(denominationCounts);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(FailureReason.of(e));
+            throw e;
+        } finally {
+            metrics.recordLatency(Operation.RESET, System.nanoTime() - started);
+        }
     }
 
     @Override
     public void addCoins(final Map<Integer, Integer> denominationCounts) {
-        cashFloat.addCoins(denominationCounts);
+        long started = System.nanoTime();
+        try {
+            cashFloat.addCoins(denominationCounts);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(FailureReason.of(e));
+            throw e;
+        } finally {
+            metrics.recordLatency(Operation.ADD, System.nanoTime() - started);
+        }
     }
 
+    /**
+     * Adding the provided coins and removing the change happen as one atomic change to the float,
+     * so concurrent dispenses can never take the same coins.
+     */
     @Override
     public Map<Integer, Integer> processTransaction(final CashTransaction cashTransaction) {
-        final Integer totalCoinValue = cashTransaction.getCoinsProvided().entrySet().stream()
-                .mapToInt(entry -> entry.getKey() * entry.getValue())
-                .sum();
+        return processTransactionResult(cashTransaction).getChange();
+    }
 
-        int changeTotal = totalCoinValue - cashTransaction.getCost();
-        if (lessThanZero(changeTotal)) {
-            throw new IllegalArgumentException("Insufficient coins provided to cover cost");
+    @Override
+    public TransactionResult processTransactionResult(final CashTransaction cashTransaction) {
+        long started = System.nanoTime();
+        try {
+            final Integer totalCoinValue = cashTransaction.getCoinsProvided().entrySet().stream()
+                    .mapToInt(entry -> entry.getKey() * entry.getValue())
+                    .sum();
+
+            int changeTotal = totalCoinValue - cashTransaction.getCost();
+            if (lessThanZero(changeTotal)) {
+                throw new InsufficientPaymentException(INSUFFICIENT_PAYMENT);
+            }
+            int[] providedSlotCounts = cashFloat.toSlotCounts(cashTransaction.getCoinsProvided());
+            return dispense(providedSlotCounts, changeTotal, counts -> null);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(FailureReason.of(e));
+            throw e;
+        } finally {
+            metrics.recordLatency(Operation.TRANSACTION, System.nanoTime() - started);
         }
-        cashFloat.addCoins(cashTransaction.getCoinsProvided());
-        return removeCoins(changeTotal);
     }
 
+    /**
+     * Starts a transaction taken one coin at a time, which calculates change on a virtual thread while coins are still being
+     * inserted, see @{TransactionSession}
+     *
+     * @param cost - total purchase cost
+     * @return the open session
+     */
+    public TransactionSession startTransaction(final int cost) {
+        return startTransaction(cost, SPECULATION_EXECUTOR);
+    }
+
+    /**
+     * Starts a transaction taken one coin at a time, see @{TransactionSession}
+     *
+     * @param cost                - total purchase cost
+     * @param speculationExecutor - runs the change calculations made while coins are still being inserted
+     * @return the open session
+     */
+    public TransactionSession startTransaction(final int cost, final Executor speculationExecutor) {
+        if (speculationExecutor == null) {
+            throw new IllegalArgumentException("Provided a null value for speculation executor");
+        }
+        return new TransactionSession(this, cost, speculationExecutor);
+    }
+
+    /**
+     * Completes a transaction whose change may already have been calculated, see @{TransactionSession#complete}
+     *
+     * @param providedSlotCounts - coins provided for each denomination slot
+     * @param changeTotal        - value of change due
+     * @param speculatedChange   - given the counts the change is taken from, returns change already calculated for them or null
+     * @return change dispensed, reported as optimal if it was speculated, as only the session knows how it was calculated
+     */
+    TransactionResult processTransaction(final int[] providedSlotCounts, final int changeTotal, final Function<int[], int[]> speculatedChange) {
+        long started = System.nanoTime();
+        try {
+            return dispense(providedSlotCounts, changeTotal, speculatedChange);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(FailureReason.of(e));
+            throw e;
+        } finally {
+            metrics.recordLatency(Operation.TRANSACTION, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * The change may be recalculated if another change to the float gets in first, so whether it is optimal is taken
+     * from the calculation which was published.
+     */
+    private TransactionResult dispense(final int[] providedSlotCounts, final int changeTotal, final Function<int[], int[]> speculatedChange) {
+        boolean[] optimal = new boolean[1];
+        int[] change = cashFloat.processTransaction(FloatMutation.TRANSACTION, providedSlotCounts, counts -> {
+            int[] speculated = speculatedChange.apply(counts);
+            if (speculated != null) {
+                optimal[0] = true;
+                return speculated.clone();
+            }
+            int[] calculated = calculateChange(counts, changeTotal);
+            optimal[0] = calculationRecorder.lastCalculationOptimal();
+            return calculated;
+        });
+        return TransactionResult.success(cashFloat.toDenominationCounts(change), optimal[0]);
+    }
+
+    /**
+     * Every transaction is validated up front, then change is solved for each in order against a working copy of the float.
+     * The working copy is published to the float in one atomic update, so the float only changes once for the whole batch.
+     */
     @Override
-    public Map<Integer, Integer> removeCoins(final Integer valueTotal) {
-        if (lessThanZero(valueTotal)) {
-            throw new IllegalArgumentException("Total to remove cannot be below 0");
+    public List<TransactionResult> processTransactions(final List<CashTransaction> cashTransactions) {
+        if (cashTransactions == null) {
+            throw new IllegalArgumentException("cashTransactions cannot be null");
         }
-        if (valueTotal == 0) {
-            return Collections.EMPTY_MAP;
+
+        long started = System.nanoTime();
+        int size = cashTransactions.size();
+        int[][] providedSlotCounts = new int[size][];
+        int[] changeTotals = new int[size];
+        String[] validationFailures = new String[size];
+        for (int i = 0; i < size; i++) {
+            try {
+                CashTransaction cashTransaction = cashTransactions.get(i);
+                providedSlotCounts[i] = cashFloat.toSlotCounts(cashTransaction.getCoinsProvided());
+                changeTotals[i] = Math.toIntExact(getCurrency().getDenominationIndex().totalValue(providedSlotCounts[i]) - cashTransaction.getCost());
+                if (lessThanZero(changeTotals[i])) {
+                    validationFailures[i] = INSUFFICIENT_PAYMENT;
+                    metrics.recordFailure(FailureReason.INSUFFICIENT_PAYMENT);
+                }
+            } catch (RuntimeException e) {
+                validationFailures[i] = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+                metrics.recordFailure(FailureReason.of(e));
+            }
+        }
+
+        List<FailureReason> changeFailures = new ArrayList<>();
+        try {
+            List<TransactionResult> results = cashFloat.update(FloatMutation.BATCH,
+                    counts -> solveBatch(counts, providedSlotCounts, changeTotals, validationFailures, changeFailures));
+            changeFailures.forEach(metrics::recordFailure);
+            return results;
+        } finally {
+            metrics.recordLatency(Operation.BATCH, System.nanoTime() - started);
         }
+    }
 
-        Map<Integer, Integer> calculatedChange = new ChangeCalculator().calculateChange(cashFloat.getDenominationCounts(), valueTotal);
-        cashFloat.removeCoins(calculatedChange);
-        return calculatedChange;
+    /**
+     * Solves each transaction of a batch in order against the working copy of the float. Calculation failures are
+     * collected in changeFailures, to be recorded in the metrics once the batch is published, as the batch is recalculated
+     * if another change gets in first.
+     */
+    private List<TransactionResult> solveBatch(final int[] counts, final int[][] providedSlotCounts, final int[] changeTotals,
+                                               final String[] validationFailures, final List<FailureReason> changeFailures) {
+        changeFailures.clear();
+        int size = changeTotals.length;
+        List<TransactionResult> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            if (validationFailures[i] != null) {
+                results.add(TransactionResult.failure(validationFailures[i]));
+                continue;
+            }
+            for (int slot = 0; slot < counts.length; slot++) {
+                counts[slot] += providedSlotCounts[i][slot];
+            }
+            try {
+                int[] change = calculateChange(counts, changeTotals[i]);
+                for (int slot = 0; slot < counts.length; slot++) {
+                    counts[slot] -= change[slot];
+                }
+                results.add(TransactionResult.success(cashFloat.toDenominationCounts(change), calculationRecorder.lastCalculationOptimal()));
+            } catch (IllegalStateException e) {
+                for (int slot = 0; slot < counts.length; slot++) {
+                    counts[slot] -= providedSlotCounts[i][slot];
+                }
+                changeFailures.add(FailureReason.of(e));
+                results.add(TransactionResult.failure(e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public Map<Integer, Integer> removeCoins(final Integer valueTotal) {
+        long started = System.nanoTime();
+        try {
+            if (lessThanZero(valueTotal)) {
+                throw new IllegalArgumentException("Total to remove cannot be below 0");
+            }
+            if (valueTotal == 0) {
+                return Collections.EMPTY_MAP;
+            }
+
+            int[] change = cashFloat.processTransaction(FloatMutation.REMOVE, new int[getCurrency().getSlotCount()], counts -> calculateChange(counts, valueTotal));
+            return cashFloat.toDenominationCounts(change);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(FailureReason.of(e));
+            throw e;
+        } finally {
+            metrics.recordLatency(Operation.REMOVE_VALUE, System.nanoTime() - started);
+        }
     }
 
     @Override
     public void removeCoins(final Map<Integer, Integer> denominationsToRemove) {
-        if (denominationsToRemove == null) {
-            throw new IllegalArgumentException("denominationsToRemove cannot be null");
+        long started = System.nanoTime();
+        try {
+            if (denominationsToRemove == null) {
+                throw new IllegalArgumentException("denominationsToRemove cannot be null");
+            }
+            if (denominationsToRemove.isEmpty()) {
+                return;
+            }
+
+            cashFloat.removeCoins(denominationsToRemove);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(FailureReason.of(e));
+            throw e;
+        } finally {
+            metrics.recordLatency(Operation.REMOVE_COINS, System.nanoTime() - started);
         }
-        if (denominationsToRemove.isEmpty()) {
-            return;
+    }
+
+    /**
+     * Strategy for a @{TransactionSession} to calculate change which may never be dispensed. The built in strategy is
+     * rebuilt over the recorder instead of the metrics, with the same solver budget, so speculative calculations are
+     * neither counted in the metrics nor learnt from by the adaptive strategy. A strategy set with @{setChangeStrategy}
+     * is used as it is.
+     *
+     * @param recorder - told how each calculation was answered, see @{recordCalculations}
+     */
+    ChangeStrategy speculationStrategy(final CalculationRecorder recorder) {
+        if (customStrategy) {
+            return changeStrategy;
         }
+        CalculatorChangeStrategy calculatorStrategy = new CalculatorChangeStrategy(new ChangeCalculator(getCurrency(), recorder, solverBudget));
+        return new AdaptiveChangeStrategy(new TableLookupChangeStrategy(cashFloat, recorder), List.of(calculatorStrategy), calculatorStrategy);
+    }
 
-        cashFloat.removeCoins(denominationsToRemove);
+    /**
+     * Records the calculations of speculated change once it has been dispensed
+     */
+    void recordCalculations(final CalculationTally tally) {
+        tally.replayInto(metrics);
+    }
+
+    /**
+     * Calculates change from the counts without changing the float
+     *
+     * @throws IllegalStateException if change cannot be made
+     */
+    int[] calculateChange(final int[] counts, final int valueTotal) {
+        calculationRecorder.startCalculation();
+        if (valueTotal == 0) {
+            return new int[counts.length];
+        }
+        int[] change = changeStrategy.calculateChange(counts, valueTotal);
+        if (change == null) {
+            throw new IllegalStateException(String.format("Change strategy %s declined to make change for: %s",
+                    changeStrategy.getName(), valueTotal));
+        }
+        return change;
+    }
+
+    /**
+     * Records the built in strategy's calculations in the metrics, and remembers on the calling thread whether the last
+     * calculation returned change found when the solver budget ran out, so the change can be reported as not optimal
+     */
+    private static final class ExpiryTrackingRecorder implements CalculationRecorder {
+        private final CalculationRecorder delegate;
+        private final ThreadLocal<boolean[]> nonOptimal = ThreadLocal.withInitial(() -> new boolean[1]);
+
+        private ExpiryTrackingRecorder(final CalculationRecorder delegate) {
+            this.delegate = delegate;
+        }
+
+        void startCalculation() {
+            nonOptimal.get()[0] = false;
+        }
+
+        /**
+         * @return false if non optimal change was returned since @{startCalculation} on this thread
+         */
+        boolean lastCalculationOptimal() {
+            return !nonOptimal.get()[0];
+        }
+
+        @Override
+        public void recordTableLookup() {
+            delegate.recordTableLookup();
+        }
+
+        @Override
+        public void recordGreedyCalculation() {
+            delegate.recordGreedyCalculation();
+        }
+
+        @Override
+        public void recordFallbackCalculation(final long nodes) {
+            delegate.recordFallbackCalculation(nodes);
+        }
+
+        @Override
+        public void recordInfeasibleRejection() {
+            delegate.recordInfeasibleRejection();
+        }
+
+        @Override
+        public void recordDeadlineExpiry() {
+            delegate.recordDeadlineExpiry();
+        }
+
+        @Override
+        public void recordNonOptimalChange() {
+            nonOptimal.get()[0] = true;
+            delegate.recordNonOptimalChange();
+        }
     }
 }
@@ -0,0 +1,276 @@
+package org.cashmanager.core;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.calculator.ChangeFeasibility;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks which amounts of change a float can make for a catalogue of prices, so a machine can show "exact change only"
+ * for a price before a sale at it fails rather than when it does.
+ * <p>
+ * The machine stops taking coins once the price is covered, so a sale ends with a last coin which takes the amount paid
+ * from below the price to or above it. The change a sale at a price can need is therefore every paid + coin - price, for
+ * each amount below the price that coins can pay and each coin which covers the rest, e.g. at 50 a 200 after 30 paid
+ * needs 180 but no sale needs 120. Each price keeps that set as a mask, optionally capped by the largest change given
+ * for it. Coverage is a bitset where bit v is set if v can be made from the float, up to the largest change any price
+ * needs, and a price is exact change only while any change in its mask is missing.
+ * <p>
+ * Coins beyond the number which fit in the largest change never alter coverage, so on each change to the float only the
+ * usable count of each coin is compared, O(d), and the bitset is rebuilt only when a usable count changed, costing
+ * O(d * log(c) * v / 64 + p * v / 64) with c the usable count, v the largest change and p the number of prices, however
+ * many coins the float holds.
+ * @{ExactChangeListener}s are told on the changing thread as soon as a price moves in or out of exact change only.
+ */
+public final class ChangeCoverage implements FloatListener {
+    private final int[] denominations;
+    private final int[] prices;
+    private final long[][] requiredChanges;
+    private final int coveredValue;
+    private final AtomicReference<Coverage> coverage = new AtomicReference<>();
+    private final List<ExactChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final LongAdder rebuilds = new LongAdder();
+
+    /**
+     * @param currency             - currency of the float
+     * @param largestChangeByPrice - for each price in the catalogue, the largest change to keep covered, see
+     *                             @{defaultLargestChange} to cover all the change a sale at the price can need
+     */
+    public ChangeCoverage(final Currency currency, final Map<Integer, Integer> largestChangeByPrice) {
+        if (currency == null) {
+            throw new IllegalArgumentException("Provided a null value for currency");
+        }
+        if (largestChangeByPrice == null || largestChangeByPrice.isEmpty()) {
+            throw new IllegalArgumentException("Price catalogue must contain at least one price");
+        }
+        this.denominations = new int[currency.getSlotCount()];
+        for (int slot = 0; slot < denominations.length; slot++) {
+            denominations[slot] = currency.getDenomination(slot);
+        }
+        TreeMap<Integer, Integer> sorted = new TreeMap<>(largestChangeByPrice);
+        this.prices = new int[sorted.size()];
+        this.requiredChanges = new long[sorted.size()][];
+        boolean[] payable = payableAmounts(denominations, sorted.lastKey());
+        int index = 0;
+        int largest = 0;
+        for (Map.Entry<Integer, Integer> entry : sorted.entrySet()) {
+            if (entry.getKey() == null || entry.getKey() <= 0) {
+                throw new IllegalArgumentException(String.format("Price must be above 0: %s", entry.getKey()));
+            }
+            if (entry.getValue() == null || entry.getValue() < 0) {
+                throw new IllegalArgumentException(String.format("Largest change for %s cannot be below 0: %s", entry.getKey(), entry.getValue()));
+            }
+            prices[index] = entry.getKey();
+            requiredChanges[index] = requiredChange(denominations, payable, entry.getKey(), entry.getValue());
+            largest = Math.max(largest, lastSet(requiredChanges[index]));
+            index++;
+        }
+        this.coveredValue = largest;
+    }
+
+    /**
+     * Largest change any sale can need when the machine stops taking coins once the price is covered, so using it for
+     * a price covers all the change a sale at that price can need
+     *
+     * @return one less than the largest coin of the currency
+     */
+    public static int defaultLargestChange(final Currency currency) {
+        return currency.getDenomination(0) - 1;
+    }
+
+    @Override
+    public void onChange(final FloatMutation mutation, final FloatState previous, final FloatState next) {
+        update(next);
+    }
+
+    /**
+     * Brings the coverage up to date with the float, ignoring states older than one already seen
+     *
+     * @param floatState - current state of the float
+     */
+    public void update(final FloatState floatState) {
+        while (true) {
+            Coverage current = coverage.get();
+            if (current != null && floatState.getVersion() <= current.version) {
+                return;
+            }
+            int[] usableCounts = usableCounts(floatState);
+            Coverage updated = current != null && Arrays.equals(usableCounts, current.usableCounts)
+                    ? new Coverage(floatState.getVersion(), current.usableCounts, current.reachable, current.exactChangeOnly)
+                    : build(floatState.getVersion(), usableCounts);
+            if (coverage.compareAndSet(current, updated)) {
+                if (current != null && updated.exactChangeOnly != current.exactChangeOnly) {
+                    notifyListeners(current.exactChangeOnly, updated.exactChangeOnly);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Registers a listener to be told when a price moves in or out of exact change only
+     */
+    public void addListener(final ExactChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param price - price from the catalogue
+     * @return true if the float cannot make every amount of change a sale at the price can need
+     */
+    public boolean isExactChangeOnly(final int price) {
+        int index = Arrays.binarySearch(prices, price);
+        if (index < 0) {
+            throw new IllegalArgumentException(String.format("Price is not in the catalogue: %s", price));
+        }
+        return current().exactChangeOnly[index];
+    }
+
+    /**
+     * @return prices which need exact change, lowest first
+     */
+    public List<Integer> getExactChangeOnlyPrices() {
+        boolean[] exactChangeOnly = current().exactChangeOnly;
+        List<Integer> exactChangeOnlyPrices = new ArrayList<>();
+        for (int index = 0; index < prices.length; index++) {
+            if (exactChangeOnly[index]) {
+                exactChangeOnlyPrices.add(prices[index]);
+            }
+        }
+        return exactChangeOnlyPrices;
+    }
+
+    /**
+     * @param value - amount of change, up to the largest change any price needs
+     * @return true if the float can make the change exactly
+     */
+    public boolean canMakeChange(final int value) {
+        if (value < 0 || value > coveredValue) {
+            throw new IllegalArgumentException(String.format("Change must be between 0 and %s: %s", coveredValue, value));
+        }
+        return isSet(current().reachable, value);
+    }
+
+    /**
+     * @return number of times the coverage bitset has been rebuilt, the rest of the changes to the float were answered
+     * by comparing usable counts
+     */
+    public long getRebuildCount() {
+        return rebuilds.sum();
+    }
+
+    private Coverage current() {
+        Coverage current = coverage.get();
+        if (current == null) {
+            throw new IllegalStateException("Coverage has not been given the state of the float");
+        }
+        return current;
+    }
+
+    /**
+     * Count of each coin which can be used within the largest change, so counts beyond it are treated as equal
+     */
+    private int[] usableCounts(final FloatState floatState) {
+        int[] usableCounts = new int[denominations.length];
+        for (int slot = 0; slot < denominations.length; slot++) {
+            usableCounts[slot] = Math.min(floatState.getCount(slot), coveredValue / denominations[slot]);
+        }
+        return usableCounts;
+    }
+
+    private Coverage build(final long version, final int[] usableCounts) {
+        rebuilds.increment();
+        long[] reachable = ChangeFeasibility.reachableValues(denominations, usableCounts, coveredValue);
+        boolean[] exactChangeOnly = new boolean[prices.length];
+        for (int index = 0; index < prices.length; index++) {
+            exactChangeOnly[index] = anyMissing(requiredChanges[index], reachable);
+        }
+        return new Coverage(version, usableCounts, reachable, exactChangeOnly);
+    }
+
+    private void notifyListeners(final boolean[] previous, final boolean[] next) {
+        for (int index = 0; index < prices.length; index++) {
+            if (previous[index] != next[index]) {
+                for (ExactChangeListener listener : listeners) {
+                    listener.onExactChangeOnly(prices[index], next[index]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Amounts up to the highest price which a customer can pay, with any number of each coin
+     */
+    private static boolean[] payableAmounts(final int[] denominations, final int maxPrice) {
+        boolean[] payable = new boolean[Math.max(1, maxPrice)];
+        payable[0] = true;
+        for (int amount = 1; amount < maxPrice; amount++) {
+            for (int denomination : denominations) {
+                if (denomination <= amount && payable[amount - denomination]) {
+                    payable[amount] = true;
+                    break;
+                }
+            }
+        }
+        return payable;
+    }
+
+    /**
+     * Bitset of the change a sale at the price can need, paid + coin - price for each payable amount below the price
+     * and each coin which covers the rest, up to the largest change
+     */
+    private static long[] requiredChange(final int[] denominations, final boolean[] payable, final int price, final int largestChange) {
+        long[] required = new long[(largestChange >>> 6) + 1];
+        for (int denomination : denominations) {
+            for (int paid = Math.max(0, price - denomination); paid < price; paid++) {
+                int change = paid + denomination - price;
+                if (payable[paid] && change <= largestChange) {
+                    required[change >>> 6] |= 1L << (change & 63);
+                }
+            }
+        }
+        return required;
+    }
+
+    /**
+     * True if any change in the mask cannot be made, compared a word at a time. Words of the mask beyond the coverage
+     * are empty, as the coverage reaches the largest change any price needs.
+     */
+    private static boolean anyMissing(final long[] required, final long[] reachable) {
+        for (int word = 0; word < Math.min(required.length, reachable.length); word++) {
+            if ((required[word] & ~reachable[word]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Highest bit set, 0 if none are
+     */
+    private static int lastSet(final long[] bits) {
+        for (int word = bits.length - 1; word >= 0; word--) {
+            if (bits[word] != 0) {
+                return (word << 6) + 63 - Long.numberOfLeadingZeros(bits[word]);
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isSet(final long[] bits, final int bit) {
+        return (bits[bit >>> 6] & (1L << (bit & 63))) != 0;
+    }
+
+    /**
+     * Coverage of one version of the float, replaced as a whole so readers always see one version
+     */
+    private record Coverage(long version, int[] usableCounts, long[] reachable, boolean[] exactChangeOnly) {
+    }
+}
@@ -0,0 +1,16 @@
+package org.cashmanager.core;
+
+/**
+ * Told when a price of a @{ChangeCoverage} catalogue starts or stops needing exact change
+ */
+@FunctionalInterface
+public interface ExactChangeListener {
+
+    /**
+     * Called on the thread which changed the float, as soon as the change moves the price in or out of exact change only
+     *
+     * @param price           - price from the catalogue e.g. 80
+     * @param exactChangeOnly - true if the float can no longer make every amount of change a sale at the price can need
+     */
+    void onExactChangeOnly(int price, boolean exactChangeOnly);
+}
@@ -0,0 +1,34 @@
+package org.cashmanager.core;
+
+/**
+ * Receives every change published to a @{CashFloat}
+ */
+@FunctionalInterface
+public interface FloatListener {
+
+    /**
+     * Called after a change has been published to the float, on the thread which made the change and before that thread returns to its caller.
+     * Changes made concurrently by different threads can be delivered out of version order, but next.getVersion() is always
+     * previous.getVersion() + 1 so the counts difference between them is exactly the change made.
+     * <p>
+     * Listeners are called in the order they were registered. The change is already published when they are called, so
+     * an exception thrown here does not undo it: the float counts it, see @{CashFloat#getListenerFailureCount}, and
+     * carries on with the next listener. It only reaches the caller when the listener @{propagatesFailure}.
+     *
+     * @param mutation - kind of change
+     * @param previous - contents of the float before the change
+     * @param next     - contents of the float after the change
+     */
+    void onChange(FloatMutation mutation, FloatState previous, FloatState next);
+
+    /**
+     * Whether a change is incomplete without this listener, e.g. a journal which makes each change durable. If so, an
+     * exception it throws is rethrown to the caller which made the change once every listener has been told, so the
+     * caller knows the change was made in memory only.
+     *
+     * @return true to fail the caller when @{onChange} throws, false to only count the failure
+     */
+    default boolean propagatesFailure() {
+        return false;
+    }
+}
@@ -0,0 +1,23 @@
+package org.cashmanager.core;
+
+/**
+ * Kind of change which was made to a @{CashFloat}
+ */
+public enum FloatMutation {
+    RESET, ADD, REMOVE, TRANSACTION, BATCH;
+
+    private static final FloatMutation[] VALUES = values();
+
+    /**
+     * Looks up a mutation by its ordinal, used when reading mutations back from storage
+     *
+     * @param ordinal - ordinal of the mutation
+     * @return the mutation
+     */
+    public static FloatMutation fromOrdinal(final int ordinal) {
+        if (ordinal < 0 || ordinal >= VALUES.length) {
+            throw new IllegalArgumentException(String.format("Unexpected float mutation encountered: %s", ordinal));
+        }
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,80 @@
+package org.cashmanager.core;
+
+/**
+ * Immutable snapshot of the contents of a @{CashFloat}.
+ * A new snapshot is published for every change to the float so readers always see a consistent set of counts.
+ */
+public final class FloatState {
+
+    private final int[] counts;
+    private final int recordedSlots;
+    private final long version;
+
+    FloatState(final int[] counts, final int recordedSlots, final long version) {
+        this.counts = counts;
+        this.recordedSlots = recordedSlots;
+        this.version = version;
+    }
+
+    /**
+     * Restores a snapshot, e.g. one read back from storage
+     *
+     * @param counts        - count for each denomination slot of the currency, copied
+     * @param recordedSlots - bit mask where bit n is set if slot n has been recorded
+     * @param version       - version of the float the snapshot was taken from
+     * @return the snapshot
+     */
+    public static FloatState of(final int[] counts, final int recordedSlots, final long version) {
+        for (int count : counts) {
+            if (count < 0) {
+                throw new IllegalArgumentException(String.format("Provided a count that was below the minimum expected value: %s", count));
+            }
+        }
+        return new FloatState(counts.clone(), recordedSlots, version);
+    }
+
+    /**
+     * Count of coins held for the denomination slot
+     *
+     * @param slot - position of the denomination in the currency e.g. 0 = 200 for GBP
+     * @return number of coins in the float for that denomination
+     */
+    public int getCount(final int slot) {
+        return counts[slot];
+    }
+
+    /**
+     * Copies the counts held in the snapshot
+     *
+     * @return count for each denomination slot of the currency e.g. {13, 13, 0, 50, 50, 30, 0, 0}
+     */
+    public int[] copyCounts() {
+        return counts.clone();
+    }
+
+    /**
+     * Bit per slot which has been recorded in the float, even with a count of 0
+     *
+     * @return bit mask where bit n is set if slot n has been recorded
+     */
+    public int getRecordedSlots() {
+        return recordedSlots;
+    }
+
+    /**
+     * Incremented every time the float changes, so two snapshots with the same version hold the same counts
+     *
+     * @return version of the float this snapshot was taken from
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    boolean isRecorded(final int slot) {
+        return (recordedSlots & (1 << slot)) != 0;
+    }
+
+    FloatState withVersion(final long version) {
+        return new FloatState(counts, recordedSlots, version);
+    }
+}
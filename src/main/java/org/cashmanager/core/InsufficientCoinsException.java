@@ -0,0 +1,12 @@
+package org.cashmanager.core;
+
+/**
+ * Thrown when removing coins would take a denomination in the float below 0
+ */
+public class InsufficientCoinsException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    public InsufficientCoinsException(final String message) {
+        super(message);
+    }
+}
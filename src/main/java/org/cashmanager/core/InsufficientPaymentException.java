@@ -0,0 +1,12 @@
+package org.cashmanager.core;
+
+/**
+ * Thrown when the coins provided for a transaction do not cover its cost
+ */
+public class InsufficientPaymentException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    public InsufficientPaymentException(final String message) {
+        super(message);
+    }
+}
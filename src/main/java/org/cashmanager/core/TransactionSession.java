@@ -0,0 +1,266 @@
+package org.cashmanager.core;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.contract.TransactionResult;
+import org.cashmanager.core.strategy.ChangeStrategy;
+import org.cashmanager.metrics.CalculationTally;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * A transaction taken one coin at a time as the customer inserts them, started by @{CashManagerImpl#startTransaction}.
+ * <p>
+ * Coins inserted are held by the session until it completes. While the customer is still paying, the change for every
+ * coin which would complete the payment is calculated on the speculation executor against the float as it stands, so the
+ * change is usually already known when the last coin arrives and completing only checks that the float has not changed
+ * since. If it has, or the calculation has not finished yet, the change is calculated as for any other transaction.
+ * Speculative calculations are kept out of the cash manager's metrics and adaptive strategy, see
+ * @{CashManagerImpl#speculationStrategy}, and only the one whose change is dispensed is recorded.
+ * <p>
+ * A session is used by one thread at a time, e.g. the one reading the coin mechanism.
+ */
+public final class TransactionSession {
+    private final CashManagerImpl cashManager;
+    private final Currency currency;
+    private final int cost;
+    private final int[] providedSlotCounts;
+    private final Executor speculationExecutor;
+    private int paid;
+    private int lastSlot = -1;
+    private Speculation speculation;
+    private boolean finished;
+    private boolean changeSpeculated;
+    private boolean changeOptimal;
+
+    TransactionSession(final CashManagerImpl cashManager, final int cost, final Executor speculationExecutor) {
+        if (cost <= 0) {
+            throw new IllegalArgumentException(String.format("Cost must be above 0: %s", cost));
+        }
+        this.cashManager = cashManager;
+        this.currency = cashManager.getCurrency();
+        this.cost = cost;
+        this.providedSlotCounts = new int[currency.getSlotCount()];
+        this.speculationExecutor = speculationExecutor;
+        speculate();
+    }
+
+    /**
+     * Takes a coin towards the cost. Once the cost is covered no more coins are taken.
+     *
+     * @param denomination - value of the coin e.g. 50
+     * @return value still to pay, 0 once the cost is covered
+     * @throws IllegalStateException if the session has finished or the cost is already covered
+     */
+    public int insertCoin(final int denomination) {
+        ensureOpen();
+        if (isPaid()) {
+            throw new IllegalStateException("Cost has already been covered");
+        }
+        int slot = currency.getSlot(denomination);
+        if (slot < 0) {
+            throw new IllegalArgumentException(String.format("Denomination included which does not match provided currency: %s", denomination));
+        }
+        providedSlotCounts[slot]++;
+        paid += denomination;
+        lastSlot = slot;
+        if (!isPaid()) {
+            speculate();
+        }
+        return getRemaining();
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    /**
+     * @return value of the coins inserted so far
+     */
+    public int getPaid() {
+        return paid;
+    }
+
+    /**
+     * @return value still to pay, 0 once the cost is covered
+     */
+    public int getRemaining() {
+        return Math.max(0, cost - paid);
+    }
+
+    public boolean isPaid() {
+        return paid >= cost;
+    }
+
+    /**
+     * @return true if the change dispensed by @{complete} had been calculated while coins were being inserted
+     */
+    public boolean isChangeSpeculated() {
+        return changeSpeculated;
+    }
+
+    /**
+     * @return false if the solver budget ran out before the change dispensed by @{complete} was proven to be the fewest
+     * coins, see @{CashManagerImpl#setSolverBudget}
+     */
+    public boolean isChangeOptimal() {
+        return changeOptimal;
+    }
+
+    /**
+     * Adds the inserted coins to the float and dispenses the change, as one atomic change to the float
+     *
+     * @return change dispensed
+     * @throws InsufficientPaymentException if the cost has not been covered
+     * @throws IllegalStateException        if the session has finished or change cannot be made, in which case the
+     *                                      session stays open so the coins can be returned with @{cancel}
+     */
+    public Map<Integer, Integer> complete() {
+        ensureOpen();
+        if (!isPaid()) {
+            throw new InsufficientPaymentException(String.format("Insufficient coins provided to cover cost, %s still to pay", getRemaining()));
+        }
+        Speculation candidates = speculation;
+        int finalSlot = lastSlot;
+        TransactionResult result = cashManager.processTransaction(providedSlotCounts.clone(), paid - cost, counts -> {
+            int[] plan = candidates.planFor(finalSlot, counts);
+            changeSpeculated = plan != null;
+            return plan;
+        });
+        if (changeSpeculated) {
+            cashManager.recordCalculations(candidates.tallies[finalSlot]);
+            changeOptimal = candidates.tallies[finalSlot].getNonOptimalChanges() == 0;
+        } else {
+            changeOptimal = result.isOptimal();
+        }
+        finished = true;
+        return result.getChange();
+    }
+
+    /**
+     * Abandons the transaction without changing the float
+     *
+     * @return coins inserted, to be returned to the customer
+     */
+    public Map<Integer, Integer> cancel() {
+        ensureOpen();
+        finished = true;
+        speculation.cancelled = true;
+        Map<Integer, Integer> coins = new LinkedHashMap<>();
+        for (int slot = 0; slot < providedSlotCounts.length; slot++) {
+            if (providedSlotCounts[slot] > 0) {
+                coins.put(currency.getDenomination(slot), providedSlotCounts[slot]);
+            }
+        }
+        return coins;
+    }
+
+    private void ensureOpen() {
+        if (finished) {
+            throw new IllegalStateException("Transaction session has already finished");
+        }
+    }
+
+    /**
+     * Replaces the previous speculation with one for every coin which would complete the payment from here
+     */
+    private void speculate() {
+        if (speculation != null) {
+            speculation.cancelled = true;
+        }
+        int[] counts = cashManager.getState().copyCounts();
+        for (int slot = 0; slot < counts.length; slot++) {
+            counts[slot] += providedSlotCounts[slot];
+        }
+        speculation = new Speculation(counts, paid - cost);
+        if (speculation.hasCandidates()) {
+            speculationExecutor.execute(speculation);
+        } else {
+            speculation.ready = true;
+        }
+    }
+
+    /**
+     * Change for each coin which could be inserted next, calculated against one reading of the float
+     */
+    private final class Speculation implements Runnable {
+        /**
+         * Counts the change is taken from if the coin in that slot is inserted next, null where it would not cover the cost
+         */
+        private final int[][] candidateCounts;
+        private final int[] changeTotals;
+        private final int[][] plans;
+        /**
+         * How each plan was calculated, recorded in the metrics only if it is dispensed
+         */
+        private final CalculationTally[] tallies;
+        private volatile boolean cancelled;
+        /**
+         * Set once every plan has been calculated, so the plans are visible to a thread which reads it
+         */
+        private volatile boolean ready;
+
+        private Speculation(final int[] counts, final int balance) {
+            int slotCount = counts.length;
+            this.candidateCounts = new int[slotCount][];
+            this.changeTotals = new int[slotCount];
+            this.plans = new int[slotCount][];
+            this.tallies = new CalculationTally[slotCount];
+            for (int slot = 0; slot < slotCount; slot++) {
+                int changeTotal = balance + currency.getDenomination(slot);
+                if (changeTotal >= 0) {
+                    candidateCounts[slot] = counts.clone();
+                    candidateCounts[slot][slot]++;
+                    changeTotals[slot] = changeTotal;
+                }
+            }
+        }
+
+        private boolean hasCandidates() {
+            for (int[] counts : candidateCounts) {
+                if (counts != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void run() {
+            try {
+                CalculationTally tally = new CalculationTally();
+                ChangeStrategy strategy = cashManager.speculationStrategy(tally);
+                for (int slot = 0; slot < candidateCounts.length && !cancelled; slot++) {
+                    if (candidateCounts[slot] == null) {
+                        continue;
+                    }
+                    tally.reset();
+                    try {
+                        plans[slot] = changeTotals[slot] == 0
+                                ? new int[candidateCounts[slot].length]
+                                : strategy.calculateChange(candidateCounts[slot].clone(), changeTotals[slot]);
+                        tallies[slot] = tally.copy();
+                    } catch (RuntimeException e) {
+                        // calculated again when completing, which reports the failure
+                    }
+                }
+            } finally {
+                ready = true;
+            }
+        }
+
+        /**
+         * @param slot   - slot of the coin which completed the payment
+         * @param counts - counts the change is about to be taken from
+         * @return change calculated for the counts, null if it was calculated for different counts or is not ready
+         */
+        private int[] planFor(final int slot, final int[] counts) {
+            if (!ready || candidateCounts[slot] == null || !Arrays.equals(candidateCounts[slot], counts)) {
+                return null;
+            }
+            return plans[slot];
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.cashmanager.core.calculator;
+
+import java.util.Arrays;
+
+/**
+ * Solves the coin change problem with limited coin availability (bounded knapsack) using dynamic programming.
+ * <p>
+ * Each denomination is folded into a minimum coin count table one at a time. Within a denomination, values sharing the
+ * same remainder modulo the denomination form a chain, and a monotone queue over that chain gives the cheapest way of
+ * using between 0 and count coins of it in amortised O(1) per value.
+ * <p>
+ * Time - O(d * v) where d = denominations and v = valueTotal
+ * Memory - O(v) for the minimum coin tables, which are reused across denominations, plus O(d * v) for the reconstruction
+ * table, all held in primitive arrays. The reconstruction table is not O(v): with limited coins the count of a denomination
+ * used for a value depends on which denominations are still allowed, so the choices for each value cannot be kept in a
+ * single row. Rebuilding earlier layers instead would bring memory down to O(v) at O(d² * v) time, which costs more than
+ * the d rows it saves when d is 8 for GBP.
+ */
+public class BoundedChangeSolver {
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * Calculates the minimum number of coins which exactly match the valueTotal
+     *
+     * @param denominations - coin values, any order e.g. {200, 100, 50}
+     * @param counts        - available count for each denomination at the same index e.g. {1, 0, 3}
+     * @param valueTotal    - total target value of the change e.g. 75
+     * @return count of coins to use for each denomination at the same index, or null if exact change cannot be made
+     */
+    public int[] solve(final int[] denominations, final int[] counts, final int valueTotal) {
+        if (denominations.length != counts.length) {
+            throw new IllegalArgumentException("Denominations and counts must be the same length");
+        }
+        if (valueTotal < 0) {
+            throw new IllegalArgumentException("Total to solve cannot be below 0");
+        }
+
+        int[] minCoins = new int[valueTotal + 1];
+        int[] nextMinCoins = new int[valueTotal + 1];
+        int[][] coinsUsed = new int[denominations.length][];
+        int[] queue = new int[valueTotal + 1];
+
+        Arrays.fill(minCoins, UNREACHABLE);
+        minCoins[0] = 0;
+
+        for (int i = 0; i < denominations.length; i++) {
+            coinsUsed[i] = new int[valueTotal + 1];
+            foldDenomination(minCoins, nextMinCoins, coinsUsed[i], queue, denominations[i], counts[i], valueTotal);
+            int[] swap = minCoins;
+            minCoins = nextMinCoins;
+            nextMinCoins = swap;
+        }
+
+        if (minCoins[valueTotal] == UNREACHABLE) {
+            return null;
+        }
+
+        int[] change = new int[denominations.length];
+        int remainingAmount = valueTotal;
+        for (int i = denominations.length - 1; i >= 0; i--) {
+            change[i] = coinsUsed[i][remainingAmount];
+            remainingAmount -= change[i] * denominations[i];
+        }
+        return change;
+    }
+
+    /**
+     * Computes the minimum coin table after allowing up to count coins of the denomination.
+     * For each value v, nextMinCoins[v] = min over k in [0, count] of minCoins[v - k * denomination] + k
+     * Rewriting with v = r + j * denomination this becomes a sliding window minimum of (minCoins[r + i * denomination] - i) + j
+     * which is kept in a monotone queue of chain positions. Ties keep the fewest coins of this denomination.
+     */
+    static void foldDenomination(final int[] minCoins, final int[] nextMinCoins, final int[] coinsUsed, final int[] queue,
+                                  final int denomination, final int count, final int valueTotal) {
+        int maxCount = Math.min(count, valueTotal / denomination);
+
+        for (int remainder = 0; remainder < denomination && remainder <= valueTotal; remainder++) {
+            int head = 0;
+            int tail = 0;
+            for (int j = 0, value = remainder; value <= valueTotal; j++, value += denomination) {
+                if (minCoins[value] != UNREACHABLE) {
+                    int weight = minCoins[value] - j;
+                    while (tail > head && minCoins[remainder + queue[tail - 1] * denomination] - queue[tail - 1] >= weight) {
+                        tail--;
+                    }
+                    queue[tail++] = j;
+                }
+                while (tail > head && queue[head] < j - maxCount) {
+                    head++;
+                }
+
+                if (tail > head) {
+                    int best = queue[head];
+                    nextMinCoins[value] = minCoins[remainder + best * denomination] - best + j;
+                    coinsUsed[value] = j - best;
+                } else {
+                    nextMinCoins[value] = UNREACHABLE;
+                    coinsUsed[value] = 0;
+                }
+            }
+        }
+    }
+}
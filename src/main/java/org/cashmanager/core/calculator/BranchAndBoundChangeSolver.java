@@ -0,0 +1,122 @@
+package org.cashmanager.core.calculator;
+
+import java.time.Duration;
+
+/**
+ * Solves the coin change problem with limited coin availability by a depth first branch and bound search.
+ * <p>
+ * Denominations are tried largest first, and for each one the most coins that fit are tried first, so the first change
+ * found is usually the top down answer and later branches only have to beat it. Only the best change found so far (the
+ * incumbent) is kept. A branch is pruned when the coins left cannot cover the remaining value, or when even paying the
+ * remainder in the current denomination, ceil(remaining / denomination) coins, cannot use fewer coins than the incumbent.
+ * <p>
+ * The search can be given a latency budget. When the deadline passes the incumbent is returned flagged as not optimal,
+ * or a plan without change if none had been found, so callers can fail fast.
+ * <p>
+ * Time - exponential in the number of denominations in the worst case, usually a few hundred nodes as the bounds prune hard
+ * Memory - O(d) where d = denominations, independent of the value
+ */
+public class BranchAndBoundChangeSolver {
+    /**
+     * Nodes explored between reads of the clock
+     */
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+    /**
+     * Searches to completion
+     *
+     * @param denominations - distinct coin values in descending order e.g. {200, 100, 50}
+     * @param counts        - available count for each denomination at the same index e.g. {1, 0, 3}
+     * @param valueTotal    - total target value of the change e.g. 75
+     * @return the plan with the fewest coins, or an optimal plan without change if exact change cannot be made
+     */
+    public ChangePlan solve(final int[] denominations, final int[] counts, final int valueTotal) {
+        return solve(denominations, counts, valueTotal, null);
+    }
+
+    /**
+     * Searches until complete or the budget runs out
+     *
+     * @param denominations - distinct coin values in descending order e.g. {200, 100, 50}
+     * @param counts        - available count for each denomination at the same index e.g. {1, 0, 3}
+     * @param valueTotal    - total target value of the change e.g. 75
+     * @param budget        - time allowed for the search, null for no limit
+     * @return the best plan found, see @{ChangePlan#isOptimal}
+     */
+    public ChangePlan solve(final int[] denominations, final int[] counts, final int valueTotal, final Duration budget) {
+        if (denominations.length != counts.length) {
+            throw new IllegalArgumentException("Denominations and counts must be the same length");
+        }
+        if (valueTotal < 0) {
+            throw new IllegalArgumentException("Total to solve cannot be below 0");
+        }
+        for (int i = 1; i < denominations.length; i++) {
+            if (denominations[i] >= denominations[i - 1]) {
+                throw new IllegalArgumentException("Denominations must be distinct and in descending order");
+            }
+        }
+
+        Search search = new Search(denominations, counts, budget == null ? 0 : System.nanoTime() + budget.toNanos(), budget != null);
+        search.explore(0, valueTotal, 0);
+        if (search.best == null) {
+            return search.expired ? ChangePlan.expired(search.nodes) : ChangePlan.impossible(search.nodes);
+        }
+        return ChangePlan.found(search.best, search.bestCoinCount, !search.expired, search.nodes);
+    }
+
+    /**
+     * State of one search, the current branch is held in a single array which is copied only when it beats the incumbent
+     */
+    private static final class Search {
+        private final int[] denominations;
+        private final int[] counts;
+        private final long[] valueFrom;
+        private final int[] current;
+        private final long deadlineNanos;
+        private final boolean hasDeadline;
+        private int[] best;
+        private int bestCoinCount = Integer.MAX_VALUE;
+        private long nodes;
+        private boolean expired;
+
+        private Search(final int[] denominations, final int[] counts, final long deadlineNanos, final boolean hasDeadline) {
+            this.denominations = denominations;
+            this.counts = counts;
+            this.deadlineNanos = deadlineNanos;
+            this.hasDeadline = hasDeadline;
+            this.current = new int[denominations.length];
+            // valueFrom[i] = value of every coin of denominations i onwards, to prune branches which cannot be completed
+            this.valueFrom = new long[denominations.length + 1];
+            for (int i = denominations.length - 1; i >= 0; i--) {
+                valueFrom[i] = valueFrom[i + 1] + (long) denominations[i] * Math.max(0, counts[i]);
+            }
+        }
+
+        private void explore(final int index, final int remaining, final int coinCount) {
+            if (remaining == 0) {
+                if (coinCount < bestCoinCount) {
+                    bestCoinCount = coinCount;
+                    best = current.clone();
+                }
+                return;
+            }
+            if (index == denominations.length || remaining > valueFrom[index]) {
+                return;
+            }
+            int denomination = denominations[index];
+            if ((long) coinCount + (remaining + denomination - 1) / denomination >= bestCoinCount) {
+                return;
+            }
+            if (++nodes % DEADLINE_CHECK_INTERVAL == 0 && hasDeadline && System.nanoTime() - deadlineNanos > 0) {
+                expired = true;
+                return;
+            }
+
+            for (int take = Math.min(counts[index], remaining / denomination); take >= 0 && !expired; take--) {
+                current[index] = take;
+                explore(index + 1, remaining - take * denomination, coinCount + take);
+            }
+            current[index] = 0;
+        }
+    }
+}
@@ -1,11 +1,65 @@
 package org.cashmanager.core.calculator;
 
+import org.cashmanager.contract.Currency;
+import org.cashmanager.contract.DenominationIndex;
+import org.cashmanager.metrics.CalculationRecorder;
+
+import java.time.Duration;
 import java.util.*;
-import java.util.stream.IntStream;
+import java.util.function.BiFunction;
 
 import static org.cashmanager.util.ProcessDenominationCounts.filterEmptyAndAddToTree;
 
 public class ChangeCalculator {
+    private final BoundedChangeSolver boundedChangeSolver = new BoundedChangeSolver();
+    private final BranchAndBoundChangeSolver branchAndBoundChangeSolver = new BranchAndBoundChangeSolver();
+    private final Currency currency;
+    private final CalculationRecorder metrics;
+    private final Duration solverBudget;
+
+    /**
+     * Calculator without knowledge of the coin system, any successful top down result is accepted
+     */
+    public ChangeCalculator() {
+        this(null, null);
+    }
+
+    /**
+     * Calculator which uses the canonical coin system information of the currency to prove when the top down result is optimal
+     *
+     * @param currency - currency of the floats this calculator will be used with
+     */
+    public ChangeCalculator(final Currency currency) {
+        this(currency, null);
+    }
+
+    /**
+     * Calculator which also records whether each calculation was answered top down or needed the fallback solver
+     *
+     * @param currency - currency of the floats this calculator will be used with
+     * @param metrics  - metrics to record each calculation in
+     */
+    public ChangeCalculator(final Currency currency, final CalculationRecorder metrics) {
+        this(currency, metrics, null);
+    }
+
+    /**
+     * Calculator whose fallback is a @{BranchAndBoundChangeSolver} limited to the solver budget. When the budget runs out the
+     * best change found so far is used even though it may not be the fewest coins, or the calculation fails fast with a
+     * @{SolverDeadlineExceededException} if no change had been found.
+     *
+     * @param currency     - currency of the floats this calculator will be used with
+     * @param metrics      - metrics to record each calculation in, may be null
+     * @param solverBudget - time allowed for each fallback search, null to use the exact @{BoundedChangeSolver} without a limit
+     */
+    public ChangeCalculator(final Currency currency, final CalculationRecorder metrics, final Duration solverBudget) {
+        if (solverBudget != null && (solverBudget.isNegative() || solverBudget.isZero())) {
+            throw new IllegalArgumentException("Solver budget must be above 0");
+        }
+        this.currency = currency;
+        this.metrics = metrics;
+        this.solverBudget = solverBudget;
+    }
 
     /**
      * Works through the available coin denominations starting with the highest value coins to reduce the valueTotal down to 0
@@ -14,10 +68,17 @@ public class ChangeCalculator {
      * Throws an @IllegalStateException if it is unable to calculate a solution
      *
      * The cheapest solution is to go down through the coin denomination values to work out the minimum number of coins expecting that there will be enough of them all to find suitable change
-     * If we still can't solve it. We will need to investigate every possible
+     * If we still can't solve it, we fall back to a bounded coin dynamic programming solve which finds the true minimum number of coins
+     *
+     * When a currency is provided the top down result is only accepted when it is proven optimal, i.e. it uses as few coins as the
+     * currency could with unlimited coins (see @{Currency#getUnlimitedMinimumCoinCount}). For a canonical currency that is whenever the
+     * float had enough of every coin the top down approach wanted. Otherwise the fallback is used to find the minimum.
+     * Before the fallback, a float which provably cannot make the value is rejected by the @{ChangeFeasibility} checks,
+     * so a coin starved float fails in microseconds without running the solver.
      *
      * Attempt 1 - O(n) where n = denominations and most common solve will happen in less than 10 operations
-     * Attempt 2 - O(2n*n) where n = denominations as it must compute every possible combination of coins against other coins before it retrieves the answer because we want the shortest path
+     * Attempt 2 - O(n*v) where n = denominations and v = valueTotal, see @{BoundedChangeSolver}, or a deadline limited
+     * @{BranchAndBoundChangeSolver} when the calculator has a solver budget
      *
      * If it cannot find a solution, it will throw an IllegalStateException as there are not enough coins available to process the transaction
      *
@@ -30,24 +91,151 @@ public class ChangeCalculator {
 
         ChangeCalculatorResult changeCalculatorResult = calculateChangeDescendingLinearly(new TreeMap<>(availableDenominationCounts), valueTotal);
 
-        if (changeCalculatorResult.getRemainingAmount() != 0) {
-            if (changeCalculatorResult.getCalculatedChange().isEmpty()) {
+        if (changeCalculatorResult.getRemainingAmount() != 0 || !isProvenOptimal(changeCalculatorResult, valueTotal)) {
+            int[] denominations = availableDenominationCounts.descendingKeySet().stream()
+                    .filter(denomination -> denomination < valueTotal)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            int[] counts = new int[denominations.length];
+            for (int i = 0; i < denominations.length; i++) {
+                counts[i] = availableDenominationCounts.get(denominations[i]);
+            }
+
+            if (changeCalculatorResult.getCalculatedChange().isEmpty() || !ChangeFeasibility.isFeasible(denominations, counts, valueTotal)) {
+                if (metrics != null) {
+                    metrics.recordInfeasibleRejection();
+                }
                 throw new IllegalStateException(String.format("Not enough coins available to make the exact change: %s", valueTotal));
             }
-            List<Map<Integer, Integer>> correctChanges = new ArrayList<>();
 
-            List<Integer> denominationsToBranch = availableDenominationCounts.keySet().stream()
-                    .filter(denomination -> denomination < valueTotal)
-                    .sorted(Comparator.reverseOrder())
-                    .toList();
+            int[] solved = solveFallback(denominations, counts, valueTotal);
+            TreeMap<Integer, Integer> calculatedChange = new TreeMap<>();
+            for (int i = 0; i < denominations.length; i++) {
+                calculatedChange.put(denominations[i], solved[i]);
+            }
+            return calculatedChange;
+        }
 
-            calculateChangeBranch(correctChanges, availableDenominationCounts, denominationsToBranch, valueTotal, new HashMap<>());
+        if (metrics != null) {
+            metrics.recordGreedyCalculation();
+        }
+        return changeCalculatorResult.getCalculatedChange();
+    }
 
-            return correctChanges.stream().min(Comparator.comparingInt(Map::size))
-                    .orElseThrow(() -> new IllegalStateException(String.format("Not enough coins available to make the exact change: %s", valueTotal)));
+    /**
+     * Same calculation as @{calculateChange(Map, int)} over the slot counts of the calculator's currency, working on
+     * primitive arrays through its @{DenominationIndex} instead of building sorted maps
+     *
+     * @param slotCounts - count for each denomination slot of the currency e.g. {1, 0, 0, 0, 0, 0, 0, 3}
+     * @param valueTotal - total target value of the change e.g. 75
+     * @return count of coins to use as change for each denomination slot
+     */
+    public int[] calculateChange(final int[] slotCounts, final int valueTotal) {
+        int[] change = calculateTopDown(slotCounts, valueTotal);
+        return change != null ? change : calculateExact(slotCounts, valueTotal);
+    }
+
+    /**
+     * Top down pass only, O(d). The result is only returned when it is proven to use the fewest coins.
+     *
+     * @param slotCounts - count for each denomination slot of the currency e.g. {1, 0, 0, 0, 0, 0, 0, 3}
+     * @param valueTotal - total target value of the change e.g. 75
+     * @return count of coins to use as change for each denomination slot, or null if the pass failed or is not proven optimal
+     */
+    public int[] calculateTopDown(final int[] slotCounts, final int valueTotal) {
+        DenominationIndex denominationIndex = requireDenominationIndex();
+        int slotCount = denominationIndex.getSlotCount();
+        int[] change = new int[slotCount];
+
+        int remainingAmount = valueTotal;
+        int coinCount = 0;
+        for (int slot = 0; slot < slotCount && remainingAmount != 0; slot++) {
+            int denomination = denominationIndex.getDenomination(slot);
+            if (remainingAmount >= denomination && slotCounts[slot] > 0) {
+                change[slot] = Math.min(slotCounts[slot], remainingAmount / denomination);
+                remainingAmount -= change[slot] * denomination;
+                coinCount += change[slot];
+            }
         }
 
-        return changeCalculatorResult.getCalculatedChange();
+        if (remainingAmount == 0 && coinCount == currency.getUnlimitedMinimumCoinCount(valueTotal)) {
+            if (metrics != null) {
+                metrics.recordGreedyCalculation();
+            }
+            return change;
+        }
+        return null;
+    }
+
+    /**
+     * Feasibility checks followed by the fallback solver, skipping the top down pass
+     *
+     * @param slotCounts - count for each denomination slot of the currency e.g. {1, 0, 0, 0, 0, 0, 0, 3}
+     * @param valueTotal - total target value of the change e.g. 75
+     * @return count of coins to use as change for each denomination slot
+     */
+    public int[] calculateExact(final int[] slotCounts, final int valueTotal) {
+        return solveStocked(slotCounts, valueTotal, (denominations, counts) -> solveFallback(denominations, counts, valueTotal));
+    }
+
+    /**
+     * Feasibility checks followed by a solver over the denominations which are stocked and fit in the value, so solvers
+     * other than the calculator's fallback share the same preparation and rejections
+     *
+     * @param slotCounts - count for each denomination slot of the currency e.g. {1, 0, 0, 0, 0, 0, 0, 3}
+     * @param valueTotal - total target value of the change e.g. 75
+     * @param solver     - given the denominations and their counts, returns the count of coins to use for each
+     *                   denomination at the same index, or null to decline
+     * @return count of coins to use as change for each denomination slot, or null if the solver declined
+     */
+    public int[] solveStocked(final int[] slotCounts, final int valueTotal, final BiFunction<int[], int[], int[]> solver) {
+        DenominationIndex denominationIndex = requireDenominationIndex();
+        int slotCount = denominationIndex.getSlotCount();
+        int[] solveSlots = new int[slotCount];
+        int solveCount = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (slotCounts[slot] > 0 && denominationIndex.getDenomination(slot) <= valueTotal) {
+                solveSlots[solveCount++] = slot;
+            }
+        }
+        int[] denominations = new int[solveCount];
+        int[] counts = new int[solveCount];
+        for (int i = 0; i < solveCount; i++) {
+            denominations[i] = denominationIndex.getDenomination(solveSlots[i]);
+            counts[i] = slotCounts[solveSlots[i]];
+        }
+
+        if (!ChangeFeasibility.isFeasible(denominations, counts, valueTotal)) {
+            if (metrics != null) {
+                metrics.recordInfeasibleRejection();
+            }
+            throw new IllegalStateException(String.format("Not enough coins available to make the exact change: %s", valueTotal));
+        }
+
+        int[] solved = solver.apply(denominations, counts);
+        if (solved == null) {
+            return null;
+        }
+        int[] change = new int[slotCount];
+        for (int i = 0; i < solveCount; i++) {
+            change[solveSlots[i]] = solved[i];
+        }
+        return change;
+    }
+
+    private DenominationIndex requireDenominationIndex() {
+        if (currency == null) {
+            throw new IllegalStateException("Calculating change from slot counts needs the currency of the float");
+        }
+        return currency.getDenominationIndex();
+    }
+
+    private boolean isProvenOptimal(final ChangeCalculatorResult changeCalculatorResult, final int valueTotal) {
+        if (currency == null) {
+            return true;
+        }
+        int coinCount = changeCalculatorResult.getCalculatedChange().values().stream().mapToInt(Integer::intValue).sum();
+        return coinCount == currency.getUnlimitedMinimumCoinCount(valueTotal);
     }
 
     private ChangeCalculatorResult calculateChangeDescendingLinearly(final TreeMap<Integer, Integer> availableDenominationCounts, final int valueTotal) {
@@ -74,26 +262,42 @@ public class ChangeCalculator {
         return new ChangeCalculatorResult(remainingAmount, calculatedChange);
     }
 
-    private void calculateChangeBranch(final List<Map<Integer, Integer>> correctChanges, final Map<Integer, Integer> availableDenominationCounts,
-                                       final List<Integer> orderedDenominationsToBranch, final Integer currentAmount, final Map<Integer, Integer> currentChange) {
-
-        int currentDenomination = orderedDenominationsToBranch.get(0);
-        int maxNumOfCoins = Math.min(availableDenominationCounts.get(currentDenomination), currentAmount / currentDenomination);
-
-        IntStream.range(0, maxNumOfCoins+1).forEach(currentDenominationCount -> {
-            Map<Integer, Integer> newCurrentChange = new HashMap<>(currentChange);
-            newCurrentChange.put(currentDenomination, currentDenominationCount);
-            int newCurrentAmount = currentAmount - currentDenomination * currentDenominationCount;
-
-            if (newCurrentAmount == 0) {
-                correctChanges.add(newCurrentChange);
-                return;
+    /**
+     * Finds the minimum coin change with the bounded solver, or with the branch and bound search when a solver budget is set.
+     * If the budget runs out the best change found so far is returned, and recorded with @{CalculationRecorder#recordNonOptimalChange}
+     * so callers can report it as not optimal.
+     *
+     * @return count of coins to use for each denomination at the same index
+     */
+    private int[] solveFallback(final int[] denominations, final int[] counts, final int valueTotal) {
+        if (solverBudget == null) {
+            if (metrics != null) {
+                metrics.recordFallbackCalculation((long) denominations.length * (valueTotal + 1));
+            }
+            int[] change = boundedChangeSolver.solve(denominations, counts, valueTotal);
+            if (change == null) {
+                throw new IllegalStateException(String.format("Not enough coins available to make the exact change: %s", valueTotal));
             }
+            return change;
+        }
 
-            if (currentDenomination != orderedDenominationsToBranch.get(orderedDenominationsToBranch.size()-1)) {
-                List<Integer> nextDenominations = orderedDenominationsToBranch.subList(1, orderedDenominationsToBranch.size());
-                calculateChangeBranch(correctChanges, availableDenominationCounts, nextDenominations, newCurrentAmount, newCurrentChange);
+        ChangePlan changePlan = branchAndBoundChangeSolver.solve(denominations, counts, valueTotal, solverBudget);
+        if (metrics != null) {
+            metrics.recordFallbackCalculation(changePlan.getNodesExplored());
+            if (changePlan.isDeadlineExpired()) {
+                metrics.recordDeadlineExpiry();
+            }
+        }
+        if (!changePlan.hasChange()) {
+            if (changePlan.isDeadlineExpired()) {
+                throw new SolverDeadlineExceededException(String.format("No change found within the solver budget of %s for: %s",
+                        solverBudget, valueTotal));
             }
-        });
+            throw new IllegalStateException(String.format("Not enough coins available to make the exact change: %s", valueTotal));
+        }
+        if (!changePlan.isOptimal() && metrics != null) {
+            metrics.recordNonOptimalChange();
+        }
+        return changePlan.getChange();
     }
 }
@@ -0,0 +1,136 @@
+package org.cashmanager.core.calculator;
+
+/**
+ * Cheap checks which prove exact change cannot be made before any search is started.
+ * <p>
+ * Stages, cheapest first:
+ * 1. Total - the coins must be worth at least the value, O(d)
+ * 2. Divisibility - the value must be a multiple of the gcd of the stocked denominations, O(d)
+ * 3. Reachability - a subset sum bitset where bit v is set if some selection of the coins sums to v. Each denomination's
+ * count is split into chunks of 1, 2, 4... coins so every count up to the limit can be chosen, and each chunk is folded in
+ * with a shift and or over whole 64 bit words, O(d * log(c) * v / 64)
+ * <p>
+ * Stage 3 is exact, so a float which passes every stage can always make the change.
+ */
+public final class ChangeFeasibility {
+
+    private ChangeFeasibility() {
+    }
+
+    /**
+     * Whether any selection of the coins exactly matches the valueTotal
+     *
+     * @param denominations - coin values, any order e.g. {200, 100, 50}
+     * @param counts        - available count for each denomination at the same index e.g. {1, 0, 3}
+     * @param valueTotal    - total target value of the change e.g. 75
+     * @return false if exact change cannot be made
+     */
+    public static boolean isFeasible(final int[] denominations, final int[] counts, final int valueTotal) {
+        if (denominations.length != counts.length) {
+            throw new IllegalArgumentException("Denominations and counts must be the same length");
+        }
+        if (valueTotal < 0) {
+            throw new IllegalArgumentException("Total to solve cannot be below 0");
+        }
+        if (valueTotal == 0) {
+            return true;
+        }
+
+        long totalValue = 0;
+        int gcd = 0;
+        for (int i = 0; i < denominations.length; i++) {
+            if (counts[i] > 0 && denominations[i] <= valueTotal) {
+                totalValue += (long) denominations[i] * counts[i];
+                gcd = gcd(gcd, denominations[i]);
+            }
+        }
+        if (totalValue < valueTotal || valueTotal % gcd != 0) {
+            return false;
+        }
+        if (totalValue == valueTotal) {
+            return true;
+        }
+        return isReachable(denominations, counts, valueTotal);
+    }
+
+    static boolean isReachable(final int[] denominations, final int[] counts, final int valueTotal) {
+        long[] reachable = new long[(valueTotal >>> 6) + 1];
+        reachable[0] = 1L;
+        int targetWord = valueTotal >>> 6;
+        long targetBit = 1L << (valueTotal & 63);
+
+        for (int i = 0; i < denominations.length; i++) {
+            if (denominations[i] > valueTotal) {
+                continue;
+            }
+            int remainingCount = Math.min(counts[i], valueTotal / denominations[i]);
+            for (int chunk = 1; remainingCount > 0; chunk <<= 1) {
+                int chunkCount = Math.min(chunk, remainingCount);
+                remainingCount -= chunkCount;
+                shiftOr(reachable, denominations[i] * chunkCount);
+                if ((reachable[targetWord] & targetBit) != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Every value up to the limit which some selection of the coins sums to, built as in stage 3
+     *
+     * @param denominations - coin values, any order e.g. {200, 100, 50}
+     * @param counts        - available count for each denomination at the same index e.g. {1, 0, 3}
+     * @param maxValue      - largest value of interest e.g. 199
+     * @return bitset where bit v is set if some selection of the coins sums to v, bits above maxValue are not meaningful
+     */
+    public static long[] reachableValues(final int[] denominations, final int[] counts, final int maxValue) {
+        if (denominations.length != counts.length) {
+            throw new IllegalArgumentException("Denominations and counts must be the same length");
+        }
+        if (maxValue < 0) {
+            throw new IllegalArgumentException("Largest value cannot be below 0");
+        }
+        long[] reachable = new long[(maxValue >>> 6) + 1];
+        reachable[0] = 1L;
+        for (int i = 0; i < denominations.length; i++) {
+            if (denominations[i] > maxValue) {
+                continue;
+            }
+            int remainingCount = Math.min(counts[i], maxValue / denominations[i]);
+            for (int chunk = 1; remainingCount > 0; chunk <<= 1) {
+                int chunkCount = Math.min(chunk, remainingCount);
+                remainingCount -= chunkCount;
+                shiftOr(reachable, denominations[i] * chunkCount);
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * reachable |= reachable << shift, walking down from the top word so each word only reads words not yet updated
+     */
+    private static void shiftOr(final long[] reachable, final int shift) {
+        int wordShift = shift >>> 6;
+        int bitShift = shift & 63;
+        for (int word = reachable.length - 1; word >= wordShift; word--) {
+            int source = word - wordShift;
+            long shifted = reachable[source] << bitShift;
+            if (bitShift != 0 && source > 0) {
+                shifted |= reachable[source - 1] >>> (64 - bitShift);
+            }
+            reachable[word] |= shifted;
+        }
+    }
+
+    private static int gcd(final int a, final int b) {
+        int x = a;
+        int y = b;
+        while (y != 0) {
+            int remainder = x % y;
+            x = y;
+            y = remainder;
+        }
+        return x;
+    }
+}
@@ -0,0 +1,72 @@
+package org.cashmanager.core.calculator;
+
+/**
+ * Result of a change search which may have been cut short by its deadline
+ * <p>
+ * Holds the change when one was found, whether it is proven to use the fewest coins, and how many search nodes were explored.
+ * A plan without change is either proven impossible (optimal) or ran out of time before finding any change (not optimal).
+ */
+public final class ChangePlan {
+    private final int[] change;
+    private final int coinCount;
+    private final boolean optimal;
+    private final long nodesExplored;
+
+    private ChangePlan(final int[] change, final int coinCount, final boolean optimal, final long nodesExplored) {
+        this.change = change;
+        this.coinCount = coinCount;
+        this.optimal = optimal;
+        this.nodesExplored = nodesExplored;
+    }
+
+    static ChangePlan found(final int[] change, final int coinCount, final boolean optimal, final long nodesExplored) {
+        return new ChangePlan(change, coinCount, optimal, nodesExplored);
+    }
+
+    static ChangePlan impossible(final long nodesExplored) {
+        return new ChangePlan(null, -1, true, nodesExplored);
+    }
+
+    static ChangePlan expired(final long nodesExplored) {
+        return new ChangePlan(null, -1, false, nodesExplored);
+    }
+
+    /**
+     * @return true when change was found
+     */
+    public boolean hasChange() {
+        return change != null;
+    }
+
+    /**
+     * @return count of coins to use for each denomination at the same index as the search was given, null without change
+     */
+    public int[] getChange() {
+        return change == null ? null : change.clone();
+    }
+
+    /**
+     * @return number of coins in the change, -1 without change
+     */
+    public int getCoinCount() {
+        return coinCount;
+    }
+
+    /**
+     * @return true when the search completed, so the change uses the fewest coins or is proven impossible
+     */
+    public boolean isOptimal() {
+        return optimal;
+    }
+
+    /**
+     * @return true when the deadline passed before the search completed
+     */
+    public boolean isDeadlineExpired() {
+        return !optimal;
+    }
+
+    public long getNodesExplored() {
+        return nodesExplored;
+    }
+}
@@ -0,0 +1,180 @@
+package org.cashmanager.core.calculator;
+
+import java.util.Arrays;
+
+import static org.cashmanager.core.calculator.BoundedChangeSolver.UNREACHABLE;
+import static org.cashmanager.core.calculator.BoundedChangeSolver.foldDenomination;
+
+/**
+ * Precomputed minimum coin change for every value from 0 to @{MAX_VALUE} for one set of denomination counts.
+ * <p>
+ * The table is built the same way as @{BoundedChangeSolver}: one layer per denomination, in the order given, where layer i
+ * holds the minimum coin count for every value using only denominations 0 to i. A change to the count of denomination i
+ * leaves layers 0 to i - 1 untouched, so @{update} only refolds the layers from the first changed denomination onwards and
+ * shares the rest with the previous table.
+ * <p>
+ * Tables are immutable so they can be shared between threads, and a lookup is a walk back through the layers, O(d) in the
+ * number of denominations regardless of the value.
+ * <p>
+ * Memory - two short arrays of @{MAX_VALUE} + 1 per denomination, about 16 KB for GBP. No coin count within the table
+ * can exceed @{MAX_VALUE}, so each fits in a short.
+ */
+public final class ChangeTable {
+    /**
+     * Largest value covered by the table, £5 in pence
+     */
+    public static final int MAX_VALUE = 500;
+    private static final short UNREACHABLE_COINS = Short.MAX_VALUE;
+
+    private final int[] denominations;
+    private final int[] counts;
+    private final short[][] minCoins;
+    private final short[][] coinsUsed;
+
+    private ChangeTable(final int[] denominations, final int[] counts, final short[][] minCoins, final short[][] coinsUsed) {
+        this.denominations = denominations;
+        this.counts = counts;
+        this.minCoins = minCoins;
+        this.coinsUsed = coinsUsed;
+    }
+
+    /**
+     * Builds the table for the counts
+     *
+     * @param denominations - coin values, in the order they are folded e.g. {200, 100, 50}
+     * @param counts        - available count for each denomination at the same index e.g. {1, 0, 3}
+     * @return table covering values 0 to @{MAX_VALUE}
+     */
+    public static ChangeTable build(final int[] denominations, final int[] counts) {
+        if (denominations.length != counts.length) {
+            throw new IllegalArgumentException("Denominations and counts must be the same length");
+        }
+        ChangeTable empty = new ChangeTable(denominations.clone(), new int[counts.length],
+                new short[denominations.length][], new short[denominations.length][]);
+        return empty.refold(counts, 0);
+    }
+
+    /**
+     * Whether the table holds the change for the value
+     *
+     * @param value - total value of the change e.g. 75
+     * @return true when the value is between 0 and @{MAX_VALUE}
+     */
+    public static boolean covers(final int value) {
+        return value >= 0 && value <= MAX_VALUE;
+    }
+
+    /**
+     * Brings the table up to date with new counts, refolding only the layers from the first denomination whose count changed
+     *
+     * @param updatedCounts - available count for each denomination
+     * @return this table when no count changed, otherwise a new table sharing the unchanged layers
+     */
+    public ChangeTable update(final int[] updatedCounts) {
+        if (updatedCounts.length != counts.length) {
+            throw new IllegalArgumentException("Denominations and counts must be the same length");
+        }
+        int firstChanged = 0;
+        while (firstChanged < counts.length && effectiveCount(firstChanged, counts) == effectiveCount(firstChanged, updatedCounts)) {
+            firstChanged++;
+        }
+        if (firstChanged == counts.length) {
+            return this;
+        }
+        return refold(updatedCounts, firstChanged);
+    }
+
+    /**
+     * Finds the minimum coin change for the value
+     *
+     * @param value - total value of the change, see @{covers}
+     * @return count of coins to use for each denomination, or null if exact change cannot be made
+     */
+    public int[] lookup(final int value) {
+        if (!covers(value)) {
+            throw new IllegalArgumentException(String.format("Value %s is outside of the change table", value));
+        }
+        if (denominations.length == 0) {
+            return value == 0 ? new int[0] : null;
+        }
+        if (minCoins[denominations.length - 1][value] == UNREACHABLE_COINS) {
+            return null;
+        }
+        int[] change = new int[denominations.length];
+        int remainingAmount = value;
+        for (int i = denominations.length - 1; i >= 0; i--) {
+            change[i] = coinsUsed[i][remainingAmount];
+            remainingAmount -= change[i] * denominations[i];
+        }
+        return change;
+    }
+
+    /**
+     * Minimum number of coins which make the value
+     *
+     * @param value - total value of the change, see @{covers}
+     * @return coin count, -1 if exact change cannot be made
+     */
+    public int getMinimumCoinCount(final int value) {
+        if (!covers(value)) {
+            throw new IllegalArgumentException(String.format("Value %s is outside of the change table", value));
+        }
+        if (denominations.length == 0) {
+            return value == 0 ? 0 : -1;
+        }
+        int coinCount = minCoins[denominations.length - 1][value];
+        return coinCount == UNREACHABLE_COINS ? -1 : coinCount;
+    }
+
+    /**
+     * Count of the denomination which can ever be used within the table, so adding coins beyond that changes nothing
+     */
+    private int effectiveCount(final int index, final int[] counts) {
+        return Math.min(counts[index], MAX_VALUE / denominations[index]);
+    }
+
+    /**
+     * Folds each layer from the first changed denomination into int scratch arrays shared with @{BoundedChangeSolver}, then
+     * narrows it to shorts for the table
+     */
+    private ChangeTable refold(final int[] updatedCounts, final int firstChanged) {
+        short[][] nextMinCoins = Arrays.copyOf(minCoins, minCoins.length);
+        short[][] nextCoinsUsed = Arrays.copyOf(coinsUsed, coinsUsed.length);
+        int[] queue = new int[MAX_VALUE + 1];
+        int[] previous = firstChanged == 0 ? emptyLayer() : widen(nextMinCoins[firstChanged - 1]);
+        int[] folded = new int[MAX_VALUE + 1];
+        int[] used = new int[MAX_VALUE + 1];
+        for (int i = firstChanged; i < denominations.length; i++) {
+            foldDenomination(previous, folded, used, queue, denominations[i], updatedCounts[i], MAX_VALUE);
+            nextMinCoins[i] = narrow(folded);
+            nextCoinsUsed[i] = narrow(used);
+            int[] swap = previous;
+            previous = folded;
+            folded = swap;
+        }
+        return new ChangeTable(denominations, updatedCounts.clone(), nextMinCoins, nextCoinsUsed);
+    }
+
+    private static int[] emptyLayer() {
+        int[] layer = new int[MAX_VALUE + 1];
+        Arrays.fill(layer, UNREACHABLE);
+        layer[0] = 0;
+        return layer;
+    }
+
+    private static short[] narrow(final int[] layer) {
+        short[] narrowed = new short[layer.length];
+        for (int value = 0; value < layer.length; value++) {
+            narrowed[value] = layer[value] == UNREACHABLE ? UNREACHABLE_COINS : (short) layer[value];
+        }
+        return narrowed;
+    }
+
+    private static int[] widen(final short[] layer) {
+        int[] widened = new int[layer.length];
+        for (int value = 0; value < layer.length; value++) {
+            widened[value] = layer[value] == UNREACHABLE_COINS ? UNREACHABLE : layer[value];
+        }
+        return widened;
+    }
+}
@@ -0,0 +1,13 @@
+package org.cashmanager.core.calculator;
+
+/**
+ * Thrown when the change search ran out of its solver budget before finding any change.
+ * The change may still have been possible, so the request can be retried with a larger budget.
+ */
+public class SolverDeadlineExceededException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public SolverDeadlineExceededException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,200 @@
+package org.cashmanager.core.strategy;
+
+import org.cashmanager.core.CashFloat;
+import org.cashmanager.core.calculator.ChangeCalculator;
+import org.cashmanager.metrics.CalculationRecorder;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chooses a strategy for each calculation from cheap features of the request and learns which is fastest for the float.
+ * <p>
+ * Values the in range strategy answers (the change table) always go to it. Everything else is placed in a context from:
+ * - value size - up to £20, up to £100, or more
+ * - tube depth - average coins per stocked denomination below or above @{DEEP_TUBE}
+ * - recent fallback rate - whether the top down pass has mostly been declining, tracked as an exponentially weighted
+ * moving average each time the greedy strategy runs
+ * <p>
+ * Each context keeps an exponentially weighted moving average of the latency of every candidate, including the cost of
+ * the exact strategy when a candidate declines, and picks the lowest. Candidates start at 0 so each is tried once, and every
+ * @{EXPLORE_INTERVAL}th calculation in a context tries the next candidate in turn so the averages follow the float as its
+ * coin mix changes.
+ * <p>
+ * Learning state is a handful of atomic longs per context, updated without locks. Concurrent updates may overwrite each
+ * other, which only loses a sample.
+ */
+public class AdaptiveChangeStrategy implements ChangeStrategy {
+    static final int EXPLORE_INTERVAL = 64;
+    static final int DEEP_TUBE = 16;
+    private static final double LATENCY_WEIGHT = 0.1;
+    private static final double FALLBACK_WEIGHT = 0.05;
+    private static final int VALUE_BUCKETS = 3;
+    private static final int CONTEXTS = VALUE_BUCKETS * 2 * 2;
+    /**
+     * Default time allowed for the branch and bound candidate before it declines
+     */
+    public static final Duration DEFAULT_SEARCH_BUDGET = Duration.ofMillis(1);
+
+    private final ChangeStrategy inRangeStrategy;
+    private final ChangeStrategy[] candidates;
+    private final ChangeStrategy exactStrategy;
+    private final int greedyCandidate;
+    private final AtomicLongArray latencyAverages;
+    private final AtomicLongArray calculations = new AtomicLongArray(CONTEXTS);
+    private final LongAdder[] selections;
+    private volatile double fallbackRate;
+
+    /**
+     * @param inRangeStrategy - asked first for every value, and any value it does not decline is its answer e.g. the change table
+     * @param candidates      - strategies chosen between for values the in range strategy declines
+     * @param exactStrategy   - never declines, used when the chosen candidate declines
+     */
+    public AdaptiveChangeStrategy(final ChangeStrategy inRangeStrategy, final List<ChangeStrategy> candidates,
+                                  final ChangeStrategy exactStrategy) {
+        if (candidates.isEmpty()) {
+            throw new IllegalArgumentException("Expected at least one candidate strategy");
+        }
+        this.inRangeStrategy = inRangeStrategy;
+        this.candidates = candidates.toArray(new ChangeStrategy[0]);
+        this.exactStrategy = exactStrategy;
+        int greedy = -1;
+        for (int i = 0; i < this.candidates.length; i++) {
+            if (this.candidates[i] instanceof GreedyChangeStrategy) {
+                greedy = i;
+            }
+        }
+        this.greedyCandidate = greedy;
+        this.latencyAverages = new AtomicLongArray(CONTEXTS * this.candidates.length);
+        this.selections = new LongAdder[this.candidates.length];
+        for (int i = 0; i < selections.length; i++) {
+            selections[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Strategies for a float, with the change table in range and the full calculator as the exact strategy.
+     * <p>
+     * Without a solver budget every strategy returns the fewest coins: greedy, dynamic programming, branch and bound and
+     * the full calculator are the candidates, the branch and bound search declining after @{DEFAULT_SEARCH_BUDGET}.
+     * <p>
+     * With a solver budget the budget applies to every candidate instead, and change may use more coins when it runs out.
+     * The candidates are greedy, which is O(d), and the full calculator, whose fallback is the branch and bound search
+     * limited to the budget. Dynamic programming cannot be stopped part way, so it is not a candidate.
+     *
+     * @param cashFloat    - float whose change table is used
+     * @param metrics      - metrics each strategy records its calculations in, may be null
+     * @param solverBudget - time allowed for each search above the change table range, see @{ChangeCalculator}, null to
+     *                     always find the fewest coins
+     * @return the adaptive strategy
+     */
+    public static AdaptiveChangeStrategy forFloat(final CashFloat cashFloat, final CalculationRecorder metrics, final Duration solverBudget) {
+        ChangeCalculator changeCalculator = new ChangeCalculator(cashFloat.getCurrency(), metrics, solverBudget);
+        CalculatorChangeStrategy calculatorStrategy = new CalculatorChangeStrategy(changeCalculator);
+        TableLookupChangeStrategy tableStrategy = new TableLookupChangeStrategy(cashFloat, metrics);
+        if (solverBudget != null) {
+            return new AdaptiveChangeStrategy(tableStrategy, List.of(
+                    new GreedyChangeStrategy(changeCalculator),
+                    calculatorStrategy), calculatorStrategy);
+        }
+        return new AdaptiveChangeStrategy(tableStrategy, List.of(
+                new GreedyChangeStrategy(changeCalculator),
+                new DynamicProgrammingChangeStrategy(changeCalculator),
+                new BranchAndBoundChangeStrategy(cashFloat.getCurrency(), metrics, DEFAULT_SEARCH_BUDGET),
+                calculatorStrategy), calculatorStrategy);
+    }
+
+    @Override
+    public String getName() {
+        return "adaptive";
+    }
+
+    @Override
+    public int[] calculateChange(final int[] slotCounts, final int valueTotal) {
+        int[] change = inRangeStrategy.calculateChange(slotCounts, valueTotal);
+        if (change != null) {
+            return change;
+        }
+
+        int context = context(slotCounts, valueTotal);
+        int candidate = choose(context);
+        selections[candidate].increment();
+        long started = System.nanoTime();
+        try {
+            change = candidates[candidate].calculateChange(slotCounts, valueTotal);
+            if (candidate == greedyCandidate) {
+                fallbackRate += FALLBACK_WEIGHT * ((change == null ? 1 : 0) - fallbackRate);
+            }
+            return change != null ? change : exactStrategy.calculateChange(slotCounts, valueTotal);
+        } finally {
+            recordLatency(context, candidate, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Number of calculations handed to each candidate
+     *
+     * @return candidate name to count, in candidate order
+     */
+    public Map<String, Long> getSelections() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < candidates.length; i++) {
+            counts.put(candidates[i].getName(), selections[i].sum());
+        }
+        return counts;
+    }
+
+    /**
+     * Candidate which would currently be chosen in the context, ignoring exploration
+     */
+    String getPreferred(final int[] slotCounts, final int valueTotal) {
+        return candidates[fastest(context(slotCounts, valueTotal))].getName();
+    }
+
+    int context(final int[] slotCounts, final int valueTotal) {
+        int valueBucket = valueTotal <= 2_000 ? 0 : valueTotal <= 10_000 ? 1 : 2;
+        long coins = 0;
+        int stocked = 0;
+        for (int count : slotCounts) {
+            if (count > 0) {
+                coins += count;
+                stocked++;
+            }
+        }
+        int depthBucket = stocked > 0 && coins / stocked >= DEEP_TUBE ? 1 : 0;
+        int fallbackBucket = fallbackRate > 0.5 ? 1 : 0;
+        return (valueBucket * 2 + depthBucket) * 2 + fallbackBucket;
+    }
+
+    private int choose(final int context) {
+        long calculation = calculations.incrementAndGet(context);
+        if (calculation % EXPLORE_INTERVAL == 0) {
+            return (int) ((calculation / EXPLORE_INTERVAL) % candidates.length);
+        }
+        return fastest(context);
+    }
+
+    private int fastest(final int context) {
+        int fastest = 0;
+        double fastestLatency = Double.MAX_VALUE;
+        for (int i = 0; i < candidates.length; i++) {
+            double latency = Double.longBitsToDouble(latencyAverages.get(context * candidates.length + i));
+            if (latency < fastestLatency) {
+                fastest = i;
+                fastestLatency = latency;
+            }
+        }
+        return fastest;
+    }
+
+    private void recordLatency(final int context, final int candidate, final long nanos) {
+        int index = context * candidates.length + candidate;
+        double average = Double.longBitsToDouble(latencyAverages.get(index));
+        double updated = average == 0 ? nanos : average + LATENCY_WEIGHT * (nanos - average);
+        latencyAverages.set(index, Double.doubleToRawLongBits(Math.max(updated, Double.MIN_VALUE)));
+    }
+}
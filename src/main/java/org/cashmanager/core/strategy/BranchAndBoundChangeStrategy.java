@@ -0,0 +1,59 @@
+package org.cashmanager.core.strategy;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.calculator.BranchAndBoundChangeSolver;
+import org.cashmanager.core.calculator.ChangeCalculator;
+import org.cashmanager.core.calculator.ChangePlan;
+import org.cashmanager.metrics.CalculationRecorder;
+
+import java.time.Duration;
+
+/**
+ * Feasibility checks, see @{ChangeCalculator#solveStocked}, followed by the deadline limited @{BranchAndBoundChangeSolver}. Declines when the budget runs out
+ * before the search completes, as the best change found by then may not be the fewest coins.
+ */
+public class BranchAndBoundChangeStrategy implements ChangeStrategy {
+    private final BranchAndBoundChangeSolver solver = new BranchAndBoundChangeSolver();
+    private final ChangeCalculator changeCalculator;
+    private final CalculationRecorder metrics;
+    private final Duration budget;
+
+    /**
+     * @param currency - currency of the float
+     * @param metrics  - metrics to record each search in, may be null
+     * @param budget   - time allowed for each search
+     */
+    public BranchAndBoundChangeStrategy(final Currency currency, final CalculationRecorder metrics, final Duration budget) {
+        if (budget == null || budget.isNegative() || budget.isZero()) {
+            throw new IllegalArgumentException("Solver budget must be above 0");
+        }
+        this.changeCalculator = new ChangeCalculator(currency, metrics);
+        this.metrics = metrics;
+        this.budget = budget;
+    }
+
+    @Override
+    public String getName() {
+        return "branch-and-bound";
+    }
+
+    @Override
+    public int[] calculateChange(final int[] slotCounts, final int valueTotal) {
+        return changeCalculator.solveStocked(slotCounts, valueTotal, (denominations, counts) -> {
+            ChangePlan changePlan = solver.solve(denominations, counts, valueTotal, budget);
+            if (metrics != null) {
+                metrics.recordFallbackCalculation(changePlan.getNodesExplored());
+                if (changePlan.isDeadlineExpired()) {
+                    metrics.recordDeadlineExpiry();
+                }
+            }
+            if (!changePlan.isOptimal()) {
+                return null;
+            }
+            if (!changePlan.hasChange()) {
+                throw new IllegalStateException(String.format("Not enough coins available to make the exact change: %s", valueTotal));
+            }
+            return changePlan.getChange();
+        });
+    }
+}
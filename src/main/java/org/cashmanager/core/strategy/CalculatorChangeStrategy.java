@@ -0,0 +1,24 @@
+package org.cashmanager.core.strategy;
+
+import org.cashmanager.core.calculator.ChangeCalculator;
+
+/**
+ * The full @{ChangeCalculator}: top down pass, then feasibility checks and its fallback solver. Never declines.
+ */
+public class CalculatorChangeStrategy implements ChangeStrategy {
+    private final ChangeCalculator changeCalculator;
+
+    public CalculatorChangeStrategy(final ChangeCalculator changeCalculator) {
+        this.changeCalculator = changeCalculator;
+    }
+
+    @Override
+    public String getName() {
+        return "calculator";
+    }
+
+    @Override
+    public int[] calculateChange(final int[] slotCounts, final int valueTotal) {
+        return changeCalculator.calculateChange(slotCounts, valueTotal);
+    }
+}
@@ -0,0 +1,28 @@
+package org.cashmanager.core.strategy;
+
+/**
+ * A way of calculating change from the slot counts of a float
+ * <p>
+ * Strategies return change using the fewest coins possible, so they only differ in how quickly they get there. The one
+ * exception is a strategy over a @{ChangeCalculator} with a solver budget, which trades that for a latency limit: when the
+ * budget runs out it returns the best change found so far, which may use more coins, see
+ * @{AdaptiveChangeStrategy#forFloat}.
+ * A strategy may decline an input it cannot answer cheaply or exactly by returning null, and the caller then asks another.
+ */
+public interface ChangeStrategy {
+
+    /**
+     * @return short name used in metrics and the CLI e.g. "greedy"
+     */
+    String getName();
+
+    /**
+     * Calculates the change
+     *
+     * @param slotCounts - count for each denomination slot of the currency after any provided coins are added, not modified
+     * @param valueTotal - total target value of the change, above 0
+     * @return count of coins to use as change for each denomination slot, or null if this strategy declined the input
+     * @throws IllegalStateException when the float cannot make the exact change
+     */
+    int[] calculateChange(int[] slotCounts, int valueTotal);
+}
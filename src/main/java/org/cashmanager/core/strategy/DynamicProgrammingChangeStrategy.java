@@ -0,0 +1,27 @@
+package org.cashmanager.core.strategy;
+
+import org.cashmanager.core.calculator.ChangeCalculator;
+
+/**
+ * Feasibility checks followed by the bounded coin dynamic programming solve, O(d * v). Never declines.
+ */
+public class DynamicProgrammingChangeStrategy implements ChangeStrategy {
+    private final ChangeCalculator changeCalculator;
+
+    /**
+     * @param changeCalculator - calculator without a solver budget, so its fallback is the exact bounded solver
+     */
+    public DynamicProgrammingChangeStrategy(final ChangeCalculator changeCalculator) {
+        this.changeCalculator = changeCalculator;
+    }
+
+    @Override
+    public String getName() {
+        return "dp";
+    }
+
+    @Override
+    public int[] calculateChange(final int[] slotCounts, final int valueTotal) {
+        return changeCalculator.calculateExact(slotCounts, valueTotal);
+    }
+}
@@ -0,0 +1,24 @@
+package org.cashmanager.core.strategy;
+
+import org.cashmanager.core.calculator.ChangeCalculator;
+
+/**
+ * Top down pass only, O(d). Declines whenever the result is not proven to use the fewest coins.
+ */
+public class GreedyChangeStrategy implements ChangeStrategy {
+    private final ChangeCalculator changeCalculator;
+
+    public GreedyChangeStrategy(final ChangeCalculator changeCalculator) {
+        this.changeCalculator = changeCalculator;
+    }
+
+    @Override
+    public String getName() {
+        return "greedy";
+    }
+
+    @Override
+    public int[] calculateChange(final int[] slotCounts, final int valueTotal) {
+        return changeCalculator.calculateTopDown(slotCounts, valueTotal);
+    }
+}
@@ -0,0 +1,38 @@
+package org.cashmanager.core.strategy;
+
+import org.cashmanager.core.CashFloat;
+import org.cashmanager.core.calculator.ChangeTable;
+import org.cashmanager.metrics.CalculationRecorder;
+
+/**
+ * Looks the change up in the float's @{ChangeTable}, O(d). Declines values above @{ChangeTable#MAX_VALUE}.
+ */
+public class TableLookupChangeStrategy implements ChangeStrategy {
+    private final CashFloat cashFloat;
+    private final CalculationRecorder metrics;
+
+    public TableLookupChangeStrategy(final CashFloat cashFloat, final CalculationRecorder metrics) {
+        this.cashFloat = cashFloat;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String getName() {
+        return "table";
+    }
+
+    @Override
+    public int[] calculateChange(final int[] slotCounts, final int valueTotal) {
+        if (!ChangeTable.covers(valueTotal)) {
+            return null;
+        }
+        int[] change = cashFloat.getChangeTable(slotCounts).lookup(valueTotal);
+        if (metrics != null) {
+            metrics.recordTableLookup();
+        }
+        if (change == null) {
+            throw new IllegalStateException(String.format("Not enough coins available to make the exact change: %s", valueTotal));
+        }
+        return change;
+    }
+}
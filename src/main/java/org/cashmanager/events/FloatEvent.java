@@ -0,0 +1,92 @@
+package org.cashmanager.events;
+
+import org.cashmanager.core.FloatMutation;
+import org.cashmanager.core.FloatState;
+
+/**
+ * One change made to a float, held in a slot of a @{FloatEventPublisher} ring.
+ * <p>
+ * Events are preallocated and reused for every lap of the ring, so a handler must copy anything it wants to keep
+ * before returning from @{FloatEventHandler#onEvent}.
+ */
+public final class FloatEvent {
+    private final int[] counts;
+    private final int[] deltas;
+    private FloatMutation mutation;
+    private long version;
+    private long timestampNanos;
+
+    FloatEvent(final int slotCount) {
+        this.counts = new int[slotCount];
+        this.deltas = new int[slotCount];
+    }
+
+    void set(final FloatMutation mutation, final FloatState previous, final FloatState next, final long timestampNanos) {
+        this.mutation = mutation;
+        this.version = next.getVersion();
+        this.timestampNanos = timestampNanos;
+        for (int slot = 0; slot < counts.length; slot++) {
+            int count = next.getCount(slot);
+            counts[slot] = count;
+            deltas[slot] = count - previous.getCount(slot);
+        }
+    }
+
+    /**
+     * @return kind of change
+     */
+    public FloatMutation getMutation() {
+        return mutation;
+    }
+
+    /**
+     * @return version of the float after the change, see @{FloatState#getVersion}
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return @{System#nanoTime} when the change was published
+     */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * @param slot - position of the denomination in the currency e.g. 0 = 200 for GBP
+     * @return number of coins in the float for that denomination after the change
+     */
+    public int getCount(final int slot) {
+        return counts[slot];
+    }
+
+    /**
+     * @param slot - position of the denomination in the currency e.g. 0 = 200 for GBP
+     * @return coins added to (positive) or removed from (negative) the float for that denomination by the change
+     */
+    public int getDelta(final int slot) {
+        return deltas[slot];
+    }
+
+    /**
+     * @return number of denomination slots in the currency
+     */
+    public int getSlotCount() {
+        return counts.length;
+    }
+
+    /**
+     * @return count for each denomination slot after the change, copied
+     */
+    public int[] copyCounts() {
+        return counts.clone();
+    }
+
+    /**
+     * @return change in count for each denomination slot, copied
+     */
+    public int[] copyDeltas() {
+        return deltas.clone();
+    }
+}
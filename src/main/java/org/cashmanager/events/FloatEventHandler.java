@@ -0,0 +1,18 @@
+package org.cashmanager.events;
+
+/**
+ * Consumes the @{FloatEvent}s of a @{FloatEventPublisher} on its own thread
+ */
+@FunctionalInterface
+public interface FloatEventHandler {
+
+    /**
+     * Called once for every event in sequence order, always on the same thread.
+     * An exception thrown by the handler is counted by the publisher and the handler carries on with the next event.
+     *
+     * @param event      - the change, only valid until this call returns
+     * @param sequence   - position of the event in the stream, starting at 0
+     * @param endOfBatch - true if this is the last event currently available, e.g. the time to flush any buffered work
+     */
+    void onEvent(FloatEvent event, long sequence, boolean endOfBatch);
+}
@@ -0,0 +1,270 @@
+package org.cashmanager.events;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.FloatListener;
+import org.cashmanager.core.FloatMutation;
+import org.cashmanager.core.FloatState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes every change made to a float to @{FloatEventHandler}s running on their own threads, registered with the float
+ * as a @{FloatListener}.
+ * <p>
+ * Events are held in a preallocated ring of reusable @{FloatEvent}s. The thread changing the float only claims the next
+ * sequence with one atomic increment, copies the counts into that slot and marks it published, so slow consumers such as
+ * reporting or telemetry add no latency to a sale unless they fall a whole ring behind, when publishers wait for them.
+ * <p>
+ * Each slot records the lap of the ring it was last published on, so consumers can tell which sequences are published
+ * when several threads publish at once and finish out of order. Each consumer reads every event in sequence order and
+ * hands over all the events available at once as a batch.
+ */
+public final class FloatEventPublisher implements FloatListener, AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final int PUBLISHER_SPIN_TRIES = 100;
+
+    private final FloatEvent[] events;
+    private final AtomicIntegerArray publishedLaps;
+    private final int mask;
+    private final int lapShift;
+    private final AtomicLong claimed = new AtomicLong();
+    private final LongAdder handlerFailures = new LongAdder();
+    private final List<Consumer> subscribed = new ArrayList<>();
+    private volatile Consumer[] consumers = new Consumer[0];
+    private volatile Consumer[] blockingConsumers = new Consumer[0];
+    private volatile long cachedMinimumSequence = -1;
+    private volatile boolean started;
+    private volatile boolean closed;
+
+    /**
+     * Creates a publisher with @{DEFAULT_CAPACITY} events, see @{FloatEventPublisher(Currency, int)}
+     */
+    public FloatEventPublisher(final Currency currency) {
+        this(currency, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param currency - currency of the float being published
+     * @param capacity - number of events in the ring, a power of 2. Publishers wait when the slowest consumer is this many events behind
+     */
+    public FloatEventPublisher(final Currency currency, final int capacity) {
+        if (currency == null) {
+            throw new IllegalArgumentException("Provided a null value for currency");
+        }
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException(String.format("Capacity must be a power of 2: %s", capacity));
+        }
+        this.events = new FloatEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            events[i] = new FloatEvent(currency.getSlotCount());
+        }
+        this.publishedLaps = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            publishedLaps.set(i, -1);
+        }
+        this.mask = capacity - 1;
+        this.lapShift = Integer.numberOfTrailingZeros(capacity);
+    }
+
+    /**
+     * Adds a consumer which will be given every event published after @{start}
+     *
+     * @param name         - name of the consumer, used to name its thread
+     * @param handler      - called for every event on the consumer's thread
+     * @param waitStrategy - how the consumer waits for events when it has caught up
+     * @throws IllegalStateException if the publisher has already started
+     */
+    public synchronized void subscribe(final String name, final FloatEventHandler handler, final WaitStrategy waitStrategy) {
+        if (handler == null) {
+            throw new IllegalArgumentException("Provided a null value for handler");
+        }
+        if (waitStrategy == null) {
+            throw new IllegalArgumentException("Provided a null value for wait strategy");
+        }
+        if (started) {
+            throw new IllegalStateException("Consumers must subscribe before the publisher is started");
+        }
+        subscribed.add(new Consumer(name, handler, waitStrategy));
+    }
+
+    /**
+     * Starts a thread for each subscribed consumer. Changes made to the float before this are not published.
+     */
+    public synchronized void start() {
+        if (started) {
+            throw new IllegalStateException("Publisher has already been started");
+        }
+        consumers = subscribed.toArray(new Consumer[0]);
+        blockingConsumers = subscribed.stream().filter(consumer -> consumer.waitStrategy == WaitStrategy.BLOCKING).toArray(Consumer[]::new);
+        for (Consumer consumer : consumers) {
+            consumer.thread.start();
+        }
+        started = true;
+    }
+
+    @Override
+    public void onChange(final FloatMutation mutation, final FloatState previous, final FloatState next) {
+        if (!started || closed) {
+            return;
+        }
+        long sequence = claimed.getAndIncrement();
+        if (!awaitCapacity(sequence)) {
+            return;
+        }
+        int index = (int) sequence & mask;
+        events[index].set(mutation, previous, next, System.nanoTime());
+        publishedLaps.set(index, (int) (sequence >>> lapShift));
+        for (Consumer consumer : blockingConsumers) {
+            if (consumer.parked) {
+                LockSupport.unpark(consumer.thread);
+            }
+        }
+    }
+
+    /**
+     * Stops taking new events and waits for every consumer to handle the events already published.
+     * Changes made to the float while closing may not be published.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Consumer consumer : consumers) {
+            LockSupport.unpark(consumer.thread);
+        }
+        for (Consumer consumer : consumers) {
+            try {
+                consumer.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return number of sequences claimed by publishers so far
+     */
+    public long getPublishedCount() {
+        return claimed.get();
+    }
+
+    /**
+     * @return number of events published but not yet handled by the slowest consumer
+     */
+    public long getBacklog() {
+        return consumers.length == 0 ? 0 : claimed.get() - 1 - minimumSequence();
+    }
+
+    /**
+     * @return number of exceptions thrown by handlers
+     */
+    public long getHandlerFailures() {
+        return handlerFailures.sum();
+    }
+
+    /**
+     * Waits until the slowest consumer is less than a lap of the ring behind the claimed sequence
+     *
+     * @return false if the publisher was closed while waiting
+     */
+    private boolean awaitCapacity(final long sequence) {
+        long wrapPoint = sequence - events.length;
+        if (wrapPoint < cachedMinimumSequence) {
+            return true;
+        }
+        int tries = 0;
+        long minimum;
+        while (wrapPoint >= (minimum = minimumSequence())) {
+            if (closed) {
+                return false;
+            }
+            if (tries++ < PUBLISHER_SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(1_000);
+            }
+        }
+        cachedMinimumSequence = minimum;
+        return true;
+    }
+
+    private long minimumSequence() {
+        long minimum = Long.MAX_VALUE;
+        for (Consumer consumer : consumers) {
+            minimum = Math.min(minimum, consumer.sequence.get());
+        }
+        return minimum;
+    }
+
+    private boolean isPublished(final long sequence) {
+        return publishedLaps.get((int) sequence & mask) == (int) (sequence >>> lapShift);
+    }
+
+    /**
+     * Highest sequence from the given one onwards which has been published along with every sequence before it
+     */
+    private long highestPublished(final long from) {
+        long sequence = from;
+        while (isPublished(sequence)) {
+            sequence++;
+        }
+        return sequence - 1;
+    }
+
+    private final class Consumer implements Runnable {
+        private final FloatEventHandler handler;
+        private final WaitStrategy waitStrategy;
+        private final Thread thread;
+        /**
+         * Last sequence handled
+         */
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private volatile boolean parked;
+
+        private Consumer(final String name, final FloatEventHandler handler, final WaitStrategy waitStrategy) {
+            this.handler = handler;
+            this.waitStrategy = waitStrategy;
+            this.thread = new Thread(this, "float-events-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long next = 0;
+            int idleCount = 0;
+            while (true) {
+                // read before looking for events, so every event published before the publisher closed is seen before exiting
+                boolean closing = closed;
+                long available = highestPublished(next);
+                if (available >= next) {
+                    for (long current = next; current <= available; current++) {
+                        try {
+                            handler.onEvent(events[(int) current & mask], current, current == available);
+                        } catch (RuntimeException e) {
+                            handlerFailures.increment();
+                        }
+                    }
+                    sequence.lazySet(available);
+                    next = available + 1;
+                    idleCount = 0;
+                } else if (closing) {
+                    return;
+                } else if (waitStrategy == WaitStrategy.BLOCKING) {
+                    parked = true;
+                    // a publisher which marked the sequence published before this thread was seen as parked will not unpark it
+                    if (!isPublished(next) && !closed) {
+                        waitStrategy.idle(idleCount);
+                    }
+                    parked = false;
+                } else {
+                    waitStrategy.idle(idleCount++);
+                }
+            }
+        }
+    }
+}
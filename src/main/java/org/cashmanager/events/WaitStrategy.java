@@ -0,0 +1,58 @@
+package org.cashmanager.events;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a @{FloatEventPublisher} consumer waits when it has caught up with the published events,
+ * trading the latency of seeing the next event against the CPU spent waiting for it
+ */
+public enum WaitStrategy {
+    /**
+     * Spins on the CPU, lowest latency but uses a whole core per consumer
+     */
+    BUSY_SPIN,
+    /**
+     * Spins briefly then yields the CPU to other threads
+     */
+    YIELDING,
+    /**
+     * Spins, yields, then sleeps for increasing periods up to a millisecond
+     */
+    SLEEPING,
+    /**
+     * Parks until a publisher wakes it, no CPU while idle but every publish pays to check for a parked consumer
+     */
+    BLOCKING;
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long MAX_SLEEP_NANOS = 1_000_000;
+
+    /**
+     * Waits once for an event to be published
+     *
+     * @param idleCount - number of times the consumer has already waited without seeing an event
+     */
+    void idle(final int idleCount) {
+        switch (this) {
+            case BUSY_SPIN -> Thread.onSpinWait();
+            case YIELDING -> {
+                if (idleCount < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            case SLEEPING -> {
+                if (idleCount < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else if (idleCount < YIELD_TRIES) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(Math.min(MAX_SLEEP_NANOS, 1_000L << Math.min(10, idleCount - YIELD_TRIES)));
+                }
+            }
+            case BLOCKING -> LockSupport.park(this);
+        }
+    }
+}
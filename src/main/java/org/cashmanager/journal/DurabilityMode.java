@@ -0,0 +1,36 @@
+package org.cashmanager.journal;
+
+/**
+ * How long a change to the float can wait before it is durable in the @{FloatJournal}
+ */
+public enum DurabilityMode {
+    /**
+     * Every change is written and forced to disk before the change returns to its caller.
+     * Changes arriving while a force is in progress are grouped into the next force so the cost is shared.
+     */
+    SYNC,
+    /**
+     * Changes are buffered and written then forced to disk by a background thread at a fixed interval
+     */
+    BATCHED,
+    /**
+     * Changes are buffered and written by a background thread at a fixed interval, leaving the operating system to decide
+     * when they reach the disk. Only forced when the journal is closed.
+     */
+    ASYNC;
+
+    /**
+     * Finds a durability mode by its name, ignoring case
+     *
+     * @param name - e.g. "sync"
+     * @return the durability mode
+     */
+    public static DurabilityMode fromName(final String name) {
+        for (DurabilityMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unexpected durability mode encountered: %s", name));
+    }
+}
@@ -0,0 +1,135 @@
+package org.cashmanager.journal;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.FloatState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Writes a @{FloatSnapshot} of a float from a background thread at a fixed interval.
+ * The float is read through its published @{FloatState} so transactions carry on while a snapshot is written,
+ * and nothing is written when the float has not changed since the last snapshot.
+ * <p>
+ * When the float is also journaled, the @{FloatJournal} is rolled after each snapshot so it only holds the changes
+ * made since, and a restart replays those rather than the whole history of the float.
+ */
+public final class FloatCheckpointer implements Closeable {
+    private final Path path;
+    private final Currency currency;
+    private final Supplier<FloatState> stateSupplier;
+    private final FloatJournal journal;
+    private final ScheduledExecutorService scheduler;
+    private volatile long checkpointedVersion;
+    private volatile IOException lastFailure;
+
+    private FloatCheckpointer(final Path path, final Currency currency, final Supplier<FloatState> stateSupplier,
+                              final FloatJournal journal, final long checkpointedVersion) {
+        this.path = path;
+        this.currency = currency;
+        this.stateSupplier = stateSupplier;
+        this.journal = journal;
+        this.checkpointedVersion = checkpointedVersion;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "float-checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts taking snapshots in the background of a float which is not journaled, see @{start(Path, Currency, Supplier, Duration, FloatJournal)}
+     */
+    public static FloatCheckpointer start(final Path path, final Currency currency, final Supplier<FloatState> stateSupplier,
+                                          final Duration interval) {
+        return start(path, currency, stateSupplier, interval, null);
+    }
+
+    /**
+     * Starts taking snapshots in the background
+     *
+     * @param path          - location of the snapshot file
+     * @param currency      - currency of the float
+     * @param stateSupplier - current state of the float e.g. cashManager::getState
+     * @param interval      - time between snapshots
+     * @param journal       - journal of the float, rolled after each snapshot. Null if the float is not journaled
+     * @return the running checkpointer
+     */
+    public static FloatCheckpointer start(final Path path, final Currency currency, final Supplier<FloatState> stateSupplier,
+                                          final Duration interval, final FloatJournal journal) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Checkpoint interval must be above 0");
+        }
+        FloatCheckpointer checkpointer = new FloatCheckpointer(path, currency, stateSupplier, journal, -1);
+        long intervalNanos = interval.toNanos();
+        checkpointer.scheduler.scheduleWithFixedDelay(checkpointer::checkpointQuietly, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        return checkpointer;
+    }
+
+    /**
+     * Writes a snapshot now if the float has changed since the last one, then rolls the journal to it
+     *
+     * @return true if a snapshot was written
+     */
+    public synchronized boolean checkpoint() throws IOException {
+        FloatState floatState = stateSupplier.get();
+        if (floatState.getVersion() == checkpointedVersion) {
+            return false;
+        }
+        FloatSnapshot.write(path, currency, floatState);
+        if (journal != null) {
+            journal.roll(floatState);
+        }
+        checkpointedVersion = floatState.getVersion();
+        return true;
+    }
+
+    /**
+     * Version of the float in the last snapshot written
+     *
+     * @return float version, -1 if no snapshot has been written
+     */
+    public long getCheckpointedVersion() {
+        return checkpointedVersion;
+    }
+
+    /**
+     * Failure from the most recent background snapshot, cleared by the next successful one
+     *
+     * @return the failure, null if the last snapshot succeeded
+     */
+    public IOException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Stops the background snapshots and takes a final one
+     */
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the checkpointer to stop");
+        }
+        checkpoint();
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+            lastFailure = null;
+        } catch (IOException e) {
+            lastFailure = e;
+        }
+    }
+}
@@ -0,0 +1,539 @@
+package org.cashmanager.journal;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.FloatListener;
+import org.cashmanager.core.FloatMutation;
+import org.cashmanager.core.FloatState;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append only binary journal of every change made to a float, registered with the float as a @{FloatListener}.
+ * <p>
+ * Each record holds the difference in counts between consecutive versions of the float rather than the counts themselves,
+ * so records written out of version order by concurrent changes still add up to the latest float when replayed.
+ * <p>
+ * Records are encoded into an in memory buffer under a short lock. Writing the buffer to the file is done by one thread
+ * at a time while new records go into a second buffer, so every record which arrives while the file is being forced is
+ * written by the next force (group commit).
+ * <p>
+ * The journal is rolled with @{roll} after each @{FloatSnapshot}, replacing every record the snapshot covers with one
+ * baseline record of the snapshotted float, so the journal only grows with the changes made since the last snapshot.
+ */
+public final class FloatJournal implements FloatListener, Closeable {
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(10);
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+
+    private final Path path;
+    private final Currency currency;
+    private final DurabilityMode durabilityMode;
+    private final FloatState recoveredState;
+    private final ScheduledExecutorService flusher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private ByteBuffer writing = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private long appendedSequence;
+    private long flushedSequence;
+    private long forcedSequence;
+    private long baselineVersion = -1;
+    /**
+     * Only written by the thread which has set flushing, under the lock
+     */
+    private FileChannel channel;
+    private boolean flushing;
+    private boolean closed;
+    private IOException failure;
+
+    private FloatJournal(final Path path, final FileChannel channel, final Currency currency, final DurabilityMode durabilityMode,
+                         final FloatState recoveredState, final Duration flushInterval) {
+        this.path = path;
+        this.channel = channel;
+        this.currency = currency;
+        this.durabilityMode = durabilityMode;
+        this.recoveredState = recoveredState;
+        if (durabilityMode == DurabilityMode.SYNC) {
+            this.flusher = null;
+        } else {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "float-journal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long intervalNanos = flushInterval.toNanos();
+            boolean force = durabilityMode == DurabilityMode.BATCHED;
+            this.flusher.scheduleWithFixedDelay(() -> flushQuietly(force), intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Opens the journal with the default flush interval, see @{open(Path, Currency, DurabilityMode, Duration)}
+     */
+    public static FloatJournal open(final Path path, final Currency currency, final DurabilityMode durabilityMode) throws IOException {
+        return open(path, currency, durabilityMode, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Opens the journal without a checkpoint, see @{open(Path, Currency, DurabilityMode, Duration, FloatState)}
+     */
+    public static FloatJournal open(final Path path, final Currency currency, final DurabilityMode durabilityMode,
+                                    final Duration flushInterval) throws IOException {
+        return open(path, currency, durabilityMode, flushInterval, null);
+    }
+
+    /**
+     * Opens the journal, creating it if it does not exist, and replays any records already in it.
+     * A torn record at the end of the journal, left by a crash part way through a write, is discarded.
+     *
+     * @param path           - location of the journal file
+     * @param currency       - currency of the float being journaled
+     * @param durabilityMode - when changes are written and forced to disk
+     * @param flushInterval  - how often buffered changes are written when not using @{DurabilityMode#SYNC}
+     * @param checkpoint     - float loaded from a @{FloatSnapshot}, records up to its version are skipped. Null to replay everything
+     * @return the open journal
+     */
+    public static FloatJournal open(final Path path, final Currency currency, final DurabilityMode durabilityMode,
+                                    final Duration flushInterval, final FloatState checkpoint) throws IOException {
+        if (currency == null) {
+            throw new IllegalArgumentException("Provided a null value for currency");
+        }
+        if (durabilityMode == null) {
+            throw new IllegalArgumentException("Provided a null value for durability mode");
+        }
+        if (flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("Flush interval must be above 0");
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FloatState recoveredState = checkpoint;
+            if (channel.size() == 0) {
+                channel.write(ByteBuffer.wrap(JournalFormat.header(currency)));
+                channel.force(true);
+            } else {
+                Replay replay = replay(channel, currency, checkpoint);
+                channel.truncate(replay.validLength);
+                recoveredState = replay.state;
+            }
+            channel.position(channel.size());
+            return new FloatJournal(path, channel, currency, durabilityMode, recoveredState, flushInterval);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the float recorded in a journal without opening it for writing
+     *
+     * @param path     - location of the journal file
+     * @param currency - currency of the float which was journaled
+     * @return the latest float in the journal, empty if no changes have been recorded
+     */
+    public static Optional<FloatState> read(final Path path, final Currency currency) throws IOException {
+        return read(path, currency, null);
+    }
+
+    /**
+     * Reads the float recorded in a journal on top of a checkpoint without opening it for writing
+     *
+     * @param path       - location of the journal file
+     * @param currency   - currency of the float which was journaled
+     * @param checkpoint - float loaded from a @{FloatSnapshot}, records up to its version are skipped. Null to replay everything
+     * @return the latest float, empty if no changes have been recorded and there is no checkpoint
+     */
+    public static Optional<FloatState> read(final Path path, final Currency currency, final FloatState checkpoint) throws IOException {
+        if (!Files.exists(path)) {
+            return Optional.ofNullable(checkpoint);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return Optional.ofNullable(replay(channel, currency, checkpoint).state);
+        }
+    }
+
+    /**
+     * Float rebuilt from the checkpoint and the records found when the journal was opened
+     *
+     * @return the latest float, empty if there was no checkpoint and the journal was new or held no changes
+     */
+    public Optional<FloatState> getRecoveredState() {
+        return Optional.ofNullable(recoveredState);
+    }
+
+    public DurabilityMode getDurabilityMode() {
+        return durabilityMode;
+    }
+
+    /**
+     * Records the starting contents of a float being journaled for the first time, then forces it to disk.
+     * Must be called before the journal is registered with the float.
+     *
+     * @param floatState - contents of the float
+     */
+    public void writeBaseline(final FloatState floatState) throws IOException {
+        if (recoveredState != null) {
+            throw new IllegalStateException("Journal already holds a float");
+        }
+        long sequence = append(FloatMutation.RESET, null, floatState);
+        awaitFlushed(sequence, true);
+    }
+
+    /**
+     * Appends the change to the journal. With @{DurabilityMode#SYNC} this only returns once the change is on disk.
+     * The float has already been changed when this is called, so an @{UncheckedIOException} from here means the change
+     * was made but may not be durable. It reaches the caller which made the change, see @{propagatesFailure}.
+     */
+    @Override
+    public void onChange(final FloatMutation mutation, final FloatState previous, final FloatState next) {
+        long sequence = append(mutation, previous, next);
+        if (durabilityMode == DurabilityMode.SYNC) {
+            try {
+                awaitFlushed(sequence, true);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write change to journal", e);
+            }
+        }
+    }
+
+    /**
+     * A change the journal failed to record, or any change after a write has failed, fails the caller which made it
+     * rather than being counted by the float and carrying on unjournaled
+     */
+    @Override
+    public boolean propagatesFailure() {
+        return true;
+    }
+
+    /**
+     * Writes and forces every change recorded so far to disk
+     */
+    public void sync() throws IOException {
+        long sequence;
+        lock.lock();
+        try {
+            sequence = appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+        awaitFlushed(sequence, true);
+    }
+
+    /**
+     * Rewrites the journal as a baseline record of the float followed by the records newer than it, then moves it over
+     * the old journal in one step so a crash leaves either the old journal or the rolled one. Called once the float has
+     * been written to a @{FloatSnapshot}, so replaying the rolled journal on top of the snapshot, or on its own, gives
+     * the same float as before. Changes carry on being appended while the journal is rolled, but are only written once
+     * it has finished. Changes older than the float are already counted by its baseline record and are not appended.
+     * A failure leaves the journal unable to take further changes, as a failed write does.
+     *
+     * @param floatState - float which has been snapshotted
+     * @return true if the journal was rolled, false if it already starts from this version of the float or a later one
+     */
+    public boolean roll(final FloatState floatState) throws IOException {
+        long target;
+        ByteBuffer batch;
+        FileChannel current;
+        lock.lock();
+        try {
+            while (flushing) {
+                flushed.awaitUninterruptibly();
+            }
+            if (closed) {
+                throw new IllegalStateException("Journal has been closed");
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            if (floatState.getVersion() <= baselineVersion) {
+                return false;
+            }
+            baselineVersion = floatState.getVersion();
+            flushing = true;
+            target = appendedSequence;
+            batch = pending;
+            pending = writing;
+            writing = batch;
+            current = channel;
+        } finally {
+            lock.unlock();
+        }
+
+        FileChannel rolled = null;
+        IOException error = null;
+        try {
+            batch.flip();
+            while (batch.hasRemaining()) {
+                current.write(batch);
+            }
+            rolled = rewrite(current, floatState);
+            current.close();
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            batch.clear();
+        }
+
+        lock.lock();
+        try {
+            flushing = false;
+            if (rolled != null) {
+                channel = rolled;
+            }
+            if (error != null) {
+                failure = error;
+            } else {
+                flushedSequence = target;
+                forcedSequence = target;
+            }
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (error != null) {
+            throw error;
+        }
+        return true;
+    }
+
+    /**
+     * Stops the background flusher then writes and forces every change recorded so far before closing the file
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            if (flusher != null) {
+                flusher.shutdown();
+                flusher.awaitTermination(1, TimeUnit.MINUTES);
+            }
+            sync();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the journal flusher to stop");
+        } finally {
+            lock.lock();
+            try {
+                channel.close();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private long append(final FloatMutation mutation, final FloatState previous, final FloatState next) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Journal has been closed");
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Journal can no longer be written to", failure);
+            }
+            if (next.getVersion() <= baselineVersion) {
+                // already counted by the baseline the journal was rolled to
+                return appendedSequence;
+            }
+            if (pending.remaining() < JournalFormat.RECORD_HEADER_BYTES + JournalFormat.MAX_PAYLOAD_BYTES) {
+                ByteBuffer larger = ByteBuffer.allocate(pending.capacity() * 2);
+                pending.flip();
+                larger.put(pending);
+                pending = larger;
+            }
+            JournalFormat.writeRecord(pending, crc, mutation, previous, next, currency.getSlotCount());
+            return ++appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every record up to the sequence has been written. The first waiting thread becomes the leader and
+     * writes everything appended so far, while the others wait for it and are released together.
+     */
+    private void awaitFlushed(final long sequence, final boolean force) throws IOException {
+        lock.lock();
+        try {
+            while (flushedSequence < sequence || force && forcedSequence < sequence) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (flushing) {
+                    flushed.awaitUninterruptibly();
+                    continue;
+                }
+                flushing = true;
+                long target = appendedSequence;
+                ByteBuffer batch = pending;
+                pending = writing;
+                writing = batch;
+                FileChannel current = channel;
+
+                IOException error = null;
+                lock.unlock();
+                try {
+                    batch.flip();
+                    while (batch.hasRemaining()) {
+                        current.write(batch);
+                    }
+                    if (force) {
+                        current.force(false);
+                    }
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    batch.clear();
+                    lock.lock();
+                }
+
+                flushing = false;
+                if (error != null) {
+                    failure = error;
+                } else {
+                    flushedSequence = target;
+                    if (force) {
+                        forcedSequence = target;
+                    }
+                }
+                flushed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushQuietly(final boolean force) {
+        try {
+            long sequence;
+            lock.lock();
+            try {
+                sequence = appendedSequence;
+            } finally {
+                lock.unlock();
+            }
+            awaitFlushed(sequence, force);
+        } catch (IOException e) {
+            // Recorded in failure and reported to the next change
+        }
+    }
+
+    /**
+     * Writes the header, a baseline record of the float and every record from the current journal newer than it to a
+     * temporary file beside the journal, forces it, then moves it over the journal
+     *
+     * @return the rolled journal, positioned at its end
+     */
+    private FileChannel rewrite(final FileChannel current, final FloatState floatState) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".roll");
+        try (FileChannel output = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+            CRC32 recordCrc = new CRC32();
+            buffer.put(JournalFormat.header(currency));
+            JournalFormat.writeRecord(buffer, recordCrc, FloatMutation.RESET, null, floatState, currency.getSlotCount());
+
+            current.position(0);
+            DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(current), INITIAL_BUFFER_BYTES));
+            JournalFormat.readHeader(input, currency);
+            byte[] payload = new byte[JournalFormat.MAX_PAYLOAD_BYTES];
+            JournalFormat.ReplayedRecord record = new JournalFormat.ReplayedRecord();
+            while (JournalFormat.readRecord(input, recordCrc, payload, new long[0], Long.MAX_VALUE, record)) {
+                if (record.version <= floatState.getVersion()) {
+                    continue;
+                }
+                if (buffer.remaining() < record.length) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        output.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                buffer.putInt(record.length - JournalFormat.RECORD_HEADER_BYTES)
+                        .putInt((int) recordCrc.getValue())
+                        .put(payload, 0, record.length - JournalFormat.RECORD_HEADER_BYTES);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                output.write(buffer);
+            }
+            output.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        FileChannel rolled = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        rolled.position(rolled.size());
+        return rolled;
+    }
+
+    private static Replay replay(final FileChannel channel, final Currency currency, final FloatState checkpoint) throws IOException {
+        channel.position(0);
+        DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), INITIAL_BUFFER_BYTES));
+        long validLength = JournalFormat.readHeader(input, currency);
+
+        long[] counts = new long[currency.getSlotCount()];
+        boolean anyRecords = checkpoint != null;
+        long latestVersion = -1;
+        int latestRecordedSlots = 0;
+        if (checkpoint != null) {
+            for (int slot = 0; slot < counts.length; slot++) {
+                counts[slot] = checkpoint.getCount(slot);
+            }
+            latestVersion = checkpoint.getVersion();
+            latestRecordedSlots = checkpoint.getRecordedSlots();
+        }
+
+        byte[] payload = new byte[JournalFormat.MAX_PAYLOAD_BYTES];
+        CRC32 crc = new CRC32();
+        JournalFormat.ReplayedRecord record = new JournalFormat.ReplayedRecord();
+        long checkpointVersion = latestVersion;
+        while (JournalFormat.readRecord(input, crc, payload, counts, checkpointVersion, record)) {
+            anyRecords = true;
+            if (record.version > latestVersion) {
+                latestVersion = record.version;
+                latestRecordedSlots = record.recordedSlots;
+            }
+            validLength += record.length;
+        }
+
+        if (!anyRecords) {
+            return new Replay(null, validLength);
+        }
+        int[] floatCounts = new int[counts.length];
+        for (int slot = 0; slot < counts.length; slot++) {
+            if (counts[slot] < 0 || counts[slot] > Integer.MAX_VALUE) {
+                throw new IOException(String.format("Journal replayed to an invalid count for %s: %s", currency.getDenomination(slot), counts[slot]));
+            }
+            floatCounts[slot] = (int) counts[slot];
+        }
+        return new Replay(FloatState.of(floatCounts, latestRecordedSlots, latestVersion), validLength);
+    }
+
+    private record Replay(FloatState state, long validLength) {
+    }
+}
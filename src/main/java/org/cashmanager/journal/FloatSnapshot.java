@@ -0,0 +1,117 @@
+package org.cashmanager.journal;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.FloatState;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Fixed layout binary checkpoint of a whole float, so it can be restored without replaying its history.
+ * <p>
+ * Layout, big endian - int magic, short format version, short currency ordinal, int slot count, int recorded slots,
+ * long version, int count for each slot, then int CRC32 of everything before it. Every field is at a fixed offset
+ * so loading is a single mapping of the file and a bulk copy of the counts.
+ */
+public final class FloatSnapshot {
+    static final int MAGIC = 0x434D5331;
+    static final short FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final int COUNTS_OFFSET = HEADER_BYTES;
+
+    private FloatSnapshot() {
+    }
+
+    /**
+     * Size of a snapshot for the currency
+     *
+     * @param currency - currency of the float
+     * @return number of bytes in the snapshot file
+     */
+    public static int sizeOf(final Currency currency) {
+        return HEADER_BYTES + currency.getSlotCount() * Integer.BYTES + Integer.BYTES;
+    }
+
+    /**
+     * Writes the snapshot to a temporary file beside the target, forces it to disk, then moves it over the target in one step
+     * so a crash leaves either the previous snapshot or the new one
+     *
+     * @param path       - location of the snapshot file
+     * @param currency   - currency of the float
+     * @param floatState - contents of the float
+     */
+    public static void write(final Path path, final Currency currency, final FloatState floatState) throws IOException {
+        int slotCount = currency.getSlotCount();
+        ByteBuffer buffer = ByteBuffer.allocate(sizeOf(currency));
+        buffer.putInt(MAGIC)
+                .putShort(FORMAT_VERSION)
+                .putShort((short) currency.ordinal())
+                .putInt(slotCount)
+                .putInt(floatState.getRecordedSlots())
+                .putLong(floatState.getVersion());
+        for (int slot = 0; slot < slotCount; slot++) {
+            buffer.putInt(floatState.getCount(slot));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps the snapshot file and validates it
+     *
+     * @param path     - location of the snapshot file
+     * @param currency - currency of the float
+     * @return the float held in the snapshot, empty if there is no snapshot file
+     */
+    public static Optional<FloatState> read(final Path path, final Currency currency) throws IOException {
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            int size = sizeOf(currency);
+            if (channel.size() != size) {
+                throw new IOException(String.format("Snapshot is %s bytes but %s bytes were expected for %s", channel.size(), size, currency.name()));
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("File is not a cash manager snapshot");
+            }
+            if (buffer.getShort(4) != FORMAT_VERSION) {
+                throw new IOException(String.format("Unsupported snapshot format version: %s", buffer.getShort(4)));
+            }
+            if (buffer.getShort(6) != currency.ordinal() || buffer.getInt(8) != currency.getSlotCount()) {
+                throw new IOException(String.format("Snapshot was not written for %s", currency.name()));
+            }
+            int crcOffset = size - Integer.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, crcOffset));
+            if ((int) crc.getValue() != buffer.getInt(crcOffset)) {
+                throw new IOException("Snapshot failed its checksum");
+            }
+
+            int[] counts = new int[currency.getSlotCount()];
+            buffer.slice(COUNTS_OFFSET, counts.length * Integer.BYTES).asIntBuffer().get(counts);
+            return Optional.of(FloatState.of(counts, buffer.getInt(12), buffer.getLong(16)));
+        }
+    }
+}
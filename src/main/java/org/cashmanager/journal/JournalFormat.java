@@ -0,0 +1,156 @@
+package org.cashmanager.journal;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.FloatMutation;
+import org.cashmanager.core.FloatState;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Binary layout of the journal.
+ * <p>
+ * Header - int magic, byte format version, byte length of the currency name, currency name in UTF-8
+ * <p>
+ * Record - int payload length, int CRC32 of the payload, payload of byte mutation, varint version, varint recorded slots,
+ * then a zigzag varint count difference for each denomination slot. A change of a few coins is around a dozen bytes.
+ */
+final class JournalFormat {
+    static final int MAGIC = 0x434D4A31;
+    static final byte FORMAT_VERSION = 1;
+    static final int RECORD_HEADER_BYTES = 8;
+    /**
+     * Largest payload which can be written, 1 + 10 + 5 bytes plus 5 bytes for each of at most 32 slots
+     */
+    static final int MAX_PAYLOAD_BYTES = 16 + 5 * 32;
+
+    private JournalFormat() {
+    }
+
+    static byte[] header(final Currency currency) {
+        byte[] name = currency.name().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(6 + name.length);
+        header.putInt(MAGIC).put(FORMAT_VERSION).put((byte) name.length).put(name);
+        return header.array();
+    }
+
+    /**
+     * Reads and validates the header
+     *
+     * @return number of bytes in the header
+     */
+    static int readHeader(final DataInputStream input, final Currency currency) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new IOException("File is not a cash manager journal");
+        }
+        byte formatVersion = input.readByte();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException(String.format("Unsupported journal format version: %s", formatVersion));
+        }
+        byte[] name = new byte[input.readUnsignedByte()];
+        input.readFully(name);
+        String currencyName = new String(name, StandardCharsets.UTF_8);
+        if (!currency.name().equals(currencyName)) {
+            throw new IOException(String.format("Journal was written for %s not %s", currencyName, currency.name()));
+        }
+        return 6 + name.length;
+    }
+
+    /**
+     * Appends the record for a change to the buffer, which must have at least @{RECORD_HEADER_BYTES} + @{MAX_PAYLOAD_BYTES} remaining
+     *
+     * @param previous - contents before the change, null when recording a baseline
+     */
+    static void writeRecord(final ByteBuffer buffer, final CRC32 crc, final FloatMutation mutation,
+                            final FloatState previous, final FloatState next, final int slotCount) {
+        int recordStart = buffer.position();
+        buffer.position(recordStart + RECORD_HEADER_BYTES);
+        buffer.put((byte) mutation.ordinal());
+        putVarLong(buffer, next.getVersion());
+        putVarLong(buffer, next.getRecordedSlots() & 0xFFFFFFFFL);
+        for (int slot = 0; slot < slotCount; slot++) {
+            long difference = (long) next.getCount(slot) - (previous == null ? 0 : previous.getCount(slot));
+            putVarLong(buffer, (difference << 1) ^ (difference >> 63));
+        }
+        int payloadLength = buffer.position() - recordStart - RECORD_HEADER_BYTES;
+
+        crc.reset();
+        crc.update(buffer.array(), buffer.arrayOffset() + recordStart + RECORD_HEADER_BYTES, payloadLength);
+        buffer.putInt(recordStart, payloadLength);
+        buffer.putInt(recordStart + 4, (int) crc.getValue());
+    }
+
+    /**
+     * Reads the next record, adding its count differences to the running totals unless it is already covered by a checkpoint
+     *
+     * @param checkpointVersion - version of the checkpoint counts started from, -1 when starting from nothing
+     * @param record            - populated with the version, recorded slots and length of the record which was read
+     * @return false when the end of the journal or a torn record was reached
+     */
+    static boolean readRecord(final DataInputStream input, final CRC32 crc, final byte[] payload, final long[] counts,
+                              final long checkpointVersion, final ReplayedRecord record) throws IOException {
+        int payloadLength;
+        int expectedCrc;
+        try {
+            payloadLength = input.readInt();
+            expectedCrc = input.readInt();
+            if (payloadLength <= 0 || payloadLength > MAX_PAYLOAD_BYTES) {
+                return false;
+            }
+            input.readFully(payload, 0, payloadLength);
+        } catch (EOFException e) {
+            return false;
+        }
+        crc.reset();
+        crc.update(payload, 0, payloadLength);
+        if ((int) crc.getValue() != expectedCrc) {
+            return false;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(payload, 0, payloadLength);
+        record.mutation = FloatMutation.fromOrdinal(buffer.get());
+        record.version = getVarLong(buffer);
+        record.recordedSlots = (int) getVarLong(buffer);
+        record.length = RECORD_HEADER_BYTES + payloadLength;
+        if (record.version <= checkpointVersion) {
+            return true;
+        }
+        for (int slot = 0; slot < counts.length; slot++) {
+            long zigzag = getVarLong(buffer);
+            counts[slot] += (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+        return true;
+    }
+
+    /**
+     * Reused holder for the fields of the last record read
+     */
+    static final class ReplayedRecord {
+        FloatMutation mutation;
+        long version;
+        int recordedSlots;
+        int length;
+    }
+
+    private static void putVarLong(final ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(final ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed variable length number in journal");
+    }
+}
@@ -0,0 +1,41 @@
+package org.cashmanager.metrics;
+
+/**
+ * Receives how each change calculation was answered, e.g. the @{CashManagerMetrics} of a cash manager, or a
+ * @{CalculationTally} holding the counts until it is known whether the change is dispensed
+ */
+public interface CalculationRecorder {
+
+    /**
+     * Records change which was looked up in the float's change table
+     */
+    void recordTableLookup();
+
+    /**
+     * Records change which was accepted from the top down calculation
+     */
+    void recordGreedyCalculation();
+
+    /**
+     * Records change which needed the fallback solver
+     *
+     * @param nodes - work done by the solver e.g. table cells evaluated
+     */
+    void recordFallbackCalculation(long nodes);
+
+    /**
+     * Records change which the feasibility checks proved could not be made, so no solver ran
+     */
+    void recordInfeasibleRejection();
+
+    /**
+     * Records a fallback search which ran out of its solver budget, whether or not it had found change by then
+     */
+    void recordDeadlineExpiry();
+
+    /**
+     * Records change which was returned although the solver budget ran out before it was proven to be the fewest coins
+     */
+    default void recordNonOptimalChange() {
+    }
+}
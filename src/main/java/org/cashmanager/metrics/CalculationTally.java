@@ -0,0 +1,105 @@
+package org.cashmanager.metrics;
+
+/**
+ * Counts the calculations made for one piece of change, so they can be recorded in the metrics later, only if the
+ * change is dispensed, see @{replayInto}. Used by a single thread at a time.
+ */
+public final class CalculationTally implements CalculationRecorder {
+    private int tableLookups;
+    private int greedyCalculations;
+    private int fallbackCalculations;
+    private long solverNodes;
+    private int infeasibleRejections;
+    private int deadlineExpiries;
+    private int nonOptimalChanges;
+
+    @Override
+    public void recordTableLookup() {
+        tableLookups++;
+    }
+
+    @Override
+    public void recordGreedyCalculation() {
+        greedyCalculations++;
+    }
+
+    @Override
+    public void recordFallbackCalculation(final long nodes) {
+        fallbackCalculations++;
+        solverNodes += nodes;
+    }
+
+    @Override
+    public void recordInfeasibleRejection() {
+        infeasibleRejections++;
+    }
+
+    @Override
+    public void recordDeadlineExpiry() {
+        deadlineExpiries++;
+    }
+
+    @Override
+    public void recordNonOptimalChange() {
+        nonOptimalChanges++;
+    }
+
+    /**
+     * @return changes counted which were returned without being proven to be the fewest coins
+     */
+    public int getNonOptimalChanges() {
+        return nonOptimalChanges;
+    }
+
+    /**
+     * @return a copy holding the counts so far
+     */
+    public CalculationTally copy() {
+        CalculationTally copy = new CalculationTally();
+        copy.tableLookups = tableLookups;
+        copy.greedyCalculations = greedyCalculations;
+        copy.fallbackCalculations = fallbackCalculations;
+        copy.solverNodes = solverNodes;
+        copy.infeasibleRejections = infeasibleRejections;
+        copy.deadlineExpiries = deadlineExpiries;
+        copy.nonOptimalChanges = nonOptimalChanges;
+        return copy;
+    }
+
+    /**
+     * Clears the counts so the tally can be used for the next piece of change
+     */
+    public void reset() {
+        tableLookups = 0;
+        greedyCalculations = 0;
+        fallbackCalculations = 0;
+        solverNodes = 0;
+        infeasibleRejections = 0;
+        deadlineExpiries = 0;
+        nonOptimalChanges = 0;
+    }
+
+    /**
+     * Records every calculation counted in the recorder, e.g. the metrics of the cash manager which dispensed the change
+     */
+    public void replayInto(final CalculationRecorder recorder) {
+        for (int i = 0; i < tableLookups; i++) {
+            recorder.recordTableLookup();
+        }
+        for (int i = 0; i < greedyCalculations; i++) {
+            recorder.recordGreedyCalculation();
+        }
+        for (int i = 0; i < fallbackCalculations; i++) {
+            recorder.recordFallbackCalculation(i == 0 ? solverNodes : 0);
+        }
+        for (int i = 0; i < infeasibleRejections; i++) {
+            recorder.recordInfeasibleRejection();
+        }
+        for (int i = 0; i < deadlineExpiries; i++) {
+            recorder.recordDeadlineExpiry();
+        }
+        for (int i = 0; i < nonOptimalChanges; i++) {
+            recorder.recordNonOptimalChange();
+        }
+    }
+}
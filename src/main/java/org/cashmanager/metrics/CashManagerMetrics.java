@@ -0,0 +1,120 @@
+package org.cashmanager.metrics;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.FloatListener;
+import org.cashmanager.core.FloatMutation;
+import org.cashmanager.core.FloatState;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free metrics for a single cash manager. Every recording is a @{LongAdder} or histogram increment so it can be
+ * called on every operation from any number of threads.
+ * <p>
+ * Registered with the float as a @{FloatListener} to count depletion events, i.e. a denomination running out of coins.
+ */
+public class CashManagerMetrics implements FloatListener, CalculationRecorder {
+    private final Currency currency;
+    private final EnumMap<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final EnumMap<FailureReason, LongAdder> failures = new EnumMap<>(FailureReason.class);
+    private final LongAdder tableLookups = new LongAdder();
+    private final LongAdder greedyCalculations = new LongAdder();
+    private final LongAdder fallbackCalculations = new LongAdder();
+    private final LongAdder solverNodes = new LongAdder();
+    private final LongAdder infeasibleRejections = new LongAdder();
+    private final LongAdder deadlineExpiries = new LongAdder();
+    private final LongAdder[] depletions;
+
+    public CashManagerMetrics(final Currency currency) {
+        this.currency = currency;
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
+        }
+        for (FailureReason reason : FailureReason.values()) {
+            failures.put(reason, new LongAdder());
+        }
+        depletions = new LongAdder[currency.getSlotCount()];
+        for (int slot = 0; slot < depletions.length; slot++) {
+            depletions[slot] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records how long an operation took, whether or not it succeeded
+     *
+     * @param operation - operation which ran
+     * @param nanos     - time taken
+     */
+    public void recordLatency(final Operation operation, final long nanos) {
+        latencies.get(operation).record(nanos);
+    }
+
+    /**
+     * Records an operation, or a transaction within a batch, being rejected
+     *
+     * @param reason - why it was rejected
+     */
+    public void recordFailure(final FailureReason reason) {
+        failures.get(reason).increment();
+    }
+
+    @Override
+    public void recordTableLookup() {
+        tableLookups.increment();
+    }
+
+    @Override
+    public void recordGreedyCalculation() {
+        greedyCalculations.increment();
+    }
+
+    @Override
+    public void recordFallbackCalculation(final long nodes) {
+        fallbackCalculations.increment();
+        solverNodes.add(nodes);
+    }
+
+    @Override
+    public void recordInfeasibleRejection() {
+        infeasibleRejections.increment();
+    }
+
+    @Override
+    public void recordDeadlineExpiry() {
+        deadlineExpiries.increment();
+    }
+
+    /**
+     * Counts each denomination which went from holding coins to holding none
+     */
+    @Override
+    public void onChange(final FloatMutation mutation, final FloatState previous, final FloatState next) {
+        for (int slot = 0; slot < depletions.length; slot++) {
+            if (next.getCount(slot) == 0 && previous.getCount(slot) > 0) {
+                depletions[slot].increment();
+            }
+        }
+    }
+
+    /**
+     * Copies every metric. Values recorded while copying may or may not be included.
+     *
+     * @return point in time view of the metrics
+     */
+    public MetricsSnapshot snapshot() {
+        EnumMap<Operation, LatencyHistogram.Snapshot> latencySnapshots = new EnumMap<>(Operation.class);
+        latencies.forEach((operation, histogram) -> latencySnapshots.put(operation, histogram.snapshot()));
+        EnumMap<FailureReason, Long> failureCounts = new EnumMap<>(FailureReason.class);
+        failures.forEach((reason, count) -> failureCounts.put(reason, count.sum()));
+        Map<Integer, Long> depletionCounts = new LinkedHashMap<>();
+        for (int slot = 0; slot < depletions.length; slot++) {
+            depletionCounts.put(currency.getDenomination(slot), depletions[slot].sum());
+        }
+        return new MetricsSnapshot(latencySnapshots, failureCounts, tableLookups.sum(), greedyCalculations.sum(), fallbackCalculations.sum(),
+                solverNodes.sum(), infeasibleRejections.sum(), deadlineExpiries.sum(),
+                depletionCounts);
+    }
+}
@@ -0,0 +1,97 @@
+package org.cashmanager.metrics;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Forecast for a single tube of the float, taken by a @{DepletionForecaster}
+ */
+public final class DepletionForecast {
+    private static final double SECONDS_PER_HOUR = 3600;
+    private static final double MAX_FORECAST_SECONDS = 1e15;
+
+    private final int denomination;
+    private final int count;
+    private final int capacity;
+    private final double coinsPerSecond;
+
+    DepletionForecast(final int denomination, final int count, final int capacity, final double coinsPerSecond) {
+        this.denomination = denomination;
+        this.count = count;
+        this.capacity = capacity;
+        this.coinsPerSecond = coinsPerSecond;
+    }
+
+    public int getDenomination() {
+        return denomination;
+    }
+
+    /**
+     * @return number of coins in the tube when the forecast was taken
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return number of coins the tube holds, 0 if not known
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return net coins taken in per hour by recent transactions, negative when the tube is being drained
+     */
+    public double getCoinsPerHour() {
+        return coinsPerSecond * SECONDS_PER_HOUR;
+    }
+
+    /**
+     * @return time until the tube runs out of coins at the current rate, empty if it is not being drained
+     */
+    public Optional<Duration> getTimeUntilEmpty() {
+        if (coinsPerSecond >= 0) {
+            return Optional.empty();
+        }
+        return Optional.of(toDuration(count / -coinsPerSecond));
+    }
+
+    /**
+     * @return time until the tube is full at the current rate, empty if it is not filling up or its capacity is not known
+     */
+    public Optional<Duration> getTimeUntilFull() {
+        if (coinsPerSecond <= 0 || capacity == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(toDuration(Math.max(0, capacity - count) / coinsPerSecond));
+    }
+
+    /**
+     * Single token summary e.g. "20=-12.0/h,empty=3h10m" or "200=+2.5/h,full=45m"
+     */
+    public String toCompactString() {
+        StringBuilder builder = new StringBuilder().append(denomination).append('=').append(String.format("%+.1f/h", getCoinsPerHour()));
+        getTimeUntilEmpty().ifPresent(duration -> builder.append(",empty=").append(format(duration)));
+        getTimeUntilFull().ifPresent(duration -> builder.append(",full=").append(format(duration)));
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toCompactString();
+    }
+
+    /**
+     * Formats a forecast time to the minute e.g. "3h10m" or "45m"
+     */
+    public static String format(final Duration duration) {
+        long minutes = duration.toMinutes();
+        return minutes >= 60 ? String.format("%dh%02dm", minutes / 60, minutes % 60) : minutes + "m";
+    }
+
+    private static Duration toDuration(final double seconds) {
+        double bounded = Math.min(seconds, MAX_FORECAST_SECONDS);
+        return Duration.ofSeconds((long) bounded, (long) ((bounded % 1) * 1e9));
+    }
+}
@@ -0,0 +1,107 @@
+package org.cashmanager.metrics;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.FloatListener;
+import org.cashmanager.core.FloatMutation;
+import org.cashmanager.core.FloatState;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Forecasts when each tube of the float will run out of, or fill up with, coins from the rate at which sales move coins
+ * in and out of it. Registered with the float as a @{FloatListener}.
+ * <p>
+ * The rate for each denomination is an exponentially weighted moving average of the net coins per second taken in by
+ * transactions, decayed by the time since the previous transaction, so each change costs the same small amount of work
+ * however long the float has been running and no history is kept. Coins added or removed by hand, e.g. a refill or a
+ * collection, change the counts the forecast starts from but not the rates.
+ * <p>
+ * Rates are updated under a lock held only for the few arithmetic operations of each transaction.
+ */
+public class DepletionForecaster implements FloatListener {
+    public static final Duration DEFAULT_HALF_LIFE = Duration.ofHours(1);
+
+    private final Currency currency;
+    private final double meanLifeSeconds;
+    private final LongSupplier nanoClock;
+    private final double[] rates;
+    private final int[] capacities;
+    private long lastTransactionNanos;
+    private boolean anyTransaction;
+
+    public DepletionForecaster(final Currency currency) {
+        this(currency, DEFAULT_HALF_LIFE, System::nanoTime);
+    }
+
+    /**
+     * @param currency  - currency of the float being forecast
+     * @param halfLife  - age at which a transaction counts for half as much towards the rates as one made now
+     * @param nanoClock - source of the current time e.g. System::nanoTime
+     */
+    public DepletionForecaster(final Currency currency, final Duration halfLife, final LongSupplier nanoClock) {
+        if (currency == null) {
+            throw new IllegalArgumentException("Provided a null value for currency");
+        }
+        if (halfLife == null || halfLife.isNegative() || halfLife.isZero()) {
+            throw new IllegalArgumentException("Half life must be above 0");
+        }
+        this.currency = currency;
+        this.meanLifeSeconds = halfLife.toNanos() / 1e9 / Math.log(2);
+        this.nanoClock = nanoClock;
+        this.rates = new double[currency.getSlotCount()];
+        this.capacities = new int[currency.getSlotCount()];
+    }
+
+    /**
+     * Sets how many coins each tube holds, so tubes which are filling up can be forecast to overflow
+     *
+     * @param tubeCapacities - Map<Denomination, Capacity> e.g. <200, 60>. Denominations left out have no limit
+     */
+    public synchronized void setTubeCapacities(final Map<Integer, Integer> tubeCapacities) {
+        int[] replaced = new int[capacities.length];
+        tubeCapacities.forEach((denomination, capacity) -> {
+            if (capacity == null || capacity <= 0) {
+                throw new IllegalArgumentException(String.format("Tube capacity must be above 0: %s", capacity));
+            }
+            replaced[currency.getSlot(denomination)] = capacity;
+        });
+        System.arraycopy(replaced, 0, capacities, 0, capacities.length);
+    }
+
+    @Override
+    public synchronized void onChange(final FloatMutation mutation, final FloatState previous, final FloatState next) {
+        if (mutation != FloatMutation.TRANSACTION && mutation != FloatMutation.BATCH) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        double decay = anyTransaction ? decaySince(now) : 1;
+        for (int slot = 0; slot < rates.length; slot++) {
+            rates[slot] = rates[slot] * decay + (next.getCount(slot) - previous.getCount(slot)) / meanLifeSeconds;
+        }
+        lastTransactionNanos = now;
+        anyTransaction = true;
+    }
+
+    /**
+     * Forecast for every denomination of the currency, as of now
+     *
+     * @param floatState - current contents of the float the forecast starts from
+     * @return forecasts in the order of the currency's denominations, largest first
+     */
+    public synchronized List<DepletionForecast> forecast(final FloatState floatState) {
+        double decay = anyTransaction ? decaySince(nanoClock.getAsLong()) : 1;
+        List<DepletionForecast> forecasts = new ArrayList<>(rates.length);
+        for (int slot = 0; slot < rates.length; slot++) {
+            forecasts.add(new DepletionForecast(currency.getDenomination(slot), floatState.getCount(slot), capacities[slot], rates[slot] * decay));
+        }
+        return forecasts;
+    }
+
+    private double decaySince(final long now) {
+        return Math.exp(-Math.max(0, now - lastTransactionNanos) / 1e9 / meanLifeSeconds);
+    }
+}
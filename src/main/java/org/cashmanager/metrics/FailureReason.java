@@ -0,0 +1,53 @@
+package org.cashmanager.metrics;
+
+import org.cashmanager.core.InsufficientCoinsException;
+import org.cashmanager.core.InsufficientPaymentException;
+import org.cashmanager.core.calculator.SolverDeadlineExceededException;
+
+/**
+ * Why an operation of the @{CashManager} was rejected
+ */
+public enum FailureReason {
+    /**
+     * Coins provided for a transaction did not cover its cost
+     */
+    INSUFFICIENT_PAYMENT,
+    /**
+     * The float could not make exact change for the value
+     */
+    CANNOT_MAKE_CHANGE,
+    /**
+     * The change search ran out of its solver budget before finding any change
+     */
+    SOLVER_DEADLINE,
+    /**
+     * Specific coins were requested which the float does not hold
+     */
+    INSUFFICIENT_COINS,
+    /**
+     * Anything else which was not valid e.g. a denomination outside the currency or a negative count
+     */
+    INVALID_INPUT;
+
+    /**
+     * Classifies an exception thrown by an operation
+     *
+     * @param e - why the operation failed
+     * @return the reason to record
+     */
+    public static FailureReason of(final RuntimeException e) {
+        if (e instanceof InsufficientPaymentException) {
+            return INSUFFICIENT_PAYMENT;
+        }
+        if (e instanceof InsufficientCoinsException) {
+            return INSUFFICIENT_COINS;
+        }
+        if (e instanceof SolverDeadlineExceededException) {
+            return SOLVER_DEADLINE;
+        }
+        if (e instanceof IllegalStateException) {
+            return CANNOT_MAKE_CHANGE;
+        }
+        return INVALID_INPUT;
+    }
+}
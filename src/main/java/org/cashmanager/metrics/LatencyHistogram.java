@@ -0,0 +1,162 @@
+package org.cashmanager.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of nanosecond latencies with log-linear buckets, in the style of an HDR histogram.
+ * <p>
+ * Values below 16 get a bucket each, above that every power of two range is split into 16 equal buckets, so any
+ * recorded value is reported within 1/16 (about 6%) of its true value. Values above 2^40ns (about 18 minutes) are counted
+ * in the last bucket. Recording is a couple of shifts and an atomic increment, with no allocation.
+ * <p>
+ * The buckets are held in rows of 16, one per power of two, and a row is only allocated the first time a value falls
+ * in it. Latencies of one operation usually span a handful of powers of two, so a histogram holds a few hundred bytes
+ * of counts rather than the 4.9 KB of every bucket, and one which never records holds none. Each cash manager keeps a
+ * histogram per @{Operation}, so this keeps registries and simulations of many floats small.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int ROWS = MAX_EXPONENT - SUB_BUCKET_BITS + 2;
+    static final int BUCKETS = ROWS * SUB_BUCKETS;
+
+    private final AtomicReferenceArray<AtomicLongArray> rows = new AtomicReferenceArray<>(ROWS);
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one latency
+     *
+     * @param nanos - latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(final long nanos) {
+        long value = Math.max(0, nanos);
+        int index = bucketIndex(value);
+        row(index >>> SUB_BUCKET_BITS).incrementAndGet(index & (SUB_BUCKETS - 1));
+        total.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Copies the histogram. Values recorded while copying may or may not be included.
+     *
+     * @return point in time view of the histogram
+     */
+    public Snapshot snapshot() {
+        long[] bucketCounts = new long[BUCKETS];
+        long count = 0;
+        for (int row = 0; row < ROWS; row++) {
+            AtomicLongArray rowCounts = rows.get(row);
+            if (rowCounts == null) {
+                continue;
+            }
+            for (int subBucket = 0; subBucket < SUB_BUCKETS; subBucket++) {
+                bucketCounts[row * SUB_BUCKETS + subBucket] = rowCounts.get(subBucket);
+                count += bucketCounts[row * SUB_BUCKETS + subBucket];
+            }
+        }
+        return new Snapshot(bucketCounts, count, total.sum(), max.get());
+    }
+
+    /**
+     * Number of bucket rows allocated so far
+     */
+    int allocatedRows() {
+        int allocated = 0;
+        for (int row = 0; row < ROWS; row++) {
+            if (rows.get(row) != null) {
+                allocated++;
+            }
+        }
+        return allocated;
+    }
+
+    private AtomicLongArray row(final int row) {
+        AtomicLongArray rowCounts = rows.get(row);
+        if (rowCounts == null) {
+            rows.compareAndSet(row, null, new AtomicLongArray(SUB_BUCKETS));
+            rowCounts = rows.get(row);
+        }
+        return rowCounts;
+    }
+
+    static int bucketIndex(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Largest value which falls in the bucket
+     */
+    static long bucketUpperBound(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + index % SUB_BUCKETS) * width + width - 1;
+    }
+
+    /**
+     * Immutable copy of a @{LatencyHistogram}
+     */
+    public static class Snapshot {
+        private final long[] bucketCounts;
+        private final long count;
+        private final long total;
+        private final long max;
+
+        private Snapshot(final long[] bucketCounts, final long count, final long total, final long max) {
+            this.bucketCounts = bucketCounts;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) total / count;
+        }
+
+        /**
+         * Value at or below which the percentage of recorded values fall
+         *
+         * @param percentile - e.g. 99.9
+         * @return the upper bound of the bucket holding the percentile, capped at the largest value recorded. 0 when empty
+         */
+        public long getPercentile(final double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < bucketCounts.length; i++) {
+                seen += bucketCounts[i];
+                if (seen >= target) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
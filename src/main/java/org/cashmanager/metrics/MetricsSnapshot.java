@@ -0,0 +1,136 @@
+package org.cashmanager.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable view of the @{CashManagerMetrics} of a cash manager at a point in time
+ */
+public class MetricsSnapshot {
+    private final Map<Operation, LatencyHistogram.Snapshot> latencies;
+    private final Map<FailureReason, Long> failures;
+    private final long tableLookups;
+    private final long greedyCalculations;
+    private final long fallbackCalculations;
+    private final long solverNodes;
+    private final long infeasibleRejections;
+    private final long deadlineExpiries;
+    private final Map<Integer, Long> depletions;
+
+    MetricsSnapshot(final Map<Operation, LatencyHistogram.Snapshot> latencies, final Map<FailureReason, Long> failures,
+                    final long tableLookups, final long greedyCalculations, final long fallbackCalculations, final long solverNodes,
+                    final long infeasibleRejections, final long deadlineExpiries,
+                    final Map<Integer, Long> depletions) {
+        this.latencies = Collections.unmodifiableMap(latencies);
+        this.failures = Collections.unmodifiableMap(failures);
+        this.tableLookups = tableLookups;
+        this.greedyCalculations = greedyCalculations;
+        this.fallbackCalculations = fallbackCalculations;
+        this.solverNodes = solverNodes;
+        this.infeasibleRejections = infeasibleRejections;
+        this.deadlineExpiries = deadlineExpiries;
+        this.depletions = Collections.unmodifiableMap(depletions);
+    }
+
+    /**
+     * Latency of every call to the operation, successful or not
+     *
+     * @param operation - e.g. @{Operation#TRANSACTION}
+     * @return histogram of nanosecond latencies
+     */
+    public LatencyHistogram.Snapshot getLatency(final Operation operation) {
+        return latencies.get(operation);
+    }
+
+    /**
+     * @return count of rejected operations, and rejected transactions within batches, for each reason
+     */
+    public Map<FailureReason, Long> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return change looked up in the float's change table, which answers every value up to £5 without calculating
+     */
+    public long getTableLookups() {
+        return tableLookups;
+    }
+
+    public long getGreedyCalculations() {
+        return greedyCalculations;
+    }
+
+    public long getFallbackCalculations() {
+        return fallbackCalculations;
+    }
+
+    /**
+     * Share of change calculations outside of the change table answered by the top down calculation without the fallback solver
+     *
+     * @return between 0 and 1, 0 when no change has been calculated
+     */
+    public double getGreedyHitRate() {
+        long calculations = greedyCalculations + fallbackCalculations;
+        return calculations == 0 ? 0 : (double) greedyCalculations / calculations;
+    }
+
+    /**
+     * @return total work done by the fallback solver, see @{CashManagerMetrics#recordFallbackCalculation}
+     */
+    public long getSolverNodes() {
+        return solverNodes;
+    }
+
+    /**
+     * @return change calculations rejected by the feasibility checks before any solver ran
+     */
+    public long getInfeasibleRejections() {
+        return infeasibleRejections;
+    }
+
+    /**
+     * @return fallback searches which ran out of their solver budget, returning change which may not be the fewest coins
+     * or failing without change
+     */
+    public long getDeadlineExpiries() {
+        return deadlineExpiries;
+    }
+
+    /**
+     * @return number of times each denomination ran out of coins, ordered as the currency's denominations
+     */
+    public Map<Integer, Long> getDepletions() {
+        return depletions;
+    }
+
+    /**
+     * Formats the metrics as space separated key=value pairs on one line, leaving out operations which have not run.
+     * Latencies are in nanoseconds.
+     *
+     * @return e.g. "transaction.count=10 transaction.p50=812 ... table=7 greedy=2 fallback=1 ..."
+     */
+    public String toCompactString() {
+        StringBuilder formatted = new StringBuilder();
+        latencies.forEach((operation, latency) -> {
+            if (latency.getCount() == 0) {
+                return;
+            }
+            String name = operation.name().toLowerCase();
+            formatted.append(name).append(".count=").append(latency.getCount())
+                    .append(' ').append(name).append(".p50=").append(latency.getPercentile(50))
+                    .append(' ').append(name).append(".p99=").append(latency.getPercentile(99))
+                    .append(' ').append(name).append(".p999=").append(latency.getPercentile(99.9))
+                    .append(' ').append(name).append(".max=").append(latency.getMax())
+                    .append(' ');
+        });
+        formatted.append("table=").append(tableLookups)
+                .append(" greedy=").append(greedyCalculations)
+                .append(" fallback=").append(fallbackCalculations)
+                .append(" solverNodes=").append(solverNodes)
+                .append(" infeasible=").append(infeasibleRejections)
+                .append(" deadlineExpired=").append(deadlineExpiries);
+        failures.forEach((reason, count) -> formatted.append(" failure.").append(reason.name().toLowerCase()).append('=').append(count));
+        depletions.forEach((denomination, count) -> formatted.append(" depleted.").append(denomination).append('=').append(count));
+        return formatted.toString();
+    }
+}
@@ -0,0 +1,8 @@
+package org.cashmanager.metrics;
+
+/**
+ * Operations of the @{CashManager} which have their latency recorded
+ */
+public enum Operation {
+    RESET, ADD, TRANSACTION, BATCH, REMOVE_VALUE, REMOVE_COINS
+}
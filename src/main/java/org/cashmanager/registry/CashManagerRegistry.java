@@ -0,0 +1,294 @@
+package org.cashmanager.registry;
+
+import org.cashmanager.CashManager;
+import org.cashmanager.core.CashManagerImpl;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Hosts a cash manager for each vending machine, keyed by machine id.
+ * <p>
+ * Each cash manager is owned by a lane which runs the operations submitted for it one at a time, in submission order,
+ * on a virtual thread. Lanes for different machines run in parallel and share no locks, so each float only ever has a
+ * single writer and its compare and set updates never contend.
+ * <p>
+ * Lanes are created on first use from the factory and evicted once they have been idle for the idle timeout,
+ * handing the cash manager to the eviction listener e.g. to write a snapshot of it. The evicted lane stays registered until
+ * the listener returns, so an operation submitted for the machine meanwhile waits for the eviction to finish before the
+ * factory is asked for a new cash manager, and never loads a snapshot older than the one being written.
+ */
+public final class CashManagerRegistry implements Closeable {
+    /**
+     * Operations run by a lane before it yields its virtual thread to other lanes
+     */
+    private static final int MAX_OPERATIONS_PER_TURN = 64;
+
+    private final ConcurrentHashMap<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final Function<String, CashManagerImpl> factory;
+    private final BiConsumer<String, CashManagerImpl> evictionListener;
+    private final long idleTimeoutNanos;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService evictionScheduler;
+    private final LongAdder evictionFailures = new LongAdder();
+    private final AtomicReference<RuntimeException> lastEvictionFailure = new AtomicReference<>();
+    private volatile boolean closed;
+
+    /**
+     * Creates a registry which evicts idle cash managers every half idle timeout
+     *
+     * @param factory          - creates or loads the cash manager for a machine id the first time it is used
+     * @param idleTimeout      - time without any operations after which a cash manager is evicted
+     * @param evictionListener - given each evicted cash manager, called on the evicting thread before the machine id can be
+     *                         created again, so it must not submit operations for the machine it is given. An exception
+     *                         it throws is counted, see @{getEvictionFailureCount}, and the lane is still evicted
+     */
+    public CashManagerRegistry(final Function<String, CashManagerImpl> factory, final Duration idleTimeout,
+                               final BiConsumer<String, CashManagerImpl> evictionListener) {
+        if (factory == null) {
+            throw new IllegalArgumentException("Provided a null value for factory");
+        }
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Idle timeout must be above 0");
+        }
+        this.factory = factory;
+        this.evictionListener = evictionListener == null ? (machineId, cashManager) -> { } : evictionListener;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.evictionScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cash-manager-registry-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, idleTimeoutNanos / 2);
+        evictionScheduler.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Runs the operation against the machine's cash manager on its lane, creating the cash manager if needed
+     *
+     * @param machineId - id of the vending machine
+     * @param operation - e.g. cashManager -> cashManager.processTransaction(transaction)
+     * @return completed with the result of the operation, or exceptionally with anything it threw
+     */
+    public <T> CompletableFuture<T> submit(final String machineId, final Function<CashManager, T> operation) {
+        if (machineId == null) {
+            throw new IllegalArgumentException("Provided a null value for machine id");
+        }
+        if (closed) {
+            throw new IllegalStateException("Registry has been closed");
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        while (true) {
+            Lane lane = lanes.computeIfAbsent(machineId, this::createLane);
+            if (lane.offer(() -> run(lane.cashManager, operation, result))) {
+                return result;
+            }
+            // Lost a race with eviction, wait for the listener to finish with the evicted lane before creating a new one
+            lane.evicted.join();
+        }
+    }
+
+    /**
+     * Finds or creates the machine's cash manager. Reads are safe from any thread, changes should be made through
+     * @{submit} so the float keeps a single writer.
+     *
+     * @param machineId - id of the vending machine
+     * @return the machine's cash manager
+     */
+    public CashManager getOrCreate(final String machineId) {
+        if (machineId == null) {
+            throw new IllegalArgumentException("Provided a null value for machine id");
+        }
+        return lanes.computeIfAbsent(machineId, this::createLane).cashManager;
+    }
+
+    /**
+     * Finds the machine's cash manager without creating it
+     *
+     * @param machineId - id of the vending machine
+     * @return the machine's cash manager, empty if it is not currently hosted
+     */
+    public Optional<CashManager> get(final String machineId) {
+        Lane lane = lanes.get(machineId);
+        return lane == null ? Optional.empty() : Optional.of(lane.cashManager);
+    }
+
+    /**
+     * Number of cash managers currently hosted
+     */
+    public int size() {
+        return lanes.size();
+    }
+
+    /**
+     * @return number of times the eviction listener threw while being given an evicted cash manager
+     */
+    public long getEvictionFailureCount() {
+        return evictionFailures.sum();
+    }
+
+    /**
+     * @return the most recent exception thrown by the eviction listener, if any
+     */
+    public Optional<RuntimeException> getLastEvictionFailure() {
+        return Optional.ofNullable(lastEvictionFailure.get());
+    }
+
+    /**
+     * Evicts every cash manager which has no queued operations and has been idle for the idle timeout
+     *
+     * @return number of cash managers evicted
+     */
+    public int evictIdle() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Lane lane : lanes.values()) {
+            if (lane.closeIfIdle(now - idleTimeoutNanos)) {
+                evict(lane);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Stops accepting operations, waits for any idle eviction already running and for queued operations to finish, then
+     * evicts every cash manager which is left
+     */
+    @Override
+    public void close() {
+        closed = true;
+        evictionScheduler.shutdown();
+        try {
+            evictionScheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Lane lane : lanes.values()) {
+            if (lane.closeWhenDrained()) {
+                evict(lane);
+            } else {
+                // closed by an eviction on another thread, which hands it to the listener
+                lane.evicted.join();
+            }
+        }
+        executor.close();
+    }
+
+    private Lane createLane(final String machineId) {
+        CashManagerImpl cashManager = factory.apply(machineId);
+        if (cashManager == null) {
+            throw new IllegalStateException(String.format("Factory did not create a cash manager for %s", machineId));
+        }
+        return new Lane(machineId, cashManager);
+    }
+
+    private static <T> void run(final CashManager cashManager, final Function<CashManager, T> operation, final CompletableFuture<T> result) {
+        try {
+            result.complete(operation.apply(cashManager));
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Hands a closed lane's cash manager to the eviction listener, then removes the lane so its machine id can be created again.
+     * Only called by the thread which closed the lane, so each cash manager reaches the listener once.
+     */
+    private void evict(final Lane lane) {
+        try {
+            evictionListener.accept(lane.machineId, lane.cashManager);
+        } catch (RuntimeException e) {
+            evictionFailures.increment();
+            lastEvictionFailure.set(e);
+        } finally {
+            lanes.remove(lane.machineId, lane);
+            lane.evicted.complete(null);
+        }
+    }
+
+    /**
+     * Serial queue of operations for one cash manager. Pending counts the operations queued or running, and the lane is
+     * scheduled onto a virtual thread whenever it goes from 0 to 1.
+     */
+    private final class Lane implements Runnable {
+        private final String machineId;
+        private final CashManagerImpl cashManager;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        /**
+         * Completed once the lane has been closed, handed to the eviction listener and removed
+         */
+        private final CompletableFuture<Void> evicted = new CompletableFuture<>();
+        private volatile long lastUsedNanos = System.nanoTime();
+        private boolean closed;
+
+        private Lane(final String machineId, final CashManagerImpl cashManager) {
+            this.machineId = machineId;
+            this.cashManager = cashManager;
+        }
+
+        private boolean offer(final Runnable task) {
+            boolean schedule;
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                tasks.add(task);
+                schedule = pending.getAndIncrement() == 0;
+            }
+            if (schedule) {
+                executor.execute(this);
+            }
+            return true;
+        }
+
+        private synchronized boolean closeIfIdle(final long idleSinceNanos) {
+            if (closed || pending.get() != 0 || lastUsedNanos - idleSinceNanos > 0) {
+                return false;
+            }
+            closed = true;
+            return true;
+        }
+
+        /**
+         * @return true if this call closed the lane, false if it had already been closed
+         */
+        private boolean closeWhenDrained() {
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                closed = true;
+            }
+            while (pending.get() != 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            return true;
+        }
+
+        @Override
+        public void run() {
+            for (int turn = 1; ; turn++) {
+                tasks.poll().run();
+                lastUsedNanos = System.nanoTime();
+                if (pending.decrementAndGet() == 0) {
+                    return;
+                }
+                if (turn == MAX_OPERATIONS_PER_TURN) {
+                    executor.execute(this);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package org.cashmanager.rollup;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashManagerImpl;
+import org.cashmanager.core.FloatListener;
+import org.cashmanager.core.FloatMutation;
+import org.cashmanager.core.FloatState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the coins held by a fleet of floats totalled by site, by region and across the fleet, for operations dashboards.
+ * <p>
+ * Each attached float is registered with it as a @{FloatListener} and every change it publishes adds the difference in
+ * counts to its site, the site's region and the fleet, so reading the totals for any level costs the same however many
+ * machines are under it. Parents are shared by every machine beneath them and changed from many threads at once, so each
+ * count is a @{LongAdder} which spreads contended updates over separate cells rather than retrying one compare and set.
+ * <p>
+ * Totals read while floats are changing can include part of a change, but settle on the exact sum once the changes finish.
+ * @{recompute} rebuilds every total from the floats in parallel, and @{verify} compares it with the running totals.
+ */
+public final class FloatRollup {
+    public static final String FLEET = "fleet";
+    /**
+     * Machines totalled by each recompute task before it stops splitting
+     */
+    private static final int RECOMPUTE_BATCH = 1024;
+    private static final long NO_BASELINE = Long.MIN_VALUE;
+
+    private final Currency currency;
+    private final Node fleet;
+    private final ConcurrentHashMap<String, Node> regions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Node> sites = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Machine> machines = new ConcurrentHashMap<>();
+
+    /**
+     * @param currency - currency of every float attached
+     */
+    public FloatRollup(final Currency currency) {
+        if (currency == null) {
+            throw new IllegalArgumentException("Provided a null value for currency");
+        }
+        this.currency = currency;
+        this.fleet = new Node(FLEET, null, currency.getSlotCount());
+    }
+
+    /**
+     * Adds a machine's float to the totals of its site, region and the fleet, and keeps them up to date as it changes.
+     * Sites are identified across the whole fleet, so a site can only belong to one region.
+     *
+     * @param regionId    - region the site is in
+     * @param siteId      - site the machine is at
+     * @param machineId   - id of the vending machine
+     * @param cashManager - the machine's cash manager
+     * @throws IllegalStateException if the machine is already attached
+     */
+    public void attach(final String regionId, final String siteId, final String machineId, final CashManagerImpl cashManager) {
+        if (regionId == null || siteId == null || machineId == null) {
+            throw new IllegalArgumentException("Provided a null value for region, site or machine id");
+        }
+        if (cashManager == null) {
+            throw new IllegalArgumentException("Provided a null value for cash manager");
+        }
+        if (cashManager.getCurrency() != currency) {
+            throw new IllegalArgumentException(String.format("Cash manager is in %s but the rollup is in %s", cashManager.getCurrency(), currency));
+        }
+        Node region = regions.computeIfAbsent(regionId, id -> new Node("region:" + id, fleet, currency.getSlotCount()));
+        Node site = sites.computeIfAbsent(siteId, id -> new Node("site:" + id, region, currency.getSlotCount()));
+        if (site.parent != region) {
+            throw new IllegalArgumentException(String.format("Site %s is already in %s", siteId, site.parent.name));
+        }
+        Machine machine = new Machine(site, cashManager);
+        if (machines.putIfAbsent(machineId, machine) != null) {
+            throw new IllegalStateException(String.format("Machine %s is already attached", machineId));
+        }
+        site.addMachines(1);
+        cashManager.addListener(machine);
+        machine.establishBaseline(cashManager.getState());
+    }
+
+    /**
+     * Removes a machine's float from the totals, e.g. when it is evicted from a @{CashManagerRegistry}.
+     * The float should not be changing, as a change published while detaching can still reach the totals.
+     *
+     * @param machineId - id of the vending machine
+     * @return true if the machine was attached
+     */
+    public boolean detach(final String machineId) {
+        Machine machine = machines.remove(machineId);
+        if (machine == null) {
+            return false;
+        }
+        machine.cashManager.removeListener(machine);
+        machine.site.add(machine.cashManager.getState(), -1);
+        machine.site.addMachines(-1);
+        return true;
+    }
+
+    /**
+     * @return coins held across every attached machine
+     */
+    public RollupTotals getFleetTotals() {
+        return fleet.totals(currency);
+    }
+
+    /**
+     * @param regionId - id of the region
+     * @return coins held across every attached machine in the region, empty if no machine has been attached in it
+     */
+    public Optional<RollupTotals> getRegionTotals(final String regionId) {
+        return Optional.ofNullable(regions.get(regionId)).map(region -> region.totals(currency));
+    }
+
+    /**
+     * @param siteId - id of the site
+     * @return coins held across every attached machine at the site, empty if no machine has been attached at it
+     */
+    public Optional<RollupTotals> getSiteTotals(final String siteId) {
+        return Optional.ofNullable(sites.get(siteId)).map(site -> site.totals(currency));
+    }
+
+    /**
+     * @param machineId - id of the vending machine
+     * @return coins held by the machine, empty if it is not attached
+     */
+    public Optional<RollupTotals> getMachineTotals(final String machineId) {
+        Machine machine = machines.get(machineId);
+        if (machine == null) {
+            return Optional.empty();
+        }
+        FloatState floatState = machine.cashManager.getState();
+        long[] counts = new long[currency.getSlotCount()];
+        for (int slot = 0; slot < counts.length; slot++) {
+            counts[slot] = floatState.getCount(slot);
+        }
+        return Optional.of(new RollupTotals(currency, counts, 1));
+    }
+
+    /**
+     * Reads the running totals for every level
+     *
+     * @return totals keyed by @{FLEET}, region:id and site:id
+     */
+    public Map<String, RollupTotals> snapshot() {
+        Map<String, RollupTotals> totals = new TreeMap<>();
+        totals.put(FLEET, fleet.totals(currency));
+        regions.values().forEach(region -> totals.put(region.name, region.totals(currency)));
+        sites.values().forEach(site -> totals.put(site.name, site.totals(currency)));
+        return totals;
+    }
+
+    /**
+     * Rebuilds the totals for every level from the current state of every attached float, splitting the machines
+     * across the common fork join pool. Does not change the running totals.
+     *
+     * @return totals keyed as in @{snapshot}
+     */
+    public Map<String, RollupTotals> recompute() {
+        Machine[] attached = machines.values().toArray(new Machine[0]);
+        Map<Node, long[]> siteCounts = ForkJoinPool.commonPool().invoke(new Recompute(attached, currency.getSlotCount(), 0, attached.length));
+
+        int slotCount = currency.getSlotCount();
+        Map<Node, long[]> levelCounts = new HashMap<>();
+        levelCounts.put(fleet, new long[slotCount + 1]);
+        regions.values().forEach(region -> levelCounts.put(region, new long[slotCount + 1]));
+        sites.values().forEach(site -> levelCounts.put(site, new long[slotCount + 1]));
+        siteCounts.forEach((site, counts) -> {
+            for (Node node = site; node != null; node = node.parent) {
+                accumulate(levelCounts.computeIfAbsent(node, key -> new long[slotCount + 1]), counts);
+            }
+        });
+
+        Map<String, RollupTotals> totals = new TreeMap<>();
+        levelCounts.forEach((node, counts) ->
+                totals.put(node.name, new RollupTotals(currency, Arrays.copyOf(counts, slotCount), counts[slotCount])));
+        return totals;
+    }
+
+    /**
+     * Compares the running totals with a full @{recompute}. Only meaningful while the floats are not changing.
+     *
+     * @return names of the levels whose running totals differ, empty if they all match
+     */
+    public List<String> verify() {
+        Map<String, RollupTotals> recomputed = recompute();
+        Map<String, RollupTotals> running = snapshot();
+        List<String> mismatched = new ArrayList<>();
+        recomputed.forEach((name, totals) -> {
+            if (!totals.equals(running.get(name))) {
+                mismatched.add(name);
+            }
+        });
+        return mismatched;
+    }
+
+    /**
+     * Adds counts, with the machine count in the last element, into the totals
+     */
+    private static void accumulate(final long[] totals, final long[] counts) {
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] += counts[i];
+        }
+    }
+
+    /**
+     * A site, region or the fleet
+     */
+    private static final class Node {
+        private final String name;
+        private final Node parent;
+        private final LongAdder[] counts;
+        private final LongAdder machines = new LongAdder();
+
+        private Node(final String name, final Node parent, final int slotCount) {
+            this.name = name;
+            this.parent = parent;
+            this.counts = new LongAdder[slotCount];
+            for (int slot = 0; slot < slotCount; slot++) {
+                counts[slot] = new LongAdder();
+            }
+        }
+
+        /**
+         * Adds the difference between two states of a float to this node and every node above it
+         */
+        private void addDifference(final FloatState previous, final FloatState next) {
+            for (int slot = 0; slot < counts.length; slot++) {
+                int difference = next.getCount(slot) - previous.getCount(slot);
+                if (difference == 0) {
+                    continue; //nothing to do
+                }
+                for (Node node = this; node != null; node = node.parent) {
+                    node.counts[slot].add(difference);
+                }
+            }
+        }
+
+        /**
+         * Adds, or with a sign of -1 takes away, every count in the state to this node and every node above it
+         */
+        private void add(final FloatState floatState, final int sign) {
+            for (int slot = 0; slot < counts.length; slot++) {
+                int count = floatState.getCount(slot);
+                if (count == 0) {
+                    continue; //nothing to do
+                }
+                for (Node node = this; node != null; node = node.parent) {
+                    node.counts[slot].add((long) sign * count);
+                }
+            }
+        }
+
+        private void addMachines(final int machineCount) {
+            for (Node node = this; node != null; node = node.parent) {
+                node.machines.add(machineCount);
+            }
+        }
+
+        private RollupTotals totals(final Currency currency) {
+            long[] totals = new long[counts.length];
+            for (int slot = 0; slot < totals.length; slot++) {
+                totals[slot] = counts[slot].sum();
+            }
+            return new RollupTotals(currency, totals, machines.sum());
+        }
+    }
+
+    /**
+     * Listener feeding one machine's changes into its site.
+     * <p>
+     * The float can change between registering the listener and reading its counts, so whichever of @{attach} or the
+     * first change to arrive gets there first adds the whole float at its version as the baseline. Changes from that
+     * version onwards are then added as differences, and changes already included in the baseline are ignored.
+     */
+    private static final class Machine implements FloatListener {
+        private final Node site;
+        private final CashManagerImpl cashManager;
+        private final AtomicLong baseline = new AtomicLong(NO_BASELINE);
+
+        private Machine(final Node site, final CashManagerImpl cashManager) {
+            this.site = site;
+            this.cashManager = cashManager;
+        }
+
+        @Override
+        public void onChange(final FloatMutation mutation, final FloatState previous, final FloatState next) {
+            if (establishBaseline(next)) {
+                return;
+            }
+            if (previous.getVersion() >= baseline.get()) {
+                site.addDifference(previous, next);
+            }
+        }
+
+        /**
+         * @return true if the state was added as the baseline, false if there already was one
+         */
+        private boolean establishBaseline(final FloatState floatState) {
+            if (baseline.get() == NO_BASELINE && baseline.compareAndSet(NO_BASELINE, floatState.getVersion())) {
+                site.add(floatState, 1);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Totals a range of machines by site, with the machine count in the last element of each site's counts
+     */
+    private static final class Recompute extends RecursiveTask<Map<Node, long[]>> {
+        private static final long serialVersionUID = 1L;
+        private final transient Machine[] attached;
+        private final int slotCount;
+        private final int from;
+        private final int to;
+
+        private Recompute(final Machine[] attached, final int slotCount, final int from, final int to) {
+            this.attached = attached;
+            this.slotCount = slotCount;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<Node, long[]> compute() {
+            if (to - from > RECOMPUTE_BATCH) {
+                int middle = (from + to) >>> 1;
+                Recompute left = new Recompute(attached, slotCount, from, middle);
+                left.fork();
+                Map<Node, long[]> right = new Recompute(attached, slotCount, middle, to).compute();
+                Map<Node, long[]> merged = left.join();
+                right.forEach((site, counts) -> merged.merge(site, counts, (mergedCounts, rightCounts) -> {
+                    accumulate(mergedCounts, rightCounts);
+                    return mergedCounts;
+                }));
+                return merged;
+            }
+            Map<Node, long[]> siteCounts = new HashMap<>();
+            for (int i = from; i < to; i++) {
+                Machine machine = attached[i];
+                FloatState floatState = machine.cashManager.getState();
+                long[] counts = siteCounts.computeIfAbsent(machine.site, site -> new long[slotCount + 1]);
+                for (int slot = 0; slot < slotCount; slot++) {
+                    counts[slot] += floatState.getCount(slot);
+                }
+                counts[slotCount]++;
+            }
+            return siteCounts;
+        }
+    }
+}
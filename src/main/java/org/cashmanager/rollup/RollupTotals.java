@@ -0,0 +1,77 @@
+package org.cashmanager.rollup;
+
+import org.cashmanager.contract.Currency;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Coins held across a machine, site, region or the whole fleet, read from a @{FloatRollup}
+ */
+public final class RollupTotals {
+    private final Currency currency;
+    private final long[] counts;
+    private final long machines;
+
+    RollupTotals(final Currency currency, final long[] counts, final long machines) {
+        this.currency = currency;
+        this.counts = counts;
+        this.machines = machines;
+    }
+
+    /**
+     * Number of coins held for the denomination
+     *
+     * @param denomination - e.g. 20
+     * @return total count across every machine
+     */
+    public long getCount(final int denomination) {
+        return counts[currency.getSlot(denomination)];
+    }
+
+    /**
+     * @return total count for every denomination of the currency, largest denomination first
+     */
+    public Map<Integer, Long> getDenominationCounts() {
+        Map<Integer, Long> denominationCounts = new LinkedHashMap<>();
+        for (int slot = 0; slot < counts.length; slot++) {
+            denominationCounts.put(currency.getDenomination(slot), counts[slot]);
+        }
+        return denominationCounts;
+    }
+
+    /**
+     * @return cash value of every coin held, in the currency's smallest unit e.g. pence
+     */
+    public long getValue() {
+        long value = 0;
+        for (int slot = 0; slot < counts.length; slot++) {
+            value += counts[slot] * currency.getDenomination(slot);
+        }
+        return value;
+    }
+
+    /**
+     * @return number of machines included
+     */
+    public long getMachines() {
+        return machines;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other instanceof RollupTotals totals && currency == totals.currency && machines == totals.machines
+                && Arrays.equals(counts, totals.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(machines) + Arrays.hashCode(counts);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("machines=%s value=%s counts=%s", machines, getValue(), getDenominationCounts());
+    }
+}
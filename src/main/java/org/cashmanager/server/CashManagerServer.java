@@ -0,0 +1,136 @@
+package org.cashmanager.server;
+
+import org.cashmanager.CashManager;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the @{CommandProcessor} line protocol for one cash manager over a TCP or Unix domain socket.
+ * <p>
+ * Each connection is handled on its own virtual thread. Commands are newline terminated and each gets exactly one response
+ * line, in order, including blank lines which are answered with "ERR Empty command". Clients can pipeline commands: responses are buffered and only flushed once every command already received
+ * on the connection has been answered, so a burst of commands is answered with a single write.
+ */
+public class CashManagerServer implements Closeable {
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final ServerSocketChannel serverChannel;
+    private final CommandProcessor commandProcessor;
+    private final SocketAddress unixSocketPath;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+
+    private CashManagerServer(final ServerSocketChannel serverChannel, final CashManager cashManager, final SocketAddress unixSocketPath) {
+        this.serverChannel = serverChannel;
+        this.commandProcessor = new CommandProcessor(cashManager);
+        this.unixSocketPath = unixSocketPath;
+    }
+
+    /**
+     * Starts serving on a TCP port of the loopback interface
+     *
+     * @param cashManager - cash manager the commands are run against
+     * @param port        - port to listen on, 0 to pick a free port
+     * @return the running server
+     */
+    public static CashManagerServer startTcp(final CashManager cashManager, final int port) throws IOException {
+        ServerSocketChannel serverChannel = ServerSocketChannel.open(StandardProtocolFamily.INET);
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        return start(serverChannel, cashManager, null);
+    }
+
+    /**
+     * Starts serving on a Unix domain socket, replacing any stale socket file left at the path
+     *
+     * @param cashManager - cash manager the commands are run against
+     * @param path        - location of the socket file, removed when the server is closed
+     * @return the running server
+     */
+    public static CashManagerServer startUnix(final CashManager cashManager, final Path path) throws IOException {
+        Files.deleteIfExists(path);
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(path);
+        ServerSocketChannel serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        serverChannel.bind(address);
+        return start(serverChannel, cashManager, address);
+    }
+
+    private static CashManagerServer start(final ServerSocketChannel serverChannel, final CashManager cashManager,
+                                           final SocketAddress unixSocketPath) {
+        CashManagerServer server = new CashManagerServer(serverChannel, cashManager, unixSocketPath);
+        server.executor.execute(server::acceptConnections);
+        return server;
+    }
+
+    /**
+     * Address the server is listening on
+     *
+     * @return @{InetSocketAddress} for TCP or @{UnixDomainSocketAddress} for a Unix domain socket
+     */
+    public SocketAddress getAddress() throws IOException {
+        return serverChannel.getLocalAddress();
+    }
+
+    /**
+     * Stops accepting connections and closes every open connection
+     */
+    @Override
+    public void close() throws IOException {
+        serverChannel.close();
+        for (SocketChannel connection : connections) {
+            connection.close();
+        }
+        executor.close();
+        if (unixSocketPath instanceof UnixDomainSocketAddress address) {
+            Files.deleteIfExists(address.getPath());
+        }
+    }
+
+    private void acceptConnections() {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel connection = serverChannel.accept();
+                connections.add(connection);
+                executor.execute(() -> serve(connection));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.out.println("An error was encountered accepting a connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(final SocketChannel connection) {
+        try (connection;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(connection), StandardCharsets.UTF_8), BUFFER_SIZE);
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(connection), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            String command;
+            while ((command = reader.readLine()) != null) {
+                writer.write(commandProcessor.process(command));
+                writer.write('\n');
+                if (!reader.ready()) {
+                    writer.flush();
+                }
+            }
+        } catch (IOException e) {
+            // Connection closed by the client or the server shutting down
+        } finally {
+            connections.remove(connection);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package org.cashmanager.server;
+
+import org.cashmanager.CashManager;
+import org.cashmanager.contract.CashTransaction;
+import org.cashmanager.contract.TransactionResult;
+import org.cashmanager.metrics.DepletionForecast;
+
+import java.util.Map;
+import java.util.StringJoiner;
+
+import static org.cashmanager.cli.CLIUtil.formatDenominationCounts;
+import static org.cashmanager.cli.CLIUtil.parseDenominationCounts;
+
+/**
+ * Runs single line commands using the CLI command grammar and returns a single line machine readable response.
+ * <p>
+ * Responses start with "OK" on success, followed by denomination counts where the command returns coins e.g. "OK 200:1,20:2",
+ * or "ERR" followed by the reason the command failed. Change found when the solver budget ran out, which may not be the
+ * fewest coins, is followed by "nonoptimal" e.g. "OK 50:1,20:3 nonoptimal". Commands which would prompt for input in the CLI must be given
+ * their arguments in full.
+ * <pre>
+ * status                              OK 200:5,100:0,50:2
+ * metrics                             OK transaction.count=10 transaction.p50=812 ... greedy=9 fallback=1
+ * forecast                            OK 200=+2.5/h,full=45m 100=+0.0/h ... 20=-12.0/h,empty=3h10m
+ * exactchange                         OK 80,120
+ * reset denominationCounts            OK
+ * add denomination [count]            OK
+ * add denominationCounts              OK
+ * transaction cost denominationCounts OK change [nonoptimal]
+ * remove valueToDispense              OK change
+ * remove denominationCounts           OK
+ * </pre>
+ */
+public class CommandProcessor {
+    public static final String OK = "OK";
+    public static final String ERR = "ERR";
+    public static final String NON_OPTIMAL = "nonoptimal";
+    public static final String EMPTY_COMMAND = "Empty command";
+
+    private final CashManager cashManager;
+
+    public CommandProcessor(final CashManager cashManager) {
+        if (cashManager == null) {
+            throw new IllegalArgumentException("Provided a null value for cash manager");
+        }
+        this.cashManager = cashManager;
+    }
+
+    /**
+     * Runs the command
+     *
+     * @param command - e.g. "transaction 80 100:1"
+     * @return response line without a line terminator e.g. "OK 20:1"
+     */
+    public String process(final String command) {
+        if (command == null || command.isBlank()) {
+            return error(EMPTY_COMMAND);
+        }
+        String[] splitCommand = command.trim().split("\\s+");
+        try {
+            return switch (splitCommand[0].toLowerCase()) {
+                case "status" -> ok(cashManager.getDenominationCounts());
+                case "metrics" -> OK + " " + cashManager.getMetrics().toCompactString();
+                case "forecast" -> processForecast();
+                case "exactchange" -> processExactChange();
+                case "reset" -> processReset(splitCommand);
+                case "add" -> processAdd(splitCommand);
+                case "transaction" -> processTransaction(splitCommand);
+                case "remove" -> processRemove(splitCommand);
+                default -> error(String.format("Unknown command: %s", splitCommand[0]));
+            };
+        } catch (Throwable e) {
+            return error(e.getMessage());
+        }
+    }
+
+    private String processForecast() {
+        StringBuilder response = new StringBuilder(OK);
+        for (DepletionForecast forecast : cashManager.getDepletionForecast()) {
+            response.append(' ').append(forecast.toCompactString());
+        }
+        return response.toString();
+    }
+
+    private String processExactChange() {
+        StringJoiner prices = new StringJoiner(",");
+        cashManager.getExactChangeOnlyPrices().forEach(price -> prices.add(price.toString()));
+        return prices.length() == 0 ? OK : OK + " " + prices;
+    }
+
+    private String processReset(final String[] splitCommand) {
+        if (splitCommand.length != 2) {
+            return error("Usage: reset denominationCounts");
+        }
+        cashManager.resetCoins(parseDenominationCounts(splitCommand[1], cashManager.getCurrency()));
+        return OK;
+    }
+
+    private String processAdd(final String[] splitCommand) {
+        switch (splitCommand.length) {
+            case 3 -> cashManager.addCoins(Map.of(Integer.parseInt(splitCommand[1]), Integer.parseInt(splitCommand[2])));
+            case 2 -> {
+                if (isNumber(splitCommand[1])) {
+                    cashManager.addCoins(Map.of(Integer.parseInt(splitCommand[1]), 1));
+                } else {
+                    cashManager.addCoins(parseDenominationCounts(splitCommand[1], cashManager.getCurrency()));
+                }
+            }
+            default -> {
+                return error("Usage: add denomination [count] | add denominationCounts");
+            }
+        }
+        return OK;
+    }
+
+    private String processTransaction(final String[] splitCommand) {
+        if (splitCommand.length != 3) {
+            return error("Usage: transaction cost denominationCounts");
+        }
+        CashTransaction cashTransaction = new CashTransaction(Integer.parseInt(splitCommand[1]),
+                parseDenominationCounts(splitCommand[2], cashManager.getCurrency()));
+        TransactionResult result = cashManager.processTransactionResult(cashTransaction);
+        String response = ok(result.getChange());
+        return result.isOptimal() ? response : response + " " + NON_OPTIMAL;
+    }
+
+    private String processRemove(final String[] splitCommand) {
+        if (splitCommand.length != 2) {
+            return error("Usage: remove valueToDispense | remove denominationCounts");
+        }
+        if (isNumber(splitCommand[1])) {
+            return ok(cashManager.removeCoins(Integer.parseInt(splitCommand[1])));
+        }
+        cashManager.removeCoins(parseDenominationCounts(splitCommand[1], cashManager.getCurrency()));
+        return OK;
+    }
+
+    private static boolean isNumber(final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && !(i == 0 && c == '-' && value.length() > 1)) {
+                return false;
+            }
+        }
+        return !value.isEmpty();
+    }
+
+    private static String ok(final Map<Integer, Integer> denominationCounts) {
+        String formatted = formatDenominationCounts(denominationCounts);
+        return formatted.isEmpty() ? OK : OK + " " + formatted;
+    }
+
+    private static String error(final String reason) {
+        return reason == null || reason.isBlank()
+                ? ERR
+                : ERR + " " + reason.replace('\r', ' ').replace('\n', ' ');
+    }
+}
@@ -0,0 +1,192 @@
+package org.cashmanager.simulator;
+
+import org.cashmanager.cli.CLIUtil;
+import org.cashmanager.contract.CashTransaction;
+import org.cashmanager.contract.DenominationIndex;
+import org.cashmanager.core.CashManagerImpl;
+import org.cashmanager.metrics.LatencyHistogram;
+import org.cashmanager.metrics.MetricsSnapshot;
+import org.cashmanager.server.CommandProcessor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives @{CashManagerImpl}s the way a fleet of vending machines does, to size hardware and find latency regressions.
+ * <p>
+ * Each simulated machine runs on its own virtual thread, buying products from the @{PriceCatalogue} with coins inserted
+ * by a @{PaymentStyle} picked from the mix, and is refilled to its starting float every few sales. Machines run flat out,
+ * or at a fixed share of the target rate for the fleet. At a target rate each transaction is timed from when it was due
+ * to start rather than when it did, so time spent queued behind a slow transaction is counted rather than hidden.
+ */
+public final class FleetSimulator {
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder transactions = new LongAdder();
+    private final LongAdder changeFailures = new LongAdder();
+    private final LongAdder otherFailures = new LongAdder();
+
+    private FleetSimulator() {
+    }
+
+    /**
+     * Runs the simulation for the configured duration
+     *
+     * @param config - fleet, products and load to simulate
+     * @return throughput, latency and failures across the fleet
+     */
+    public static SimulationReport run(final SimulationConfig config) {
+        FleetSimulator simulator = new FleetSimulator();
+        List<CashManagerImpl> fleet = new ArrayList<>(config.machines());
+        List<SplittableRandom> randoms = new ArrayList<>(config.machines());
+        SplittableRandom seeds = new SplittableRandom(config.seed());
+        for (int machine = 0; machine < config.machines(); machine++) {
+            fleet.add(new CashManagerImpl(config.currency(), config.startingFloat()));
+            randoms.add(seeds.split());
+        }
+
+        long started = System.nanoTime();
+        long deadline = started + config.duration().toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int machine = 0; machine < config.machines(); machine++) {
+                int index = machine;
+                executor.submit(() -> simulator.runMachine(config, fleet.get(index), randoms.get(index), index, started, deadline));
+            }
+        }
+        return simulator.report(config.machines(), fleet, System.nanoTime() - started);
+    }
+
+    /**
+     * Replays a recorded log through the same harness, timing every transaction.
+     * The log uses the batch command grammar, see @{BatchRunner}. Commands other than transactions e.g. refills are run
+     * without being timed.
+     *
+     * @param cashManager         - cash manager to replay against
+     * @param log                 - recorded commands
+     * @param targetRatePerSecond - transactions per second to replay at, 0 to replay flat out
+     * @return throughput, latency and failures of the replayed transactions
+     */
+    public static SimulationReport replay(final CashManagerImpl cashManager, final BufferedReader log, final double targetRatePerSecond) throws IOException {
+        FleetSimulator simulator = new FleetSimulator();
+        CommandProcessor commandProcessor = new CommandProcessor(cashManager);
+        long intervalNanos = targetRatePerSecond > 0 ? (long) (1_000_000_000 / targetRatePerSecond) : 0;
+        long started = System.nanoTime();
+        long sequence = 0;
+
+        String line;
+        while ((line = log.readLine()) != null) {
+            String trimmed = line.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            if (trimmed.equalsIgnoreCase("exit")) {
+                break;
+            }
+            String[] splitCommand = trimmed.split("\\s+");
+            if (!splitCommand[0].equalsIgnoreCase("transaction")) {
+                commandProcessor.process(trimmed);
+                continue;
+            }
+            long due = intervalNanos > 0 ? awaitDue(started + sequence++ * intervalNanos) : System.nanoTime();
+            CashTransaction cashTransaction;
+            try {
+                if (splitCommand.length != 3) {
+                    throw new IllegalArgumentException("Usage: transaction cost denominationCounts");
+                }
+                cashTransaction = new CashTransaction(Integer.parseInt(splitCommand[1]),
+                        CLIUtil.parseDenominationCounts(splitCommand[2], cashManager.getCurrency()));
+            } catch (RuntimeException e) {
+                simulator.transactions.increment();
+                simulator.otherFailures.increment();
+                continue;
+            }
+            simulator.transact(cashManager, cashTransaction, due);
+        }
+        return simulator.report(1, List.of(cashManager), System.nanoTime() - started);
+    }
+
+    private void runMachine(final SimulationConfig config, final CashManagerImpl cashManager, final SplittableRandom random,
+                            final int machine, final long started, final long deadline) {
+        WeightedChoice<PaymentStyle> paymentMix = WeightedChoice.of(new EnumMap<>(config.paymentMix()));
+        DenominationIndex denominationIndex = config.currency().getDenominationIndex();
+        boolean paced = config.targetRatePerSecond() > 0;
+        double intervalNanos = paced ? config.machines() * 1_000_000_000.0 / config.targetRatePerSecond() : 0;
+        // stagger the machines across the interval so the fleet's load is smooth
+        double offsetNanos = intervalNanos * machine / config.machines();
+
+        for (long sale = 1; ; sale++) {
+            long due;
+            if (paced) {
+                long scheduled = started + (long) (offsetNanos + (sale - 1) * intervalNanos);
+                if (scheduled >= deadline) {
+                    return;
+                }
+                due = awaitDue(scheduled);
+            } else {
+                due = System.nanoTime();
+                if (due >= deadline) {
+                    return;
+                }
+            }
+
+            int price = config.catalogue().nextPrice(random);
+            CashTransaction cashTransaction = new CashTransaction(price, paymentMix.sample(random).pay(price, denominationIndex, random));
+            transact(cashManager, cashTransaction, due);
+
+            if (config.refillEverySales() > 0 && sale % config.refillEverySales() == 0) {
+                cashManager.resetCoins(config.startingFloat());
+            }
+            if (!paced) {
+                // virtual threads are not preempted, so let the other machines on this carrier run
+                Thread.yield();
+            }
+        }
+    }
+
+    private void transact(final CashManagerImpl cashManager, final CashTransaction cashTransaction, final long due) {
+        try {
+            cashManager.processTransaction(cashTransaction);
+        } catch (IllegalStateException e) {
+            changeFailures.increment();
+        } catch (RuntimeException e) {
+            otherFailures.increment();
+        } finally {
+            latency.record(System.nanoTime() - due);
+            transactions.increment();
+        }
+    }
+
+    /**
+     * Waits until the time a transaction is due
+     *
+     * @return the due time
+     */
+    private static long awaitDue(final long due) {
+        long remaining;
+        while ((remaining = due - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+        return due;
+    }
+
+    private SimulationReport report(final int machines, final List<CashManagerImpl> fleet, final long elapsedNanos) {
+        long tableLookups = 0;
+        long greedyCalculations = 0;
+        long fallbackCalculations = 0;
+        for (CashManagerImpl cashManager : fleet) {
+            MetricsSnapshot metrics = cashManager.getMetrics();
+            tableLookups += metrics.getTableLookups();
+            greedyCalculations += metrics.getGreedyCalculations();
+            fallbackCalculations += metrics.getFallbackCalculations();
+        }
+        return new SimulationReport(machines, transactions.sum(), changeFailures.sum(), otherFailures.sum(), elapsedNanos,
+                latency.snapshot(), tableLookups, greedyCalculations, fallbackCalculations);
+    }
+}
@@ -0,0 +1,65 @@
+package org.cashmanager.simulator;
+
+import org.cashmanager.contract.DenominationIndex;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * How a simulated customer inserts coins to pay for a product
+ */
+public enum PaymentStyle {
+    /**
+     * Pays the exact price with the fewest coins
+     */
+    EXACT,
+    /**
+     * Pays with as many of the largest coin as are needed to cover the price
+     */
+    LARGEST_COIN,
+    /**
+     * Inserts coins picked at random until the price is covered
+     */
+    RANDOM_COINS;
+
+    /**
+     * @param price             - price of the product
+     * @param denominationIndex - denominations of the currency
+     * @param random            - source of randomness
+     * @return coins inserted as Map<Denomination, Count>, worth at least the price
+     */
+    public Map<Integer, Integer> pay(final int price, final DenominationIndex denominationIndex, final RandomGenerator random) {
+        Map<Integer, Integer> coins = new HashMap<>();
+        switch (this) {
+            case EXACT -> {
+                int remaining = price;
+                for (int slot = 0; slot < denominationIndex.getSlotCount() && remaining > 0; slot++) {
+                    int denomination = denominationIndex.getDenomination(slot);
+                    if (remaining >= denomination) {
+                        coins.put(denomination, remaining / denomination);
+                        remaining %= denomination;
+                    }
+                }
+                if (remaining > 0) {
+                    // the currency cannot make the price exactly, so round up with the smallest coin
+                    int smallest = denominationIndex.getDenomination(denominationIndex.getSlotCount() - 1);
+                    coins.merge(smallest, (remaining + smallest - 1) / smallest, Integer::sum);
+                }
+            }
+            case LARGEST_COIN -> {
+                int largest = denominationIndex.getDenomination(0);
+                coins.put(largest, (price + largest - 1) / largest);
+            }
+            case RANDOM_COINS -> {
+                int paid = 0;
+                while (paid < price) {
+                    int denomination = denominationIndex.getDenomination(random.nextInt(denominationIndex.getSlotCount()));
+                    coins.merge(denomination, 1, Integer::sum);
+                    paid += denomination;
+                }
+            }
+        }
+        return coins;
+    }
+}
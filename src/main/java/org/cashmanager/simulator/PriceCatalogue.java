@@ -0,0 +1,43 @@
+package org.cashmanager.simulator;
+
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Prices of the products sold by the simulated machines, each with how often it is bought relative to the others
+ */
+public final class PriceCatalogue {
+    private final WeightedChoice<Integer> prices;
+
+    private PriceCatalogue(final WeightedChoice<Integer> prices) {
+        this.prices = prices;
+    }
+
+    /**
+     * Parses a catalogue of "price:weight" pairs
+     *
+     * @param rawCatalogue - e.g. "80:5,120:2,250:1" = 80p bought five times as often as £2.50
+     * @return the catalogue
+     */
+    public static PriceCatalogue parse(final String rawCatalogue) {
+        return new PriceCatalogue(WeightedChoice.parse(rawCatalogue, raw -> {
+            int price = Integer.parseInt(raw);
+            if (price <= 0) {
+                throw new IllegalArgumentException(String.format("Price must be above 0: %s", price));
+            }
+            return price;
+        }));
+    }
+
+    /**
+     * @param random - source of randomness
+     * @return price of the next product bought
+     */
+    public int nextPrice(final RandomGenerator random) {
+        return prices.sample(random);
+    }
+
+    public List<Integer> getPrices() {
+        return prices.values();
+    }
+}
@@ -0,0 +1,81 @@
+package org.cashmanager.simulator;
+
+import org.cashmanager.cli.CLIUtil;
+import org.cashmanager.contract.Currency;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Configuration of a @{FleetSimulator} run
+ *
+ * @param currency             - currency of every machine
+ * @param startingFloat        - float each machine starts with and is refilled to, Map<Denomination, Count>
+ * @param machines             - number of machines, each run on its own virtual thread
+ * @param catalogue            - products bought
+ * @param paymentMix           - how often each @{PaymentStyle} is used relative to the others
+ * @param refillEverySales     - sales after which a machine is refilled to its starting float, 0 to never refill
+ * @param targetRatePerSecond  - transactions per second across the whole fleet, 0 to run flat out
+ * @param duration             - how long to run for
+ * @param seed                 - seed for the random choices, so runs can be repeated
+ */
+public record SimulationConfig(Currency currency, Map<Integer, Integer> startingFloat, int machines, PriceCatalogue catalogue,
+                               Map<PaymentStyle, Integer> paymentMix, int refillEverySales, double targetRatePerSecond,
+                               Duration duration, long seed) {
+    public static final String DEFAULT_CATALOGUE = "65:4,80:6,120:3,175:2,250:1";
+    public static final String DEFAULT_PAYMENT_MIX = "EXACT:2,LARGEST_COIN:3,RANDOM_COINS:5";
+
+    public SimulationConfig {
+        if (currency == null) {
+            throw new IllegalArgumentException("Provided a null value for currency");
+        }
+        if (machines <= 0) {
+            throw new IllegalArgumentException(String.format("Machines must be above 0: %s", machines));
+        }
+        if (refillEverySales < 0) {
+            throw new IllegalArgumentException(String.format("Refill interval must not be below 0: %s", refillEverySales));
+        }
+        if (targetRatePerSecond < 0) {
+            throw new IllegalArgumentException(String.format("Target rate must not be below 0: %s", targetRatePerSecond));
+        }
+        if (duration == null || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Duration must be above 0");
+        }
+        startingFloat = Map.copyOf(startingFloat);
+        paymentMix = Map.copyOf(paymentMix);
+        WeightedChoice.of(paymentMix);
+    }
+
+    /**
+     * Reads a configuration, using the defaults for any missing property:
+     * <pre>
+     * machines=1000
+     * seconds=10
+     * rate=0                                    transactions per second across the fleet, 0 = flat out
+     * catalogue=65:4,80:6,120:3,175:2,250:1     price:weight
+     * payment=EXACT:2,LARGEST_COIN:3,RANDOM_COINS:5
+     * refillEverySales=200
+     * float=200:20,100:20,50:40,20:60,10:60,5:50 starting float, otherwise the float given on the command line
+     * seed=1
+     * </pre>
+     *
+     * @param properties    - properties to read
+     * @param currency      - currency of every machine
+     * @param startingFloat - float used when the properties do not give one
+     */
+    public static SimulationConfig fromProperties(final Properties properties, final Currency currency, final Map<Integer, Integer> startingFloat) {
+        Map<PaymentStyle, Integer> paymentMix = Map.copyOf(
+                WeightedChoice.parse(properties.getProperty("payment", DEFAULT_PAYMENT_MIX), raw -> PaymentStyle.valueOf(raw.toUpperCase()))
+                        .weights());
+        return new SimulationConfig(currency,
+                properties.containsKey("float") ? CLIUtil.parseDenominationCounts(properties.getProperty("float"), currency) : startingFloat,
+                Integer.parseInt(properties.getProperty("machines", "1000")),
+                PriceCatalogue.parse(properties.getProperty("catalogue", DEFAULT_CATALOGUE)),
+                paymentMix,
+                Integer.parseInt(properties.getProperty("refillEverySales", "200")),
+                Double.parseDouble(properties.getProperty("rate", "0")),
+                Duration.ofMillis((long) (Double.parseDouble(properties.getProperty("seconds", "10")) * 1000)),
+                Long.parseLong(properties.getProperty("seed", "1")));
+    }
+}
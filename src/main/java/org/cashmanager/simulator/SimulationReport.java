@@ -0,0 +1,52 @@
+package org.cashmanager.simulator;
+
+import org.cashmanager.metrics.LatencyHistogram;
+
+/**
+ * Outcome of a simulation or replay
+ *
+ * @param machines             - number of machines simulated
+ * @param transactions         - transactions attempted
+ * @param changeFailures       - transactions rejected because change could not be made
+ * @param otherFailures        - transactions rejected for any other reason e.g. insufficient payment in a replayed log
+ * @param elapsedNanos         - time taken by the run
+ * @param latency              - latency of every transaction, measured from when it was due to start when running at a target rate
+ * @param tableLookups         - change looked up in the change tables
+ * @param greedyCalculations   - change answered by the top down calculation
+ * @param fallbackCalculations - change which needed a fallback solver
+ */
+public record SimulationReport(int machines, long transactions, long changeFailures, long otherFailures, long elapsedNanos,
+                               LatencyHistogram.Snapshot latency, long tableLookups, long greedyCalculations, long fallbackCalculations) {
+
+    public double transactionsPerSecond() {
+        return elapsedNanos == 0 ? 0 : transactions * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    /**
+     * @return fraction of transactions rejected because change could not be made
+     */
+    public double changeFailureRate() {
+        return transactions == 0 ? 0 : (double) changeFailures / transactions;
+    }
+
+    /**
+     * @return fraction of change calculations which needed a fallback solver
+     */
+    public double fallbackShare() {
+        long calculations = tableLookups + greedyCalculations + fallbackCalculations;
+        return calculations == 0 ? 0 : (double) fallbackCalculations / calculations;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("""
+                        machines: %d, transactions: %d in %.1f s (%.0f/s)
+                        latency: p50 %.1fus, p99 %.1fus, p99.9 %.1fus, max %.1fus
+                        failures: %d change (%.2f%%), %d other
+                        change: %d table lookups, %d greedy, %d fallback (%.2f%% fallback)""",
+                machines, transactions, elapsedNanos / 1e9, transactionsPerSecond(),
+                latency.getPercentile(50) / 1000.0, latency.getPercentile(99) / 1000.0, latency.getPercentile(99.9) / 1000.0, latency.getMax() / 1000.0,
+                changeFailures, changeFailureRate() * 100, otherFailures,
+                tableLookups, greedyCalculations, fallbackCalculations, fallbackShare() * 100);
+    }
+}
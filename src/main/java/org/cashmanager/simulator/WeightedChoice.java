@@ -0,0 +1,91 @@
+package org.cashmanager.simulator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
+
+/**
+ * Picks values at random in proportion to their weights, by binary search of the cumulative weights
+ */
+final class WeightedChoice<T> {
+    private final List<T> values;
+    private final long[] cumulativeWeights;
+
+    private WeightedChoice(final List<T> values, final long[] cumulativeWeights) {
+        this.values = values;
+        this.cumulativeWeights = cumulativeWeights;
+    }
+
+    /**
+     * Parses "value:weight" pairs separated by commas e.g. "80:5,120:2"
+     *
+     * @param raw    - pairs to parse
+     * @param parser - converts each value
+     */
+    static <T> WeightedChoice<T> parse(final String raw, final Function<String, T> parser) {
+        if (raw == null || raw.isBlank()) {
+            throw new IllegalArgumentException("Provided no weighted values");
+        }
+        List<T> values = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        for (String pair : raw.split(",")) {
+            String[] split = pair.trim().split(":");
+            if (split.length != 2) {
+                throw new IllegalArgumentException(String.format("Expected value:weight but was: %s", pair));
+            }
+            values.add(parser.apply(split[0].trim()));
+            weights.add(Integer.parseInt(split[1].trim()));
+        }
+        return of(values, weights);
+    }
+
+    static <T> WeightedChoice<T> of(final Map<T, Integer> weights) {
+        return of(new ArrayList<>(weights.keySet()), new ArrayList<>(weights.values()));
+    }
+
+    private static <T> WeightedChoice<T> of(final List<T> values, final List<Integer> weights) {
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("Provided no weighted values");
+        }
+        long[] cumulativeWeights = new long[values.size()];
+        long total = 0;
+        for (int i = 0; i < values.size(); i++) {
+            if (weights.get(i) == null || weights.get(i) <= 0) {
+                throw new IllegalArgumentException(String.format("Weight must be above 0 for: %s", values.get(i)));
+            }
+            total += weights.get(i);
+            cumulativeWeights[i] = total;
+        }
+        return new WeightedChoice<>(List.copyOf(values), cumulativeWeights);
+    }
+
+    T sample(final RandomGenerator random) {
+        long target = random.nextLong(cumulativeWeights[cumulativeWeights.length - 1]);
+        int low = 0;
+        int high = cumulativeWeights.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativeWeights[middle] > target) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return values.get(low);
+    }
+
+    List<T> values() {
+        return values;
+    }
+
+    Map<T, Integer> weights() {
+        Map<T, Integer> weights = new LinkedHashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            weights.merge(values.get(i), (int) (cumulativeWeights[i] - (i == 0 ? 0 : cumulativeWeights[i - 1])), Integer::sum);
+        }
+        return weights;
+    }
+}
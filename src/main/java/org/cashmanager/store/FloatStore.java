@@ -0,0 +1,449 @@
+package org.cashmanager.store;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.contract.DenominationIndex;
+import org.cashmanager.core.InsufficientCoinsException;
+import org.cashmanager.core.calculator.ChangeCalculator;
+import org.cashmanager.metrics.CashManagerMetrics;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Function;
+
+import static org.cashmanager.util.Validators.lessThanZero;
+
+/**
+ * Holds the floats of a whole fleet of machines in one off heap buffer, as an alternative to a @{CashFloat} per machine.
+ * <p>
+ * Each machine is a row, identified by its index, and the buffer is laid out in columns: a version column, a column of
+ * recorded slot bit masks, then a column of counts for each denomination. A machine therefore costs a fixed
+ * (2 + denominations) * 4 bytes, 40 bytes for GBP, with nothing on the heap until a @{StoredCashManager} handle is taken
+ * for it. Scans across the fleet, e.g. @{totals} or @{findLowTubes}, read one contiguous column at a time.
+ * <p>
+ * The buffer is either allocated directly or memory mapped from a file, in which case the floats survive a restart.
+ * <p>
+ * Each row is guarded by its version as a sequence lock. A change to a machine calculates against a consistent copy of the
+ * row without holding anything, then commits by making the version odd only while it writes the new counts, and even
+ * again once they are written. If another change committed to the row first, the calculation is applied again to a fresh
+ * copy. Changes to different machines never contend, and readers only wait out the few writes of a commit in progress,
+ * retrying if the version moved while they read the row.
+ */
+public final class FloatStore implements AutoCloseable {
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final int MAGIC = 0x464C5354;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 128;
+    private static final int MAX_HEADER_DENOMINATIONS = HEADER_BYTES / Integer.BYTES - 4;
+    private static final int SCAN_CHUNK = 4096;
+    private static final int VERSION_COLUMN = 0;
+    private static final int RECORDED_COLUMN = 1;
+    private static final int FIRST_COUNT_COLUMN = 2;
+    private static final int KEEP_RECORDED = -1;
+
+    private final Currency currency;
+    private final DenominationIndex denominationIndex;
+    private final int capacity;
+    private final int slotCount;
+    private final ByteBuffer buffer;
+    private final CashManagerMetrics metrics;
+    private final ChangeCalculator changeCalculator;
+
+    private FloatStore(final Currency currency, final int capacity, final ByteBuffer buffer) {
+        this.currency = currency;
+        this.denominationIndex = currency.getDenominationIndex();
+        this.capacity = capacity;
+        this.slotCount = currency.getSlotCount();
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.metrics = new CashManagerMetrics(currency);
+        this.changeCalculator = new ChangeCalculator(currency, metrics);
+    }
+
+    /**
+     * Allocates an off heap store with every machine's float empty
+     *
+     * @param currency - currency of every machine
+     * @param capacity - number of machines
+     * @return the store
+     */
+    public static FloatStore allocate(final Currency currency, final int capacity) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.toIntExact(bufferBytes(currency, capacity)));
+        FloatStore store = new FloatStore(currency, capacity, buffer);
+        store.writeHeader();
+        return store;
+    }
+
+    /**
+     * Maps a store from a file, keeping the floats already in it or creating it with every float empty.
+     * A change which was being written when the process stopped is kept or lost as a whole per count, so counts should be
+     * reconciled with the machines after a crash.
+     *
+     * @param path     - location of the file
+     * @param currency - currency of every machine, which must match the file if it already holds a store
+     * @param capacity - number of machines, which must match the file if it already holds a store
+     * @return the store
+     */
+    public static FloatStore map(final Path path, final Currency currency, final int capacity) throws IOException {
+        long bytes = bufferBytes(currency, capacity);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            boolean created = channel.size() == 0;
+            if (!created && channel.size() != bytes) {
+                throw new IOException(String.format("Store %s holds %s bytes but %s machines of %s need %s", path, channel.size(), capacity, currency.name(), bytes));
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            FloatStore store = new FloatStore(currency, capacity, buffer);
+            if (created) {
+                store.writeHeader();
+            } else {
+                store.checkHeader(path);
+                store.releaseTornRows();
+            }
+            return store;
+        }
+    }
+
+    private static long bufferBytes(final Currency currency, final int capacity) {
+        if (currency == null) {
+            throw new IllegalArgumentException("Provided a null value for currency");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(String.format("Capacity must be above 0: %s", capacity));
+        }
+        if (currency.getSlotCount() > MAX_HEADER_DENOMINATIONS) {
+            throw new IllegalArgumentException(String.format("Currency has too many denominations to store: %s", currency.name()));
+        }
+        long bytes = HEADER_BYTES + (long) (FIRST_COUNT_COLUMN + currency.getSlotCount()) * capacity * Integer.BYTES;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format("Capacity is above the %s machines a single buffer can hold",
+                    (Integer.MAX_VALUE - HEADER_BYTES) / ((FIRST_COUNT_COLUMN + currency.getSlotCount()) * Integer.BYTES)));
+        }
+        return bytes;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    /**
+     * @return number of machines in the store
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Change calculation, latency and failure metrics shared by every @{StoredCashManager} of the store
+     */
+    public CashManagerMetrics getMetrics() {
+        return metrics;
+    }
+
+    ChangeCalculator getChangeCalculator() {
+        return changeCalculator;
+    }
+
+    /**
+     * Lightweight cash manager view of a single machine's float
+     *
+     * @param machine - index of the machine, from 0 to capacity - 1
+     * @return handle which reads and writes the machine's row in place
+     */
+    public StoredCashManager cashManager(final int machine) {
+        checkMachine(machine);
+        return new StoredCashManager(this, machine);
+    }
+
+    /**
+     * Count of coins held by a machine for a denomination slot, without checking it against the rest of the row
+     */
+    public int getCount(final int machine, final int slot) {
+        checkMachine(machine);
+        return (int) INTS.getAcquire(buffer, offset(FIRST_COUNT_COLUMN + slot, machine));
+    }
+
+    /**
+     * Consistent copy of a machine's counts
+     *
+     * @param machine - index of the machine
+     * @return count for each denomination slot of the currency
+     */
+    public int[] copyCounts(final int machine) {
+        checkMachine(machine);
+        int[] counts = new int[slotCount];
+        readRow(machine, counts);
+        return counts;
+    }
+
+    /**
+     * Reads a consistent copy of a machine's counts and recorded slots
+     *
+     * @param machine - index of the machine
+     * @param counts  - filled with the count for each denomination slot of the currency
+     * @return bit mask where bit n is set if slot n has been recorded
+     */
+    public int readCounts(final int machine, final int[] counts) {
+        checkMachine(machine);
+        return readRow(machine, counts);
+    }
+
+    /**
+     * Atomically applies a calculation to a private copy of a machine's counts and writes the copy back to the row.
+     * Nothing is changed if the calculation throws, or if any count would fall below 0. The calculation may be applied
+     * more than once if another change to the machine commits while it runs, so it should have no side effects.
+     *
+     * @param machine     - index of the machine
+     * @param calculation - updates the copy of counts in place, returning a result for the caller
+     * @return the result of the calculation
+     */
+    public <T> T update(final int machine, final Function<int[], T> calculation) {
+        return write(machine, KEEP_RECORDED, calculation);
+    }
+
+    /**
+     * Overrides a machine's float, recording exactly the slots set in the mask
+     *
+     * @param machine       - index of the machine
+     * @param counts        - count for each denomination slot of the currency
+     * @param recordedSlots - bit mask where bit n is set if slot n is in the float
+     */
+    public void reset(final int machine, final int[] counts, final int recordedSlots) {
+        if (lessThanZero(recordedSlots)) {
+            throw new IllegalArgumentException(String.format("Recorded slots must not be below 0: %s", recordedSlots));
+        }
+        write(machine, recordedSlots, working -> {
+            System.arraycopy(counts, 0, working, 0, slotCount);
+            return null;
+        });
+    }
+
+    /**
+     * Coins held in each denomination across the whole fleet. Counts changing during the scan may or may not be included.
+     *
+     * @return total count for each denomination slot of the currency
+     */
+    public long[] totals() {
+        long[] totals = new long[slotCount];
+        int[] chunk = new int[Math.min(SCAN_CHUNK, capacity)];
+        for (int slot = 0; slot < slotCount; slot++) {
+            IntBuffer column = column(FIRST_COUNT_COLUMN + slot);
+            long total = 0;
+            for (int start = 0; start < capacity; start += chunk.length) {
+                int length = Math.min(chunk.length, capacity - start);
+                column.get(start, chunk, 0, length);
+                total += sum(chunk, length);
+            }
+            totals[slot] = total;
+        }
+        return totals;
+    }
+
+    /**
+     * Machines running low on a denomination e.g. to plan a refill route.
+     * Counts changing during the scan may or may not be seen.
+     *
+     * @param denomination - denomination to check
+     * @param below        - count below which a tube is low
+     * @return indexes of the machines holding fewer than that many coins of the denomination, in ascending order
+     * @throws IllegalArgumentException if the denomination is not in the currency of the store
+     */
+    public int[] findLowTubes(final int denomination, final int below) {
+        int slot = denominationIndex.getSlot(denomination);
+        if (slot < 0) {
+            throw new IllegalArgumentException(String.format("Denomination included which does not match provided currency: %s", denomination));
+        }
+        IntBuffer column = column(FIRST_COUNT_COLUMN + slot);
+        int[] chunk = new int[Math.min(SCAN_CHUNK, capacity)];
+        int[] found = new int[16];
+        int foundCount = 0;
+        for (int start = 0; start < capacity; start += chunk.length) {
+            int length = Math.min(chunk.length, capacity - start);
+            column.get(start, chunk, 0, length);
+            if (countBelow(chunk, length, below) == 0) {
+                continue;
+            }
+            for (int i = 0; i < length; i++) {
+                if (chunk[i] < below) {
+                    if (foundCount == found.length) {
+                        found = Arrays.copyOf(found, found.length * 2);
+                    }
+                    found[foundCount++] = start + i;
+                }
+            }
+        }
+        return Arrays.copyOf(found, foundCount);
+    }
+
+    /**
+     * Writes the contents of a mapped store to its file
+     */
+    public void force() {
+        if (buffer instanceof MappedByteBuffer mapped) {
+            mapped.force();
+        }
+    }
+
+    @Override
+    public void close() {
+        force();
+    }
+
+    /**
+     * Branch free loops over a plain array, which the JIT compiles to SIMD instructions
+     */
+    private static long sum(final int[] values, final int length) {
+        long total = 0;
+        for (int i = 0; i < length; i++) {
+            total += values[i];
+        }
+        return total;
+    }
+
+    private static int countBelow(final int[] values, final int length, final int below) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            count += values[i] < below ? 1 : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Reads a consistent copy of a row's counts into the array, retrying while a change is being committed
+     *
+     * @return recorded slots of the row
+     */
+    private int readRow(final int machine, final int[] counts) {
+        int versionOffset = offset(VERSION_COLUMN, machine);
+        while (true) {
+            int version = committedVersion(versionOffset);
+            int recordedSlots = readFields(machine, counts);
+            VarHandle.acquireFence();
+            if ((int) INTS.getVolatile(buffer, versionOffset) == version) {
+                return recordedSlots;
+            }
+        }
+    }
+
+    /**
+     * Applies the calculation to a consistent copy of the row, then commits the copy if the row has not changed since it
+     * was read, starting again from a fresh copy if it has. Slots whose count changed are recorded, unless the recorded
+     * slots are replaced.
+     *
+     * @param replacedRecordedSlots - recorded slots to write, or @{KEEP_RECORDED}
+     */
+    private <T> T write(final int machine, final int replacedRecordedSlots, final Function<int[], T> calculation) {
+        checkMachine(machine);
+        int versionOffset = offset(VERSION_COLUMN, machine);
+        int[] current = new int[slotCount];
+        while (true) {
+            int version = committedVersion(versionOffset);
+            int currentRecordedSlots = readFields(machine, current);
+            VarHandle.acquireFence();
+            if ((int) INTS.getVolatile(buffer, versionOffset) != version) {
+                continue;
+            }
+
+            int[] working = current.clone();
+            T result = calculation.apply(working);
+
+            boolean replaceRecorded = replacedRecordedSlots != KEEP_RECORDED;
+            int recordedSlots = replaceRecorded ? replacedRecordedSlots : currentRecordedSlots;
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (lessThanZero(working[slot])) {
+                    throw new InsufficientCoinsException(String.format("Float does not have enough coins to remove for Denomination: %s",
+                            denominationIndex.getDenomination(slot)));
+                }
+                if (!replaceRecorded && working[slot] != current[slot]) {
+                    recordedSlots |= 1 << slot;
+                }
+            }
+
+            if (!INTS.compareAndSet(buffer, versionOffset, version, version + 1)) {
+                continue;
+            }
+            for (int slot = 0; slot < slotCount; slot++) {
+                INTS.set(buffer, offset(FIRST_COUNT_COLUMN + slot, machine), working[slot]);
+            }
+            INTS.set(buffer, offset(RECORDED_COLUMN, machine), recordedSlots);
+            INTS.setRelease(buffer, versionOffset, version + 2);
+            return result;
+        }
+    }
+
+    /**
+     * Waits out a commit in progress, which only writes the row's counts
+     *
+     * @return the row's version once it is even
+     */
+    private int committedVersion(final int versionOffset) {
+        while (true) {
+            int version = (int) INTS.getAcquire(buffer, versionOffset);
+            if ((version & 1) == 0) {
+                return version;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private int readFields(final int machine, final int[] counts) {
+        for (int slot = 0; slot < slotCount; slot++) {
+            counts[slot] = (int) INTS.get(buffer, offset(FIRST_COUNT_COLUMN + slot, machine));
+        }
+        return (int) INTS.get(buffer, offset(RECORDED_COLUMN, machine));
+    }
+
+    private IntBuffer column(final int column) {
+        return buffer.slice(offset(column, 0), capacity * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    private int offset(final int column, final int machine) {
+        return HEADER_BYTES + (column * capacity + machine) * Integer.BYTES;
+    }
+
+    private void checkMachine(final int machine) {
+        if (machine < 0 || machine >= capacity) {
+            throw new IndexOutOfBoundsException(String.format("Machine %s is outside the store of %s machines", machine, capacity));
+        }
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, FORMAT_VERSION);
+        buffer.putInt(8, capacity);
+        buffer.putInt(12, slotCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            buffer.putInt(16 + slot * Integer.BYTES, denominationIndex.getDenomination(slot));
+        }
+    }
+
+    private void checkHeader(final Path path) throws IOException {
+        boolean matches = buffer.getInt(0) == MAGIC && buffer.getInt(4) == FORMAT_VERSION
+                && buffer.getInt(8) == capacity && buffer.getInt(12) == slotCount;
+        for (int slot = 0; matches && slot < slotCount; slot++) {
+            matches = buffer.getInt(16 + slot * Integer.BYTES) == denominationIndex.getDenomination(slot);
+        }
+        if (!matches) {
+            throw new IOException(String.format("Store %s does not hold %s machines of %s", path, capacity, currency.name()));
+        }
+    }
+
+    /**
+     * Rows left locked by a process which stopped part way through a change are unlocked with whatever was written
+     */
+    private void releaseTornRows() {
+        for (int machine = 0; machine < capacity; machine++) {
+            int versionOffset = offset(VERSION_COLUMN, machine);
+            int version = (int) INTS.get(buffer, versionOffset);
+            if ((version & 1) != 0) {
+                INTS.set(buffer, versionOffset, version + 1);
+            }
+        }
+    }
+}
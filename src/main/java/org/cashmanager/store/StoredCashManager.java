@@ -0,0 +1,271 @@
+package org.cashmanager.store;
+
+import org.cashmanager.CashManager;
+import org.cashmanager.contract.CashTransaction;
+import org.cashmanager.contract.Currency;
+import org.cashmanager.contract.DenominationIndex;
+import org.cashmanager.contract.TransactionResult;
+import org.cashmanager.core.InsufficientPaymentException;
+import org.cashmanager.metrics.CashManagerMetrics;
+import org.cashmanager.metrics.DepletionForecast;
+import org.cashmanager.metrics.FailureReason;
+import org.cashmanager.metrics.MetricsSnapshot;
+import org.cashmanager.metrics.Operation;
+import org.cashmanager.util.ProcessDenominationCounts;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.cashmanager.util.Validators.lessThanZero;
+
+/**
+ * Cash manager view of one machine's row in a @{FloatStore}, holding nothing but the store and the machine index, so
+ * handles can be created per request and thrown away.
+ * <p>
+ * Every operation calculates against a copy of the row and commits it under the row's sequence lock. Change is
+ * calculated by the store's shared @{ChangeCalculator}, and latencies and failures are recorded in the store's metrics,
+ * which cover the whole fleet. Rows keep no history, so there is no depletion forecast for a stored machine.
+ */
+public final class StoredCashManager implements CashManager {
+    private static final String INSUFFICIENT_PAYMENT = "Insufficient coins provided to cover cost";
+
+    private final FloatStore store;
+    private final int machine;
+
+    StoredCashManager(final FloatStore store, final int machine) {
+        this.store = store;
+        this.machine = machine;
+    }
+
+    /**
+     * @return index of the machine in the store
+     */
+    public int getMachine() {
+        return machine;
+    }
+
+    /**
+     * Copies the denomination counts of the float, including recorded denominations with no coins
+     *
+     * @return Map<Denomination, Count> largest first e.g <200, 10> - 10 £2 coins
+     */
+    @Override
+    public Map<Integer, Integer> getDenominationCounts() {
+        int[] counts = new int[getCurrency().getSlotCount()];
+        int recordedSlots = store.readCounts(machine, counts);
+        DenominationIndex denominationIndex = getCurrency().getDenominationIndex();
+        Map<Integer, Integer> denominationCounts = new LinkedHashMap<>();
+        for (int slot = 0; slot < counts.length; slot++) {
+            if ((recordedSlots & (1 << slot)) != 0 || counts[slot] > 0) {
+                denominationCounts.put(denominationIndex.getDenomination(slot), counts[slot]);
+            }
+        }
+        return denominationCounts;
+    }
+
+    @Override
+    public Currency getCurrency() {
+        return store.getCurrency();
+    }
+
+    /**
+     * @return metrics of the whole store, not just this machine
+     */
+    @Override
+    public MetricsSnapshot getMetrics() {
+        return store.getMetrics().snapshot();
+    }
+
+    /**
+     * @return no forecasts, see @{StoredCashManager}
+     */
+    @Override
+    public List<DepletionForecast> getDepletionForecast() {
+        return List.of();
+    }
+
+    /**
+     * @return no prices, as handles do not keep a price catalogue, see @{StoredCashManager}
+     */
+    @Override
+    public List<Integer> getExactChangeOnlyPrices() {
+        return List.of();
+    }
+
+    @Override
+    public void resetCoins(final Map<Integer, Integer> denominationAmounts) {
+        long started = System.nanoTime();
+        try {
+            int[] counts = toSlotCounts(denominationAmounts);
+            int recordedSlots = 0;
+            for (Integer denomination : denominationAmounts.keySet()) {
+                recordedSlots |= 1 << getCurrency().getSlot(denomination);
+            }
+            store.reset(machine, counts, recordedSlots);
+        } catch (RuntimeException e) {
+            recordFailure(e);
+            throw e;
+        } finally {
+            metrics().recordLatency(Operation.RESET, System.nanoTime() - started);
+        }
+    }
+
+    @Override
+    public void addCoins(final Map<Integer, Integer> denominationAmounts) {
+        long started = System.nanoTime();
+        try {
+            int[] slotCounts = toSlotCounts(denominationAmounts);
+            store.update(machine, counts -> apply(counts, slotCounts, 1));
+        } catch (RuntimeException e) {
+            recordFailure(e);
+            throw e;
+        } finally {
+            metrics().recordLatency(Operation.ADD, System.nanoTime() - started);
+        }
+    }
+
+    @Override
+    public Map<Integer, Integer> processTransaction(final CashTransaction cashTransaction) {
+        long started = System.nanoTime();
+        try {
+            int[] providedSlotCounts = toSlotCounts(cashTransaction.getCoinsProvided());
+            long changeTotal = getCurrency().getDenominationIndex().totalValue(providedSlotCounts) - cashTransaction.getCost();
+            if (changeTotal < 0) {
+                throw new InsufficientPaymentException(INSUFFICIENT_PAYMENT);
+            }
+            int[] change = store.update(machine, counts -> {
+                apply(counts, providedSlotCounts, 1);
+                int[] changeSlotCounts = calculateChange(counts, Math.toIntExact(changeTotal));
+                return apply(counts, changeSlotCounts, -1);
+            });
+            return toDenominationCounts(change);
+        } catch (RuntimeException e) {
+            recordFailure(e);
+            throw e;
+        } finally {
+            metrics().recordLatency(Operation.TRANSACTION, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Solves each transaction in order against the row and writes the row once for the whole batch. Failures are recorded
+     * once the batch is written, as the batch is solved again if another change to the machine commits first.
+     */
+    @Override
+    public List<TransactionResult> processTransactions(final List<CashTransaction> cashTransactions) {
+        if (cashTransactions == null) {
+            throw new IllegalArgumentException("cashTransactions cannot be null");
+        }
+        long started = System.nanoTime();
+        List<RuntimeException> failures = new ArrayList<>();
+        try {
+            List<TransactionResult> batchResults = store.update(machine, counts -> {
+                failures.clear();
+                List<TransactionResult> results = new ArrayList<>(cashTransactions.size());
+                for (CashTransaction cashTransaction : cashTransactions) {
+                    int[] providedSlotCounts = null;
+                    try {
+                        providedSlotCounts = toSlotCounts(cashTransaction.getCoinsProvided());
+                        long changeTotal = getCurrency().getDenominationIndex().totalValue(providedSlotCounts) - cashTransaction.getCost();
+                        if (changeTotal < 0) {
+                            throw new InsufficientPaymentException(INSUFFICIENT_PAYMENT);
+                        }
+                        apply(counts, providedSlotCounts, 1);
+                        int[] change = calculateChange(counts, Math.toIntExact(changeTotal));
+                        apply(counts, change, -1);
+                        results.add(TransactionResult.success(toDenominationCounts(change)));
+                    } catch (IllegalStateException e) {
+                        apply(counts, providedSlotCounts, -1);
+                        failures.add(e);
+                        results.add(TransactionResult.failure(e.getMessage()));
+                    } catch (RuntimeException e) {
+                        failures.add(e);
+                        results.add(TransactionResult.failure(e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage()));
+                    }
+                }
+                return results;
+            });
+            failures.forEach(this::recordFailure);
+            return batchResults;
+        } finally {
+            metrics().recordLatency(Operation.BATCH, System.nanoTime() - started);
+        }
+    }
+
+    @Override
+    public Map<Integer, Integer> removeCoins(final Integer valueTotal) {
+        long started = System.nanoTime();
+        try {
+            if (valueTotal == null || lessThanZero(valueTotal)) {
+                throw new IllegalArgumentException("Total to remove cannot be below 0");
+            }
+            if (valueTotal == 0) {
+                return Map.of();
+            }
+            int[] change = store.update(machine, counts -> apply(counts, calculateChange(counts, valueTotal), -1));
+            return toDenominationCounts(change);
+        } catch (RuntimeException e) {
+            recordFailure(e);
+            throw e;
+        } finally {
+            metrics().recordLatency(Operation.REMOVE_VALUE, System.nanoTime() - started);
+        }
+    }
+
+    @Override
+    public void removeCoins(final Map<Integer, Integer> denominationCountsToRemove) {
+        long started = System.nanoTime();
+        try {
+            if (denominationCountsToRemove == null) {
+                throw new IllegalArgumentException("denominationsToRemove cannot be null");
+            }
+            if (denominationCountsToRemove.isEmpty()) {
+                return;
+            }
+            int[] slotCounts = toSlotCounts(denominationCountsToRemove);
+            store.update(machine, counts -> apply(counts, slotCounts, -1));
+        } catch (RuntimeException e) {
+            recordFailure(e);
+            throw e;
+        } finally {
+            metrics().recordLatency(Operation.REMOVE_COINS, System.nanoTime() - started);
+        }
+    }
+
+    private int[] calculateChange(final int[] counts, final int valueTotal) {
+        if (valueTotal == 0) {
+            return new int[getCurrency().getSlotCount()];
+        }
+        return store.getChangeCalculator().calculateChange(counts.clone(), valueTotal);
+    }
+
+    /**
+     * Adds the slot counts to the working counts, or subtracts them when sign is -1
+     *
+     * @return the slot counts
+     */
+    private static int[] apply(final int[] counts, final int[] slotCounts, final int sign) {
+        for (int slot = 0; slot < slotCounts.length; slot++) {
+            counts[slot] += sign * slotCounts[slot];
+        }
+        return slotCounts;
+    }
+
+    private int[] toSlotCounts(final Map<Integer, Integer> denominationCounts) {
+        return ProcessDenominationCounts.toSlotCounts(getCurrency(), denominationCounts);
+    }
+
+    private Map<Integer, Integer> toDenominationCounts(final int[] slotCounts) {
+        return ProcessDenominationCounts.toDenominationCounts(getCurrency(), slotCounts);
+    }
+
+    private CashManagerMetrics metrics() {
+        return store.getMetrics();
+    }
+
+    private void recordFailure(final RuntimeException e) {
+        metrics().recordFailure(FailureReason.of(e));
+    }
+}
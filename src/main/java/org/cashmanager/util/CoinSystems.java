@@ -0,0 +1,68 @@
+package org.cashmanager.util;
+
+/**
+ * Static helpers for reasoning about a set of coin denominations independent of how many coins are available
+ */
+public class CoinSystems {
+
+    /**
+     * Number of coins the top down (greedy) approach uses to make the value when every coin is available
+     *
+     * @param descendingDenominations - denominations in descending order e.g. {200, 100, 50, 20, 10, 5, 2, 1}
+     * @param value                   - value to make e.g. 75
+     * @return coin count, or -1 if the value cannot be made
+     */
+    public static int greedyCoinCount(final int[] descendingDenominations, final int value) {
+        int coinCount = 0;
+        int remainingAmount = value;
+        for (int denomination : descendingDenominations) {
+            coinCount += remainingAmount / denomination;
+            remainingAmount %= denomination;
+        }
+        return remainingAmount == 0 ? coinCount : -1;
+    }
+
+    /**
+     * Upper bound for the smallest counterexample to the greedy approach, from Kozen and Zaks.
+     * If the coin system is not canonical the smallest counterexample x satisfies c3 + 1 < x < c(n-1) + c(n)
+     * where c(n) is the largest denomination.
+     *
+     * @param descendingDenominations - denominations in descending order e.g. {200, 100, 50, 20, 10, 5, 2, 1}
+     * @return exclusive bound to search for a counterexample
+     */
+    public static int counterexampleBound(final int[] descendingDenominations) {
+        if (descendingDenominations.length < 2) {
+            return descendingDenominations.length == 0 ? 0 : descendingDenominations[0];
+        }
+        return descendingDenominations[0] + descendingDenominations[1];
+    }
+
+    /**
+     * Finds the smallest value where the top down approach uses more coins than the optimal solution when every coin is available.
+     * A coin system without a counterexample is canonical, meaning greedy is always optimal given unlimited supply.
+     * Every value below the Kozen and Zaks bound is checked against an unbounded coin dynamic programming solve,
+     * O(n * b) where n = denominations and b = the bound.
+     *
+     * @param descendingDenominations - denominations in descending order e.g. {200, 100, 50, 20, 10, 5, 2, 1}
+     * @return the smallest counterexample, or -1 if the coin system is canonical
+     */
+    public static int findSmallestCounterexample(final int[] descendingDenominations) {
+        int bound = counterexampleBound(descendingDenominations);
+        int[] minCoins = new int[bound];
+
+        for (int value = 1; value < bound; value++) {
+            minCoins[value] = Integer.MAX_VALUE;
+            for (int denomination : descendingDenominations) {
+                if (denomination <= value && minCoins[value - denomination] != Integer.MAX_VALUE) {
+                    minCoins[value] = Math.min(minCoins[value], minCoins[value - denomination] + 1);
+                }
+            }
+
+            int greedyCoinCount = greedyCoinCount(descendingDenominations, value);
+            if (minCoins[value] != Integer.MAX_VALUE && greedyCoinCount != minCoins[value]) {
+                return value;
+            }
+        }
+        return -1;
+    }
+}
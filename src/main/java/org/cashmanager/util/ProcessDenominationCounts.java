@@ -1,10 +1,16 @@
 package org.cashmanager.util;
 
+import org.cashmanager.contract.Currency;
+import org.cashmanager.contract.DenominationIndex;
+
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static org.cashmanager.util.Validators.validateDenominationCounts;
+import static org.cashmanager.util.Validators.validateDenominationCurrency;
+
 public class ProcessDenominationCounts {
 
     /**
@@ -32,4 +38,42 @@ public class ProcessDenominationCounts {
                 .flatMap(map -> map.entrySet().stream())
                 .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, Integer::sum)));
     }
+
+    /**
+     * Validates denomination counts against the currency and converts them to slot counts
+     *
+     * @param currency           - currency the counts are for
+     * @param denominationCounts - map of coin denomination counts e.g. {200: 1, 1: 3}
+     * @return count for each denomination slot of the currency e.g. {1, 0, 0, 0, 0, 0, 0, 3}
+     */
+    public static int[] toSlotCounts(final Currency currency, final Map<Integer, Integer> denominationCounts) {
+        if (denominationCounts == null) {
+            throw new IllegalArgumentException("Provided a null value for denominationCounts");
+        }
+        validateDenominationCounts(denominationCounts);
+        validateDenominationCurrency(currency, denominationCounts);
+
+        DenominationIndex denominationIndex = currency.getDenominationIndex();
+        int[] slotCounts = new int[denominationIndex.getSlotCount()];
+        denominationCounts.forEach((denomination, count) -> slotCounts[denominationIndex.getSlot(denomination)] = count);
+        return slotCounts;
+    }
+
+    /**
+     * Converts slot counts to denomination counts, leaving out denominations with no coins
+     *
+     * @param currency   - currency the counts are for
+     * @param slotCounts - count for each denomination slot of the currency e.g. {1, 0, 0, 0, 0, 0, 0, 3}
+     * @return map of coin denomination counts e.g. {200: 1, 1: 3}
+     */
+    public static TreeMap<Integer, Integer> toDenominationCounts(final Currency currency, final int[] slotCounts) {
+        DenominationIndex denominationIndex = currency.getDenominationIndex();
+        TreeMap<Integer, Integer> denominationCounts = new TreeMap<>();
+        for (int slot = 0; slot < slotCounts.length; slot++) {
+            if (slotCounts[slot] > 0) {
+                denominationCounts.put(denominationIndex.getDenomination(slot), slotCounts[slot]);
+            }
+        }
+        return denominationCounts;
+    }
 }
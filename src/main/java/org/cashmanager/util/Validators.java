@@ -1,6 +1,7 @@
 package org.cashmanager.util;
 
 import org.cashmanager.contract.Currency;
+import org.cashmanager.contract.DenominationIndex;
 
 import java.util.Map;
 
@@ -9,20 +10,25 @@ import java.util.Map;
  * Should provided text representations of validation rather than requiring complex or easily mistyped operations
  */
 public class Validators {
-    public static boolean zeroOrLess(final Integer integer) {
+    public static boolean zeroOrLess(final int integer) {
         return integer <= 0;
     }
 
-    public static boolean lessThanZero(final Integer integer) {
+    public static boolean lessThanZero(final int integer) {
         return integer < 0;
     }
 
     public static void validateDenominationCurrency(final Currency currency, final Map<Integer, Integer> denominationCounts) {
-        denominationCounts.keySet().forEach((denomination) -> validateDenominationCurrency(currency, denomination));
+        DenominationIndex denominationIndex = currency.getDenominationIndex();
+        for (Integer denomination : denominationCounts.keySet()) {
+            if (!denominationIndex.contains(denomination)) {
+                throw new IllegalArgumentException(String.format("Denomination included which does not match provided currency: %s", denomination));
+            }
+        }
     }
 
     public static void validateDenominationCurrency(final Currency currency, final Integer denomination) {
-        if (!currency.getDenominations().contains(denomination)) {
+        if (!currency.getDenominationIndex().contains(denomination)) {
             throw new IllegalArgumentException(String.format("Denomination included which does not match provided currency: %s", denomination));
         }
     }
@@ -0,0 +1,70 @@
+package org.cashmanager.cli;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashManagerImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchRunnerTest {
+    private CashManagerImpl cashManager;
+    private BatchRunner batchRunner;
+
+    @BeforeEach
+    void setup() {
+        cashManager = new CashManagerImpl(Currency.GBP, Map.of(50, 2, 20, 3));
+        batchRunner = new BatchRunner(cashManager);
+    }
+
+    @Test
+    void run_should_write_one_response_per_command_and_summary_when_called() throws IOException {
+        String commands = """
+                # morning float top up
+                add 10 5
+
+                transaction 30 100:1
+                remove 15
+                status
+                """;
+        StringWriter output = new StringWriter();
+
+        BatchRunner.BatchSummary summary = batchRunner.run(new BufferedReader(new StringReader(commands)), output);
+
+        String[] lines = output.toString().split("\n");
+        assertEquals(5, lines.length);
+        assertEquals("OK", lines[0]);
+        assertEquals("OK 50:1,20:1", lines[1]);
+        assertTrue(lines[2].startsWith("ERR "));
+        assertEquals("OK 100:1,50:1,20:2,10:5", lines[3]);
+        assertTrue(lines[4].startsWith("# 4 commands, 1 failed"));
+        assertEquals(4, summary.commands());
+        assertEquals(1, summary.failures());
+    }
+
+    @Test
+    void run_should_stop_at_exit_when_present() throws IOException {
+        StringWriter output = new StringWriter();
+
+        BatchRunner.BatchSummary summary = batchRunner.run(new BufferedReader(new StringReader("add 5\nexit\nadd 5\n")), output);
+
+        assertEquals(1, summary.commands());
+        assertEquals(1, cashManager.getDenominationCounts().get(5));
+    }
+
+    @Test
+    void run_should_only_write_summary_when_no_commands() throws IOException {
+        StringWriter output = new StringWriter();
+
+        BatchRunner.BatchSummary summary = batchRunner.run(new BufferedReader(new StringReader("")), output);
+
+        assertEquals(0, summary.commands());
+        assertTrue(output.toString().startsWith("# 0 commands, 0 failed"));
+    }
+}
@@ -3,6 +3,8 @@ package org.cashmanager.cli;
 import org.cashmanager.CashManager;
 import org.cashmanager.contract.CashTransaction;
 import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashManagerImpl;
+import org.cashmanager.metrics.Operation;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -155,6 +157,17 @@ public class CLIRunnerTest {
         verify(cashManager,times(2)).processTransaction(any(CashTransaction.class));
     }
 
+    @Test
+    void processTransaction_should_take_coins_into_session_when_session_factory_provided() {
+        CashManagerImpl cashManagerImpl = new CashManagerImpl(Currency.GBP, Map.of(20, 2));
+        CLIRunner sessionRunner = new CLIRunner(new Scanner("80\n50\n50\n"), cashManagerImpl, Currency.GBP, cashManagerImpl::startTransaction);
+
+        sessionRunner.processTransaction(new String[]{"transaction"});
+
+        assertEquals(Map.of(50, 2, 20, 1), cashManagerImpl.getDenominationCounts());
+        assertEquals(1, cashManagerImpl.getMetrics().getLatency(Operation.TRANSACTION).getCount());
+    }
+
     @Test
     void processRemove_should_remove_value_when_called_with_only_integer_value() {
         String[] splitCommand = Arrays.asList("remove", "75").toArray(new String[2]);
@@ -43,4 +43,23 @@ public class CLIUtilTest {
         assertThrows(IllegalArgumentException.class, ()->CLIUtil.processRawDenominations("200:1,100:250:3,20:4,10:5,5:6,2:7,1:8", Currency.GBP));
         assertThrows(IllegalArgumentException.class, ()->CLIUtil.processRawDenominations("200:1,100:2,50,20:4,10:5,5:6,2:7,1:8", Currency.GBP));
     }
+
+    @Test
+    void parsePriceCatalogue_should_default_largest_change_to_below_largest_coin_when_not_given() {
+        assertEquals(Map.of(80, 199, 120, 199, 150, 40), CLIUtil.parsePriceCatalogue("80, 120,150:40", Currency.GBP));
+        assertThrows(IllegalArgumentException.class, () -> CLIUtil.parsePriceCatalogue("80:40:1", Currency.GBP));
+        assertThrows(IllegalArgumentException.class, () -> CLIUtil.parsePriceCatalogue("0", Currency.GBP));
+        assertThrows(IllegalArgumentException.class, () -> CLIUtil.parsePriceCatalogue("80,abc", Currency.GBP));
+    }
+
+    @Test
+    void formatDenominationCounts_should_format_largest_denomination_first_so_it_can_be_parsed_again() {
+        Map<Integer, Integer> denominationCounts = Map.of(20, 4, 200, 1, 1, 0);
+
+        String formatted = CLIUtil.formatDenominationCounts(denominationCounts);
+
+        assertEquals("200:1,20:4,1:0", formatted);
+        assertEquals(denominationCounts, CLIUtil.processRawDenominations(formatted, Currency.GBP));
+        assertEquals("", CLIUtil.formatDenominationCounts(Map.of()));
+    }
 }
@@ -0,0 +1,87 @@
+package org.cashmanager.cli;
+
+import org.cashmanager.contract.Currency;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DenominationCountsParserTest {
+    private final Currency currency = Currency.GBP;
+
+    @Test
+    void parse_should_write_count_to_each_slot_and_return_provided_slots() {
+        int[] slotCounts = new int[currency.getSlotCount()];
+
+        int providedSlots = DenominationCountsParser.parse("200:1,50:0,1:12", currency, slotCounts);
+
+        assertArrayEquals(new int[]{1, 0, 0, 0, 0, 0, 0, 12}, slotCounts);
+        assertEquals(1 | 1 << 2 | 1 << 7, providedSlots);
+    }
+
+    @Test
+    void parse_should_keep_last_count_when_denomination_repeated() {
+        int[] slotCounts = new int[currency.getSlotCount()];
+
+        DenominationCountsParser.parse("20:4,20:7", currency, slotCounts);
+
+        assertEquals(7, slotCounts[currency.getSlot(20)]);
+    }
+
+    @Test
+    void parse_should_only_read_between_start_and_end() {
+        int[] slotCounts = new int[currency.getSlotCount()];
+
+        int providedSlots = DenominationCountsParser.parse("transaction 80 100:1,5:2 ignored", 15, 24, currency, slotCounts);
+
+        assertEquals(1, slotCounts[currency.getSlot(100)]);
+        assertEquals(2, slotCounts[currency.getSlot(5)]);
+        assertEquals(1 << 1 | 1 << 5, providedSlots);
+    }
+
+    @Test
+    void parse_should_accept_signed_counts_and_trailing_commas() {
+        int[] slotCounts = new int[currency.getSlotCount()];
+
+        DenominationCountsParser.parse("10:-3,5:+2,,", currency, slotCounts);
+
+        assertEquals(-3, slotCounts[currency.getSlot(10)]);
+        assertEquals(2, slotCounts[currency.getSlot(5)]);
+        assertEquals(0, DenominationCountsParser.parse("", currency, slotCounts));
+    }
+
+    @Test
+    void parse_should_report_offset_when_input_malformed() {
+        int[] slotCounts = new int[currency.getSlotCount()];
+
+        assertEquals(10, assertThrows(DenominationParseException.class,
+                () -> DenominationCountsParser.parse("200:1,100:two", currency, slotCounts)).getOffset());
+        assertEquals(9, assertThrows(DenominationParseException.class,
+                () -> DenominationCountsParser.parse("200:1,100", currency, slotCounts)).getOffset());
+        assertEquals(6, assertThrows(DenominationParseException.class,
+                () -> DenominationCountsParser.parse("200:1,,50:1", currency, slotCounts)).getOffset());
+        assertEquals(5, assertThrows(DenominationParseException.class,
+                () -> DenominationCountsParser.parse("200:1:", currency, slotCounts)).getOffset());
+        assertEquals(0, assertThrows(DenominationParseException.class,
+                () -> DenominationCountsParser.parse(" 200:1", currency, slotCounts)).getOffset());
+    }
+
+    @Test
+    void parse_should_throw_when_denomination_not_in_currency_or_numbers_overflow() {
+        int[] slotCounts = new int[currency.getSlotCount()];
+
+        DenominationParseException unrecognised = assertThrows(DenominationParseException.class,
+                () -> DenominationCountsParser.parse("200:1,30:4", currency, slotCounts));
+        assertEquals(6, unrecognised.getOffset());
+        assertTrue(unrecognised.getMessage().startsWith("An unrecognized denomination was provided. Currency:GBP, Denomination:30"));
+
+        assertThrows(DenominationParseException.class, () -> DenominationCountsParser.parse("99999999999:1", currency, slotCounts));
+        assertThrows(DenominationParseException.class, () -> DenominationCountsParser.parse("200:2147483648", currency, slotCounts));
+        DenominationCountsParser.parse("200:-2147483648", currency, slotCounts);
+        assertEquals(Integer.MIN_VALUE, slotCounts[0]);
+    }
+
+    @Test
+    void parse_should_throw_iae_when_slot_buffer_too_small() {
+        assertThrows(IllegalArgumentException.class, () -> DenominationCountsParser.parse("200:1", currency, new int[2]));
+    }
+}
@@ -4,8 +4,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.List;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class CurrencyTest {
 
@@ -44,4 +43,25 @@ public class CurrencyTest {
         assertThrows(IllegalArgumentException.class, ()->Currency.getCurrency("USD"));
         assertThrows(IllegalArgumentException.class, ()->Currency.getCurrency("EUR"));
     }
+
+    @Test
+    void getSlot_should_return_position_of_denomination_when_in_currency(){
+        assertEquals(8, Currency.GBP.getSlotCount());
+        assertEquals(0, Currency.GBP.getSlot(200));
+        assertEquals(7, Currency.GBP.getSlot(1));
+        assertEquals(-1, Currency.GBP.getSlot(3));
+        assertEquals(20, Currency.GBP.getDenomination(Currency.GBP.getSlot(20)));
+    }
+
+    @Test
+    void isCanonical_should_return_true_when_currency_is_gbp(){
+        assertTrue(Currency.GBP.isCanonical());
+        assertEquals(300, Currency.GBP.getCounterexampleBound());
+    }
+
+    @Test
+    void getUnlimitedMinimumCoinCount_should_return_greedy_coin_count_when_canonical(){
+        assertEquals(3, Currency.GBP.getUnlimitedMinimumCoinCount(75));
+        assertEquals(2, Currency.GBP.getUnlimitedMinimumCoinCount(30));
+    }
 }
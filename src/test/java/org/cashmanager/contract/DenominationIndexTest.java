@@ -0,0 +1,56 @@
+package org.cashmanager.contract;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DenominationIndexTest {
+    private final DenominationIndex gbpIndex = DenominationIndex.compile(List.of(200, 100, 50, 20, 10, 5, 2, 1));
+
+    @Test
+    void getSlot_should_find_slot_for_every_denomination_and_minus_one_otherwise() {
+        for (int slot = 0; slot < gbpIndex.getSlotCount(); slot++) {
+            assertEquals(slot, gbpIndex.getSlot(gbpIndex.getDenomination(slot)));
+        }
+        assertEquals(-1, gbpIndex.getSlot(3));
+        assertEquals(-1, gbpIndex.getSlot(0));
+        assertEquals(-1, gbpIndex.getSlot(-200));
+        assertEquals(-1, gbpIndex.getSlot(201));
+        assertEquals(-1, gbpIndex.getSlot(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void contains_should_return_false_when_denomination_null_or_unknown() {
+        assertTrue(gbpIndex.contains(50));
+        assertFalse(gbpIndex.contains(25));
+        assertFalse(gbpIndex.contains(null));
+    }
+
+    @Test
+    void totalValue_should_sum_coins_when_given_slot_counts_or_denomination_counts() {
+        assertEquals(203, gbpIndex.totalValue(new int[]{1, 0, 0, 0, 0, 0, 0, 3}));
+        assertEquals(203, gbpIndex.totalValue(Map.of(200, 1, 1, 3)));
+        assertEquals(4, gbpIndex.coinCount(new int[]{1, 0, 0, 0, 0, 0, 0, 3}));
+        assertEquals(200L * Integer.MAX_VALUE, gbpIndex.totalValue(new int[]{Integer.MAX_VALUE, 0, 0, 0, 0, 0, 0, 0}));
+    }
+
+    @Test
+    void compile_should_throw_iae_when_denominations_not_distinct_descending_and_positive() {
+        assertThrows(IllegalArgumentException.class, () -> DenominationIndex.compile(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> DenominationIndex.compile(List.of(1, 2)));
+        assertThrows(IllegalArgumentException.class, () -> DenominationIndex.compile(List.of(2, 2)));
+        assertThrows(IllegalArgumentException.class, () -> DenominationIndex.compile(List.of(2, 0)));
+    }
+
+    @Test
+    void getDenominationIndex_should_agree_with_currency_denominations() {
+        DenominationIndex index = Currency.GBP.getDenominationIndex();
+        assertEquals(Currency.GBP.getDenominations().size(), index.getSlotCount());
+        for (int slot = 0; slot < index.getSlotCount(); slot++) {
+            assertEquals(Currency.GBP.getDenominations().get(slot), index.getDenomination(slot));
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package org.cashmanager.core;
 
 import org.cashmanager.contract.Currency;
+import org.cashmanager.core.calculator.ChangeTable;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.spy;
@@ -88,6 +94,20 @@ public class CashFloatTest {
         assertEquals(count2, cashFloatContents.get(denomination2));
     }
 
+    @Test
+    void getDenominationCounts_should_return_read_only_copy_unchanged_by_later_changes_when_called() {
+        CashFloat cashFloat = new CashFloat(currency, denominationCounts);
+        Map<Integer, Integer> floatContents = cashFloat.getDenominationCounts();
+
+        cashFloat.addCoins(Map.of(denomination, 1, newDenomination2, newCount2));
+
+        assertEquals(count, floatContents.get(denomination));
+        assertFalse(floatContents.containsKey(newDenomination2));
+        assertEquals(2, floatContents.size());
+        assertThrows(UnsupportedOperationException.class, () -> floatContents.put(newDenomination, newCount));
+        assertEquals(count + 1, cashFloat.getDenominationCounts().get(denomination));
+    }
+
     @Test
     void constructor_should_store_new_modifiable_map_of_denomination_counts_when_called() {
         CashFloat cashFloat = new CashFloat(currency, denominationCounts);
@@ -191,9 +211,10 @@ public class CashFloatTest {
 
         Map<Integer, Integer> coinsToRemove = Map.of(denomination, 7, denomination2, 0);
         cashFloat.removeCoins(coinsToRemove);
-        assertEquals(2, existingCounts.size());
-        assertEquals(count - 7, existingCounts.get(denomination));
-        assertEquals(count2, existingCounts.get(denomination2));
+        Map<Integer, Integer> newCounts = cashFloat.getDenominationCounts();
+        assertEquals(2, newCounts.size());
+        assertEquals(count - 7, newCounts.get(denomination));
+        assertEquals(count2, newCounts.get(denomination2));
     }
 
     @Test
@@ -230,4 +251,187 @@ public class CashFloatTest {
         assertEquals(count, floatContents.get(denomination));
         assertEquals(count2, floatContents.get(denomination2));
     }
+
+    @Test
+    void getCount_should_return_count_for_denomination_slot_when_called() {
+        assertEquals(count, cashFloat.getCount(currency.getSlot(denomination)));
+        assertEquals(0, cashFloat.getCount(currency.getSlot(newDenomination)));
+    }
+
+    @Test
+    void addSlotCounts_should_add_count_for_each_slot_when_called() {
+        int[] slotCounts = new int[currency.getSlotCount()];
+        slotCounts[currency.getSlot(denomination)] = 2;
+        slotCounts[currency.getSlot(newDenomination)] = newCount;
+
+        cashFloat.addSlotCounts(slotCounts);
+
+        Map<Integer, Integer> floatContents = cashFloat.getDenominationCounts();
+        assertEquals(3, floatContents.size());
+        assertEquals(count + 2, floatContents.get(denomination));
+        assertEquals(newCount, floatContents.get(newDenomination));
+    }
+
+    @Test
+    void addSlotCounts_should_throw_iae_when_wrong_length_or_count_less_than_zero() {
+        assertThrows(IllegalArgumentException.class, () -> cashFloat.addSlotCounts(new int[2]));
+
+        int[] slotCounts = new int[currency.getSlotCount()];
+        slotCounts[0] = -1;
+        assertThrows(IllegalArgumentException.class, () -> cashFloat.addSlotCounts(slotCounts));
+    }
+
+    @Test
+    void removeSlotCounts_should_not_remove_any_coins_when_one_denomination_short() {
+        int[] slotCounts = new int[currency.getSlotCount()];
+        slotCounts[currency.getSlot(denomination)] = 3;
+        slotCounts[currency.getSlot(denomination2)] = 1;
+
+        assertThrows(IllegalArgumentException.class, () -> cashFloat.removeSlotCounts(slotCounts));
+
+        assertEquals(count, cashFloat.getDenominationCounts().get(denomination));
+        assertEquals(count2, cashFloat.getDenominationCounts().get(denomination2));
+    }
+
+    @Test
+    void copyCounts_should_return_copy_of_counts_when_called() {
+        int[] copy = cashFloat.copyCounts();
+        copy[currency.getSlot(denomination)] = 0;
+
+        assertEquals(count, cashFloat.getCount(currency.getSlot(denomination)));
+    }
+
+    @Test
+    void getDenominationCounts_should_be_read_only_when_called() {
+        assertThrows(UnsupportedOperationException.class, () -> cashFloat.getDenominationCounts().put(denomination, 1));
+    }
+
+    @Test
+    void resetCoins_should_replace_contents_when_called() {
+        cashFloat.resetCoins(Map.of(newDenomination, newCount));
+
+        Map<Integer, Integer> floatContents = cashFloat.getDenominationCounts();
+        assertEquals(1, floatContents.size());
+        assertEquals(newCount, floatContents.get(newDenomination));
+        assertFalse(floatContents.containsKey(denomination));
+    }
+
+    @Test
+    void getState_should_increment_version_when_float_changes() {
+        FloatState before = cashFloat.getState();
+
+        cashFloat.addCoins(Map.of(denomination, 1));
+
+        FloatState after = cashFloat.getState();
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertEquals(count, before.getCount(currency.getSlot(denomination)), "Snapshot should not change");
+        assertEquals(count + 1, after.getCount(currency.getSlot(denomination)));
+    }
+
+    @Test
+    void processTransaction_should_add_provided_and_remove_change_when_called() {
+        int[] provided = new int[currency.getSlotCount()];
+        provided[currency.getSlot(newDenomination2)] = 1;
+
+        int[] change = cashFloat.processTransaction(FloatMutation.TRANSACTION, provided, counts -> {
+            assertEquals(1, counts[currency.getSlot(newDenomination2)], "Provided coins should be available for change");
+            int[] calculated = new int[counts.length];
+            calculated[currency.getSlot(denomination)] = 1;
+            return calculated;
+        });
+
+        assertEquals(1, change[currency.getSlot(denomination)]);
+        assertEquals(count - 1, cashFloat.getDenominationCounts().get(denomination));
+        assertEquals(1, cashFloat.getDenominationCounts().get(newDenomination2));
+    }
+
+    @Test
+    void processTransaction_should_not_change_float_when_change_calculation_throws() {
+        int[] provided = new int[currency.getSlotCount()];
+        provided[currency.getSlot(newDenomination2)] = 1;
+
+        assertThrows(IllegalStateException.class, () -> cashFloat.processTransaction(FloatMutation.TRANSACTION, provided, counts -> {
+            throw new IllegalStateException();
+        }));
+
+        assertFalse(cashFloat.getDenominationCounts().containsKey(newDenomination2));
+        assertEquals(count, cashFloat.getDenominationCounts().get(denomination));
+    }
+
+    @Test
+    void addSlotCounts_and_removeSlotCounts_should_not_lose_updates_when_called_concurrently() throws InterruptedException {
+        int[] oneCoin = new int[currency.getSlotCount()];
+        oneCoin[currency.getSlot(denomination)] = 1;
+        int iterations = 10_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 2; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < iterations; i++) {
+                    cashFloat.addSlotCounts(oneCoin);
+                }
+            });
+            executor.execute(() -> {
+                for (int i = 0; i < iterations; i++) {
+                    cashFloat.processTransaction(FloatMutation.TRANSACTION, oneCoin, counts -> oneCoin);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(count + 2 * iterations, cashFloat.getDenominationCounts().get(denomination));
+        assertEquals(4L * iterations, cashFloat.getState().getVersion());
+    }
+
+    @Test
+    void addCoins_should_tell_later_listeners_and_count_failure_when_listener_throws() {
+        List<Long> versions = new ArrayList<>();
+        cashFloat.addListener((mutation, previous, next) -> {
+            throw new IllegalStateException("Journal is closed");
+        });
+        cashFloat.addListener((mutation, previous, next) -> versions.add(next.getVersion()));
+
+        cashFloat.addCoins(Map.of(denomination, 1));
+        cashFloat.removeCoins(Map.of(denomination, 1));
+
+        assertEquals(List.of(1L, 2L), versions);
+        assertEquals(count, cashFloat.getDenominationCounts().get(denomination));
+        assertEquals(2, cashFloat.getListenerFailureCount());
+        assertEquals("Journal is closed", cashFloat.getLastListenerFailure().orElseThrow().getMessage());
+    }
+
+    @Test
+    void addCoins_should_throw_after_telling_every_listener_when_listener_propagating_failure_throws() {
+        List<Long> versions = new ArrayList<>();
+        cashFloat.addListener(new FloatListener() {
+            @Override
+            public void onChange(final FloatMutation mutation, final FloatState previous, final FloatState next) {
+                throw new IllegalStateException("Journal is closed");
+            }
+
+            @Override
+            public boolean propagatesFailure() {
+                return true;
+            }
+        });
+        cashFloat.addListener((mutation, previous, next) -> versions.add(next.getVersion()));
+
+        assertThrows(IllegalStateException.class, () -> cashFloat.addCoins(Map.of(denomination, 1)));
+
+        assertEquals(List.of(1L), versions);
+        assertEquals(count + 1, cashFloat.getDenominationCounts().get(denomination));
+        assertEquals(1, cashFloat.getListenerFailureCount());
+    }
+
+    @Test
+    void getChangeTable_should_build_table_on_first_use_and_reuse_it_while_counts_unchanged() {
+        int[] counts = cashFloat.copyCounts();
+
+        ChangeTable changeTable = cashFloat.getChangeTable(counts);
+
+        assertSame(changeTable, cashFloat.getChangeTable(counts));
+        assertArrayEquals(new int[]{0, 1, 0, 0, 0, 0, 0, 0}, changeTable.lookup(100));
+        assertNull(changeTable.lookup(150));
+    }
 }
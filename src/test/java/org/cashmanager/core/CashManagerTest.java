@@ -3,12 +3,21 @@ package org.cashmanager.core;
 import org.cashmanager.CashManager;
 import org.cashmanager.contract.CashTransaction;
 import org.cashmanager.contract.Currency;
+import org.cashmanager.contract.TransactionResult;
+import org.cashmanager.core.calculator.ChangeCalculator;
+import org.cashmanager.core.strategy.ChangeStrategy;
+import org.cashmanager.core.strategy.GreedyChangeStrategy;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.spy;
@@ -37,7 +46,7 @@ public class CashManagerTest {
     }
 
     @Test
-    void constructor_should_set_currency_and_float_when_called() {
+    void constructor_should_set_currency_and_denominationCountswhen_called() {
         assertEquals(currency, cashManager.getCurrency());
         Map<Integer, Integer> floatContents = cashManager.getDenominationCounts();
         assertEquals(2, floatContents.size());
@@ -55,7 +64,7 @@ public class CashManagerTest {
     }
 
     @Test
-    void getDenominationCounts_should_get_float_denomination_counts_when_called() {
+    void getDenominationCounts_should_get_denominationCountsdenomination_counts_when_called() {
         Map<Integer, Integer> floatContents = cashManager.getDenominationCounts();
         assertEquals(2, floatContents.size());
         assertEquals(count, floatContents.get(denomination));
@@ -111,7 +120,7 @@ public class CashManagerTest {
     }
 
     @Test
-    void processTransaction_should_calculate_total_coin_value_and_add_coins_to_float_and_return_change() {
+    void processTransaction_should_calculate_total_coin_value_and_add_coins_to_denominationCountsand_return_change() {
         Map<Integer, Integer> existingFloatContents = cashManager.getDenominationCounts();
         assertEquals(2, existingFloatContents.size());
         assertEquals(count, existingFloatContents.get(denomination));
@@ -164,7 +173,7 @@ public class CashManagerTest {
     }
 
     @Test
-    void removeCoins_valueTotal_should_throw_ise_if_not_enough_change_in_float_to_give() {
+    void removeCoins_valueTotal_should_throw_ise_if_not_enough_change_in_denominationCountsto_give() {
         cashManager.addCoins(Map.of(5, 1));
         assertThrows(IllegalStateException.class, () -> cashManager.removeCoins(22));
 
@@ -274,4 +283,133 @@ public class CashManagerTest {
         assertEquals(6, cashManager.getDenominationCounts().get(5), "Failed to subtract 5s");
     }
 
+
+    @Test
+    void processTransaction_should_keep_denominationCountsvalue_consistent_when_called_concurrently() throws InterruptedException {
+        cashManager.resetCoins(Map.of(50, 10_000, 20, 10_000, 5, 10_000));
+        int transactions = 2_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < transactions; i++) {
+                    Map<Integer, Integer> change = cashManager.processTransaction(new CashTransaction(125, Map.of(200, 1)));
+                    assertEquals(75, change.entrySet().stream().mapToInt(entry -> entry.getKey() * entry.getValue()).sum());
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        Map<Integer, Integer> floatContents = cashManager.getDenominationCounts();
+        int floatValue = floatContents.entrySet().stream().mapToInt(entry -> entry.getKey() * entry.getValue()).sum();
+        assertEquals(75 * 10_000 + 4 * transactions * 125, floatValue);
+        assertEquals(4 * transactions, floatContents.get(200));
+    }
+
+    @Test
+    void processTransactions_should_process_each_transaction_in_order_and_apply_net_change_when_called() {
+        List<TransactionResult> results = cashManager.processTransactions(List.of(
+                new CashTransaction(30, Map.of(20, 2)),
+                new CashTransaction(25, Map.of(5, 1, 20, 1))));
+
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isSuccessful());
+        assertEquals(Map.of(10, 1), results.get(0).getChange());
+        assertTrue(results.get(1).isSuccessful());
+        assertTrue(results.get(1).getChange().isEmpty());
+
+        assertEquals(count - 1, cashManager.getDenominationCounts().get(denomination));
+        assertEquals(3, cashManager.getDenominationCounts().get(denomination2));
+        assertEquals(1, cashManager.getDenominationCounts().get(newDenomination));
+    }
+
+    @Test
+    void processTransactions_should_reject_failed_transaction_and_continue_with_later_transactions() {
+        cashManager.resetCoins(Map.of(10, 1));
+
+        List<TransactionResult> results = cashManager.processTransactions(List.of(
+                new CashTransaction(30, Map.of(20, 1)),
+                new CashTransaction(30, Map.of(20, 2)),
+                new CashTransaction(15, Map.of(20, 1)),
+                new CashTransaction(15, Map.of(10, 1, 5, 1)),
+                new CashTransaction(15, Map.of(20, 1))));
+
+        assertFalse(results.get(0).isSuccessful(), "Insufficient coins provided");
+        assertNotNull(results.get(0).getFailureReason());
+        assertTrue(results.get(1).isSuccessful());
+        assertEquals(Map.of(10, 1), results.get(1).getChange());
+        assertFalse(results.get(2).isSuccessful(), "No 5p coins to make change");
+        assertTrue(results.get(3).isSuccessful());
+        assertTrue(results.get(4).isSuccessful(), "Should use 5p coin provided by the earlier transaction");
+        assertEquals(Map.of(5, 1), results.get(4).getChange());
+
+        Map<Integer, Integer> floatContents = cashManager.getDenominationCounts();
+        assertEquals(3, floatContents.get(20));
+        assertEquals(1, floatContents.get(10));
+        assertEquals(0, floatContents.getOrDefault(5, 0));
+    }
+
+    @Test
+    void processTransactions_should_reject_transaction_with_unrecognised_denomination() {
+        List<TransactionResult> results = cashManager.processTransactions(List.of(new CashTransaction(30, Map.of(7, 10))));
+
+        assertFalse(results.get(0).isSuccessful());
+        assertEquals(count, cashManager.getDenominationCounts().get(denomination));
+    }
+
+    @Test
+    void processTransactions_should_throw_iae_when_transactions_null() {
+        assertThrows(IllegalArgumentException.class, () -> cashManager.processTransactions(null));
+    }
+
+    @Test
+    void setSolverBudget_should_throw_ise_when_change_strategy_set() {
+        CashManagerImpl cashManagerImpl = new CashManagerImpl(currency, Map.of(10, 5));
+        ChangeStrategy greedy = new GreedyChangeStrategy(new ChangeCalculator(currency));
+        cashManagerImpl.setChangeStrategy(greedy);
+
+        assertThrows(IllegalStateException.class, () -> cashManagerImpl.setSolverBudget(Duration.ofMillis(1)));
+        assertSame(greedy, cashManagerImpl.getChangeStrategy());
+    }
+
+    @Test
+    void setChangeStrategy_should_throw_ise_when_solver_budget_set() {
+        CashManagerImpl cashManagerImpl = new CashManagerImpl(currency, Map.of(10, 5));
+        cashManagerImpl.setSolverBudget(Duration.ofMillis(1));
+        ChangeStrategy budgeted = cashManagerImpl.getChangeStrategy();
+
+        assertThrows(IllegalStateException.class, () -> cashManagerImpl.setChangeStrategy(new GreedyChangeStrategy(new ChangeCalculator(currency))));
+        assertSame(budgeted, cashManagerImpl.getChangeStrategy());
+        cashManagerImpl.setSolverBudget(Duration.ofMillis(1));
+        assertSame(budgeted, cashManagerImpl.getChangeStrategy());
+    }
+
+    @Test
+    void processTransactionResult_should_report_change_not_optimal_when_solver_budget_runs_out() {
+        Map<Integer, Integer> denominationCounts = Map.of(100, 305, 50, 166, 5, 1, 2, 3, 1, 175);
+        CashTransaction cashTransaction = new CashTransaction(54, Map.of(200, 144));
+        CashManagerImpl budgeted = new CashManagerImpl(currency, denominationCounts);
+        budgeted.setSolverBudget(Duration.ofNanos(1));
+
+        TransactionResult result = budgeted.processTransactionResult(cashTransaction);
+        assertFalse(result.isOptimal());
+        assertEquals(28746, result.getChange().entrySet().stream().mapToInt(entry -> entry.getKey() * entry.getValue()).sum());
+
+        assertTrue(new CashManagerImpl(currency, denominationCounts).processTransactionResult(cashTransaction).isOptimal());
+    }
+
+    @Test
+    void processTransactions_should_report_change_not_optimal_when_solver_budget_runs_out() {
+        CashManagerImpl budgeted = new CashManagerImpl(currency, Map.of(100, 305, 50, 166, 5, 1, 2, 3, 1, 175));
+        budgeted.setSolverBudget(Duration.ofNanos(1));
+
+        List<TransactionResult> results = budgeted.processTransactions(List.of(
+                new CashTransaction(54, Map.of(200, 144)),
+                new CashTransaction(30, Map.of(50, 1))));
+        assertNull(results.get(0).getFailureReason());
+        assertFalse(results.get(0).isOptimal());
+        assertNull(results.get(1).getFailureReason());
+        assertTrue(results.get(1).isOptimal());
+    }
 }
@@ -0,0 +1,100 @@
+package org.cashmanager.core;
+
+import org.cashmanager.contract.CashTransaction;
+import org.cashmanager.contract.Currency;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeCoverageTest {
+    private final Currency currency = Currency.GBP;
+    private final CashManagerImpl cashManager = new CashManagerImpl(currency, Map.of(50, 2, 20, 5, 10, 5, 5, 2, 2, 3, 1, 2));
+    private final ChangeCoverage coverage = cashManager.setPriceCatalogue(Map.of(80, 40, 150, ChangeCoverage.defaultLargestChange(currency)));
+    private final List<String> signals = new ArrayList<>();
+
+    {
+        coverage.addListener((price, exactChangeOnly) -> signals.add(price + "=" + exactChangeOnly));
+    }
+
+    @Test
+    void coverage_should_cover_every_price_when_float_can_make_all_change() {
+        assertEquals(List.of(), cashManager.getExactChangeOnlyPrices());
+        assertFalse(coverage.isExactChangeOnly(150));
+        assertTrue(coverage.canMakeChange(199));
+        assertTrue(coverage.canMakeChange(0));
+    }
+
+    @Test
+    void coverage_should_signal_exact_change_only_for_price_when_change_it_needs_cannot_be_made() {
+        cashManager.removeCoins(Map.of(50, 2, 20, 5));
+
+        assertEquals(List.of(150), cashManager.getExactChangeOnlyPrices());
+        assertFalse(coverage.isExactChangeOnly(80));
+        assertTrue(coverage.canMakeChange(68));
+        assertFalse(coverage.canMakeChange(69));
+        assertEquals(List.of("150=true"), signals);
+
+        cashManager.addCoins(Map.of(50, 3));
+
+        assertEquals(List.of(), cashManager.getExactChangeOnlyPrices());
+        assertEquals(List.of("150=true", "150=false"), signals);
+    }
+
+    @Test
+    void coverage_should_signal_every_price_when_smallest_coin_runs_out() {
+        cashManager.processTransaction(new CashTransaction(99, Map.of(100, 1)));
+        assertEquals(List.of(), signals);
+        cashManager.processTransaction(new CashTransaction(99, Map.of(100, 1)));
+
+        assertFalse(coverage.canMakeChange(1));
+        assertEquals(List.of(80, 150), cashManager.getExactChangeOnlyPrices());
+        assertEquals(List.of("80=true", "150=true"), signals);
+    }
+
+    @Test
+    void coverage_should_check_each_price_against_change_a_sale_at_it_can_need() {
+        CashManagerImpl smallCoins = new CashManagerImpl(currency, Map.of(20, 4, 10, 1, 5, 1, 2, 2, 1, 1));
+        ChangeCoverage priceCoverage = smallCoins.setPriceCatalogue(Map.of(50, 149, 120, 149));
+
+        assertTrue(priceCoverage.canMakeChange(100));
+        assertFalse(priceCoverage.canMakeChange(101));
+        // at 50 change up to 149 only comes from a 200, which needs 150 or more, but at 120 a 200 after 21 paid needs 101
+        assertEquals(List.of(120), priceCoverage.getExactChangeOnlyPrices());
+    }
+
+    @Test
+    void coverage_should_not_rebuild_when_change_does_not_alter_usable_coins() {
+        long rebuilds = coverage.getRebuildCount();
+
+        cashManager.addCoins(Map.of(200, 10));
+        cashManager.removeCoins(Map.of(200, 5));
+        cashManager.resetCoins(Map.of(200, 1, 50, 2, 20, 5, 10, 5, 5, 2, 2, 3, 1, 2));
+
+        assertEquals(rebuilds, coverage.getRebuildCount());
+        cashManager.addCoins(Map.of(1, 1));
+        assertEquals(rebuilds + 1, coverage.getRebuildCount());
+    }
+
+    @Test
+    void update_should_ignore_state_older_than_one_already_seen() {
+        cashManager.removeCoins(Map.of(1, 2, 2, 3));
+        assertEquals(List.of(80, 150), coverage.getExactChangeOnlyPrices());
+
+        coverage.update(FloatState.of(new int[]{0, 0, 2, 5, 5, 2, 3, 2}, 0xFF, 0));
+
+        assertEquals(List.of(80, 150), coverage.getExactChangeOnlyPrices());
+    }
+
+    @Test
+    void coverage_should_throw_when_price_not_in_catalogue_or_catalogue_empty() {
+        assertThrows(IllegalArgumentException.class, () -> coverage.isExactChangeOnly(95));
+        assertThrows(IllegalArgumentException.class, () -> coverage.canMakeChange(200));
+        assertThrows(IllegalArgumentException.class, () -> cashManager.setPriceCatalogue(Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> cashManager.setPriceCatalogue(Map.of(0, 10)));
+        assertThrows(IllegalStateException.class, () -> new ChangeCoverage(currency, Map.of(80, 40)).getExactChangeOnlyPrices());
+    }
+}
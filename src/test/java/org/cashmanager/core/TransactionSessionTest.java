@@ -0,0 +1,119 @@
+package org.cashmanager.core;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.metrics.Operation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionSessionTest {
+    private static final Executor SAME_THREAD = Runnable::run;
+
+    private final Currency currency = Currency.GBP;
+    private final CashManagerImpl cashManager = new CashManagerImpl(currency, Map.of(50, 2, 20, 5, 10, 5));
+
+    @Test
+    void complete_should_dispense_speculated_change_when_float_unchanged() {
+        TransactionSession session = cashManager.startTransaction(80, SAME_THREAD);
+
+        assertEquals(30, session.insertCoin(50));
+        assertEquals(0, session.insertCoin(100));
+        Map<Integer, Integer> change = session.complete();
+
+        assertEquals(Map.of(50, 1, 20, 1), change);
+        assertTrue(session.isChangeSpeculated());
+        assertTrue(session.isChangeOptimal());
+        assertEquals(Map.of(100, 1, 50, 2, 20, 4, 10, 5), cashManager.getDenominationCounts());
+        assertEquals(1, cashManager.getMetrics().getLatency(Operation.TRANSACTION).getCount());
+    }
+
+    @Test
+    void complete_should_record_only_dispensed_calculation_in_metrics_when_change_speculated() {
+        TransactionSession session = cashManager.startTransaction(80, SAME_THREAD);
+        session.insertCoin(20);
+        session.insertCoin(50);
+        assertEquals(0, cashManager.getMetrics().getTableLookups());
+
+        session.insertCoin(100);
+        session.complete();
+
+        assertTrue(session.isChangeSpeculated());
+        assertEquals(1, cashManager.getMetrics().getTableLookups());
+        assertEquals(0, cashManager.getMetrics().getGreedyCalculations() + cashManager.getMetrics().getFallbackCalculations());
+    }
+
+    @Test
+    void complete_should_use_speculation_from_start_when_first_coin_covers_cost() {
+        TransactionSession session = cashManager.startTransaction(60, SAME_THREAD);
+
+        assertEquals(0, session.insertCoin(100));
+
+        assertEquals(Map.of(20, 2), session.complete());
+        assertTrue(session.isChangeSpeculated());
+    }
+
+    @Test
+    void complete_should_recalculate_change_when_float_changed_after_speculation() {
+        TransactionSession session = cashManager.startTransaction(80, SAME_THREAD);
+        session.insertCoin(50);
+        cashManager.removeCoins(Map.of(20, 5));
+
+        session.insertCoin(50);
+
+        assertEquals(Map.of(10, 2), session.complete());
+        assertFalse(session.isChangeSpeculated());
+    }
+
+    @Test
+    void complete_should_calculate_change_when_speculation_not_finished() {
+        List<Runnable> queued = new ArrayList<>();
+        TransactionSession session = cashManager.startTransaction(80, queued::add);
+        session.insertCoin(100);
+
+        assertEquals(Map.of(20, 1), session.complete());
+        assertFalse(session.isChangeSpeculated());
+        assertEquals(1, queued.size());
+    }
+
+    @Test
+    void complete_should_throw_and_stay_open_when_change_cannot_be_made() {
+        CashManagerImpl emptyFloat = new CashManagerImpl(currency, Map.of(50, 1));
+        TransactionSession session = emptyFloat.startTransaction(80, SAME_THREAD);
+        session.insertCoin(100);
+
+        assertThrows(IllegalStateException.class, session::complete);
+
+        assertEquals(Map.of(100, 1), session.cancel());
+        assertEquals(Map.of(50, 1), emptyFloat.getDenominationCounts());
+    }
+
+    @Test
+    void session_should_throw_when_used_out_of_order() {
+        TransactionSession session = cashManager.startTransaction(80, SAME_THREAD);
+
+        assertThrows(InsufficientPaymentException.class, session::complete);
+        assertThrows(IllegalArgumentException.class, () -> session.insertCoin(3));
+        session.insertCoin(100);
+        assertThrows(IllegalStateException.class, () -> session.insertCoin(10));
+        session.complete();
+        assertThrows(IllegalStateException.class, session::complete);
+        assertThrows(IllegalStateException.class, session::cancel);
+        assertThrows(IllegalArgumentException.class, () -> cashManager.startTransaction(0));
+    }
+
+    @Test
+    void cancel_should_return_inserted_coins_without_changing_float() {
+        TransactionSession session = cashManager.startTransaction(250);
+        session.insertCoin(100);
+        session.insertCoin(100);
+        session.insertCoin(20);
+
+        assertEquals(Map.of(100, 2, 20, 1), session.cancel());
+        assertEquals(Map.of(50, 2, 20, 5, 10, 5), cashManager.getDenominationCounts());
+    }
+}
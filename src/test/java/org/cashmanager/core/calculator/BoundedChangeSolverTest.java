@@ -0,0 +1,73 @@
+package org.cashmanager.core.calculator;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedChangeSolverTest {
+    private final int[] gbpDenominations = {200, 100, 50, 20, 10, 5, 2, 1};
+
+    @Test
+    void solve_should_return_minimum_coins_when_counts_unlimited() {
+        int[] counts = {10, 10, 10, 10, 10, 10, 10, 10};
+
+        int[] result = new BoundedChangeSolver().solve(gbpDenominations, counts, 388);
+
+        assertArrayEquals(new int[]{1, 1, 1, 1, 1, 1, 1, 1}, result);
+    }
+
+    @Test
+    void solve_should_respect_available_counts_when_greedy_would_fail() {
+        int[] denominations = {50, 20, 5, 2, 1};
+        int[] counts = {3, 3, 1, 1, 1};
+
+        int[] result = new BoundedChangeSolver().solve(denominations, counts, 111);
+
+        assertArrayEquals(new int[]{1, 3, 0, 0, 1}, result);
+    }
+
+    @Test
+    void solve_should_find_fewer_coins_than_greedy_when_non_canonical() {
+        int[] denominations = {4, 3, 1};
+        int[] counts = {5, 5, 5};
+
+        int[] result = new BoundedChangeSolver().solve(denominations, counts, 6);
+
+        assertArrayEquals(new int[]{0, 2, 0}, result);
+    }
+
+    @Test
+    void solve_should_return_null_when_exact_change_not_possible() {
+        int[] denominations = {10, 5};
+        int[] counts = {3, 4};
+
+        assertNull(new BoundedChangeSolver().solve(denominations, counts, 2));
+        assertNull(new BoundedChangeSolver().solve(denominations, counts, 71));
+    }
+
+    @Test
+    void solve_should_return_empty_change_when_total_zero() {
+        int[] result = new BoundedChangeSolver().solve(gbpDenominations, new int[8], 0);
+
+        assertArrayEquals(new int[8], result);
+    }
+
+    @Test
+    void solve_should_solve_deep_tubes_when_value_large() {
+        int[] counts = {0, 0, 0, 0, 0, 301, 500, 500};
+
+        int[] result = new BoundedChangeSolver().solve(gbpDenominations, counts, 2900);
+
+        assertArrayEquals(new int[]{0, 0, 0, 0, 0, 301, 500, 395}, result);
+    }
+
+    @Test
+    void solve_should_throw_iae_when_arrays_differ_in_length() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedChangeSolver().solve(gbpDenominations, new int[2], 10));
+    }
+
+    @Test
+    void solve_should_throw_iae_when_total_below_zero() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedChangeSolver().solve(gbpDenominations, new int[8], -1));
+    }
+}
@@ -0,0 +1,99 @@
+package org.cashmanager.core.calculator;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BranchAndBoundChangeSolverTest {
+    private final int[] gbpDenominations = {200, 100, 50, 20, 10, 5, 2, 1};
+    private final BranchAndBoundChangeSolver solver = new BranchAndBoundChangeSolver();
+
+    @Test
+    void solve_should_return_fewest_coins_when_top_down_would_fail() {
+        ChangePlan changePlan = solver.solve(gbpDenominations, new int[]{0, 0, 1, 3, 0, 0, 0, 0}, 60);
+        assertTrue(changePlan.hasChange());
+        assertTrue(changePlan.isOptimal());
+        assertArrayEquals(new int[]{0, 0, 0, 3, 0, 0, 0, 0}, changePlan.getChange());
+        assertEquals(3, changePlan.getCoinCount());
+    }
+
+    @Test
+    void solve_should_return_optimal_plan_without_change_when_change_impossible() {
+        ChangePlan changePlan = solver.solve(gbpDenominations, new int[]{0, 0, 1, 3, 0, 0, 0, 0}, 30);
+        assertFalse(changePlan.hasChange());
+        assertTrue(changePlan.isOptimal());
+        assertNull(changePlan.getChange());
+    }
+
+    @Test
+    void solve_should_match_bounded_solver_coin_count_when_floats_random() {
+        Random random = new Random(3);
+        BoundedChangeSolver boundedChangeSolver = new BoundedChangeSolver();
+        int[] denominations = {50, 30, 20, 10, 4, 3};
+        for (int round = 0; round < 300; round++) {
+            int[] counts = new int[denominations.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = random.nextInt(6);
+            }
+            int valueTotal = random.nextInt(300);
+            int[] expected = boundedChangeSolver.solve(denominations, counts, valueTotal);
+            ChangePlan changePlan = solver.solve(denominations, counts, valueTotal);
+            assertTrue(changePlan.isOptimal());
+            assertEquals(expected == null ? -1 : coinCount(expected), changePlan.getCoinCount(), "value " + valueTotal);
+        }
+    }
+
+    @Test
+    void solve_should_return_incumbent_flagged_not_optimal_when_deadline_expires() {
+        int[] denominations = new int[40];
+        int[] counts = new int[40];
+        for (int i = 0; i < denominations.length; i++) {
+            denominations[i] = 241 - i * 6;
+            counts[i] = 4;
+        }
+        ChangePlan changePlan = solver.solve(denominations, counts, 5001, Duration.ofNanos(1));
+        assertTrue(changePlan.isDeadlineExpired());
+        assertFalse(changePlan.isOptimal());
+        if (changePlan.hasChange()) {
+            int value = 0;
+            int[] change = changePlan.getChange();
+            for (int i = 0; i < change.length; i++) {
+                assertTrue(change[i] <= counts[i]);
+                value += change[i] * denominations[i];
+            }
+            assertEquals(5001, value);
+        }
+    }
+
+    @Test
+    void solve_should_return_plan_without_change_when_deadline_expires_before_any_change_found() {
+        int[] denominations = new int[49];
+        int[] counts = new int[49];
+        for (int i = 0; i < denominations.length; i++) {
+            denominations[i] = 98 - i * 2;
+            counts[i] = 3;
+        }
+        // Every coin is even, so the odd value is never found but the search has to walk the tree to learn that
+        ChangePlan changePlan = solver.solve(denominations, counts, 2001, Duration.ofNanos(1));
+        assertFalse(changePlan.hasChange());
+        assertTrue(changePlan.isDeadlineExpired());
+        assertTrue(changePlan.getNodesExplored() >= 1024);
+    }
+
+    @Test
+    void solve_should_throw_iae_when_denominations_not_descending() {
+        assertThrows(IllegalArgumentException.class, () -> solver.solve(new int[]{1, 2}, new int[]{1, 1}, 3));
+        assertThrows(IllegalArgumentException.class, () -> solver.solve(new int[]{2}, new int[]{1, 1}, 3));
+    }
+
+    private int coinCount(final int[] change) {
+        int coinCount = 0;
+        for (int count : change) {
+            coinCount += count;
+        }
+        return coinCount;
+    }
+}
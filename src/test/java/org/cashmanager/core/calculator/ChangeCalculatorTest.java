@@ -1,11 +1,17 @@
 package org.cashmanager.core.calculator;
 
+import org.cashmanager.contract.Currency;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ChangeCalculatorTest {
 
@@ -86,4 +92,100 @@ public class ChangeCalculatorTest {
         assertEquals(0, result.get(2));
         assertEquals(1, result.get(1));
     }
+
+    @Test
+    void calculateChange_should_return_top_down_result_when_currency_canonical_and_float_unconstrained() {
+        Map<Integer, Integer> floatDenominationCounts = Map.of(50, 2, 20, 5, 5, 3, 2, 5);
+        int total = 75;
+
+        Map<Integer, Integer> result = new ChangeCalculator(Currency.GBP).calculateChange(floatDenominationCounts, total);
+        assertEquals(3, result.size());
+        assertEquals(1, result.get(50));
+        assertEquals(1, result.get(20));
+        assertEquals(1, result.get(5));
+    }
+
+    @Test
+    void calculateChange_should_find_fewer_coins_than_top_down_when_currency_provided_and_float_constrained() {
+        Map<Integer, Integer> floatDenominationCounts = Map.of(50, 1, 20, 3, 2, 10);
+        int total = 60;
+
+        Map<Integer, Integer> result = new ChangeCalculator(Currency.GBP).calculateChange(floatDenominationCounts, total);
+        assertEquals(3, result.get(20));
+        assertEquals(0, result.get(50));
+        assertEquals(0, result.get(2));
+    }
+
+    @Test
+    void calculateChange_should_throw_ise_when_float_value_below_total() {
+        Map<Integer, Integer> floatDenominationCounts = Map.of(50, 1, 20, 1, 1, 3);
+        int total = 75;
+
+        assertThrows(IllegalStateException.class, () -> new ChangeCalculator(Currency.GBP).calculateChange(floatDenominationCounts, total));
+    }
+
+    @Test
+    void calculateChange_should_match_map_calculation_when_given_slot_counts() {
+        Currency currency = Currency.GBP;
+        ChangeCalculator changeCalculator = new ChangeCalculator(currency);
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            int[] slotCounts = new int[currency.getSlotCount()];
+            Map<Integer, Integer> denominationCounts = new HashMap<>();
+            for (int slot = 0; slot < slotCounts.length; slot++) {
+                slotCounts[slot] = random.nextInt(4);
+                denominationCounts.put(currency.getDenomination(slot), slotCounts[slot]);
+            }
+            int valueTotal = 1 + random.nextInt(1200);
+
+            int[] expected = null;
+            try {
+                Map<Integer, Integer> change = changeCalculator.calculateChange(denominationCounts, valueTotal);
+                expected = new int[slotCounts.length];
+                for (Map.Entry<Integer, Integer> entry : change.entrySet()) {
+                    expected[currency.getSlot(entry.getKey())] = entry.getValue();
+                }
+            } catch (IllegalStateException e) {
+                assertThrows(IllegalStateException.class, () -> changeCalculator.calculateChange(slotCounts, valueTotal));
+                continue;
+            }
+            assertArrayEquals(expected, changeCalculator.calculateChange(slotCounts, valueTotal), "value " + valueTotal);
+        }
+    }
+
+    @Test
+    void calculateChange_should_throw_ise_when_given_slot_counts_without_currency() {
+        assertThrows(IllegalStateException.class, () -> new ChangeCalculator().calculateChange(new int[8], 5));
+    }
+
+    @Test
+    void calculateChange_should_use_fewest_coins_when_solver_budget_is_not_reached() {
+        ChangeCalculator changeCalculator = new ChangeCalculator(Currency.GBP, null, Duration.ofSeconds(5));
+        int[] change = changeCalculator.calculateChange(new int[]{2, 0, 1, 8, 0, 0, 0, 0}, 560);
+        assertArrayEquals(new int[]{2, 0, 0, 8, 0, 0, 0, 0}, change);
+    }
+
+    @Test
+    void calculateChange_should_return_exact_change_or_fail_fast_when_solver_budget_tiny() {
+        ChangeCalculator changeCalculator = new ChangeCalculator(Currency.GBP, null, Duration.ofNanos(1));
+        int[] slotCounts = {500, 500, 1, 500, 0, 0, 500, 0};
+        for (int valueTotal = 510; valueTotal < 2000; valueTotal += 10) {
+            try {
+                int[] change = changeCalculator.calculateChange(slotCounts, valueTotal);
+                int value = 0;
+                for (int slot = 0; slot < change.length; slot++) {
+                    assertTrue(change[slot] <= slotCounts[slot]);
+                    value += change[slot] * Currency.GBP.getDenomination(slot);
+                }
+                assertEquals(valueTotal, value);
+            } catch (SolverDeadlineExceededException e) {
+                // failing fast is allowed once the budget has run out
+            }
+        }
+    }
+
+    @Test
+    void constructor_should_throw_iae_when_solver_budget_not_positive() {
+        assertThrows(IllegalArgumentException.class, () -> new ChangeCalculator(Currency.GBP, null, Duration.ZERO));
+    }
 }
@@ -0,0 +1,76 @@
+package org.cashmanager.core.calculator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeFeasibilityTest {
+    private final int[] gbpDenominations = {200, 100, 50, 20, 10, 5, 2, 1};
+
+    @Test
+    void isFeasible_should_return_false_when_float_total_below_value() {
+        assertFalse(ChangeFeasibility.isFeasible(gbpDenominations, new int[]{0, 0, 1, 0, 0, 0, 0, 0}, 60));
+    }
+
+    @Test
+    void isFeasible_should_return_false_when_value_not_multiple_of_gcd() {
+        assertFalse(ChangeFeasibility.isFeasible(gbpDenominations, new int[]{0, 0, 10, 10, 10, 0, 0, 0}, 75));
+    }
+
+    @Test
+    void isFeasible_should_return_false_when_no_subset_reaches_value() {
+        // 50p and 20p coins are worth enough and share the gcd of 10, but 30p cannot be made from them
+        assertFalse(ChangeFeasibility.isFeasible(gbpDenominations, new int[]{0, 0, 1, 3, 0, 0, 0, 0}, 30));
+        assertTrue(ChangeFeasibility.isFeasible(gbpDenominations, new int[]{0, 0, 1, 3, 0, 0, 0, 0}, 60));
+    }
+
+    @Test
+    void isFeasible_should_return_true_when_value_zero_or_coins_match_exactly() {
+        assertTrue(ChangeFeasibility.isFeasible(gbpDenominations, new int[8], 0));
+        assertTrue(ChangeFeasibility.isFeasible(gbpDenominations, new int[]{1, 0, 0, 0, 0, 0, 0, 3}, 203));
+    }
+
+    @Test
+    void isFeasible_should_agree_with_solver_when_floats_random() {
+        Random random = new Random(5);
+        BoundedChangeSolver solver = new BoundedChangeSolver();
+        for (int round = 0; round < 500; round++) {
+            int[] counts = new int[gbpDenominations.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = random.nextInt(3) == 0 ? random.nextInt(40) : 0;
+            }
+            int valueTotal = random.nextInt(3000);
+            assertEquals(solver.solve(gbpDenominations, counts, valueTotal) != null,
+                    ChangeFeasibility.isFeasible(gbpDenominations, counts, valueTotal), "value " + valueTotal);
+        }
+    }
+
+    @Test
+    void isReachable_should_carry_across_words_when_shift_not_word_aligned() {
+        assertTrue(ChangeFeasibility.isReachable(new int[]{70, 3}, new int[]{2, 1}, 143));
+        assertFalse(ChangeFeasibility.isReachable(new int[]{70, 3}, new int[]{2, 1}, 144));
+    }
+
+    @Test
+    void reachableValues_should_agree_with_isFeasible_for_every_value_when_floats_random() {
+        Random random = new Random(11);
+        for (int round = 0; round < 100; round++) {
+            int[] counts = new int[gbpDenominations.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = random.nextInt(2) == 0 ? random.nextInt(6) : 0;
+            }
+            long[] reachable = ChangeFeasibility.reachableValues(gbpDenominations, counts, 199);
+            for (int value = 0; value <= 199; value++) {
+                assertEquals(ChangeFeasibility.isFeasible(gbpDenominations, counts, value),
+                        (reachable[value >>> 6] & (1L << (value & 63))) != 0, "value " + value);
+            }
+        }
+    }
+
+    @Test
+    void isFeasible_should_throw_iae_when_arrays_differ_in_length() {
+        assertThrows(IllegalArgumentException.class, () -> ChangeFeasibility.isFeasible(new int[]{1}, new int[0], 1));
+    }
+}
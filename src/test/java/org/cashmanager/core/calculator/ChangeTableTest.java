@@ -0,0 +1,69 @@
+package org.cashmanager.core.calculator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeTableTest {
+    private final int[] gbpDenominations = {200, 100, 50, 20, 10, 5, 2, 1};
+
+    @Test
+    void lookup_should_return_minimum_change_when_greedy_would_fail() {
+        ChangeTable changeTable = ChangeTable.build(gbpDenominations, new int[]{0, 0, 1, 3, 0, 0, 0, 0});
+        assertArrayEquals(new int[]{0, 0, 0, 3, 0, 0, 0, 0}, changeTable.lookup(60));
+        assertEquals(3, changeTable.getMinimumCoinCount(60));
+    }
+
+    @Test
+    void lookup_should_return_null_when_change_cannot_be_made() {
+        ChangeTable changeTable = ChangeTable.build(gbpDenominations, new int[]{0, 0, 1, 3, 0, 0, 0, 0});
+        assertNull(changeTable.lookup(30));
+        assertEquals(-1, changeTable.getMinimumCoinCount(30));
+        assertArrayEquals(new int[8], changeTable.lookup(0));
+    }
+
+    @Test
+    void update_should_return_same_table_when_counts_unchanged_within_range() {
+        ChangeTable changeTable = ChangeTable.build(gbpDenominations, new int[]{2, 0, 0, 0, 0, 0, 0, 0});
+        assertSame(changeTable, changeTable.update(new int[]{2, 0, 0, 0, 0, 0, 0, 0}));
+        assertSame(changeTable, changeTable.update(new int[]{2, 0, 0, 0, 0, 0, 0, 0}.clone()));
+        // 3 or more £2 coins can never all be used within £5
+        assertSame(changeTable.update(new int[]{3, 0, 0, 0, 0, 0, 0, 0}), changeTable.update(new int[]{3, 0, 0, 0, 0, 0, 0, 0}).update(new int[]{9, 0, 0, 0, 0, 0, 0, 0}));
+    }
+
+    @Test
+    void update_should_match_full_build_when_counts_change_randomly() {
+        Random random = new Random(7);
+        int[] counts = new int[gbpDenominations.length];
+        ChangeTable changeTable = ChangeTable.build(gbpDenominations, counts);
+        BoundedChangeSolver solver = new BoundedChangeSolver();
+        for (int round = 0; round < 50; round++) {
+            counts[random.nextInt(counts.length)] = random.nextInt(6);
+            changeTable = changeTable.update(counts);
+            ChangeTable rebuilt = ChangeTable.build(gbpDenominations, counts);
+            for (int value = 0; value <= ChangeTable.MAX_VALUE; value += 7) {
+                assertArrayEquals(rebuilt.lookup(value), changeTable.lookup(value), "value " + value);
+                int[] solved = solver.solve(gbpDenominations, counts, value);
+                assertEquals(solved == null ? -1 : coinCount(solved), changeTable.getMinimumCoinCount(value), "value " + value);
+            }
+        }
+    }
+
+    @Test
+    void lookup_should_throw_iae_when_value_outside_table() {
+        ChangeTable changeTable = ChangeTable.build(gbpDenominations, new int[8]);
+        assertFalse(ChangeTable.covers(ChangeTable.MAX_VALUE + 1));
+        assertThrows(IllegalArgumentException.class, () -> changeTable.lookup(ChangeTable.MAX_VALUE + 1));
+        assertThrows(IllegalArgumentException.class, () -> changeTable.lookup(-1));
+    }
+
+    private int coinCount(final int[] change) {
+        int coinCount = 0;
+        for (int count : change) {
+            coinCount += count;
+        }
+        return coinCount;
+    }
+}
@@ -0,0 +1,146 @@
+package org.cashmanager.core.strategy;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashFloat;
+import org.cashmanager.core.calculator.ChangeCalculator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveChangeStrategyTest {
+    private final int[] slotCounts = {50, 50, 50, 50, 50, 50, 50, 50};
+
+    @Test
+    void calculateChange_should_use_in_range_strategy_when_it_answers() {
+        FixedStrategy inRange = new FixedStrategy("table", new int[]{1, 0, 0, 0, 0, 0, 0, 0}, 0);
+        FixedStrategy candidate = new FixedStrategy("candidate", new int[8], 0);
+        AdaptiveChangeStrategy adaptive = new AdaptiveChangeStrategy(inRange, List.of(candidate), candidate);
+
+        assertArrayEquals(new int[]{1, 0, 0, 0, 0, 0, 0, 0}, adaptive.calculateChange(slotCounts, 200));
+        assertEquals(0, candidate.calls);
+    }
+
+    @Test
+    void calculateChange_should_converge_on_fastest_candidate_when_learning() {
+        FixedStrategy slow = new FixedStrategy("slow", new int[8], 200_000);
+        FixedStrategy fast = new FixedStrategy("fast", new int[8], 0);
+        AdaptiveChangeStrategy adaptive = new AdaptiveChangeStrategy(declining(), List.of(slow, fast), slow);
+
+        for (int i = 0; i < 200; i++) {
+            adaptive.calculateChange(slotCounts, 1_000);
+        }
+        assertEquals("fast", adaptive.getPreferred(slotCounts, 1_000));
+        Map<String, Long> selections = adaptive.getSelections();
+        assertTrue(selections.get("fast") > selections.get("slow") * 10, selections.toString());
+        // the slow candidate is still explored now and then
+        assertTrue(selections.get("slow") >= 2, selections.toString());
+    }
+
+    @Test
+    void calculateChange_should_use_exact_strategy_and_penalise_candidate_when_candidate_declines() {
+        FixedStrategy declining = new FixedStrategy("declining", null, 0);
+        FixedStrategy exact = new FixedStrategy("exact", new int[]{0, 0, 0, 0, 0, 0, 0, 1}, 100_000);
+        AdaptiveChangeStrategy adaptive = new AdaptiveChangeStrategy(declining(), List.of(declining, exact), exact);
+
+        assertArrayEquals(new int[]{0, 0, 0, 0, 0, 0, 0, 1}, adaptive.calculateChange(slotCounts, 1_000));
+        assertEquals(1, declining.calls);
+        assertEquals(1, exact.calls);
+    }
+
+    @Test
+    void context_should_separate_value_sizes_and_tube_depths() {
+        AdaptiveChangeStrategy adaptive = new AdaptiveChangeStrategy(declining(), List.of(declining()), declining());
+        int[] shallow = {1, 1, 1, 1, 0, 0, 0, 0};
+        assertNotEquals(adaptive.context(slotCounts, 1_000), adaptive.context(slotCounts, 50_000));
+        assertNotEquals(adaptive.context(slotCounts, 1_000), adaptive.context(shallow, 1_000));
+        assertEquals(adaptive.context(slotCounts, 1_000), adaptive.context(slotCounts, 1_500));
+    }
+
+    @Test
+    void forFloat_should_make_fewest_coins_change_for_every_strategy_when_float_limited() {
+        CashFloat cashFloat = new CashFloat(Currency.GBP, Map.of(200, 6, 100, 0, 50, 1, 20, 40, 10, 0));
+        AdaptiveChangeStrategy adaptive = AdaptiveChangeStrategy.forFloat(cashFloat, null, null);
+        int[] counts = cashFloat.copyCounts();
+        ChangeCalculator changeCalculator = new ChangeCalculator(Currency.GBP);
+        for (int valueTotal = 20; valueTotal <= 1_500; valueTotal += 20) {
+            int[] expected = changeCalculator.calculateChange(counts, valueTotal);
+            int[] change = adaptive.calculateChange(counts, valueTotal);
+            assertEquals(coinCount(expected), coinCount(change), "value " + valueTotal);
+            assertEquals(valueTotal, Currency.GBP.getDenominationIndex().totalValue(change));
+        }
+        assertEquals(4, adaptive.getSelections().size());
+    }
+
+    @Test
+    void forFloat_should_only_choose_budgeted_candidates_when_solver_budget_set() {
+        CashFloat cashFloat = new CashFloat(Currency.GBP, Map.of(200, 6, 100, 0, 50, 1, 20, 40, 10, 0));
+        AdaptiveChangeStrategy adaptive = AdaptiveChangeStrategy.forFloat(cashFloat, null, Duration.ofSeconds(1));
+        int[] counts = cashFloat.copyCounts();
+        for (int valueTotal = 520; valueTotal <= 1_500; valueTotal += 20) {
+            assertEquals(valueTotal, Currency.GBP.getDenominationIndex().totalValue(adaptive.calculateChange(counts, valueTotal)));
+        }
+
+        assertEquals(List.of("greedy", "calculator"), List.copyOf(adaptive.getSelections().keySet()));
+    }
+
+    @Test
+    void builtIn_strategies_should_decline_only_when_they_cannot_prove_the_fewest_coins() {
+        ChangeCalculator changeCalculator = new ChangeCalculator(Currency.GBP);
+        int[] strandedCounts = {0, 0, 1, 3, 0, 0, 0, 0};
+        CashFloat cashFloat = new CashFloat(Currency.GBP, Map.of(50, 1, 20, 3));
+
+        assertNull(new GreedyChangeStrategy(changeCalculator).calculateChange(strandedCounts, 60));
+        assertArrayEquals(new int[]{0, 0, 0, 3, 0, 0, 0, 0}, new DynamicProgrammingChangeStrategy(changeCalculator).calculateChange(strandedCounts, 60));
+        assertArrayEquals(new int[]{0, 0, 0, 3, 0, 0, 0, 0},
+                new BranchAndBoundChangeStrategy(Currency.GBP, null, Duration.ofSeconds(1)).calculateChange(strandedCounts, 60));
+        assertArrayEquals(new int[]{0, 0, 0, 3, 0, 0, 0, 0}, new TableLookupChangeStrategy(cashFloat, null).calculateChange(strandedCounts, 60));
+        assertNull(new TableLookupChangeStrategy(cashFloat, null).calculateChange(strandedCounts, 600));
+        assertThrows(IllegalStateException.class, () -> new DynamicProgrammingChangeStrategy(changeCalculator).calculateChange(strandedCounts, 30));
+        assertThrows(IllegalStateException.class,
+                () -> new BranchAndBoundChangeStrategy(Currency.GBP, null, Duration.ofSeconds(1)).calculateChange(strandedCounts, 30));
+    }
+
+    private static ChangeStrategy declining() {
+        return new FixedStrategy("declining", null, 0);
+    }
+
+    private static long coinCount(final int[] change) {
+        return Currency.GBP.getDenominationIndex().coinCount(change);
+    }
+
+    /**
+     * Returns the same change after spinning for a fixed time
+     */
+    private static final class FixedStrategy implements ChangeStrategy {
+        private final String name;
+        private final int[] change;
+        private final long nanos;
+        private int calls;
+
+        private FixedStrategy(final String name, final int[] change, final long nanos) {
+            this.name = name;
+            this.change = change;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public int[] calculateChange(final int[] slotCounts, final int valueTotal) {
+            calls++;
+            long deadline = System.nanoTime() + nanos;
+            while (System.nanoTime() - deadline < 0) {
+                LockSupport.parkNanos(1_000);
+            }
+            return change;
+        }
+    }
+}
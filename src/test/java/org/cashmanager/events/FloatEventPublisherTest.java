@@ -0,0 +1,171 @@
+package org.cashmanager.events;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashFloat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FloatEventPublisherTest {
+    private final Currency currency = Currency.GBP;
+
+    @Test
+    void onChange_should_publish_counts_and_deltas_when_float_changes() {
+        CashFloat cashFloat = new CashFloat(currency, Map.of(100, 2, 10, 5));
+        List<String> received = new ArrayList<>();
+        FloatEventPublisher publisher = new FloatEventPublisher(currency, 8);
+        publisher.subscribe("recorder", (event, sequence, endOfBatch) ->
+                received.add(String.format("%s %s %s %s %s", sequence, event.getMutation(), event.getVersion(),
+                        event.getCount(1), event.getDelta(1))), WaitStrategy.BLOCKING);
+        cashFloat.addListener(publisher);
+        publisher.start();
+
+        cashFloat.addCoins(Map.of(100, 3));
+        cashFloat.removeCoins(Map.of(100, 1));
+        publisher.close();
+
+        assertEquals(List.of("0 ADD 1 5 3", "1 REMOVE 2 4 -1"), received);
+        assertEquals(2, publisher.getPublishedCount());
+        assertEquals(0, publisher.getBacklog());
+    }
+
+    @ParameterizedTest
+    @EnumSource(WaitStrategy.class)
+    void onChange_should_deliver_every_event_once_in_sequence_when_published_concurrently(final WaitStrategy waitStrategy) throws InterruptedException {
+        CashFloat cashFloat = new CashFloat(currency, Map.of(10, 0));
+        int[] deltaTotals = new int[currency.getSlotCount()];
+        Set<Long> versions = new HashSet<>();
+        long[] expectedSequence = {0};
+        FloatEventPublisher publisher = new FloatEventPublisher(currency, 16);
+        publisher.subscribe("totals", (event, sequence, endOfBatch) -> {
+            assertEquals(expectedSequence[0]++, sequence);
+            versions.add(event.getVersion());
+            for (int slot = 0; slot < deltaTotals.length; slot++) {
+                deltaTotals[slot] += event.getDelta(slot);
+            }
+        }, waitStrategy);
+        publisher.subscribe("slow", (event, sequence, endOfBatch) -> Thread.yield(), waitStrategy);
+        cashFloat.addListener(publisher);
+        publisher.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    cashFloat.addCoins(Map.of(10, 1));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        publisher.close();
+
+        assertEquals(2_000, expectedSequence[0]);
+        assertEquals(2_000, versions.size());
+        assertArrayEquals(cashFloat.copyCounts(), deltaTotals);
+        assertEquals(0, publisher.getHandlerFailures());
+    }
+
+    @Test
+    void onChange_should_mark_end_of_batch_on_last_available_event() {
+        CashFloat cashFloat = new CashFloat(currency, Map.of(10, 0));
+        FloatEventPublisher publisher = new FloatEventPublisher(currency, 64);
+        List<Boolean> endOfBatches = new ArrayList<>();
+        publisher.subscribe("batches", (event, sequence, endOfBatch) -> endOfBatches.add(endOfBatch), WaitStrategy.SLEEPING);
+        cashFloat.addListener(publisher);
+        publisher.start();
+
+        for (int i = 0; i < 20; i++) {
+            cashFloat.addCoins(Map.of(10, 1));
+        }
+        publisher.close();
+
+        assertEquals(20, endOfBatches.size());
+        assertTrue(endOfBatches.get(19));
+    }
+
+    @Test
+    void onChange_should_count_failure_and_continue_when_handler_throws() {
+        CashFloat cashFloat = new CashFloat(currency, Map.of(10, 0));
+        FloatEventPublisher publisher = new FloatEventPublisher(currency, 8);
+        List<Long> handled = new ArrayList<>();
+        publisher.subscribe("failing", (event, sequence, endOfBatch) -> {
+            if (sequence == 1) {
+                throw new IllegalStateException("failed");
+            }
+            handled.add(sequence);
+        }, WaitStrategy.YIELDING);
+        cashFloat.addListener(publisher);
+        publisher.start();
+
+        for (int i = 0; i < 3; i++) {
+            cashFloat.addCoins(Map.of(10, 1));
+        }
+        publisher.close();
+
+        assertEquals(List.of(0L, 2L), handled);
+        assertEquals(1, publisher.getHandlerFailures());
+    }
+
+    @Test
+    void onChange_should_not_publish_when_not_started() {
+        CashFloat cashFloat = new CashFloat(currency, Map.of(10, 0));
+        FloatEventPublisher publisher = new FloatEventPublisher(currency);
+        cashFloat.addListener(publisher);
+
+        cashFloat.addCoins(Map.of(10, 1));
+
+        assertEquals(0, publisher.getPublishedCount());
+    }
+
+    @Test
+    void subscribe_should_throw_exception_when_publisher_started() {
+        FloatEventPublisher publisher = new FloatEventPublisher(currency);
+        publisher.start();
+
+        assertThrows(IllegalStateException.class, () -> publisher.subscribe("late", (event, sequence, endOfBatch) -> {
+        }, WaitStrategy.BLOCKING));
+        assertThrows(IllegalStateException.class, publisher::start);
+        publisher.close();
+    }
+
+    @Test
+    void constructor_should_throw_exception_when_capacity_not_power_of_two() {
+        assertThrows(IllegalArgumentException.class, () -> new FloatEventPublisher(currency, 100));
+        assertThrows(IllegalArgumentException.class, () -> new FloatEventPublisher(currency, 0));
+        assertThrows(IllegalArgumentException.class, () -> new FloatEventPublisher(null, 8));
+    }
+
+    @Test
+    void event_should_copy_counts_and_deltas() {
+        CashFloat cashFloat = new CashFloat(currency, Map.of(10, 0));
+        FloatEventPublisher publisher = new FloatEventPublisher(currency, 8);
+        List<int[]> copies = new ArrayList<>();
+        publisher.subscribe("copies", (event, sequence, endOfBatch) -> {
+            copies.add(event.copyCounts());
+            copies.add(event.copyDeltas());
+        }, WaitStrategy.BLOCKING);
+        cashFloat.addListener(publisher);
+        publisher.start();
+
+        cashFloat.addCoins(Map.of(10, 2));
+        cashFloat.resetCoins(Map.of(10, 1));
+        publisher.close();
+
+        assertArrayEquals(new int[]{0, 0, 0, 0, 2, 0, 0, 0}, copies.get(0));
+        assertArrayEquals(new int[]{0, 0, 0, 0, 2, 0, 0, 0}, copies.get(1));
+        assertArrayEquals(new int[]{0, 0, 0, 0, 1, 0, 0, 0}, copies.get(2));
+        assertArrayEquals(new int[]{0, 0, 0, 0, -1, 0, 0, 0}, copies.get(3));
+    }
+}
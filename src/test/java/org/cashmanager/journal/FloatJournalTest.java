@@ -0,0 +1,235 @@
+package org.cashmanager.journal;
+
+import org.cashmanager.contract.CashTransaction;
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashManagerImpl;
+import org.cashmanager.core.FloatMutation;
+import org.cashmanager.core.FloatState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FloatJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private Path journalPath;
+    private final Currency currency = Currency.GBP;
+
+    @BeforeEach
+    void setup() {
+        journalPath = directory.resolve("float.journal");
+    }
+
+    @Test
+    void open_should_create_empty_journal_when_file_missing() throws IOException {
+        try (FloatJournal journal = FloatJournal.open(journalPath, currency, DurabilityMode.SYNC)) {
+            assertTrue(journal.getRecoveredState().isEmpty());
+        }
+        assertTrue(Files.size(journalPath) > 0);
+        assertTrue(FloatJournal.read(journalPath, currency).isEmpty());
+    }
+
+    @ParameterizedTest
+    @EnumSource(DurabilityMode.class)
+    void open_should_replay_every_change_when_journal_reopened(final DurabilityMode durabilityMode) throws IOException {
+        CashManagerImpl cashManager = new CashManagerImpl(currency, Map.of(100, 2, 50, 0, 10, 5));
+        try (FloatJournal journal = FloatJournal.open(journalPath, currency, durabilityMode)) {
+            journal.writeBaseline(cashManager.getState());
+            cashManager.addListener(journal);
+
+            cashManager.addCoins(Map.of(20, 3));
+            cashManager.removeCoins(Map.of(10, 1));
+            cashManager.processTransaction(new CashTransaction(140, Map.of(200, 1)));
+            cashManager.removeCoins(10);
+            cashManager.processTransactions(List.of(new CashTransaction(30, Map.of(50, 1))));
+        }
+
+        try (FloatJournal journal = FloatJournal.open(journalPath, currency, durabilityMode)) {
+            FloatState recovered = journal.getRecoveredState().orElseThrow();
+            FloatState expected = cashManager.getState();
+            assertArrayEquals(expected.copyCounts(), recovered.copyCounts());
+            assertEquals(expected.getRecordedSlots(), recovered.getRecordedSlots());
+            assertEquals(expected.getVersion(), recovered.getVersion());
+            assertEquals(cashManager.getDenominationCounts(), CashManagerImpl.restore(currency, recovered).getDenominationCounts());
+        }
+    }
+
+    @Test
+    void open_should_replay_reset_when_float_reset() throws IOException {
+        CashManagerImpl cashManager = new CashManagerImpl(currency, Map.of(100, 2));
+        try (FloatJournal journal = FloatJournal.open(journalPath, currency, DurabilityMode.SYNC)) {
+            journal.writeBaseline(cashManager.getState());
+            cashManager.addListener(journal);
+            cashManager.resetCoins(Map.of(5, 7, 2, 0));
+        }
+
+        FloatState recovered = FloatJournal.read(journalPath, currency).orElseThrow();
+        assertEquals(Map.of(5, 7, 2, 0), CashManagerImpl.restore(currency, recovered).getDenominationCounts());
+    }
+
+    @Test
+    void onChange_should_keep_every_change_when_called_concurrently() throws IOException, InterruptedException {
+        CashManagerImpl cashManager = new CashManagerImpl(currency, Map.of(10, 2000));
+        int threads = 8;
+        int changesPerThread = 200;
+        try (FloatJournal journal = FloatJournal.open(journalPath, currency, DurabilityMode.SYNC)) {
+            journal.writeBaseline(cashManager.getState());
+            cashManager.addListener(journal);
+
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            for (int t = 0; t < threads; t++) {
+                executor.submit(() -> {
+                    for (int i = 0; i < changesPerThread; i++) {
+                        cashManager.processTransaction(new CashTransaction(10, Map.of(20, 1)));
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+
+        FloatState recovered = FloatJournal.read(journalPath, currency).orElseThrow();
+        assertEquals(threads * changesPerThread, recovered.getVersion());
+        assertArrayEquals(cashManager.getState().copyCounts(), recovered.copyCounts());
+    }
+
+    @Test
+    void open_should_discard_torn_record_when_journal_ends_part_way_through_a_record() throws IOException {
+        CashManagerImpl cashManager = new CashManagerImpl(currency, Map.of(100, 2));
+        try (FloatJournal journal = FloatJournal.open(journalPath, currency, DurabilityMode.SYNC)) {
+            journal.writeBaseline(cashManager.getState());
+            cashManager.addListener(journal);
+            cashManager.addCoins(Map.of(50, 1));
+        }
+        long validLength = Files.size(journalPath);
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 12, 1, 2, 3}));
+        }
+
+        try (FloatJournal journal = FloatJournal.open(journalPath, currency, DurabilityMode.SYNC)) {
+            assertEquals(validLength, Files.size(journalPath));
+            CashManagerImpl restored = CashManagerImpl.restore(currency, journal.getRecoveredState().orElseThrow());
+            assertEquals(Map.of(100, 2, 50, 1), restored.getDenominationCounts());
+
+            restored.addListener(journal);
+            restored.addCoins(Map.of(50, 1));
+        }
+
+        FloatState recovered = FloatJournal.read(journalPath, currency).orElseThrow();
+        assertEquals(2, recovered.getCount(currency.getSlot(50)));
+        assertEquals(2, recovered.getVersion());
+    }
+
+    @ParameterizedTest
+    @EnumSource(DurabilityMode.class)
+    void roll_should_replace_records_covered_by_float_with_baseline_when_float_snapshotted(final DurabilityMode durabilityMode) throws IOException {
+        CashManagerImpl cashManager = new CashManagerImpl(currency, Map.of(100, 2, 10, 5));
+        FloatState snapshotted;
+        FloatState late;
+        try (FloatJournal journal = FloatJournal.open(journalPath, currency, durabilityMode)) {
+            journal.writeBaseline(cashManager.getState());
+            cashManager.addListener(journal);
+            for (int i = 0; i < 100; i++) {
+                cashManager.addCoins(Map.of(20, 1));
+            }
+            late = cashManager.getState();
+            cashManager.removeCoins(Map.of(10, 2));
+            journal.sync();
+            long sizeBeforeRoll = Files.size(journalPath);
+            snapshotted = cashManager.getState();
+
+            assertTrue(journal.roll(snapshotted));
+            assertFalse(journal.roll(late));
+            assertTrue(Files.size(journalPath) < sizeBeforeRoll);
+
+            journal.onChange(FloatMutation.REMOVE, late, snapshotted);
+            cashManager.addCoins(Map.of(50, 3));
+        }
+
+        FloatState expected = cashManager.getState();
+        for (FloatState checkpoint : new FloatState[]{null, snapshotted}) {
+            FloatState recovered = FloatJournal.read(journalPath, currency, checkpoint).orElseThrow();
+            assertArrayEquals(expected.copyCounts(), recovered.copyCounts());
+            assertEquals(expected.getVersion(), recovered.getVersion());
+            assertEquals(expected.getRecordedSlots(), recovered.getRecordedSlots());
+        }
+    }
+
+    @Test
+    void processTransaction_should_throw_when_journal_cannot_write_change() throws Exception {
+        CashManagerImpl cashManager = new CashManagerImpl(currency, Map.of(100, 2, 20, 5));
+        FloatJournal journal = FloatJournal.open(journalPath, currency, DurabilityMode.SYNC);
+        journal.writeBaseline(cashManager.getState());
+        cashManager.addListener(journal);
+        cashManager.processTransaction(new CashTransaction(80, Map.of(100, 1)));
+
+        Field channel = FloatJournal.class.getDeclaredField("channel");
+        channel.setAccessible(true);
+        ((FileChannel) channel.get(journal)).close();
+
+        assertThrows(UncheckedIOException.class, () -> cashManager.processTransaction(new CashTransaction(80, Map.of(100, 1))));
+        assertThrows(UncheckedIOException.class, () -> cashManager.addCoins(Map.of(50, 1)));
+        assertEquals(2, cashManager.getMetrics().getFailures().values().stream().mapToLong(Long::longValue).sum());
+        assertThrows(IOException.class, journal::close);
+    }
+
+    @Test
+    void roll_should_throw_ise_when_journal_closed() throws IOException {
+        CashManagerImpl cashManager = new CashManagerImpl(currency, Map.of(100, 2));
+        FloatJournal journal = FloatJournal.open(journalPath, currency, DurabilityMode.SYNC);
+        journal.close();
+        assertThrows(IllegalStateException.class, () -> journal.roll(cashManager.getState()));
+    }
+
+    @Test
+    void open_should_throw_ioe_when_file_is_not_a_journal() throws IOException {
+        Files.writeString(journalPath, "not a journal");
+        assertThrows(IOException.class, () -> FloatJournal.open(journalPath, currency, DurabilityMode.SYNC));
+    }
+
+    @Test
+    void writeBaseline_should_throw_ise_when_journal_already_holds_a_float() throws IOException {
+        CashManagerImpl cashManager = new CashManagerImpl(currency, Map.of(100, 2));
+        try (FloatJournal journal = FloatJournal.open(journalPath, currency, DurabilityMode.SYNC)) {
+            journal.writeBaseline(cashManager.getState());
+        }
+        try (FloatJournal journal = FloatJournal.open(journalPath, currency, DurabilityMode.SYNC)) {
+            assertThrows(IllegalStateException.class, () -> journal.writeBaseline(cashManager.getState()));
+        }
+    }
+
+    @Test
+    void onChange_should_throw_ise_when_journal_closed() throws IOException {
+        CashManagerImpl cashManager = new CashManagerImpl(currency, Map.of(100, 2));
+        FloatJournal journal = FloatJournal.open(journalPath, currency, DurabilityMode.BATCHED);
+        journal.close();
+        FloatState state = cashManager.getState();
+        assertThrows(IllegalStateException.class, () -> journal.onChange(FloatMutation.ADD, state, state));
+    }
+
+    @Test
+    void fromName_should_find_mode_ignoring_case_and_throw_iae_when_unknown() {
+        assertEquals(DurabilityMode.BATCHED, DurabilityMode.fromName("batched"));
+        assertThrows(IllegalArgumentException.class, () -> DurabilityMode.fromName("sometimes"));
+    }
+}
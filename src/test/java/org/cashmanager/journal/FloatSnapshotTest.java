@@ -0,0 +1,146 @@
+package org.cashmanager.journal;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashManagerImpl;
+import org.cashmanager.core.FloatState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FloatSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private Path snapshotPath;
+    private final Currency currency = Currency.GBP;
+    private CashManagerImpl cashManager;
+
+    @BeforeEach
+    void setup() {
+        snapshotPath = directory.resolve("float.snapshot");
+        cashManager = new CashManagerImpl(currency, Map.of(200, 4, 50, 0, 5, 11));
+        cashManager.addCoins(Map.of(1, 3));
+    }
+
+    @Test
+    void read_should_return_written_float_when_snapshot_exists() throws IOException {
+        FloatSnapshot.write(snapshotPath, currency, cashManager.getState());
+
+        assertEquals(FloatSnapshot.sizeOf(currency), Files.size(snapshotPath));
+        FloatState loaded = FloatSnapshot.read(snapshotPath, currency).orElseThrow();
+        FloatState expected = cashManager.getState();
+        assertArrayEquals(expected.copyCounts(), loaded.copyCounts());
+        assertEquals(expected.getRecordedSlots(), loaded.getRecordedSlots());
+        assertEquals(expected.getVersion(), loaded.getVersion());
+        assertEquals(cashManager.getDenominationCounts(), CashManagerImpl.restore(currency, loaded).getDenominationCounts());
+    }
+
+    @Test
+    void read_should_return_empty_when_snapshot_missing() throws IOException {
+        assertTrue(FloatSnapshot.read(snapshotPath, currency).isEmpty());
+    }
+
+    @Test
+    void write_should_replace_previous_snapshot_when_called_again() throws IOException {
+        FloatSnapshot.write(snapshotPath, currency, cashManager.getState());
+        cashManager.removeCoins(Map.of(200, 1));
+        FloatSnapshot.write(snapshotPath, currency, cashManager.getState());
+
+        FloatState loaded = FloatSnapshot.read(snapshotPath, currency).orElseThrow();
+        assertEquals(3, loaded.getCount(currency.getSlot(200)));
+        assertFalse(Files.exists(directory.resolve("float.snapshot.tmp")));
+    }
+
+    @Test
+    void read_should_throw_ioe_when_checksum_does_not_match() throws IOException {
+        FloatSnapshot.write(snapshotPath, currency, cashManager.getState());
+        byte[] bytes = Files.readAllBytes(snapshotPath);
+        bytes[24] ^= 1;
+        Files.write(snapshotPath, bytes);
+
+        assertThrows(IOException.class, () -> FloatSnapshot.read(snapshotPath, currency));
+    }
+
+    @Test
+    void read_should_throw_ioe_when_file_is_not_a_snapshot() throws IOException {
+        Files.write(snapshotPath, new byte[FloatSnapshot.sizeOf(currency)]);
+        assertThrows(IOException.class, () -> FloatSnapshot.read(snapshotPath, currency));
+
+        Files.writeString(snapshotPath, "too short");
+        assertThrows(IOException.class, () -> FloatSnapshot.read(snapshotPath, currency));
+    }
+
+    @Test
+    void checkpoint_should_only_write_when_float_changed() throws IOException {
+        try (FloatCheckpointer checkpointer = FloatCheckpointer.start(snapshotPath, currency, cashManager::getState, Duration.ofHours(1))) {
+            assertTrue(checkpointer.checkpoint());
+            assertFalse(checkpointer.checkpoint());
+            cashManager.addCoins(Map.of(2, 1));
+            assertTrue(checkpointer.checkpoint());
+            assertEquals(cashManager.getState().getVersion(), checkpointer.getCheckpointedVersion());
+        }
+    }
+
+    @Test
+    void close_should_write_final_snapshot_when_checkpointer_stopped() throws IOException {
+        FloatCheckpointer checkpointer = FloatCheckpointer.start(snapshotPath, currency, cashManager::getState, Duration.ofHours(1));
+        cashManager.addCoins(Map.of(2, 1));
+        checkpointer.close();
+
+        assertEquals(cashManager.getState().getVersion(), FloatSnapshot.read(snapshotPath, currency).orElseThrow().getVersion());
+    }
+
+    @Test
+    void checkpoint_should_roll_journal_to_snapshot_when_journal_provided() throws IOException {
+        Path journalPath = directory.resolve("float.journal");
+        try (FloatJournal journal = FloatJournal.open(journalPath, currency, DurabilityMode.SYNC)) {
+            journal.writeBaseline(cashManager.getState());
+            cashManager.addListener(journal);
+            for (int i = 0; i < 50; i++) {
+                cashManager.addCoins(Map.of(20, 1));
+            }
+            long sizeBeforeCheckpoint = Files.size(journalPath);
+            try (FloatCheckpointer checkpointer = FloatCheckpointer.start(snapshotPath, currency, cashManager::getState, Duration.ofHours(1), journal)) {
+                assertTrue(checkpointer.checkpoint());
+                assertTrue(Files.size(journalPath) < sizeBeforeCheckpoint);
+                cashManager.removeCoins(Map.of(5, 4));
+            }
+        }
+
+        FloatState snapshot = FloatSnapshot.read(snapshotPath, currency).orElseThrow();
+        assertEquals(cashManager.getState().getVersion(), snapshot.getVersion());
+        FloatState recovered = FloatJournal.read(journalPath, currency).orElseThrow();
+        assertArrayEquals(cashManager.getState().copyCounts(), recovered.copyCounts());
+        assertEquals(cashManager.getState().getVersion(), recovered.getVersion());
+    }
+
+    @Test
+    void open_journal_should_replay_only_records_after_checkpoint_when_checkpoint_provided() throws IOException {
+        Path journalPath = directory.resolve("float.journal");
+        try (FloatJournal journal = FloatJournal.open(journalPath, currency, DurabilityMode.SYNC)) {
+            journal.writeBaseline(cashManager.getState());
+            cashManager.addListener(journal);
+            cashManager.addCoins(Map.of(20, 2));
+            FloatSnapshot.write(snapshotPath, currency, cashManager.getState());
+            cashManager.removeCoins(Map.of(5, 4));
+            cashManager.addCoins(Map.of(50, 1));
+        }
+
+        FloatState checkpoint = FloatSnapshot.read(snapshotPath, currency).orElseThrow();
+        try (FloatJournal journal = FloatJournal.open(journalPath, currency, DurabilityMode.SYNC, FloatJournal.DEFAULT_FLUSH_INTERVAL, checkpoint)) {
+            FloatState recovered = journal.getRecoveredState().orElseThrow();
+            assertArrayEquals(cashManager.getState().copyCounts(), recovered.copyCounts());
+            assertEquals(cashManager.getState().getVersion(), recovered.getVersion());
+            assertEquals(cashManager.getState().getRecordedSlots(), recovered.getRecordedSlots());
+        }
+    }
+}
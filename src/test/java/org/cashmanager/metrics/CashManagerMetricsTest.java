@@ -0,0 +1,125 @@
+package org.cashmanager.metrics;
+
+import org.cashmanager.contract.CashTransaction;
+import org.cashmanager.contract.Currency;
+import org.cashmanager.contract.TransactionResult;
+import org.cashmanager.core.CashManagerImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CashManagerMetricsTest {
+
+    @Test
+    void getMetrics_should_record_latency_for_each_operation_when_called() {
+        CashManagerImpl cashManager = new CashManagerImpl(Currency.GBP, Map.of(50, 2, 20, 3));
+        cashManager.addCoins(Map.of(10, 2));
+        cashManager.processTransaction(new CashTransaction(30, Map.of(50, 1)));
+        cashManager.processTransactions(List.of(new CashTransaction(30, Map.of(50, 1))));
+        cashManager.removeCoins(10);
+        cashManager.removeCoins(Map.of(50, 1));
+        cashManager.resetCoins(Map.of(100, 1));
+
+        MetricsSnapshot metrics = cashManager.getMetrics();
+        for (Operation operation : Operation.values()) {
+            assertEquals(1, metrics.getLatency(operation).getCount(), operation.name());
+        }
+    }
+
+    @Test
+    void getMetrics_should_count_failures_by_reason_when_operations_rejected() {
+        CashManagerImpl cashManager = new CashManagerImpl(Currency.GBP, Map.of(50, 1));
+        assertThrows(IllegalArgumentException.class, () -> cashManager.processTransaction(new CashTransaction(100, Map.of(50, 1))));
+        assertThrows(IllegalStateException.class, () -> cashManager.removeCoins(30));
+        assertThrows(IllegalArgumentException.class, () -> cashManager.removeCoins(Map.of(50, 2)));
+        assertThrows(IllegalArgumentException.class, () -> cashManager.removeCoins(-1));
+        cashManager.processTransactions(List.of(new CashTransaction(100, Map.of(20, 1)), new CashTransaction(10, Map.of(50, 1))));
+
+        Map<FailureReason, Long> failures = cashManager.getMetrics().getFailures();
+        assertEquals(2, failures.get(FailureReason.INSUFFICIENT_PAYMENT));
+        assertEquals(2, failures.get(FailureReason.CANNOT_MAKE_CHANGE));
+        assertEquals(1, failures.get(FailureReason.INSUFFICIENT_COINS));
+        assertEquals(1, failures.get(FailureReason.INVALID_INPUT));
+        assertEquals(2, cashManager.getMetrics().getLatency(Operation.REMOVE_VALUE).getCount());
+    }
+
+    @Test
+    void getMetrics_should_count_change_failure_when_sale_fails_mid_batch() {
+        CashManagerImpl cashManager = new CashManagerImpl(Currency.GBP, Map.of(20, 1));
+        List<TransactionResult> results = cashManager.processTransactions(List.of(
+                new CashTransaction(30, Map.of(50, 1)),
+                new CashTransaction(30, Map.of(50, 1)),
+                new CashTransaction(50, Map.of(50, 1))));
+
+        assertTrue(results.get(0).isSuccessful());
+        assertFalse(results.get(1).isSuccessful());
+        assertTrue(results.get(2).isSuccessful());
+        Map<FailureReason, Long> failures = cashManager.getMetrics().getFailures();
+        assertEquals(1, failures.get(FailureReason.CANNOT_MAKE_CHANGE));
+        assertEquals(1, failures.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    void getMetrics_should_count_table_lookups_when_change_up_to_five_pounds() {
+        CashManagerImpl cashManager = new CashManagerImpl(Currency.GBP, Map.of(50, 1, 20, 5, 10, 0));
+        cashManager.removeCoins(20);
+        cashManager.removeCoins(60);
+        cashManager.processTransaction(new CashTransaction(30, Map.of(50, 1)));
+
+        MetricsSnapshot metrics = cashManager.getMetrics();
+        assertEquals(3, metrics.getTableLookups());
+        assertEquals(0, metrics.getGreedyCalculations());
+        assertEquals(0, metrics.getFallbackCalculations());
+    }
+
+    @Test
+    void getMetrics_should_count_greedy_and_fallback_calculations_when_change_above_five_pounds() {
+        CashManagerImpl cashManager = new CashManagerImpl(Currency.GBP, Map.of(200, 5, 20, 6));
+        cashManager.removeCoins(600);
+        cashManager.removeCoins(520);
+
+        MetricsSnapshot metrics = cashManager.getMetrics();
+        assertEquals(1, metrics.getGreedyCalculations());
+        assertEquals(1, metrics.getFallbackCalculations());
+        assertTrue(metrics.getSolverNodes() > 0);
+        assertEquals(0.5, metrics.getGreedyHitRate());
+    }
+
+    @Test
+    void getMetrics_should_count_infeasible_rejection_when_change_above_five_pounds_cannot_be_made() {
+        CashManagerImpl cashManager = new CashManagerImpl(Currency.GBP, Map.of(200, 5, 20, 6));
+        assertThrows(IllegalStateException.class, () -> cashManager.removeCoins(610));
+
+        MetricsSnapshot metrics = cashManager.getMetrics();
+        assertEquals(1, metrics.getInfeasibleRejections());
+        assertEquals(0, metrics.getFallbackCalculations());
+        assertEquals(0, metrics.getSolverNodes());
+    }
+
+    @Test
+    void getMetrics_should_count_depletion_when_denomination_runs_out() {
+        CashManagerImpl cashManager = new CashManagerImpl(Currency.GBP, Map.of(50, 1, 20, 2));
+        cashManager.removeCoins(Map.of(20, 2));
+        cashManager.addCoins(Map.of(20, 1));
+        cashManager.removeCoins(70);
+
+        Map<Integer, Long> depletions = cashManager.getMetrics().getDepletions();
+        assertEquals(2, depletions.get(20));
+        assertEquals(1, depletions.get(50));
+        assertEquals(0, depletions.get(200));
+    }
+
+    @Test
+    void toCompactString_should_leave_out_operations_which_have_not_run() {
+        CashManagerImpl cashManager = new CashManagerImpl(Currency.GBP, Map.of(50, 1));
+        cashManager.addCoins(Map.of(50, 1));
+
+        String compact = cashManager.getMetrics().toCompactString();
+        assertTrue(compact.startsWith("add.count=1 add.p50="), compact);
+        assertFalse(compact.contains("transaction."), compact);
+        assertTrue(compact.contains(" table=0 greedy=0 fallback=0 solverNodes=0 infeasible=0"), compact);
+    }
+}
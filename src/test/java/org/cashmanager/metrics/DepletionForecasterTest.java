@@ -0,0 +1,104 @@
+package org.cashmanager.metrics;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.FloatMutation;
+import org.cashmanager.core.FloatState;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DepletionForecasterTest {
+    private static final int TWENTY_SLOT = 3;
+    private static final int FIFTY_SLOT = 2;
+
+    private final Currency currency = Currency.GBP;
+    private long now = 1_000_000_000L;
+    private final DepletionForecaster forecaster = new DepletionForecaster(currency, Duration.ofHours(1), () -> now);
+    private FloatState floatState = FloatState.of(new int[]{0, 0, 0, 700, 0, 0, 0, 0}, 0xFF, 0);
+
+    @Test
+    void forecast_should_converge_on_steady_rate_when_sales_arrive_regularly() {
+        // one 20p paid out every minute for 10 hours, leaving 100
+        for (int sale = 0; sale < 600; sale++) {
+            now += Duration.ofMinutes(1).toNanos();
+            change(FloatMutation.TRANSACTION, TWENTY_SLOT, -1);
+        }
+
+        DepletionForecast twenty = forecaster.forecast(floatState).get(TWENTY_SLOT);
+        assertEquals(20, twenty.getDenomination());
+        assertEquals(100, twenty.getCount());
+        assertEquals(-60, twenty.getCoinsPerHour(), 60 * 0.01);
+        assertEquals(Duration.ofMinutes(100).toMinutes(), twenty.getTimeUntilEmpty().orElseThrow().toMinutes(), 2);
+        assertTrue(twenty.getTimeUntilFull().isEmpty());
+    }
+
+    @Test
+    void forecast_should_decay_rate_when_no_transactions_made() {
+        for (int sale = 0; sale < 600; sale++) {
+            now += Duration.ofMinutes(1).toNanos();
+            change(FloatMutation.TRANSACTION, TWENTY_SLOT, -1);
+        }
+        double rate = forecaster.forecast(floatState).get(TWENTY_SLOT).getCoinsPerHour();
+
+        now += Duration.ofHours(1).toNanos();
+
+        assertEquals(rate / 2, forecaster.forecast(floatState).get(TWENTY_SLOT).getCoinsPerHour(), 0.01);
+    }
+
+    @Test
+    void forecast_should_ignore_coins_added_or_removed_by_hand_when_calculating_rates() {
+        now += Duration.ofMinutes(1).toNanos();
+        change(FloatMutation.ADD, TWENTY_SLOT, 100);
+        change(FloatMutation.REMOVE, FIFTY_SLOT, 0);
+        change(FloatMutation.RESET, TWENTY_SLOT, -50);
+
+        List<DepletionForecast> forecasts = forecaster.forecast(floatState);
+        assertEquals(750, forecasts.get(TWENTY_SLOT).getCount());
+        forecasts.forEach(forecast -> assertEquals(0, forecast.getCoinsPerHour()));
+        forecasts.forEach(forecast -> assertTrue(forecast.getTimeUntilEmpty().isEmpty()));
+    }
+
+    @Test
+    void forecast_should_predict_overflow_when_tube_filling_and_capacity_known() {
+        forecaster.setTubeCapacities(Map.of(50, 120));
+        for (int sale = 0; sale < 600; sale++) {
+            now += Duration.ofMinutes(1).toNanos();
+            change(FloatMutation.BATCH, FIFTY_SLOT, 1);
+        }
+
+        DepletionForecast fifty = forecaster.forecast(floatState).get(FIFTY_SLOT);
+        assertEquals(600, fifty.getCount());
+        assertEquals(Duration.ZERO, fifty.getTimeUntilFull().orElseThrow());
+        assertTrue(fifty.toCompactString().startsWith("50=+60.3/h,full=0m"), fifty.toCompactString());
+        assertTrue(forecaster.forecast(floatState).get(0).getTimeUntilFull().isEmpty());
+    }
+
+    @Test
+    void setTubeCapacities_should_throw_exception_when_capacity_not_above_zero() {
+        assertThrows(IllegalArgumentException.class, () -> forecaster.setTubeCapacities(Map.of(50, 0)));
+    }
+
+    @Test
+    void constructor_should_throw_exception_when_half_life_not_above_zero() {
+        assertThrows(IllegalArgumentException.class, () -> new DepletionForecaster(currency, Duration.ZERO, () -> 0));
+        assertThrows(IllegalArgumentException.class, () -> new DepletionForecaster(null, Duration.ofHours(1), () -> 0));
+    }
+
+    @Test
+    void format_should_show_hours_and_minutes() {
+        assertEquals("45m", DepletionForecast.format(Duration.ofMinutes(45)));
+        assertEquals("3h10m", DepletionForecast.format(Duration.ofMinutes(190)));
+    }
+
+    private void change(final FloatMutation mutation, final int slot, final int delta) {
+        int[] counts = floatState.copyCounts();
+        counts[slot] += delta;
+        FloatState next = FloatState.of(counts, 0xFF, floatState.getVersion() + 1);
+        forecaster.onChange(mutation, floatState, next);
+        floatState = next;
+    }
+}
@@ -0,0 +1,84 @@
+package org.cashmanager.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    void bucketIndex_should_place_value_in_bucket_bounding_it() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 100, 1_000, 65_535, 1_000_000, 123_456_789_012L}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(value <= LatencyHistogram.bucketUpperBound(index), "value " + value);
+            if (index > 0) {
+                assertTrue(value > LatencyHistogram.bucketUpperBound(index - 1), "value " + value);
+            }
+        }
+    }
+
+    @Test
+    void bucketIndex_should_use_last_bucket_when_value_above_range() {
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    void getPercentile_should_be_within_a_sixteenth_of_recorded_values() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1_000_000, snapshot.getMax());
+        assertEquals(500_500, snapshot.getMean(), 0.001);
+        assertEquals(500_000, snapshot.getPercentile(50), 500_000 / 16.0);
+        assertEquals(990_000, snapshot.getPercentile(99), 990_000 / 16.0);
+        assertEquals(1_000_000, snapshot.getPercentile(100));
+    }
+
+    @Test
+    void record_should_allocate_only_rows_values_fall_in() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.allocatedRows());
+
+        histogram.record(1_000);
+        histogram.record(1_500);
+        histogram.record(2_000);
+
+        assertEquals(2, histogram.allocatedRows());
+        assertEquals(3, histogram.snapshot().getCount());
+        assertEquals(2_000, histogram.snapshot().getPercentile(100));
+    }
+
+    @Test
+    void snapshot_should_return_zeros_when_nothing_recorded() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getPercentile(99));
+        assertEquals(0, snapshot.getMean());
+    }
+
+    @Test
+    void record_should_keep_every_value_when_called_concurrently() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 4;
+        int recordsPerThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < recordsPerThread; i++) {
+                    histogram.record(i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(threads * recordsPerThread, histogram.snapshot().getCount());
+        assertEquals(recordsPerThread - 1, histogram.snapshot().getMax());
+    }
+}
@@ -0,0 +1,227 @@
+package org.cashmanager.registry;
+
+import org.cashmanager.contract.CashTransaction;
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashManagerImpl;
+import org.cashmanager.core.FloatState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CashManagerRegistryTest {
+    private CashManagerRegistry registry;
+    private final Map<String, CashManagerImpl> evicted = new ConcurrentHashMap<>();
+    private final AtomicInteger created = new AtomicInteger();
+
+    @BeforeEach
+    void setup() {
+        registry = new CashManagerRegistry(machineId -> {
+            created.incrementAndGet();
+            return new CashManagerImpl(Currency.GBP, Map.of(10, 100));
+        }, Duration.ofHours(1), evicted::put);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.close();
+    }
+
+    @Test
+    void submit_should_create_cash_manager_on_first_use_and_reuse_it() throws Exception {
+        Map<Integer, Integer> change = registry.submit("machine-1", cashManager ->
+                cashManager.processTransaction(new CashTransaction(80, Map.of(100, 1)))).get(5, TimeUnit.SECONDS);
+
+        assertEquals(Map.of(10, 2), change);
+        registry.submit("machine-1", cashManager -> null).get(5, TimeUnit.SECONDS);
+        assertEquals(1, created.get());
+        assertEquals(1, registry.size());
+        assertEquals(98, registry.get("machine-1").orElseThrow().getDenominationCounts().get(10));
+    }
+
+    @Test
+    void submit_should_run_operations_for_a_machine_in_submission_order() throws Exception {
+        List<Integer> order = new ArrayList<>();
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int position = i;
+            results.add(registry.submit("machine-1", cashManager -> order.add(position)));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    void submit_should_keep_each_float_consistent_when_called_concurrently_for_many_machines() throws Exception {
+        int machines = 50;
+        int transactionsPerMachine = 40;
+        ExecutorService submitters = Executors.newFixedThreadPool(8);
+        List<Future<CompletableFuture<Map<Integer, Integer>>>> submitted = new ArrayList<>();
+        for (int i = 0; i < machines * transactionsPerMachine; i++) {
+            String machineId = "machine-" + (i % machines);
+            submitted.add(submitters.submit(() -> registry.submit(machineId, cashManager ->
+                    cashManager.processTransaction(new CashTransaction(10, Map.of(20, 1))))));
+        }
+        for (Future<CompletableFuture<Map<Integer, Integer>>> future : submitted) {
+            assertEquals(Map.of(10, 1), future.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS));
+        }
+        submitters.shutdown();
+
+        assertEquals(machines, registry.size());
+        for (int i = 0; i < machines; i++) {
+            Map<Integer, Integer> counts = registry.get("machine-" + i).orElseThrow().getDenominationCounts();
+            assertEquals(100 - transactionsPerMachine, counts.get(10));
+            assertEquals(transactionsPerMachine, counts.get(20));
+        }
+    }
+
+    @Test
+    void submit_should_complete_exceptionally_when_operation_throws() {
+        CompletableFuture<Map<Integer, Integer>> result = registry.submit("machine-1", cashManager -> cashManager.removeCoins(5));
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+    }
+
+    @Test
+    void evictIdle_should_evict_idle_cash_managers_and_recreate_on_next_use() throws Exception {
+        registry.close();
+        registry = new CashManagerRegistry(machineId -> {
+            created.incrementAndGet();
+            return new CashManagerImpl(Currency.GBP, Map.of(10, 100));
+        }, Duration.ofMillis(50), evicted::put);
+
+        registry.submit("machine-1", manager -> {
+            manager.addCoins(Map.of(1, 1));
+            return null;
+        }).get(5, TimeUnit.SECONDS);
+        Thread.sleep(60);
+        registry.evictIdle();
+
+        assertTrue(registry.get("machine-1").isEmpty());
+        assertEquals(1, evicted.get("machine-1").getDenominationCounts().get(1));
+
+        registry.submit("machine-1", manager -> null).get(5, TimeUnit.SECONDS);
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    void submit_should_wait_for_eviction_listener_before_recreating_cash_manager() throws Exception {
+        registry.close();
+        Map<String, FloatState> saved = new ConcurrentHashMap<>();
+        CountDownLatch listenerStarted = new CountDownLatch(1);
+        CountDownLatch releaseListener = new CountDownLatch(1);
+        registry = new CashManagerRegistry(machineId -> {
+            FloatState snapshot = saved.get(machineId);
+            return snapshot == null ? new CashManagerImpl(Currency.GBP, Map.of(10, 100)) : CashManagerImpl.restore(Currency.GBP, snapshot);
+        }, Duration.ofMillis(50), (machineId, cashManager) -> {
+            listenerStarted.countDown();
+            try {
+                releaseListener.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            saved.put(machineId, cashManager.getState());
+        });
+        registry.submit("machine-1", manager -> {
+            manager.addCoins(Map.of(1, 1));
+            return null;
+        }).get(5, TimeUnit.SECONDS);
+        Thread.sleep(60);
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        threads.execute(registry::evictIdle);
+        assertTrue(listenerStarted.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Integer> ones = CompletableFuture.supplyAsync(() ->
+                registry.submit("machine-1", manager -> manager.getDenominationCounts().get(1)).join(), threads);
+        Thread.sleep(50);
+        assertFalse(ones.isDone());
+        releaseListener.countDown();
+
+        assertEquals(1, ones.get(5, TimeUnit.SECONDS));
+        threads.shutdown();
+    }
+
+    @Test
+    void evictIdle_should_count_failure_and_keep_evicting_when_listener_throws() throws Exception {
+        registry.close();
+        AtomicInteger listened = new AtomicInteger();
+        registry = new CashManagerRegistry(machineId -> new CashManagerImpl(Currency.GBP, Map.of(10, 100)), Duration.ofMillis(20),
+                (machineId, cashManager) -> {
+                    listened.incrementAndGet();
+                    throw new IllegalStateException("Snapshot store unavailable");
+                });
+
+        for (int eviction = 1; eviction <= 2; eviction++) {
+            registry.getOrCreate("machine-1");
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (listened.get() < eviction && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(eviction, listened.get());
+        }
+
+        assertEquals(2, registry.getEvictionFailureCount());
+        assertEquals("Snapshot store unavailable", registry.getLastEvictionFailure().orElseThrow().getMessage());
+        assertTrue(registry.get("machine-1").isEmpty());
+    }
+
+    @Test
+    void close_should_give_cash_manager_to_listener_once_when_idle_eviction_running() throws Exception {
+        registry.close();
+        List<String> listened = new CopyOnWriteArrayList<>();
+        CountDownLatch listenerStarted = new CountDownLatch(1);
+        CountDownLatch releaseListener = new CountDownLatch(1);
+        registry = new CashManagerRegistry(machineId -> new CashManagerImpl(Currency.GBP, Map.of(10, 100)), Duration.ofMillis(50),
+                (machineId, cashManager) -> {
+                    listenerStarted.countDown();
+                    try {
+                        releaseListener.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    listened.add(machineId);
+                });
+        registry.getOrCreate("machine-1");
+        // the scheduled sweep evicts the idle machine and is held in the listener
+        assertTrue(listenerStarted.await(5, TimeUnit.SECONDS));
+
+        ExecutorService threads = Executors.newSingleThreadExecutor();
+        Future<?> closing = threads.submit(registry::close);
+        Thread.sleep(50);
+        assertFalse(closing.isDone());
+        releaseListener.countDown();
+
+        closing.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("machine-1"), listened);
+        threads.shutdown();
+    }
+
+    @Test
+    void close_should_run_queued_operations_and_evict_every_cash_manager() throws Exception {
+        CompletableFuture<Void> result = registry.submit("machine-1", cashManager -> {
+            cashManager.addCoins(Map.of(5, 3));
+            return null;
+        });
+        registry.getOrCreate("machine-2");
+
+        registry.close();
+
+        assertTrue(result.isDone());
+        assertEquals(Map.of(10, 100, 5, 3), evicted.get("machine-1").getDenominationCounts());
+        assertTrue(evicted.containsKey("machine-2"));
+        assertEquals(0, registry.size());
+        assertThrows(IllegalStateException.class, () -> registry.submit("machine-1", cashManager -> null));
+    }
+}
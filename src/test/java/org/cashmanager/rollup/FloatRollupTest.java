@@ -0,0 +1,114 @@
+package org.cashmanager.rollup;
+
+import org.cashmanager.contract.CashTransaction;
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashManagerImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FloatRollupTest {
+    private final Currency currency = Currency.GBP;
+    private final FloatRollup rollup = new FloatRollup(currency);
+
+    @Test
+    void attach_should_add_float_to_site_region_and_fleet_when_machine_attached() {
+        rollup.attach("north", "leeds", "m1", new CashManagerImpl(currency, Map.of(100, 2, 20, 5)));
+        rollup.attach("north", "york", "m2", new CashManagerImpl(currency, Map.of(20, 3)));
+        rollup.attach("south", "bath", "m3", new CashManagerImpl(currency, Map.of(50, 4)));
+
+        RollupTotals north = rollup.getRegionTotals("north").orElseThrow();
+        assertEquals(2, north.getMachines());
+        assertEquals(8, north.getCount(20));
+        assertEquals(2, north.getCount(100));
+        assertEquals(360, north.getValue());
+        assertEquals(60, rollup.getSiteTotals("york").orElseThrow().getValue());
+        assertEquals(200, rollup.getSiteTotals("bath").orElseThrow().getValue());
+        assertEquals(3, rollup.getFleetTotals().getMachines());
+        assertEquals(560, rollup.getFleetTotals().getValue());
+        assertEquals(300, rollup.getMachineTotals("m1").orElseThrow().getValue());
+        assertTrue(rollup.getRegionTotals("east").isEmpty());
+    }
+
+    @Test
+    void rollup_should_follow_changes_when_floats_change() {
+        CashManagerImpl leeds = new CashManagerImpl(currency, Map.of(20, 5, 10, 5));
+        CashManagerImpl bath = new CashManagerImpl(currency, Map.of(50, 4));
+        rollup.attach("north", "leeds", "m1", leeds);
+        rollup.attach("south", "bath", "m2", bath);
+
+        leeds.processTransaction(new CashTransaction(70, Map.of(100, 1)));
+        bath.addCoins(Map.of(200, 1));
+        bath.removeCoins(Map.of(50, 1));
+        leeds.resetCoins(Map.of(5, 10));
+
+        assertEquals(Map.of(200, 0L, 100, 0L, 50, 0L, 20, 0L, 10, 0L, 5, 10L, 2, 0L, 1, 0L),
+                rollup.getSiteTotals("leeds").orElseThrow().getDenominationCounts());
+        assertEquals(350, rollup.getRegionTotals("south").orElseThrow().getValue());
+        assertEquals(400, rollup.getFleetTotals().getValue());
+        assertEquals(List.of(), rollup.verify());
+    }
+
+    @Test
+    void detach_should_remove_float_from_totals_when_machine_detached() {
+        CashManagerImpl leeds = new CashManagerImpl(currency, Map.of(20, 5));
+        rollup.attach("north", "leeds", "m1", leeds);
+        rollup.attach("north", "leeds", "m2", new CashManagerImpl(currency, Map.of(50, 2)));
+        leeds.addCoins(Map.of(20, 1));
+
+        assertTrue(rollup.detach("m1"));
+        leeds.addCoins(Map.of(20, 1));
+
+        assertFalse(rollup.detach("m1"));
+        RollupTotals site = rollup.getSiteTotals("leeds").orElseThrow();
+        assertEquals(1, site.getMachines());
+        assertEquals(0, site.getCount(20));
+        assertEquals(100, rollup.getFleetTotals().getValue());
+        assertTrue(rollup.getMachineTotals("m1").isEmpty());
+        assertEquals(List.of(), rollup.verify());
+    }
+
+    @Test
+    void attach_should_throw_when_machine_already_attached_or_site_in_other_region() {
+        rollup.attach("north", "leeds", "m1", new CashManagerImpl(currency, Map.of(20, 5)));
+
+        assertThrows(IllegalStateException.class, () -> rollup.attach("north", "leeds", "m1", new CashManagerImpl(currency, Map.of(20, 5))));
+        assertThrows(IllegalArgumentException.class, () -> rollup.attach("south", "leeds", "m2", new CashManagerImpl(currency, Map.of(20, 5))));
+        assertEquals(1, rollup.getFleetTotals().getMachines());
+    }
+
+    @Test
+    void verify_should_match_recompute_when_many_machines_change_concurrently() {
+        List<CashManagerImpl> fleet = new ArrayList<>();
+        for (int machine = 0; machine < 3000; machine++) {
+            CashManagerImpl cashManager = new CashManagerImpl(currency, Map.of(100, 10, 50, 10, 20, 20, 10, 20));
+            rollup.attach("region" + machine % 3, "site" + machine % 30, "m" + machine, cashManager);
+            fleet.add(cashManager);
+        }
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            for (CashManagerImpl cashManager : fleet) {
+                executor.submit(() -> {
+                    for (int sale = 0; sale < 5; sale++) {
+                        cashManager.processTransaction(new CashTransaction(70, Map.of(100, 1)));
+                    }
+                });
+            }
+        }
+
+        assertEquals(List.of(), rollup.verify());
+        Map<String, RollupTotals> recomputed = rollup.recompute();
+        assertEquals(34, recomputed.size());
+        RollupTotals fleetTotals = recomputed.get(FloatRollup.FLEET);
+        assertEquals(3000, fleetTotals.getMachines());
+        assertEquals(3000 * (10 + 5), fleetTotals.getCount(100));
+        assertEquals(3000 * (1000 + 500 + 400 + 200 + 5 * 70), fleetTotals.getValue());
+        assertEquals(fleetTotals, rollup.getFleetTotals());
+    }
+}
@@ -0,0 +1,112 @@
+package org.cashmanager.server;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashManagerImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CashManagerServerTest {
+    @TempDir
+    Path directory;
+
+    private CashManagerImpl cashManager;
+
+    @BeforeEach
+    void setup() {
+        cashManager = new CashManagerImpl(Currency.GBP, Map.of(10, 1000));
+    }
+
+    @Test
+    void server_should_answer_pipelined_commands_in_order_when_sent_in_one_write() throws IOException {
+        try (CashManagerServer server = CashManagerServer.startTcp(cashManager, 0);
+             Socket socket = new Socket()) {
+            socket.connect(server.getAddress());
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            OutputStream output = socket.getOutputStream();
+
+            output.write("add 20 2\n\ntransaction 10 20:1\nremove 30\nstatus\nnonsense\n".getBytes(StandardCharsets.UTF_8));
+            output.flush();
+
+            assertEquals("OK", reader.readLine());
+            assertEquals("ERR Empty command", reader.readLine());
+            assertEquals("OK 10:1", reader.readLine());
+            assertEquals("OK 20:1,10:1", reader.readLine());
+            assertEquals("OK 20:2,10:998", reader.readLine());
+            assertEquals("ERR Unknown command: nonsense", reader.readLine());
+        }
+    }
+
+    @Test
+    void server_should_keep_float_consistent_when_many_connections_send_transactions() throws Exception {
+        int connections = 20;
+        int transactionsPerConnection = 25;
+        try (CashManagerServer server = CashManagerServer.startTcp(cashManager, 0)) {
+            InetSocketAddress address = (InetSocketAddress) server.getAddress();
+            ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+            List<Future<Integer>> okResponses = new ArrayList<>();
+            for (int c = 0; c < connections; c++) {
+                okResponses.add(clients.submit(() -> {
+                    try (Socket socket = new Socket(address.getAddress(), address.getPort())) {
+                        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                        Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                        for (int i = 0; i < transactionsPerConnection; i++) {
+                            writer.write("transaction 10 20:1\n");
+                        }
+                        writer.flush();
+                        int ok = 0;
+                        for (int i = 0; i < transactionsPerConnection; i++) {
+                            if ("OK 10:1".equals(reader.readLine())) {
+                                ok++;
+                            }
+                        }
+                        return ok;
+                    }
+                }));
+            }
+            for (Future<Integer> ok : okResponses) {
+                assertEquals(transactionsPerConnection, ok.get(10, TimeUnit.SECONDS));
+            }
+            clients.shutdown();
+        }
+        assertEquals(connections * transactionsPerConnection, cashManager.getDenominationCounts().get(20));
+        assertEquals(1000 - connections * transactionsPerConnection, cashManager.getDenominationCounts().get(10));
+    }
+
+    @Test
+    void server_should_answer_commands_over_unix_domain_socket_and_remove_socket_when_closed() throws IOException {
+        Path socketPath = directory.resolve("cashmanager.sock");
+        try (CashManagerServer server = CashManagerServer.startUnix(cashManager, socketPath);
+             SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+            BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            Writer writer = new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8);
+
+            writer.write("status\n");
+            writer.flush();
+
+            assertEquals("OK 10:1000", reader.readLine());
+        }
+        assertFalse(Files.exists(socketPath));
+    }
+}
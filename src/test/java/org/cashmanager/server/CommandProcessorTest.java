@@ -0,0 +1,127 @@
+package org.cashmanager.server;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashManagerImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandProcessorTest {
+    private CashManagerImpl cashManager;
+    private CommandProcessor commandProcessor;
+
+    @BeforeEach
+    void setup() {
+        cashManager = new CashManagerImpl(Currency.GBP, Map.of(50, 2, 20, 3, 10, 0));
+        commandProcessor = new CommandProcessor(cashManager);
+    }
+
+    @Test
+    void process_should_return_float_contents_when_status_requested() {
+        assertEquals("OK 50:2,20:3,10:0", commandProcessor.process("status"));
+        assertEquals("OK 50:2,20:3,10:0", commandProcessor.process("  STATUS  "));
+    }
+
+    @Test
+    void process_should_return_metrics_when_metrics_requested() {
+        commandProcessor.process("transaction 30 50:1");
+        commandProcessor.process("transaction 80 50:1");
+
+        String response = commandProcessor.process("metrics");
+        assertTrue(response.startsWith("OK transaction.count=2 "), response);
+        assertTrue(response.contains(" failure.insufficient_payment=1"), response);
+    }
+
+    @Test
+    void process_should_return_forecast_when_forecast_requested() {
+        assertEquals("OK 200=+0.0/h 100=+0.0/h 50=+0.0/h 20=+0.0/h 10=+0.0/h 5=+0.0/h 2=+0.0/h 1=+0.0/h", commandProcessor.process("forecast"));
+
+        commandProcessor.process("transaction 30 50:1");
+
+        String response = commandProcessor.process("forecast");
+        assertTrue(response.contains(" 50=+0.7/h "), response);
+        assertTrue(response.contains(" 20=-0.7/h,empty=2h53m "), response);
+    }
+
+    @Test
+    void process_should_return_exact_change_only_prices_when_exactchange_requested() {
+        assertEquals("OK", commandProcessor.process("exactchange"));
+
+        // no 10p coins, so any price which can need 10p change is exact change only
+        cashManager.setPriceCatalogue(Map.of(80, 0, 150, 199));
+
+        assertEquals("OK 150", commandProcessor.process("exactchange"));
+    }
+
+    @Test
+    void process_should_reset_float_when_reset_with_denominationCounts() {
+        assertEquals("OK", commandProcessor.process("reset 100:1,5:2"));
+        assertEquals(Map.of(100, 1, 5, 2), cashManager.getDenominationCounts());
+    }
+
+    @Test
+    void process_should_add_coins_for_each_add_form() {
+        assertEquals("OK", commandProcessor.process("add 200"));
+        assertEquals("OK", commandProcessor.process("add 5 4"));
+        assertEquals("OK", commandProcessor.process("add 50:1,1:2"));
+
+        assertEquals(Map.of(200, 1, 50, 3, 20, 3, 10, 0, 5, 4, 1, 2), cashManager.getDenominationCounts());
+    }
+
+    @Test
+    void process_should_return_change_when_transaction_processed() {
+        assertEquals("OK 50:1,20:1", commandProcessor.process("transaction 30 100:1"));
+        assertEquals("OK", commandProcessor.process("transaction 50 50:1"));
+    }
+
+    @Test
+    void process_should_return_change_when_value_removed_and_ok_when_coins_removed() {
+        assertEquals("OK 50:1,20:1", commandProcessor.process("remove 70"));
+        assertEquals("OK", commandProcessor.process("remove 20:2"));
+        assertEquals(Map.of(50, 1, 20, 0, 10, 0), cashManager.getDenominationCounts());
+    }
+
+    @Test
+    void process_should_return_err_when_command_fails() {
+        assertTrue(commandProcessor.process("remove 15").startsWith("ERR "));
+        assertTrue(commandProcessor.process("transaction 30 30:1").startsWith("ERR "));
+        assertTrue(commandProcessor.process("add two").startsWith("ERR "));
+        assertEquals("ERR Unknown command: dance", commandProcessor.process("dance"));
+        assertEquals(Map.of(50, 2, 20, 3, 10, 0), cashManager.getDenominationCounts());
+    }
+
+    @Test
+    void process_should_return_usage_when_arguments_missing() {
+        assertEquals("ERR Usage: reset denominationCounts", commandProcessor.process("reset"));
+        assertEquals("ERR Usage: transaction cost denominationCounts", commandProcessor.process("transaction 30"));
+        assertTrue(commandProcessor.process("add").startsWith("ERR Usage"));
+        assertTrue(commandProcessor.process("remove").startsWith("ERR Usage"));
+    }
+
+    @Test
+    void constructor_should_throw_iae_when_cash_manager_null() {
+        assertThrows(IllegalArgumentException.class, () -> new CommandProcessor(null));
+    }
+
+    @Test
+    void process_should_mark_change_nonoptimal_when_solver_budget_runs_out() {
+        CashManagerImpl budgeted = new CashManagerImpl(Currency.GBP, Map.of(100, 305, 50, 166, 5, 1, 2, 3, 1, 175));
+        budgeted.setSolverBudget(Duration.ofNanos(1));
+        CommandProcessor budgetedProcessor = new CommandProcessor(budgeted);
+
+        String response = budgetedProcessor.process("transaction 54 200:144");
+        assertTrue(response.startsWith("OK "), response);
+        assertTrue(response.endsWith(" " + CommandProcessor.NON_OPTIMAL), response);
+        assertEquals("OK 20:1", commandProcessor.process("transaction 30 50:1"));
+    }
+
+    @Test
+    void process_should_return_error_when_command_blank() {
+        assertEquals("ERR Empty command", commandProcessor.process(""));
+        assertEquals("ERR Empty command", commandProcessor.process("  \t "));
+    }
+}
@@ -0,0 +1,105 @@
+package org.cashmanager.simulator;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.CashManagerImpl;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FleetSimulatorTest {
+    private final Currency currency = Currency.GBP;
+    private final Map<Integer, Integer> startingFloat = Map.of(200, 10, 100, 10, 50, 20, 20, 30, 10, 30, 5, 20, 2, 10, 1, 10);
+
+    @Test
+    void run_should_simulate_every_machine_when_running_flat_out() {
+        SimulationReport report = FleetSimulator.run(config(200, 0, Duration.ofMillis(300)));
+
+        assertEquals(200, report.machines());
+        assertTrue(report.transactions() >= 200, report.toString());
+        assertEquals(report.transactions(), report.latency().getCount());
+        assertEquals(0, report.otherFailures());
+        assertTrue(report.tableLookups() > 0, report.toString());
+    }
+
+    @Test
+    void run_should_hold_target_rate_when_rate_set() {
+        SimulationReport report = FleetSimulator.run(config(50, 1_000, Duration.ofMillis(500)));
+
+        // 500 transactions are due within the run, staggered across the machines
+        assertEquals(500, report.transactions(), 5);
+    }
+
+    @Test
+    void run_should_fail_change_when_machines_never_refilled() {
+        SimulationConfig config = new SimulationConfig(currency, Map.of(), 2, PriceCatalogue.parse("30:1"),
+                Map.of(PaymentStyle.LARGEST_COIN, 1), 0, 0, Duration.ofMillis(100), 1);
+
+        SimulationReport report = FleetSimulator.run(config);
+
+        assertEquals(report.transactions(), report.changeFailures());
+        assertEquals(1, report.changeFailureRate());
+    }
+
+    @Test
+    void replay_should_time_transactions_and_run_other_commands() throws IOException {
+        CashManagerImpl cashManager = new CashManagerImpl(currency, Map.of(20, 1));
+        String log = """
+                # recorded log
+                transaction 80 100:1
+                transaction 80 100:1
+                add 20 5
+                transaction 80 100:1
+                transaction 80 50:1
+                transaction 80 nonsense
+                """;
+
+        SimulationReport report = FleetSimulator.replay(cashManager, new BufferedReader(new StringReader(log)), 0);
+
+        assertEquals(5, report.transactions());
+        assertEquals(1, report.changeFailures());
+        assertEquals(2, report.otherFailures());
+        // the unparseable transaction is counted as a failure without being timed
+        assertEquals(4, report.latency().getCount());
+        assertEquals(2, cashManager.getDenominationCounts().get(100));
+        assertEquals(4, cashManager.getDenominationCounts().get(20));
+    }
+
+    @Test
+    void fromProperties_should_use_defaults_when_properties_missing() {
+        Properties properties = new Properties();
+        properties.setProperty("machines", "3");
+        properties.setProperty("payment", "exact:1");
+
+        SimulationConfig config = SimulationConfig.fromProperties(properties, currency, startingFloat);
+
+        assertEquals(3, config.machines());
+        assertEquals(startingFloat, config.startingFloat());
+        assertEquals(Map.of(PaymentStyle.EXACT, 1), config.paymentMix());
+        assertEquals(Duration.ofSeconds(10), config.duration());
+        assertEquals(0, config.targetRatePerSecond());
+        assertEquals(List.of(65, 80, 120, 175, 250), config.catalogue().getPrices());
+    }
+
+    @Test
+    void config_should_throw_exception_when_invalid() {
+        assertThrows(IllegalArgumentException.class, () -> config(0, 0, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> config(1, -1, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> config(1, 0, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> PriceCatalogue.parse("80:0"));
+        assertThrows(IllegalArgumentException.class, () -> PriceCatalogue.parse("-5:1"));
+        assertThrows(IllegalArgumentException.class, () -> PriceCatalogue.parse("80"));
+    }
+
+    private SimulationConfig config(final int machines, final double rate, final Duration duration) {
+        return new SimulationConfig(currency, startingFloat, machines, PriceCatalogue.parse(SimulationConfig.DEFAULT_CATALOGUE),
+                Map.of(PaymentStyle.EXACT, 1, PaymentStyle.LARGEST_COIN, 1, PaymentStyle.RANDOM_COINS, 1), 50, rate, duration, 7);
+    }
+}
@@ -0,0 +1,46 @@
+package org.cashmanager.simulator;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.contract.DenominationIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentStyleTest {
+    private final DenominationIndex denominationIndex = Currency.GBP.getDenominationIndex();
+    private final SplittableRandom random = new SplittableRandom(3);
+
+    @Test
+    void pay_should_pay_exact_price_with_fewest_coins_when_exact() {
+        assertEquals(Map.of(100, 1, 50, 1, 20, 1, 5, 1), PaymentStyle.EXACT.pay(175, denominationIndex, random));
+    }
+
+    @Test
+    void pay_should_cover_price_with_largest_coins_when_largest_coin() {
+        assertEquals(Map.of(200, 1), PaymentStyle.LARGEST_COIN.pay(175, denominationIndex, random));
+        assertEquals(Map.of(200, 2), PaymentStyle.LARGEST_COIN.pay(250, denominationIndex, random));
+    }
+
+    @Test
+    void pay_should_cover_price_when_random_coins() {
+        for (int price = 1; price < 500; price += 7) {
+            Map<Integer, Integer> coins = PaymentStyle.RANDOM_COINS.pay(price, denominationIndex, random);
+            assertTrue(denominationIndex.totalValue(coins) >= price, coins.toString());
+        }
+    }
+
+    @Test
+    void nextPrice_should_follow_weights() {
+        PriceCatalogue catalogue = PriceCatalogue.parse("80:3,120:1");
+        int eighties = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (catalogue.nextPrice(random) == 80) {
+                eighties++;
+            }
+        }
+        assertEquals(7_500, eighties, 250);
+    }
+}
@@ -0,0 +1,171 @@
+package org.cashmanager.store;
+
+import org.cashmanager.contract.Currency;
+import org.cashmanager.core.InsufficientCoinsException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FloatStoreTest {
+    private final Currency currency = Currency.GBP;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void allocate_should_start_every_float_empty() {
+        FloatStore store = FloatStore.allocate(currency, 3);
+
+        assertEquals(3, store.getCapacity());
+        assertArrayEquals(new int[8], store.copyCounts(2));
+        assertArrayEquals(new long[8], store.totals());
+    }
+
+    @Test
+    void update_should_change_only_the_machine_and_record_changed_slots() {
+        FloatStore store = FloatStore.allocate(currency, 3);
+
+        store.update(1, counts -> counts[3] += 5);
+
+        int[] counts = new int[8];
+        assertEquals(1 << 3, store.readCounts(1, counts));
+        assertArrayEquals(new int[]{0, 0, 0, 5, 0, 0, 0, 0}, counts);
+        assertArrayEquals(new int[8], store.copyCounts(0));
+        assertArrayEquals(new int[8], store.copyCounts(2));
+        assertEquals(5, store.getCount(1, 3));
+    }
+
+    @Test
+    void update_should_leave_row_unchanged_when_count_would_fall_below_zero() {
+        FloatStore store = FloatStore.allocate(currency, 1);
+        store.reset(0, new int[]{1, 0, 0, 0, 0, 0, 0, 0}, 1);
+
+        assertThrows(InsufficientCoinsException.class, () -> store.update(0, counts -> counts[0] -= 2));
+        assertThrows(IllegalStateException.class, () -> store.update(0, counts -> {
+            counts[0] = 9;
+            throw new IllegalStateException("failed");
+        }));
+
+        assertArrayEquals(new int[]{1, 0, 0, 0, 0, 0, 0, 0}, store.copyCounts(0));
+        store.update(0, counts -> counts[0]--);
+        assertArrayEquals(new int[8], store.copyCounts(0));
+    }
+
+    @Test
+    void update_should_apply_every_change_when_called_concurrently() throws InterruptedException {
+        FloatStore store = FloatStore.allocate(currency, 2);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    store.update(0, counts -> {
+                        counts[4]++;
+                        return counts[5] += 2;
+                    });
+                    int[] counts = store.copyCounts(0);
+                    assertEquals(counts[4] * 2, counts[5]);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertArrayEquals(new int[]{0, 0, 0, 0, 40_000, 80_000, 0, 0}, store.copyCounts(0));
+        assertArrayEquals(new int[8], store.copyCounts(1));
+    }
+
+    @Test
+    void update_should_calculate_again_when_row_changed_during_calculation() {
+        FloatStore store = FloatStore.allocate(currency, 1);
+        AtomicInteger calculations = new AtomicInteger();
+
+        store.update(0, counts -> {
+            if (calculations.incrementAndGet() == 1) {
+                assertArrayEquals(new int[8], store.copyCounts(0));
+                store.update(0, inner -> inner[2] += 3);
+            }
+            return counts[2] *= 2;
+        });
+
+        assertEquals(2, calculations.get());
+        assertArrayEquals(new int[]{0, 0, 6, 0, 0, 0, 0, 0}, store.copyCounts(0));
+    }
+
+    @Test
+    void totals_and_findLowTubes_should_scan_every_machine() {
+        FloatStore store = FloatStore.allocate(currency, 10_000);
+        for (int machine = 0; machine < 10_000; machine++) {
+            int twenties = machine % 100;
+            store.reset(machine, new int[]{1, 0, 0, twenties, 0, 0, 0, 0}, 0xFF);
+        }
+
+        long[] totals = store.totals();
+        assertEquals(10_000, totals[0]);
+        assertEquals(100 * (99 * 100 / 2), totals[3]);
+
+        int[] low = store.findLowTubes(20, 2);
+        assertEquals(200, low.length);
+        assertEquals(0, low[0]);
+        assertEquals(1, low[1]);
+        assertEquals(9_901, low[199]);
+        assertEquals(0, store.findLowTubes(200, 1).length);
+    }
+
+    @Test
+    void findLowTubes_should_throw_exception_when_denomination_not_in_currency() {
+        FloatStore store = FloatStore.allocate(currency, 2);
+
+        assertThrows(IllegalArgumentException.class, () -> store.findLowTubes(3, 1));
+        assertThrows(IllegalArgumentException.class, () -> store.findLowTubes(500, 1));
+    }
+
+    @Test
+    void map_should_keep_floats_when_reopened() throws IOException {
+        Path path = directory.resolve("floats.store");
+        try (FloatStore store = FloatStore.map(path, currency, 100)) {
+            store.reset(42, new int[]{0, 0, 3, 0, 0, 0, 0, 7}, 0b10000100);
+        }
+
+        try (FloatStore store = FloatStore.map(path, currency, 100)) {
+            int[] counts = new int[8];
+            assertEquals(0b10000100, store.readCounts(42, counts));
+            assertArrayEquals(new int[]{0, 0, 3, 0, 0, 0, 0, 7}, counts);
+        }
+        assertThrows(IOException.class, () -> FloatStore.map(path, currency, 50));
+    }
+
+    @Test
+    void map_should_unlock_row_left_part_way_through_a_change() throws IOException {
+        Path path = directory.resolve("floats.store");
+        FloatStore.map(path, currency, 10).close();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            // version column of machine 3, left odd as if the process stopped while writing
+            channel.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, 7), 128 + 3 * 4);
+        }
+
+        try (FloatStore store = FloatStore.map(path, currency, 10)) {
+            store.update(3, counts -> counts[0] = 1);
+            assertArrayEquals(new int[]{1, 0, 0, 0, 0, 0, 0, 0}, store.copyCounts(3));
+        }
+    }
+
+    @Test
+    void allocate_should_throw_exception_when_capacity_invalid() {
+        assertThrows(IllegalArgumentException.class, () -> FloatStore.allocate(currency, 0));
+        assertThrows(IllegalArgumentException.class, () -> FloatStore.allocate(currency, 100_000_000));
+        assertThrows(IllegalArgumentException.class, () -> FloatStore.allocate(null, 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> FloatStore.allocate(currency, 1).copyCounts(1));
+    }
+}
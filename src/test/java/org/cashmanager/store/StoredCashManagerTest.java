@@ -0,0 +1,119 @@
+package org.cashmanager.store;
+
+import org.cashmanager.CashManager;
+import org.cashmanager.contract.CashTransaction;
+import org.cashmanager.contract.Currency;
+import org.cashmanager.contract.TransactionResult;
+import org.cashmanager.core.CashManagerImpl;
+import org.cashmanager.core.InsufficientCoinsException;
+import org.cashmanager.core.InsufficientPaymentException;
+import org.cashmanager.metrics.FailureReason;
+import org.cashmanager.metrics.Operation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StoredCashManagerTest {
+    private final Currency currency = Currency.GBP;
+    private FloatStore store;
+    private CashManager cashManager;
+
+    @BeforeEach
+    void setup() {
+        store = FloatStore.allocate(currency, 4);
+        cashManager = store.cashManager(1);
+        cashManager.resetCoins(Map.of(50, 2, 20, 3, 10, 0));
+    }
+
+    @Test
+    void getDenominationCounts_should_include_recorded_denominations_when_empty() {
+        assertEquals(Map.of(50, 2, 20, 3, 10, 0), cashManager.getDenominationCounts());
+        assertEquals(List.of(50, 20, 10), List.copyOf(cashManager.getDenominationCounts().keySet()));
+        assertEquals(Map.of(), store.cashManager(0).getDenominationCounts());
+    }
+
+    @Test
+    void processTransaction_should_add_coins_and_return_change_when_change_possible() {
+        assertEquals(Map.of(20, 1), cashManager.processTransaction(new CashTransaction(80, Map.of(100, 1))));
+
+        assertEquals(Map.of(100, 1, 50, 2, 20, 2, 10, 0), cashManager.getDenominationCounts());
+        assertEquals(1, store.getMetrics().snapshot().getLatency(Operation.TRANSACTION).getCount());
+    }
+
+    @Test
+    void processTransaction_should_leave_float_unchanged_when_change_not_possible() {
+        assertThrows(IllegalStateException.class, () -> cashManager.processTransaction(new CashTransaction(95, Map.of(100, 1))));
+        assertThrows(InsufficientPaymentException.class, () -> cashManager.processTransaction(new CashTransaction(95, Map.of(50, 1))));
+
+        assertEquals(Map.of(50, 2, 20, 3, 10, 0), cashManager.getDenominationCounts());
+        assertEquals(1, cashManager.getMetrics().getFailures().get(FailureReason.CANNOT_MAKE_CHANGE));
+        assertEquals(1, cashManager.getMetrics().getFailures().get(FailureReason.INSUFFICIENT_PAYMENT));
+    }
+
+    @Test
+    void removeCoins_should_remove_value_or_coins_when_float_holds_them() {
+        assertEquals(Map.of(50, 1, 20, 1), cashManager.removeCoins(70));
+        cashManager.removeCoins(Map.of(20, 2));
+        assertThrows(InsufficientCoinsException.class, () -> cashManager.removeCoins(Map.of(50, 2)));
+        assertThrows(IllegalArgumentException.class, () -> cashManager.removeCoins(-1));
+        assertEquals(Map.of(), cashManager.removeCoins(0));
+
+        assertEquals(Map.of(50, 1, 20, 0, 10, 0), cashManager.getDenominationCounts());
+    }
+
+    @Test
+    void processTransactions_should_process_each_transaction_in_order_against_the_row() {
+        List<TransactionResult> results = cashManager.processTransactions(List.of(
+                new CashTransaction(80, Map.of(100, 1)),
+                new CashTransaction(95, Map.of(100, 1)),
+                new CashTransaction(50, Map.of(20, 1)),
+                new CashTransaction(30, Map.of(50, 1))));
+
+        assertEquals(Map.of(20, 1), results.get(0).getChange());
+        assertFalse(results.get(1).isSuccessful());
+        assertFalse(results.get(2).isSuccessful());
+        assertEquals(Map.of(20, 1), results.get(3).getChange());
+        assertEquals(Map.of(100, 1, 50, 3, 20, 1, 10, 0), cashManager.getDenominationCounts());
+    }
+
+    @Test
+    void processTransaction_should_make_change_of_the_same_value_and_size_as_cash_manager_impl() {
+        Map<Integer, Integer> startingFloat = Map.of(200, 3, 100, 2, 50, 4, 20, 6, 10, 5, 5, 2, 2, 3, 1, 2);
+        CashManagerImpl reference = new CashManagerImpl(currency, startingFloat);
+        CashManager stored = store.cashManager(3);
+        stored.resetCoins(startingFloat);
+        SplittableRandom random = new SplittableRandom(11);
+
+        for (int i = 0; i < 300; i++) {
+            CashTransaction transaction = new CashTransaction(1 + random.nextInt(400), Map.of(200, 2));
+            Map<Integer, Integer> expected = changeOrNull(reference, transaction);
+            Map<Integer, Integer> actual = changeOrNull(stored, transaction);
+            assertEquals(expected == null, actual == null, "transaction " + i);
+            if (expected != null) {
+                assertEquals(currency.getDenominationIndex().totalValue(expected), currency.getDenominationIndex().totalValue(actual));
+                assertEquals(coins(expected), coins(actual), "transaction " + i);
+            }
+            if (i % 50 == 49) {
+                reference.resetCoins(startingFloat);
+                stored.resetCoins(startingFloat);
+            }
+        }
+    }
+
+    private static Map<Integer, Integer> changeOrNull(final CashManager cashManager, final CashTransaction transaction) {
+        try {
+            return cashManager.processTransaction(transaction);
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private static int coins(final Map<Integer, Integer> change) {
+        return change.values().stream().mapToInt(Integer::intValue).sum();
+    }
+}
@@ -0,0 +1,39 @@
+package org.cashmanager.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.cashmanager.util.CoinSystems.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CoinSystemsTest {
+    private final int[] gbpDenominations = {200, 100, 50, 20, 10, 5, 2, 1};
+
+    @Test
+    void greedyCoinCount_should_count_coins_taking_largest_first_when_called() {
+        assertEquals(8, greedyCoinCount(gbpDenominations, 388));
+        assertEquals(3, greedyCoinCount(new int[]{4, 3, 1}, 6));
+    }
+
+    @Test
+    void greedyCoinCount_should_return_minus_one_when_value_cannot_be_made() {
+        assertEquals(-1, greedyCoinCount(new int[]{5, 2}, 3));
+    }
+
+    @Test
+    void counterexampleBound_should_sum_two_largest_denominations_when_called() {
+        assertEquals(300, counterexampleBound(gbpDenominations));
+        assertEquals(7, counterexampleBound(new int[]{4, 3, 1}));
+    }
+
+    @Test
+    void findSmallestCounterexample_should_return_minus_one_when_coin_system_canonical() {
+        assertEquals(-1, findSmallestCounterexample(gbpDenominations));
+        assertEquals(-1, findSmallestCounterexample(new int[]{25, 10, 5, 1}));
+    }
+
+    @Test
+    void findSmallestCounterexample_should_return_smallest_counterexample_when_coin_system_not_canonical() {
+        assertEquals(6, findSmallestCounterexample(new int[]{4, 3, 1}));
+        assertEquals(30, findSmallestCounterexample(new int[]{25, 10, 1}));
+    }
+}
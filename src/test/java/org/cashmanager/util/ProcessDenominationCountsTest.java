@@ -1,5 +1,6 @@
 package org.cashmanager.util;
 
+import org.cashmanager.contract.Currency;
 import org.junit.jupiter.api.Test;
 
 import java.util.Iterator;
@@ -8,7 +9,11 @@ import java.util.TreeMap;
 
 import static org.cashmanager.util.ProcessDenominationCounts.combineDenominationCounts;
 import static org.cashmanager.util.ProcessDenominationCounts.filterEmptyAndAddToTree;
+import static org.cashmanager.util.ProcessDenominationCounts.toDenominationCounts;
+import static org.cashmanager.util.ProcessDenominationCounts.toSlotCounts;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class ProcessDenominationCountsTest {
 
@@ -46,4 +51,14 @@ public class ProcessDenominationCountsTest {
         assertEquals(7, combinedMap.get(50));
         assertEquals(5, combinedMap.get(20));
     }
+
+    @Test
+    void toSlotCounts_and_toDenominationCounts_should_convert_between_maps_and_slots_when_called() {
+        int[] slotCounts = toSlotCounts(Currency.GBP, Map.of(200, 1, 1, 3, 50, 0));
+
+        assertArrayEquals(new int[]{1, 0, 0, 0, 0, 0, 0, 3}, slotCounts);
+        assertEquals(Map.of(200, 1, 1, 3), toDenominationCounts(Currency.GBP, slotCounts));
+        assertThrows(IllegalArgumentException.class, () -> toSlotCounts(Currency.GBP, Map.of(3, 1)));
+        assertThrows(IllegalArgumentException.class, () -> toSlotCounts(Currency.GBP, null));
+    }
 }